@@ -16,6 +16,7 @@ android {
         versionName = "1.0"
 
         buildConfigField("String", "SIGNATURE_SHA256", '""')
+        buildConfigField("boolean", "ALLOW_EMULATOR", "false")
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
     }
@@ -48,6 +49,16 @@ android {
                 "proguard-rules.pro"
             )
         }
+        // Release code and R8, signed with the debug key, for :macrobenchmark on an
+        // emulator. src/benchmark adds the shell hooks the journeys use.
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+            isDebuggable = false
+            buildConfigField("String", "SIGNATURE_SHA256", "\"\"")
+            buildConfigField("boolean", "ALLOW_EMULATOR", "true")
+        }
     }
 
     compileOptions {
@@ -71,7 +82,6 @@ dependencies {
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
-    implementation(libs.shake.detector)
     implementation("com.google.android.gms:play-services-maps:18.2.0")
     implementation("com.google.android.gms:play-services-location:21.3.0")
     implementation("com.google.android.gms:play-services-base:18.2.0")
@@ -82,8 +92,13 @@ dependencies {
     implementation("com.google.firebase:firebase-firestore:25.1.1")
     implementation("com.google.firebase:firebase-installations:17.2.0")
     implementation("androidx.security:security-crypto:1.1.0-alpha06")
+    implementation("androidx.work:work-runtime:2.9.1")
+    // Installs the Baseline Profile (src/main/baseline-prof.txt) on sideloaded builds too
+    implementation(libs.profileinstaller)
+    // Trace sections the :macrobenchmark journeys measure
+    implementation(libs.tracing)
     implementation("org.tensorflow:tensorflow-lite:2.14.0")
     implementation("org.tensorflow:tensorflow-lite-support:0.4.4")
-    // Use local JAR for TarsosDSP
-    implementation(files("libs/TarsosDSP-2.4.jar"))
+    // Also brings in the local TarsosDSP jar (libs/TarsosDSP-2.4.jar) through its api dependency
+    implementation(project(":detection-core"))
 }
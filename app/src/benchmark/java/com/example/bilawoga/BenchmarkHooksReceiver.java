@@ -0,0 +1,68 @@
+package com.example.bilawoga;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.bilawoga.detection.SosCoalescer;
+import com.example.bilawoga.utils.EmergencyProfile;
+import com.example.bilawoga.utils.EmergencyProfileManager;
+import com.example.bilawoga.utils.OnboardingManager;
+import com.example.bilawoga.utils.SOSCoordinator;
+import com.example.bilawoga.utils.SecureStorageManager;
+
+/**
+ * BENCHMARK HOOKS
+ * Shell entry points for the :macrobenchmark journeys; only in the benchmark build type.
+ *
+ * - SEED: a finished onboarding and a test profile with TEST_MODE on, so cold starts land
+ *   on MainActivity and no SMS ever leaves the emulator
+ * - SHAKE: what ShakeService does once its detector fires; an emulator cannot be shaken
+ *   from a test
+ */
+public class BenchmarkHooksReceiver extends BroadcastReceiver {
+    private static final String TAG = "BenchmarkHooks";
+    public static final String ACTION_SEED = "com.example.bilawoga.benchmark.SEED";
+    public static final String ACTION_SHAKE = "com.example.bilawoga.benchmark.SHAKE";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Context app = context.getApplicationContext();
+        if (ACTION_SHAKE.equals(intent.getAction())) {
+            SOSCoordinator.getInstance(app).trigger(SosCoalescer.Source.SHAKE,
+                    SosCoalescer.Urgency.CONFIRM, null);
+        } else if (ACTION_SEED.equals(intent.getAction())) {
+            // Opening secure storage is too slow for the main thread
+            PendingResult result = goAsync();
+            new Thread(() -> {
+                try {
+                    seed(app);
+                } finally {
+                    result.finish();
+                }
+            }, TAG).start();
+        }
+    }
+
+    private static void seed(Context context) {
+        SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
+        if (prefs == null) {
+            Log.e(TAG, "Secure storage unavailable, not seeding");
+            return;
+        }
+        prefs.edit()
+                .putString(EmergencyProfile.KEY_USERNAME, "Benchmark")
+                .putString(EmergencyProfile.KEY_INCIDENT_TYPE, "Benchmark run")
+                .putString(EmergencyProfile.KEY_EMERGENCY_NUMBER_1, "+254700000001")
+                .putString(EmergencyProfile.KEY_EMERGENCY_NUMBER_2, "+254700000002")
+                .putBoolean("TEST_MODE", true)
+                .commit();
+        new OnboardingManager(context).completeOnboarding();
+        // completeOnboarding() applies; an empty commit waits for it behind the same writer
+        prefs.edit().commit();
+        EmergencyProfileManager.getInstance(context).reload();
+        Log.d(TAG, "Seeded benchmark profile");
+    }
+}
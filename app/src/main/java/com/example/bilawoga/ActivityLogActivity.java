@@ -0,0 +1,99 @@
+package com.example.bilawoga;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.AbsListView;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.ListView;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.bilawoga.detection.IncidentRecord;
+import com.example.bilawoga.utils.IncidentStore;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The incident log, newest first. Pages are read from the IncidentStore as the list
+ * scrolls, so only what has been scrolled past is ever in memory.
+ */
+public class ActivityLogActivity extends AppCompatActivity {
+    private static final int PAGE_SIZE = 50;
+    // Start loading the next page when this close to the end of the list
+    private static final int PREFETCH_ROWS = 10;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+
+    private ArrayAdapter<String> adapter;
+    private TextView emptyView;
+    private String nextCursor;
+    private boolean loading;
+    private boolean reachedEnd;
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_activity_log);
+
+        Button backButton = findViewById(R.id.log_back_button);
+        backButton.setOnClickListener(v -> finish());
+
+        ListView list = findViewById(R.id.log_list);
+        emptyView = findViewById(R.id.log_empty);
+        adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1);
+        list.setAdapter(adapter);
+        list.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (firstVisibleItem + visibleItemCount >= totalItemCount - PREFETCH_ROWS) {
+                    loadNextPage();
+                }
+            }
+        });
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (loading || reachedEnd) return;
+        loading = true;
+        String cursor = nextCursor;
+        IncidentStore store = IncidentStore.getInstance(this);
+        executor.execute(() -> {
+            IncidentStore.Page page = store.page(cursor, PAGE_SIZE, null);
+            mainHandler.post(() -> onPageLoaded(page));
+        });
+    }
+
+    private void onPageLoaded(IncidentStore.Page page) {
+        if (isDestroyed()) return;
+        for (IncidentRecord record : page.records) {
+            adapter.add(timeFormat.format(new Date(record.timeMillis)) + "\n" + record.summary());
+        }
+        nextCursor = page.nextCursor;
+        reachedEnd = nextCursor == null;
+        loading = false;
+        emptyView.setVisibility(adapter.isEmpty() ? View.VISIBLE : View.GONE);
+        findViewById(R.id.log_list).setVisibility(adapter.isEmpty() ? View.GONE : View.VISIBLE);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        executor.shutdownNow();
+    }
+}
@@ -14,18 +14,19 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.tracing.Trace;
 
-import com.example.bilawoga.utils.SOSHelper;
+import com.example.bilawoga.utils.AppStartup;
+import com.example.bilawoga.utils.SOSCoordinator;
 import com.example.bilawoga.utils.SecureStorageManager;
 
 public class CountdownActivity extends AppCompatActivity {
-    public static final String EXTRA_USER = "user";
-    public static final String EXTRA_INCIDENT = "incident";
-    public static final String EXTRA_EM1 = "em1";
-    public static final String EXTRA_EM2 = "em2";
+    public static final String EXTRA_SESSION_ID = "session_id";
 
     private CountDownTimer timer;
     private boolean cancelled = false;
+    /** Sent or cancelled through this screen; otherwise leaving it cancels the session. */
+    private boolean resolved = false;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -36,6 +37,10 @@ public class CountdownActivity extends AppCompatActivity {
         TextView timerText = findViewById(R.id.timerText);
         Button cancelBtn = findViewById(R.id.cancelBtn);
         Button sendNowBtn = findViewById(R.id.sendNowBtn);
+        if (savedInstanceState == null) {
+            AppStartup.runAfterFirstFrame(() -> Trace.endAsyncSection(
+                    SOSCoordinator.TRACE_COUNTDOWN, (int) sessionId()));
+        }
 
         title.setText("Emergency SOS will send in:");
         timer = new CountDownTimer(5000, 1000) {
@@ -47,28 +52,49 @@ public class CountdownActivity extends AppCompatActivity {
             }
         }.start();
 
-        cancelBtn.setOnClickListener(v -> { cancelled = true; finish(); });
+        cancelBtn.setOnClickListener(v -> {
+            cancelled = true;
+            resolved = true;
+            if (!SOSCoordinator.getInstance(this).cancel(sessionId())) {
+                android.widget.Toast.makeText(this, "SOS already sent", android.widget.Toast.LENGTH_SHORT).show();
+            }
+            finish();
+        });
         sendNowBtn.setOnClickListener(v -> { cancelled = true; doSend(); });
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (timer != null) {
+            timer.cancel();
+        }
+        // Back, swipe-away or the system killing the screen: an open, unsent session would
+        // swallow every further trigger for its whole window, so close it
+        if (!resolved && !isChangingConfigurations()) {
+            SOSCoordinator.getInstance(this).cancel(sessionId());
+        }
+    }
+
     private void doSend() {
+        resolved = true;
         SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(this);
         boolean testMode = prefs != null && prefs.getBoolean("TEST_MODE", false);
 
-        String user = getIntent().getStringExtra(EXTRA_USER);
-        String incident = getIntent().getStringExtra(EXTRA_INCIDENT);
-        String em1 = getIntent().getStringExtra(EXTRA_EM1);
-        String em2 = getIntent().getStringExtra(EXTRA_EM2);
-
         if (testMode) {
             // Skip real send in test mode
+            SOSCoordinator.getInstance(this).cancel(sessionId());
             android.widget.Toast.makeText(this, "Test Mode: SOS not sent", android.widget.Toast.LENGTH_SHORT).show();
             finish();
             return;
         }
 
-        SOSHelper helper = new SOSHelper(this);
-        helper.sendEmergencySOS(user, incident, em1, em2);
+        // No-op if another trigger already escalated the session and sent it
+        SOSCoordinator.getInstance(this).dispatch(sessionId());
         finish();
     }
+
+    private long sessionId() {
+        return getIntent().getLongExtra(EXTRA_SESSION_ID, 0);
+    }
 }
\ No newline at end of file
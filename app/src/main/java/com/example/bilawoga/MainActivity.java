@@ -24,6 +24,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.speech.tts.TextToSpeech;
 import android.util.Log;
 import android.view.View;
@@ -36,16 +37,19 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 
+import com.example.bilawoga.detection.SosCoalescer;
 import com.example.bilawoga.utils.AppAnalytics;
+import com.example.bilawoga.utils.AppStartup;
+import com.example.bilawoga.utils.EmergencyProfile;
+import com.example.bilawoga.utils.EmergencyProfileManager;
 import com.example.bilawoga.utils.EmergencyContactVerifier;
 import com.example.bilawoga.utils.OnboardingManager;
 import com.example.bilawoga.utils.SecureStorageManager;
 import com.example.bilawoga.utils.SilentEmergencyAI;
 import com.example.bilawoga.utils.SmartNotificationManager;
 import com.example.bilawoga.utils.CountdownDialog;
-import com.example.bilawoga.utils.SOSHelper;
+import com.example.bilawoga.utils.SOSCoordinator;
 import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
 
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
@@ -148,12 +152,6 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     private EmergencyContactVerifier contactVerifier;
     private OnboardingManager onboardingManager;
 
-    // Use the keys defined in SOSHelper for consistency and clarity
-    private static final String KEY_USERNAME = "USERNAME";
-    private static final String KEY_INCIDENT_TYPE = "INCIDENT_TYPE";
-    private static final String KEY_EMERGENCY_NUMBER_1 = "ENUM_1";
-    private static final String KEY_EMERGENCY_NUMBER_2 = "ENUM_2";
-
 
 
     private final ActivityResultLauncher<String[]> multiplePermissions = registerForActivityResult(
@@ -197,7 +195,7 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     private static final String KEY_CRASH_REPORTING = "crash_reporting";
     private static final String KEY_FIRST_TIME_PERMISSIONS = "first_time_permissions";
     
-    // BroadcastReceiver for SMS status
+    // BroadcastReceiver for SMS status toasts; SmsStatusReceiver records them
     private BroadcastReceiver smsSentReceiver;
     private BroadcastReceiver smsDeliveredReceiver;
     private Object showSOSSuccessPopup;
@@ -253,11 +251,7 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     private void initializeSensors() {
         // Ensure toolbar and menu work; no sensor init yet
         initializeViews();
-        // Ensure TEST_MODE toggle entry in menu or settings can be added later
-        SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(this);
-        if (prefs != null && prefs.getBoolean("TEST_MODE", false)) {
-            Toast.makeText(this, "Test Mode is ON", Toast.LENGTH_SHORT).show();
-        }
+        // The TEST_MODE notice needs storage; onStartupReady() shows it
     }
 
     // Remove programmatic menu inflation; use Toolbar's app:menu in XML as requested.
@@ -291,10 +285,10 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             Toast.makeText(this, "Terms of Use", Toast.LENGTH_SHORT).show();
             return true;
         } else if (id == R.id.action_view_log) {
-            Toast.makeText(this, "Activity Log", Toast.LENGTH_SHORT).show();
+            startActivity(new Intent(this, ActivityLogActivity.class));
             return true;
         } else if (id == R.id.action_panic_wipe) {
-            Toast.makeText(this, "Panic wipe requested", Toast.LENGTH_SHORT).show();
+            confirmPanicWipe();
             return true;
         }
         return super.onOptionsItemSelected(item);
@@ -330,52 +324,24 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     }
 
     private void backupDataToFirebaseAndLogout() {
-        // Gather data from encrypted prefs
-        SharedPreferences prefs = com.example.bilawoga.utils.SecureStorageManager.getEncryptedSharedPreferences(this);
-        if (prefs == null) {
+        // Sealed here, uploaded by WorkManager once there is a network; logout never waits on it
+        com.example.bilawoga.utils.ProfileBackupQueue.EnqueueResult result =
+                com.example.bilawoga.utils.ProfileBackupQueue.getInstance(this).enqueueBackup();
+        if (result == com.example.bilawoga.utils.ProfileBackupQueue.EnqueueResult.UNAVAILABLE) {
             Toast.makeText(this, "Secure storage not available", Toast.LENGTH_SHORT).show();
             return;
         }
-        String username = prefs.getString("USERNAME", "");
-        String num1 = prefs.getString("ENUM_1", "");
-        String num2 = prefs.getString("ENUM_2", "");
-        String incident = prefs.getString("INCIDENT_TYPE", "");
-
-        // Anonymous sign-in then write to Firestore
-        com.google.firebase.auth.FirebaseAuth auth = com.google.firebase.auth.FirebaseAuth.getInstance();
-        auth.signInAnonymously()
-            .addOnSuccessListener(result -> {
-                com.google.firebase.installations.FirebaseInstallations.getInstance().getId()
-                    .addOnSuccessListener(fid -> {
-                        String docId = (fid != null && !fid.isEmpty()) ? fid : (result.getUser() != null ? result.getUser().getUid() : java.util.UUID.randomUUID().toString());
-                        java.util.Map<String, Object> data = com.example.bilawoga.utils.CloudBackupCrypto.buildEncryptedPayload(
-                                username, num1, num2, incident, System.currentTimeMillis());
-
-                        com.google.firebase.firestore.FirebaseFirestore db = com.google.firebase.firestore.FirebaseFirestore.getInstance();
-                        db.collection("backups").document(docId)
-                            .set(data)
-                            .addOnSuccessListener(unused -> {
-                                Toast.makeText(this, "Backup complete. Logging out...", Toast.LENGTH_LONG).show();
-                                // Sign out and wipe local
-                                try { com.google.firebase.auth.FirebaseAuth.getInstance().signOut(); } catch (Throwable ignore) {}
-                                com.example.bilawoga.utils.SecureStorageManager.secureWipeAllData(this);
-                                if (sharedPrefs != null) { sharedPrefs.edit().clear().apply(); }
-                                // Go to onboarding
-                                Intent i = new Intent(this, OnboardingActivity.class);
-                                i.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-                                startActivity(i);
-                            })
-                            .addOnFailureListener(e -> {
-                                Toast.makeText(this, "Backup failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                            });
-                    })
-                    .addOnFailureListener(e -> {
-                        Toast.makeText(this, "Backup failed (FID): " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    });
-            })
-            .addOnFailureListener(e -> {
-                Toast.makeText(this, "Anonymous sign-in failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
-            });
+        Toast.makeText(this, result == com.example.bilawoga.utils.ProfileBackupQueue.EnqueueResult.QUEUED
+                ? "Backup will upload when online. Logging out..."
+                : "Backup is up to date. Logging out...", Toast.LENGTH_LONG).show();
+        // Sign out and wipe local
+        try { com.google.firebase.auth.FirebaseAuth.getInstance().signOut(); } catch (Throwable ignore) {}
+        com.example.bilawoga.utils.SecureStorageManager.secureWipeAllData(this, true);
+        if (sharedPrefs != null) { sharedPrefs.edit().clear().apply(); }
+        // Go to onboarding
+        Intent i = new Intent(this, OnboardingActivity.class);
+        i.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        startActivity(i);
     }
 
     private void showPolicyDialog(String title, String htmlContent) {
@@ -426,6 +392,25 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         }
     }
 
+    /**
+     * One tap to confirm, then the wipe itself takes milliseconds whatever is stored:
+     * SecureStorageManager destroys the keys and deletes the files afterwards.
+     */
+    private void confirmPanicWipe() {
+        new AlertDialog.Builder(this)
+                .setTitle("Panic wipe")
+                .setMessage("Erase all data on this device now? This cannot be undone.")
+                .setNegativeButton("Cancel", (d, w) -> d.dismiss())
+                .setPositiveButton("Wipe now", (d, w) -> {
+                    SecureStorageManager.secureWipeAllData(this);
+                    try { com.google.firebase.auth.FirebaseAuth.getInstance().signOut(); } catch (Throwable ignore) {}
+                    Intent i = new Intent(this, OnboardingActivity.class);
+                    i.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+                    startActivity(i);
+                })
+                .show();
+    }
+
     // Confirm logout and warn about data erasure
     private void showLogoutConfirmDialog() {
         new AlertDialog.Builder(this)
@@ -484,10 +469,9 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
 
         if (numbersText != null) {
             if (areEmergencyNumbersVisible) {
-                // Load full contacts from encrypted storage
-                SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(this);
-                String num1 = (prefs != null) ? prefs.getString(KEY_EMERGENCY_NUMBER_1, "") : "";
-                String num2 = (prefs != null) ? prefs.getString(KEY_EMERGENCY_NUMBER_2, "") : "";
+                EmergencyProfile profile = EmergencyProfileManager.getInstance(this).getProfile();
+                String num1 = profile.emergencyNumber1;
+                String num2 = profile.emergencyNumber2;
 
                 StringBuilder sb = new StringBuilder();
                 if (num1 != null && !num1.isEmpty()) {
@@ -511,10 +495,8 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     private void startServiceAutomatically() {
         showToast("Service started");
         // Optional: navigate to RegisterNumberActivity if contacts not set
-        SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(this);
-        String num1 = (prefs != null) ? prefs.getString(KEY_EMERGENCY_NUMBER_1, "") : "";
-        String num2 = (prefs != null) ? prefs.getString(KEY_EMERGENCY_NUMBER_2, "") : "";
-        if ((num1 == null || num1.isEmpty()) && (num2 == null || num2.isEmpty())) {
+        EmergencyProfile profile = EmergencyProfileManager.getInstance(this).getProfile();
+        if (profile.emergencyNumber1.isEmpty() && profile.emergencyNumber2.isEmpty()) {
             startActivity(new Intent(this, RegisterNumberActivity.class));
         }
     }
@@ -535,15 +517,14 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
      * @param view The view that was clicked
      */
     public void sendMessage(View view) {
-        // Load latest saved data
-        SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(this);
-        String userName = (prefs != null) ? prefs.getString(KEY_USERNAME, "") : "";
-        String incidentType = (prefs != null) ? prefs.getString(KEY_INCIDENT_TYPE, "Emergency") : "Emergency";
-        String emergencyNumber1 = (prefs != null) ? prefs.getString(KEY_EMERGENCY_NUMBER_1, "") : "";
-        String emergencyNumber2 = (prefs != null) ? prefs.getString(KEY_EMERGENCY_NUMBER_2, "") : "";
-
-        // Validate numbers early with same rules as SOSHelper
-        if (!isValidNumberForUi(emergencyNumber1) && !isValidNumberForUi(emergencyNumber2)) {
+        // Latest saved data, validated when it was saved
+        EmergencyProfile profile = EmergencyProfileManager.getInstance(this).getProfile();
+        String userName = profile.userName;
+        String incidentType = profile.incidentTypeOr("Emergency");
+        String emergencyNumber1 = profile.emergencyNumber1;
+        String emergencyNumber2 = profile.emergencyNumber2;
+
+        if (!profile.hasValidNumber()) {
             new AlertDialog.Builder(this)
                     .setTitle("Invalid Emergency Contacts")
                     .setMessage("Please save at least one valid number in +2547XXXXXXXX or 2547XXXXXXXX format.")
@@ -568,7 +549,7 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
                 new CountdownDialog.CountdownListener() {
                     @Override
                     public void onCountdownFinished(String u, String inc, String n1, String n2) {
-                        authenticateAndSendSOS(u, inc, n1, n2);
+                        authenticateAndSendSOS(inc);
                     }
                     @Override
                     public void onCountdownCancelled() {
@@ -578,14 +559,6 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         countdownDialog.show();
     }
 
-    // UI-side validation mirroring SOSHelper rules (without logs)
-    private boolean isValidNumberForUi(String number) {
-        if (number == null || number.trim().isEmpty() || number.equalsIgnoreCase("NONE")) return false;
-        String clean = number.replaceAll("[^0-9+]", "");
-        if (clean.length() < 8) return false;
-        return clean.startsWith("+") || clean.startsWith("254");
-    }
-
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
@@ -606,13 +579,8 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
      * Sends SOS with the latest user data from SharedPreferences
      */
     private void sendSOS() {
-        SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(this);
-        String userName = (prefs != null) ? prefs.getString(KEY_USERNAME, "") : "";
-        String incidentType = (prefs != null) ? prefs.getString(KEY_INCIDENT_TYPE, "Emergency") : "Emergency";
-        String emergencyNumber1 = (prefs != null) ? prefs.getString(KEY_EMERGENCY_NUMBER_1, "") : "";
-        String emergencyNumber2 = (prefs != null) ? prefs.getString(KEY_EMERGENCY_NUMBER_2, "") : "";
-
-        authenticateAndSendSOS(userName, incidentType, emergencyNumber1, emergencyNumber2);
+        EmergencyProfile profile = EmergencyProfileManager.getInstance(this).getProfile();
+        authenticateAndSendSOS(profile.incidentTypeOr("Emergency"));
     }
 
     @SuppressLint("UnspecifiedRegisterReceiverFlag")
@@ -622,21 +590,45 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        // Check if user needs onboarding
-        onboardingManager = new OnboardingManager(this);
-        if (onboardingManager.isNewUser()) {
-            // Start onboarding flow
-            Intent onboardingIntent = new Intent(this, OnboardingActivity.class);
-            startActivity(onboardingIntent);
-            finish();
-            return;
-        }
+        // Storage, the profile and the device checks load in the background (see AppStartup).
+        // The screen is built right away; the SOS buttons come alive once startup is ready
+        // and everything else waits until after the first frame
+        AppStartup startup = AppStartup.getInstance(this);
+        startup.start();
 
-        // Check and request permissions when activity is created
-        checkAndRequestPermissions();
+        setupToolbar();
+        initializeSensors();
+        setupAccessibilityFab();
+        setupTextToSpeech();
+        setupSOSButtons();
+        setSosEnabled(false);
+
+        // Register SMS sent/delivered receivers with the correct action strings
+        registerSmsReceivers();
 
+        startup.whenDone(AppStartup.STEP_SECURE_STORAGE, this, () -> {
+            // Check if user needs onboarding
+            if (SecureStorageManager.getEncryptedSharedPreferences(this) == null) return;
+            onboardingManager = new OnboardingManager(this);
+            if (onboardingManager.isNewUser()) {
+                // Start onboarding flow
+                Intent onboardingIntent = new Intent(this, OnboardingActivity.class);
+                startActivity(onboardingIntent);
+                finish();
+            }
+        });
+        startup.whenDone(AppStartup.STEP_READY, this, this::onStartupReady);
+        AppStartup.runAfterFirstFrame(this::initializeDeferredFeatures);
+    }
+
+    /**
+     * Storage, the profile and the device checks are done: refuse to run on a device that
+     * failed them, otherwise enable SOS and show anything waiting on the user.
+     */
+    private void onStartupReady() {
+        AppStartup startup = AppStartup.getInstance(this);
         // Check for root/jailbreak
-        if (SecureStorageManager.isDeviceTampered()) {
+        if (startup.isDeviceTampered()) {
             new MaterialAlertDialogBuilder(MainActivity.this)
                     .setTitle("Security Warning")
                     .setMessage("This device appears to be rooted, running in an emulator, or otherwise tampered. For your safety, BilaWoga cannot run on this device.")
@@ -649,8 +641,7 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             return;
         }
         // Check app integrity
-        Context context = getApplicationContext();
-        if (!SecureStorageManager.checkAppIntegrity(context)) {
+        if (!startup.isIntegrityOk()) {
             new MaterialAlertDialogBuilder(MainActivity.this)
                     .setTitle("App Integrity Error")
                     .setMessage("This app's integrity check failed. Please reinstall BilaWoga from the official source.")
@@ -663,67 +654,8 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             return;
         }
 
-        // Setup toolbar with overflow menu
-        Toolbar toolbar = findViewById(R.id.toolbar);
-        if (toolbar != null) {
-            toolbar.setTitle("BilaWoga Emergency");
-            // Use Toolbar's app:menu from XML and handle clicks here
-            toolbar.setOnMenuItemClickListener(item -> {
-                int id = item.getItemId();
-                if (id == R.id.action_change_number) {
-                    startActivity(new Intent(this, RegisterNumberActivity.class));
-                    return true;
-                } else if (id == R.id.action_logout) {
-                    showLogoutConfirmDialog();
-                    return true;
-                } else if (id == R.id.action_privacy_policy) {
-                    showPolicyDialog("Privacy Policy", getStringFromAsset("PRIVACY_POLICY.html"));
-                    return true;
-                } else if (id == R.id.action_terms_of_use) {
-                    showPolicyDialog("Terms of Use", getStringFromAsset("TERMS_OF_USE.html"));
-                    return true;
-                } else if (id == R.id.action_view_log) {
-                    Toast.makeText(this, "Activity Log", Toast.LENGTH_SHORT).show();
-                    return true;
-                } else if (id == R.id.action_panic_wipe) {
-                    Toast.makeText(this, "Panic wipe requested", Toast.LENGTH_SHORT).show();
-                    return true;
-                }
-                return false;
-            });
-        }
-
-        FusedLocationProviderClient fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
-        createNotificationChannel();
-        loadSavedData();
-        initializeSensors();
-        // initializeAIShakeDetection(); // DISABLED - class not available
-
-        // Initialize Silent Emergency AI (background monitoring)
-        initializeSilentEmergencyAI();
-
-        setupAccessibilityFab();
-        setupTextToSpeech();
-
-        // Add programmatic click listeners to ensure SOS buttons work
-        setupSOSButtons();
-
-        // Check emergency contact status
-        checkEmergencyContacts();
-
-        // Register SMS broadcast receivers
-        registerSmsReceivers();
-
-        // Initialize Advanced Features
-        if (isAdvancedFeaturesEnabled) {
-            initializeAdvancedFeatures();
-        }
-
-        // Initialize analytics and monitoring systems
-        initializeAnalyticsAndMonitoring();
-
         // Block app if encrypted storage is unavailable
-        context = getApplicationContext();
+        Context context = getApplicationContext();
         SharedPreferences testPrefs = SecureStorageManager.getEncryptedSharedPreferences(context);
         if (testPrefs == null) {
             new MaterialAlertDialogBuilder(MainActivity.this)
@@ -737,6 +669,14 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
                     .show();
             return;
         }
+        setSosEnabled(true);
+        // Startup benchmarks measure time to full display up to here
+        reportFullyDrawn();
+
+        if (testPrefs.getBoolean("TEST_MODE", false)) {
+            Toast.makeText(this, "Test Mode is ON", Toast.LENGTH_SHORT).show();
+        }
+
         // Prompt user to review/update emergency info after 30 days or more
         long now = System.currentTimeMillis();
         long lastUpdate = testPrefs.getLong("LAST_UPDATE_TIME", 0);
@@ -764,36 +704,91 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
                     .show();
         }
 
-        // In onCreate, check for crash recovery
-        context = getApplicationContext();
-        SharedPreferences crashPrefs = SecureStorageManager.getEncryptedSharedPreferences(context);
-        if (crashPrefs != null && crashPrefs.getBoolean("PENDING_SOS", false)) {
+        // Check for crash recovery
+        if (testPrefs.getBoolean("PENDING_SOS", false)) {
             new MaterialAlertDialogBuilder(MainActivity.this)
                     .setTitle("Resume Emergency Alert?")
                     .setMessage("It looks like an emergency alert was interrupted. Would you like to resume sending the SOS?")
                     .setPositiveButton("Resume", (dialog, which) -> {
                         // Retrieve last known user info and send SOS again
-                        String userName = crashPrefs.getString(KEY_USERNAME, "Unknown User");
-                        String incidentType = crashPrefs.getString(KEY_INCIDENT_TYPE, "Manual SOS");
-                        String emergencyNumber1 = crashPrefs.getString(KEY_EMERGENCY_NUMBER_1, "NONE");
-                        String emergencyNumber2 = crashPrefs.getString(KEY_EMERGENCY_NUMBER_2, "NONE");
-                        authenticateAndSendSOS(userName, incidentType, emergencyNumber1, emergencyNumber2);
+                        EmergencyProfile profile = EmergencyProfileManager.getInstance(this).getProfile();
+                        authenticateAndSendSOS(profile.incidentTypeOr("Manual SOS"));
                     })
                     .setNegativeButton("Cancel", (dialog, which) -> {
-                        crashPrefs.edit().putBoolean("PENDING_SOS", false).apply();
+                        testPrefs.edit().putBoolean("PENDING_SOS", false).apply();
                     })
                     .setCancelable(false)
                     .show();
         }
+    }
 
-        // Register SMS sent/delivered receivers with the correct action strings
-        registerSmsReceivers() ;
+    /** Everything the first frame does not need. */
+    private void initializeDeferredFeatures() {
+        if (isFinishing() || isDestroyed()) return;
+        long start = SystemClock.elapsedRealtime();
+
+        // Check and request permissions
+        checkAndRequestPermissions();
+        createNotificationChannel();
+        loadSavedData();
+
+        // Initialize Silent Emergency AI (background monitoring)
+        initializeSilentEmergencyAI();
+
+        // Check emergency contact status
+        checkEmergencyContacts();
+
+        // Initialize Advanced Features
+        if (isAdvancedFeaturesEnabled) {
+            initializeAdvancedFeatures();
+        }
+
+        // Initialize analytics and monitoring systems
+        initializeAnalyticsAndMonitoring();
 
         // Check and display setup mode status after UI is initialized
         checkAndDisplaySetupMode();
+        Log.d(TAG, "Deferred features initialized in " + (SystemClock.elapsedRealtime() - start) + " ms");
+    }
+
+    private void setupToolbar() {
+        // Setup toolbar with overflow menu
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        if (toolbar != null) {
+            toolbar.setTitle("BilaWoga Emergency");
+            // Use Toolbar's app:menu from XML and handle clicks here
+            toolbar.setOnMenuItemClickListener(item -> {
+                int id = item.getItemId();
+                if (id == R.id.action_change_number) {
+                    startActivity(new Intent(this, RegisterNumberActivity.class));
+                    return true;
+                } else if (id == R.id.action_logout) {
+                    showLogoutConfirmDialog();
+                    return true;
+                } else if (id == R.id.action_privacy_policy) {
+                    showPolicyDialog("Privacy Policy", getStringFromAsset("PRIVACY_POLICY.html"));
+                    return true;
+                } else if (id == R.id.action_terms_of_use) {
+                    showPolicyDialog("Terms of Use", getStringFromAsset("TERMS_OF_USE.html"));
+                    return true;
+                } else if (id == R.id.action_view_log) {
+                    startActivity(new Intent(this, ActivityLogActivity.class));
+                    return true;
+                } else if (id == R.id.action_panic_wipe) {
+                    confirmPanicWipe();
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
 
-        // Initialize views
-        MainActivity mainActivity = new MainActivity();
+    // The SOS buttons read the profile, so they stay off until startup has loaded it
+    private void setSosEnabled(boolean enabled) {
+        View send = findViewById(R.id.send);
+        if (send != null) send.setEnabled(enabled);
+        View quickFab = findViewById(R.id.quickSOSFab);
+        if (quickFab != null) quickFab.setEnabled(enabled);
     }
 
     private void setupTextToSpeech() {
@@ -859,10 +854,10 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     private void loadSavedData() {
     }
 
-    private void authenticateAndSendSOS(String userName, String incidentType, String emergencyNumber1, String emergencyNumber2) {
-        // Minimal: directly call SOS helper to send
-        SOSHelper helper = new SOSHelper(this);
-        helper.sendEmergencySOS(userName, incidentType, emergencyNumber1, emergencyNumber2);
+    private void authenticateAndSendSOS(String incidentType) {
+        // The button sends straight away, hurries along a countdown that is already running,
+        // or sends an SOS that already went out again; the contacts come from the profile
+        SOSCoordinator.getInstance(this).trigger(SosCoalescer.Source.MANUAL, SosCoalescer.Urgency.IMMEDIATE, incidentType);
     }
 
     private void createNotificationChannel() {
@@ -95,39 +95,16 @@ public class OnboardingActivity extends AppCompatActivity {
         });
         
         restoreButton.setOnClickListener(v -> {
-            // Manual restore using FID
-            try {
-                com.google.firebase.installations.FirebaseInstallations.getInstance().getId()
-                    .addOnSuccessListener(fid -> {
-                        if (fid != null && !fid.isEmpty()) {
-                            com.google.firebase.firestore.FirebaseFirestore db = com.google.firebase.firestore.FirebaseFirestore.getInstance();
-                            db.collection("backups").document(fid).get()
-                                .addOnSuccessListener(doc -> {
-                                    android.content.SharedPreferences prefs = com.example.bilawoga.utils.SecureStorageManager.getEncryptedSharedPreferences(this);
-                                    if (doc.exists() && prefs != null) {
-                                        android.content.SharedPreferences.Editor ed = prefs.edit();
-                                        String u = com.example.bilawoga.utils.CloudBackupCrypto.tryDecryptString(doc.get("username"));
-                                        String e1 = com.example.bilawoga.utils.CloudBackupCrypto.tryDecryptString(doc.get("enum1"));
-                                        String e2 = com.example.bilawoga.utils.CloudBackupCrypto.tryDecryptString(doc.get("enum2"));
-                                        String it = com.example.bilawoga.utils.CloudBackupCrypto.tryDecryptString(doc.get("incident_type"));
-                                        if (u != null) ed.putString("USERNAME", u);
-                                        if (e1 != null) ed.putString("ENUM_1", e1);
-                                        if (e2 != null) ed.putString("ENUM_2", e2);
-                                        if (it != null) ed.putString("INCIDENT_TYPE", it);
-                                        ed.apply();
-                                        android.widget.Toast.makeText(this, "Restore complete", android.widget.Toast.LENGTH_SHORT).show();
-                                        dialog.dismiss();
-                                        startMainActivity();
-                                    } else {
-                                        android.widget.Toast.makeText(this, "No backup found", android.widget.Toast.LENGTH_SHORT).show();
-                                    }
-                                })
-                                .addOnFailureListener(e -> android.widget.Toast.makeText(this, "Restore failed", android.widget.Toast.LENGTH_SHORT).show());
-                        }
-                    });
-            } catch (Throwable t) {
-                android.widget.Toast.makeText(this, "Restore failed", android.widget.Toast.LENGTH_SHORT).show();
-            }
+            // Manual restore; uses the prefetched cloud copy when there is one
+            com.example.bilawoga.utils.ProfileBackupQueue.getInstance(this).restoreNow(restored -> {
+                if (restored) {
+                    android.widget.Toast.makeText(this, "Restore complete", android.widget.Toast.LENGTH_SHORT).show();
+                    dialog.dismiss();
+                    startMainActivity();
+                } else {
+                    android.widget.Toast.makeText(this, "No backup found", android.widget.Toast.LENGTH_SHORT).show();
+                }
+            });
         });
         
         privacyPolicyLink.setOnClickListener(v -> {
@@ -628,6 +628,8 @@ public class RegisterNumberActivity extends AppCompatActivity {
             editor.putString("INCIDENT_TYPE", incident);
             editor.putLong("LAST_UPDATE_TIME", currentTime);
             editor.apply();
+            // Swap the snapshot now, so an SOS right after saving already uses the new contacts
+            com.example.bilawoga.utils.EmergencyProfileManager.getInstance(this).reload();
             Log.d(TAG, "Saved: USERNAME=" + nameString + ", ENUM_1=" + number1String + ", ENUM_2=" + number2String + ", INCIDENT_TYPE=" + incident);
             String successMsg = "Emergency Contacts Saved Securely!";
             Toast.makeText(this, successMsg, Toast.LENGTH_LONG).show();
@@ -8,12 +8,7 @@ import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
-import android.hardware.SensorManager;
 import android.media.MediaPlayer;
 import android.os.Build;
 import android.os.Handler;
@@ -25,44 +20,56 @@ import androidx.annotation.Nullable;
 import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationCompat;
 
-import com.example.bilawoga.utils.SOSHelper;
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
+import com.example.bilawoga.detection.EvidenceFusion;
+import com.example.bilawoga.detection.SensorSampleSink;
+import com.example.bilawoga.detection.SensorTypes;
+import com.example.bilawoga.detection.ShakeEngine;
+import com.example.bilawoga.detection.SosCoalescer;
+import com.example.bilawoga.utils.EmergencyFusion;
+import com.example.bilawoga.utils.EmergencyProfile;
+import com.example.bilawoga.utils.EmergencyProfileManager;
+import com.example.bilawoga.utils.EvidenceUploader;
+import com.example.bilawoga.utils.MotionGate;
+import com.example.bilawoga.utils.SOSCoordinator;
 
 import java.io.IOException;
 
-public class ServiceMine extends Service implements SensorEventListener {
+public class ServiceMine extends Service implements SensorSampleSink {
     private static final String TAG = "ServiceMine";
     private static final String CHANNEL_ID = "BilaWoga_Service";
-    private static final float SHAKE_THRESHOLD = 8.0f; // Reduced from 12.0f to make it more sensitive
-    private static final long SHAKE_COOLDOWN_MS = 10000; // 10 seconds cooldown
     private static final int NOTIFICATION_ID = 1;
     
     // Battery optimization settings
     private static final int BATTERY_OPTIMIZATION_INTERVAL = 30000; // 30 seconds
     private static final int SERVICE_RESTART_DELAY = 5000; // 5 seconds
 
-    private SensorManager sensorManager;
-    private Sensor accelerometer;
-    private float accelValue;
-    private float accelLast;
-    private float shake;
-    private boolean isShakeCooldown = false;
+    // Parks the accelerometer while the phone lies still
+    private MotionGate motionGate;
+    private ShakeEngine shakeEngine;
 
-    private FusedLocationProviderClient fusedLocationClient;
-    private String userName;
-    private String incidentType;
     private boolean isServiceRunning = false;
     private MediaPlayer emergencySound;
 
+    // Raises an SOS when several detectors agree, none of them alone over its threshold
+    private final EmergencyFusion.FusionListener fusionListener = new EmergencyFusion.FusionListener() {
+        @Override
+        public void onFusedScore(float score, EvidenceFusion.Source strongest) {
+        }
+
+        @Override
+        public void onFusedEmergency(float score, String contributions) {
+            sendEmergencyAlert(SosCoalescer.Source.FUSION);
+        }
+    };
+
     @Override
     public void onCreate() {
         super.onCreate();
         Log.d(TAG, "Service onCreate");
 
         createNotificationChannel();
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
         checkUserInfo();
+        shakeEngine = new ShakeEngine(ShakeService.sensitivityProfile(this));
         initializeSensors();
         initializeEmergencySound();
 
@@ -72,6 +79,13 @@ public class ServiceMine extends Service implements SensorEventListener {
         
         // Start battery optimization monitoring
         startBatteryOptimizationMonitoring();
+
+        // Continue evidence uploads interrupted by a crash or reboot
+        EvidenceUploader.getInstance(this).resumePendingUploads();
+
+        EmergencyFusion fusion = EmergencyFusion.getInstance(this);
+        fusion.addListener(fusionListener);
+        fusion.start();
     }
 
     private void createNotificationChannel() {
@@ -113,35 +127,19 @@ public class ServiceMine extends Service implements SensorEventListener {
     }
 
     private void initializeSensors() {
-        sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
-        if (sensorManager != null) {
-            accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-            if (accelerometer == null) {
-                Log.w(TAG, "No accelerometer found on device");
-                return;
-            }
-
-            sensorManager.registerListener(
-                    this,
-                    accelerometer,
-                    SensorManager.SENSOR_DELAY_NORMAL
-            );
-
-            accelValue = SensorManager.GRAVITY_EARTH;
-            accelLast = SensorManager.GRAVITY_EARTH;
-            shake = 0.00f;
-            Log.d(TAG, "Sensors initialized successfully");
-        } else {
-            Log.e(TAG, "Could not initialize sensor manager");
+        motionGate = new MotionGate(this, this);
+        if (!motionGate.hasAccelerometer()) {
+            Log.w(TAG, "No accelerometer found on device");
+            return;
         }
+        motionGate.start();
+        Log.d(TAG, "Sensors initialized successfully");
     }
 
     private void checkUserInfo() {
-        SharedPreferences sharedPreferences = com.example.bilawoga.utils.SecureStorageManager.getEncryptedSharedPreferences(this);
-        userName = sharedPreferences.getString("USERNAME", "Unknown User");
-        incidentType = sharedPreferences.getString("INCIDENT_TYPE", "an emergency");
-
-        Log.d(TAG, "User info loaded - Name: " + userName);
+        // Loads the profile snapshot now so the first alert does not pay for it
+        EmergencyProfile profile = EmergencyProfileManager.getInstance(this).getProfile();
+        Log.d(TAG, "User info loaded - Name: " + profile.userNameOr("Unknown User"));
     }
 
     private void initializeEmergencySound() {
@@ -166,10 +164,10 @@ public class ServiceMine extends Service implements SensorEventListener {
                     // Update notification to show service is still active
                     updateNotification();
                     
-                    // Check if sensors are still registered
-                    if (sensorManager != null && accelerometer != null) {
+                    // Check if sensors are still registered; a parked gate stays parked
+                    if (motionGate != null) {
                         try {
-                            sensorManager.registerListener(ServiceMine.this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
+                            motionGate.ensureRegistered();
                         } catch (Exception e) {
                             Log.w(TAG, "Re-registering sensor listener: " + e.getMessage());
                         }
@@ -221,11 +219,8 @@ public class ServiceMine extends Service implements SensorEventListener {
                     stopService();
                     return START_NOT_STICKY;
                 case "sendManually":
-                    if (!isShakeCooldown) {
-                        sendEmergencyAlert();
-                    } else {
-                        Log.d(TAG, "Manual send blocked by cooldown");
-                    }
+                    // Joins the shake's session if one is still open instead of sending twice
+                    sendEmergencyAlert(SosCoalescer.Source.MANUAL);
                     break;
                 case "Start":
                     if (!isServiceRunning) {
@@ -239,20 +234,16 @@ public class ServiceMine extends Service implements SensorEventListener {
     }
 
     private void startService() {
-        if (sensorManager != null && accelerometer != null) {
-            sensorManager.registerListener(
-                    this,
-                    accelerometer,
-                    SensorManager.SENSOR_DELAY_NORMAL
-            );
+        if (motionGate != null && motionGate.hasAccelerometer()) {
+            motionGate.start();
             isServiceRunning = true;
             Log.d(TAG, "Service started successfully");
         }
     }
 
     private void stopService() {
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
+        if (motionGate != null) {
+            motionGate.stop();
         }
         isServiceRunning = false;
         stopForeground(true);
@@ -261,46 +252,26 @@ public class ServiceMine extends Service implements SensorEventListener {
     }
 
     @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (!isServiceRunning || isShakeCooldown ||
-                event.sensor.getType() != Sensor.TYPE_ACCELEROMETER) {
+    public void onSensorSample(int sensorType, long timestampNanos, float x, float y, float z) {
+        if (!isServiceRunning || sensorType != SensorTypes.ACCELEROMETER) {
             return;
         }
 
-        float x = event.values[0];
-        float y = event.values[1];
-        float z = event.values[2];
-
-        accelLast = accelValue;
-        accelValue = (float) Math.sqrt(x * x + y * y + z * z);
-        float delta = accelValue - accelLast;
-        shake = shake * 0.9f + delta;
-
-        if (shake > SHAKE_THRESHOLD) {
-            isShakeCooldown = true;
-            sendEmergencyAlert();
-
-            // Reset shake detection after cooldown
-            new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                isShakeCooldown = false;
-                shake = 0.0f;
-                Log.d(TAG, "Shake detection reset after cooldown");
-            }, SHAKE_COOLDOWN_MS);
+        // Engine timing runs on sensor timestamps, so replayed traces see the same
+        // windows and cooldown as the live stream
+        if (shakeEngine.onAcceleration(timestampNanos, x, y, z)) {
+            sendEmergencyAlert(SosCoalescer.Source.SHAKE);
         }
     }
 
-    private void sendEmergencyAlert() {
+    private void sendEmergencyAlert(SosCoalescer.Source source) {
         if (!checkPermissions()) {
             Log.e(TAG, "Missing required permissions for emergency alert");
             return;
         }
 
-        SOSHelper.sendSOSFromService(
-                this,
-                fusedLocationClient,
-                userName,
-                incidentType
-        );
+        String incidentType = EmergencyProfileManager.getInstance(this).getProfile().incidentTypeOr("an emergency");
+        SOSCoordinator.getInstance(this).trigger(source, SosCoalescer.Urgency.CONFIRM, incidentType);
 
         Log.d(TAG, "Emergency alert triggered");
     }
@@ -314,11 +285,6 @@ public class ServiceMine extends Service implements SensorEventListener {
                         PackageManager.PERMISSION_GRANTED;
     }
 
-    @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        // Not used but required by interface
-    }
-
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
@@ -328,9 +294,12 @@ public class ServiceMine extends Service implements SensorEventListener {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
+        if (motionGate != null) {
+            motionGate.stop();
         }
+        EmergencyFusion fusion = EmergencyFusion.getInstance(this);
+        fusion.removeListener(fusionListener);
+        fusion.stop();
         if (emergencySound != null) {
             emergencySound.release();
             emergencySound = null;
@@ -15,22 +15,26 @@ import android.widget.Toast;
 
 import androidx.core.app.ActivityCompat;
 
-import com.example.bilawoga.utils.SOSHelper;
+import com.example.bilawoga.detection.SensorSampleSink;
+import com.example.bilawoga.detection.SensorTypes;
+import com.example.bilawoga.detection.ShakeEngine;
+import com.example.bilawoga.detection.ShakeProfile;
+import com.example.bilawoga.detection.SosCoalescer;
+import com.example.bilawoga.utils.EmergencyProfileManager;
+import com.example.bilawoga.utils.SOSCoordinator;
 
 import com.example.bilawoga.utils.SecureStorageManager;
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
 
-public class ShakeService implements SensorEventListener {
+public class ShakeService implements SensorEventListener, SensorSampleSink {
 
-    private static final float SHAKE_THRESHOLD_GRAVITY = 1.3F;
-    private static final int SHAKE_SLOP_TIME_MS = 1000;
-    private long mShakeTimestamp = 0;
+    /** Encrypted preference holding the shake sensitivity: "high", "medium" or "low". */
+    static final String PREF_SHAKE_SENSITIVITY = "SHAKE_SENSITIVITY";
+
+    private final ShakeEngine shakeEngine;
 
     private final ShakeListener shakeListener;
     private final SensorManager sensorManager;
     private final Sensor accelerometer;
-    private final FusedLocationProviderClient fusedLocationClient;
     // private final SmsManager smsManager; // Removed: Using Intent-based SMS instead
     private final Context context;
     private String myLocation = "Location not available";
@@ -38,20 +42,20 @@ public class ShakeService implements SensorEventListener {
     public ShakeService(Context context, ShakeListener listener) {
         this.context = context;
         this.shakeListener = listener;
+        this.shakeEngine = new ShakeEngine(sensitivityProfile(context));
         sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
         accelerometer = (sensorManager != null) ? sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER) : null;
 
         if (accelerometer == null) {
             Log.e("ShakeService", "Accelerometer sensor is not available!");
         }
-
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
         // smsManager = SmsManager.getDefault(); // Removed: Using Intent-based SMS instead
     }
 
     public void startListening() {
         if (accelerometer != null) {
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_UI);
+            // ShakeEngine windows are sized for ~50 Hz
+            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
             Log.d("ShakeService", "Accelerometer registered successfully.");
         } else {
             Log.e("ShakeService", "Cannot register listener: accelerometer is null.");
@@ -65,23 +69,29 @@ public class ShakeService implements SensorEventListener {
         }
     }
 
+    /**
+     * The user's shake sensitivity setting; every shake entry point uses this so they
+     * all fire on the same gesture.
+     */
+    static ShakeProfile sensitivityProfile(Context context) {
+        try {
+            SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
+            return ShakeProfile.forName(prefs.getString(PREF_SHAKE_SENSITIVITY, null));
+        } catch (Exception e) {
+            Log.e("ShakeService", "Could not read shake sensitivity: " + e.getMessage());
+            return ShakeProfile.MEDIUM;
+        }
+    }
+
     @Override
     public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-            float x = event.values[0];
-            float y = event.values[1];
-            float z = event.values[2];
-
-            float gForce = (float) Math.sqrt((x * x + y * y + z * z) / (SensorManager.GRAVITY_EARTH * SensorManager.GRAVITY_EARTH));
-            Log.d("ShakeService", "Acceleration Detected: " + gForce);
-
-            if (gForce > SHAKE_THRESHOLD_GRAVITY) {
-                final long now = System.currentTimeMillis();
-                if (mShakeTimestamp + SHAKE_SLOP_TIME_MS > now) {
-                    Log.d("ShakeService", "Shake detected too soon. Ignoring.");
-                    return;
-                }
-                mShakeTimestamp = now;
+        onSensorSample(event.sensor.getType(), event.timestamp, event.values[0], event.values[1], event.values[2]);
+    }
+
+    @Override
+    public void onSensorSample(int sensorType, long timestampNanos, float x, float y, float z) {
+        if (sensorType == SensorTypes.ACCELEROMETER) {
+            if (shakeEngine.onAcceleration(timestampNanos, x, y, z)) {
                 Log.d("ShakeService", "Shake detected! Triggering SOS...");
                 if (shakeListener != null) {
                     shakeListener.onShake();
@@ -92,11 +102,10 @@ public class ShakeService implements SensorEventListener {
     }
 
     private void sendSOS() {
-        SharedPreferences sharedPreferences = SecureStorageManager.getEncryptedSharedPreferences(context);
-        String userName = sharedPreferences.getString("USERNAME", "Unknown User");
-        String incidentType = sharedPreferences.getString("INCIDENT_TYPE", "Unspecified Emergency");
+        String incidentType = EmergencyProfileManager.getInstance(context).getProfile()
+                .incidentTypeOr("Unspecified Emergency");
 
-        SOSHelper.sendSOSFromService((ServiceMine) context, fusedLocationClient, userName, incidentType);
+        SOSCoordinator.getInstance(context).trigger(SosCoalescer.Source.SHAKE, SosCoalescer.Urgency.CONFIRM, incidentType);
     }
 
 
@@ -0,0 +1,34 @@
+package com.example.bilawoga;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import com.example.bilawoga.detection.IncidentRecord;
+import com.example.bilawoga.utils.IncidentStore;
+import com.example.bilawoga.utils.SOSHelper;
+
+/**
+ * Records the sent and delivered reports of emergency SMS in the incident log.
+ * Declared in the manifest so reports are kept even when no activity is open.
+ */
+public class SmsStatusReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String contact = intent.getStringExtra(SOSHelper.EXTRA_CONTACT);
+        if (contact == null) return;
+
+        boolean ok = getResultCode() == Activity.RESULT_OK;
+        IncidentRecord.DeliveryStatus status;
+        if (SOSHelper.SMS_SENT_ACTION.equals(intent.getAction())) {
+            status = ok ? IncidentRecord.DeliveryStatus.SENT : IncidentRecord.DeliveryStatus.FAILED;
+        } else if (SOSHelper.SMS_DELIVERED_ACTION.equals(intent.getAction())) {
+            status = ok ? IncidentRecord.DeliveryStatus.DELIVERED : IncidentRecord.DeliveryStatus.NOT_DELIVERED;
+        } else {
+            return;
+        }
+        IncidentStore.getInstance(context).record(IncidentRecord.delivery(
+                intent.getLongExtra(SOSHelper.EXTRA_INCIDENT_ID, 0), System.currentTimeMillis(), contact, status));
+    }
+}
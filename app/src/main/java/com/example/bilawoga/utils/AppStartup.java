@@ -0,0 +1,140 @@
+package com.example.bilawoga.utils;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.example.bilawoga.detection.IntegrityVerdict;
+import com.example.bilawoga.detection.StartupGraph;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * APP STARTUP
+ * Cold-start work as a StartupGraph, run once per process on background threads:
+ *
+ *   secure_storage -> profile -> restore_prefetch
+ *   secure_storage -> device_checks (IntegrityService: cached verdict, else probes)
+ *   profile + device_checks -> ready
+ *
+ * SplashScreen routes as soon as storage is open and MainActivity enables the SOS buttons
+ * at ready, instead of either waiting on a fixed delay or doing the work on the main
+ * thread. Once a step is done, what it loaded is cached (SecureStorageManager,
+ * EmergencyProfileManager, IntegrityService) and cheap to read on the main thread. Each
+ * step's time is logged.
+ */
+public class AppStartup {
+    private static final String TAG = "AppStartup";
+    public static final String STEP_SECURE_STORAGE = "secure_storage";
+    public static final String STEP_PROFILE = "profile";
+    public static final String STEP_DEVICE_CHECKS = "device_checks";
+    public static final String STEP_RESTORE_PREFETCH = "restore_prefetch";
+    /** Storage, profile and device checks are done: the SOS buttons can work. */
+    public static final String STEP_READY = "ready";
+    private static final int THREADS = 3;
+
+    private static AppStartup instance;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService background;
+    private final StartupGraph graph;
+
+    private AppStartup(Context context) {
+        this.context = context.getApplicationContext();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        // Nothing is left to do once started; let the threads go
+        pool.allowCoreThreadTimeOut(true);
+        background = pool;
+        graph = StartupGraph.builder()
+                .step(STEP_SECURE_STORAGE, background,
+                        () -> SecureStorageManager.getEncryptedSharedPreferences(this.context))
+                .step(STEP_PROFILE, background,
+                        () -> EmergencyProfileManager.getInstance(this.context).getProfile(),
+                        STEP_SECURE_STORAGE)
+                .step(STEP_DEVICE_CHECKS, background,
+                        () -> IntegrityService.getInstance(this.context).verify(),
+                        STEP_SECURE_STORAGE)
+                .step(STEP_RESTORE_PREFETCH, background, () -> {
+                    // No local data: restore from the cloud once a network is up, unless
+                    // the data is gone because the user wiped it
+                    if (!EmergencyProfileManager.getInstance(this.context).getProfile().hasContacts()
+                            && !SecureStorageManager.wasWiped(this.context)) {
+                        ProfileBackupQueue.getInstance(this.context).prefetchRestore();
+                    }
+                }, STEP_PROFILE)
+                .step(STEP_READY, background, () -> { }, STEP_PROFILE, STEP_DEVICE_CHECKS)
+                .listener(new StartupGraph.Listener() {
+                    @Override
+                    public void onStepFinished(String name, long waitNanos, long runNanos, Throwable error) {
+                        String timing = String.format(Locale.US, "Startup step %s: %.1f ms (queued %.1f ms)",
+                                name, runNanos / 1e6, waitNanos / 1e6);
+                        if (error != null) {
+                            Log.e(TAG, timing + " failed: " + error.getMessage());
+                        } else {
+                            Log.d(TAG, timing);
+                        }
+                    }
+
+                    @Override
+                    public void onGraphFinished(long elapsedNanos) {
+                        Log.d(TAG, String.format(Locale.US, "Startup finished in %.1f ms", elapsedNanos / 1e6));
+                    }
+                })
+                .build();
+    }
+
+    public static synchronized AppStartup getInstance(Context context) {
+        if (instance == null) {
+            instance = new AppStartup(context);
+        }
+        return instance;
+    }
+
+    /** Start the graph; later calls do nothing. */
+    public void start() {
+        graph.start();
+    }
+
+    /**
+     * Run {@code callback} on the main thread once {@code step} is done, unless
+     * {@code activity} has gone away by then.
+     */
+    public void whenDone(String step, Activity activity, Runnable callback) {
+        graph.whenDone(step, mainHandler::post, () -> {
+            if (!activity.isFinishing() && !activity.isDestroyed()) {
+                callback.run();
+            }
+        });
+    }
+
+    /**
+     * Run {@code task} on the main thread just after the next frame is drawn, for work that
+     * should not hold up the first frame.
+     */
+    public static void runAfterFirstFrame(Runnable task) {
+        Handler handler = new Handler(Looper.getMainLooper());
+        // Frame callbacks run before the frame's traversal; a post from one runs after it
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos -> handler.post(task));
+    }
+
+    /** After STEP_DEVICE_CHECKS. */
+    public boolean isDeviceTampered() {
+        IntegrityVerdict verdict = IntegrityService.getInstance(context).current();
+        return verdict != null && verdict.deviceTampered;
+    }
+
+    /** After STEP_DEVICE_CHECKS. */
+    public boolean isIntegrityOk() {
+        IntegrityVerdict verdict = IntegrityService.getInstance(context).current();
+        return verdict == null || verdict.signatureOk;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.bilawoga.utils;
+
+import android.util.Log;
+
+import com.example.bilawoga.detection.MfccFeatureExtractor;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import be.tarsos.dsp.AudioDispatcher;
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.io.android.AudioDispatcherFactory;
+import be.tarsos.dsp.mfcc.MFCC;
+
+/**
+ * SHARED MFCC FRAME SOURCE
+ * One microphone capture and one MFCC computation, fanned out to every audio consumer
+ * (today the silent emergency model) instead of each opening its own recorder.
+ *
+ * The microphone is opened when the first listener subscribes and released with the last.
+ */
+public class AudioFeatureStream {
+    private static final String TAG = "AudioFeatureStream";
+
+    // Parameters live in detection-core so offline evaluation computes identical features
+    public static final int SAMPLE_RATE = MfccFeatureExtractor.SAMPLE_RATE;
+    public static final int FRAME_SIZE = MfccFeatureExtractor.FRAME_SIZE;
+    public static final int FRAME_HOP = MfccFeatureExtractor.FRAME_HOP;
+    public static final int NUM_COEFFICIENTS = MfccFeatureExtractor.NUM_COEFFICIENTS;
+
+    private static AudioFeatureStream instance;
+
+    /**
+     * Called on the audio thread for every frame. The coefficient array is only valid
+     * for the duration of the call; copy it if it needs to be kept.
+     */
+    public interface FeatureFrameListener {
+        void onFeatureFrame(float[] mfcc, long frameIndex);
+    }
+
+    private final CopyOnWriteArrayList<FeatureFrameListener> listeners = new CopyOnWriteArrayList<>();
+    private AudioDispatcher dispatcher;
+    private long frameIndex = 0;
+
+    private AudioFeatureStream() {
+    }
+
+    public static synchronized AudioFeatureStream getInstance() {
+        if (instance == null) {
+            instance = new AudioFeatureStream();
+        }
+        return instance;
+    }
+
+    public static long frameToMillis(long frames) {
+        return frames * FRAME_HOP * 1000L / SAMPLE_RATE;
+    }
+
+    public synchronized void addListener(FeatureFrameListener listener) {
+        if (listener == null || listeners.contains(listener)) return;
+        listeners.add(listener);
+        if (dispatcher == null) {
+            start();
+        }
+    }
+
+    public synchronized void removeListener(FeatureFrameListener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            stop();
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return dispatcher != null;
+    }
+
+    private void start() {
+        try {
+            dispatcher = AudioDispatcherFactory.fromDefaultMicrophone(SAMPLE_RATE, FRAME_SIZE, FRAME_SIZE - FRAME_HOP);
+            final MFCC mfcc = MfccFeatureExtractor.newMfcc();
+            dispatcher.addAudioProcessor(mfcc);
+            dispatcher.addAudioProcessor(new AudioProcessor() {
+                @Override
+                public boolean process(AudioEvent audioEvent) {
+                    float[] coefficients = mfcc.getMFCC();
+                    long index = frameIndex++;
+                    for (FeatureFrameListener l : listeners) {
+                        try {
+                            l.onFeatureFrame(coefficients, index);
+                        } catch (Exception e) {
+                            Log.e(TAG, "Frame listener failed: " + e.getMessage());
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public void processingFinished() {
+                    // No action needed
+                }
+            });
+            new Thread(dispatcher, "Audio Feature Stream").start();
+            Log.d(TAG, "Audio feature stream started");
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting audio feature stream: " + e.getMessage());
+            dispatcher = null;
+        }
+    }
+
+    private void stop() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+            dispatcher = null;
+            Log.d(TAG, "Audio feature stream stopped");
+        }
+    }
+}
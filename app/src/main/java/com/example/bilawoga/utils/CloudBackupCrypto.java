@@ -1,14 +1,17 @@
 package com.example.bilawoga.utils;
 
-import android.content.Context;
 import android.security.keystore.KeyGenParameterSpec;
 import android.security.keystore.KeyProperties;
 import android.util.Base64;
 import android.util.Log;
 
-import java.nio.ByteBuffer;
+import com.example.bilawoga.detection.AesGcmRecordCipher;
+import com.example.bilawoga.detection.BackupEnvelope;
+import com.example.bilawoga.detection.VersionVector;
+
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
-import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -16,24 +19,53 @@ import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 
 /**
- * Encrypts/decrypts small fields for Firestore backup using Android Keystore AES-GCM.
+ * Encrypts/decrypts the Firestore backup with envelope encryption. The whole profile is
+ * one BackupEnvelope blob: fields serialized, compressed and sealed with a software AES
+ * data key. Only the data key goes through the Keystore key, wrapped once per process
+ * for backups and unwrapped once per distinct key on restore, so backup and restore cost
+ * one Keystore operation however many fields there are.
  * Structure stored in Firestore:
  * {
  *   enc: true,
- *   v: 1,
- *   username: { iv: base64, ct: base64 },
- *   enum1: { iv: base64, ct: base64 },
- *   enum2: { iv: base64, ct: base64 },
- *   incident_type: { iv: base64, ct: base64 },
+ *   v: 2,
+ *   blob: base64(BackupEnvelope),
  *   backup_time: long
  * }
+ * Version 1 documents (one Keystore-encrypted { iv, ct } map per field) and plaintext
+ * fallbacks are still read.
  */
 public class CloudBackupCrypto {
     private static final String TAG = "CloudBackupCrypto";
     private static final String ANDROID_KEYSTORE = "AndroidKeyStore";
     private static final String KEY_ALIAS = "BILA_CLOUD_BACKUP_KEY";
+    private static final int FORMAT_VERSION = 2;
+    private static final byte[] DATA_KEY_AAD = "bilawoga-backup-data-key".getBytes(StandardCharsets.UTF_8);
+
+    /** Version 1 document fields, by the profile key each one restores. */
+    private static final String[][] LEGACY_FIELDS = {
+            {"username", EmergencyProfile.KEY_USERNAME},
+            {"enum1", EmergencyProfile.KEY_EMERGENCY_NUMBER_1},
+            {"enum2", EmergencyProfile.KEY_EMERGENCY_NUMBER_2},
+            {"incident_type", EmergencyProfile.KEY_INCIDENT_TYPE}
+    };
+
+    /** A data key with its wrapped form. */
+    private static final class DataKey {
+        final SecretKey key;
+        final byte[] wrapped;
+
+        DataKey(SecretKey key, byte[] wrapped) {
+            this.key = key;
+            this.wrapped = wrapped;
+        }
+    }
+
+    // The data key in use this process; reused by later backups and by restores of
+    // blobs that carry the same wrapped key
+    private static DataKey session;
 
     private static SecretKey getOrCreateKey() throws Exception {
         KeyStore ks = KeyStore.getInstance(ANDROID_KEYSTORE);
@@ -55,19 +87,115 @@ public class CloudBackupCrypto {
         return kg.generateKey();
     }
 
-    private static Map<String, String> encryptField(String plaintext) throws Exception {
-        if (plaintext == null) plaintext = "";
-        SecretKey key = getOrCreateKey();
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-        byte[] iv = new byte[12];
-        new SecureRandom().nextBytes(iv);
-        GCMParameterSpec spec = new GCMParameterSpec(128, iv);
-        cipher.init(Cipher.ENCRYPT_MODE, key, spec);
-        byte[] ct = cipher.doFinal(plaintext.getBytes());
-        Map<String, String> out = new HashMap<>();
-        out.put("iv", Base64.encodeToString(iv, Base64.NO_WRAP));
-        out.put("ct", Base64.encodeToString(ct, Base64.NO_WRAP));
-        return out;
+    /**
+     * Delete the Keystore key that wraps every backup data key, and forget this process's
+     * session key. Backups sealed on this device can no longer be opened here; the next
+     * backup creates a new key. Called by the panic wipe.
+     */
+    static synchronized void destroyKey() throws Exception {
+        session = null;
+        KeyStore ks = KeyStore.getInstance(ANDROID_KEYSTORE);
+        ks.load(null);
+        if (ks.containsAlias(KEY_ALIAS)) {
+            ks.deleteEntry(KEY_ALIAS);
+        }
+    }
+
+    /** The session data key for sealing, created and wrapped on first use. */
+    private static synchronized DataKey sessionKeyForBackup() throws Exception {
+        if (session == null) {
+            KeyGenerator kg = KeyGenerator.getInstance("AES");
+            kg.init(256);
+            SecretKey dataKey = kg.generateKey();
+            byte[] wrapped = new AesGcmRecordCipher(getOrCreateKey()).seal(dataKey.getEncoded(), DATA_KEY_AAD);
+            session = new DataKey(dataKey, wrapped);
+        }
+        return session;
+    }
+
+    /** The data key behind {@code wrappedKey}; a Keystore unwrap only if it is not the session's. */
+    private static synchronized SecretKey unwrapDataKey(byte[] wrappedKey) throws Exception {
+        if (session == null || !Arrays.equals(session.wrapped, wrappedKey)) {
+            byte[] raw = new AesGcmRecordCipher(getOrCreateKey()).open(wrappedKey, DATA_KEY_AAD);
+            session = new DataKey(new SecretKeySpec(raw, "AES"), wrappedKey.clone());
+        }
+        return session.key;
+    }
+
+    /**
+     * @param fields profile values by preference key, e.g. EmergencyProfile.KEY_USERNAME
+     * @return the document to upload, or null if it could not be sealed; the profile is
+     *         never uploaded in plaintext
+     */
+    public static Map<String, Object> buildEncryptedPayload(Map<String, String> fields, VersionVector versionVector,
+                                                            long backupTime) {
+        try {
+            DataKey dataKey = sessionKeyForBackup();
+            byte[] blob = BackupEnvelope.seal(fields, versionVector, dataKey.wrapped,
+                    new AesGcmRecordCipher(dataKey.key));
+            Map<String, Object> data = new HashMap<>();
+            data.put("enc", true);
+            data.put("v", FORMAT_VERSION);
+            data.put("blob", Base64.encodeToString(blob, Base64.NO_WRAP));
+            data.put("backup_time", backupTime);
+            return data;
+        } catch (Exception e) {
+            Log.e(TAG, "Encrypt payload failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The version vector of a backup document, read without decrypting anything. Null
+     * for documents that carry none (version 1 and plaintext) or cannot be parsed.
+     */
+    public static VersionVector readVersionVector(Map<String, Object> doc) {
+        byte[] blob = blobOf(doc);
+        if (blob == null) return null;
+        try {
+            return BackupEnvelope.readHeader(blob).versionVector;
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Unreadable backup header: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decrypt a backup document into profile values by preference key. Null if the
+     * document cannot be decrypted; values that were missing are left out.
+     */
+    public static Map<String, String> decryptPayload(Map<String, Object> doc) {
+        if (doc == null) return null;
+        byte[] blob = blobOf(doc);
+        if (blob != null) {
+            try {
+                BackupEnvelope.Header header = BackupEnvelope.readHeader(blob);
+                SecretKey dataKey = unwrapDataKey(header.wrappedKey);
+                return BackupEnvelope.open(blob, header, new AesGcmRecordCipher(dataKey));
+            } catch (Exception e) {
+                Log.e(TAG, "Decrypt payload failed: " + e.getMessage());
+                return null;
+            }
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (String[] field : LEGACY_FIELDS) {
+            String value = tryDecryptString(doc.get(field[0]));
+            if (value != null) {
+                fields.put(field[1], value);
+            }
+        }
+        return fields;
+    }
+
+    private static byte[] blobOf(Map<String, Object> doc) {
+        Object blob = doc.get("blob");
+        if (!(blob instanceof String)) return null;
+        try {
+            return Base64.decode((String) blob, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Backup blob is not base64: " + e.getMessage());
+            return null;
+        }
     }
 
     private static String decryptField(Object mapObj) throws Exception {
@@ -86,32 +214,7 @@ public class CloudBackupCrypto {
         return new String(pt);
     }
 
-    public static Map<String, Object> buildEncryptedPayload(String username, String enum1, String enum2, String incidentType, long backupTime) {
-        try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("enc", true);
-            data.put("v", 1);
-            data.put("username", encryptField(username));
-            data.put("enum1", encryptField(enum1));
-            data.put("enum2", encryptField(enum2));
-            data.put("incident_type", encryptField(incidentType));
-            data.put("backup_time", backupTime);
-            return data;
-        } catch (Exception e) {
-            Log.e(TAG, "Encrypt payload failed: " + e.getMessage());
-            // Fallback to plaintext if encryption fails (still include flag)
-            Map<String, Object> data = new HashMap<>();
-            data.put("enc", false);
-            data.put("username", username);
-            data.put("enum1", enum1);
-            data.put("enum2", enum2);
-            data.put("incident_type", incidentType);
-            data.put("backup_time", backupTime);
-            return data;
-        }
-    }
-
-    public static String tryDecryptString(Object fieldObj) {
+    private static String tryDecryptString(Object fieldObj) {
         try {
             if (fieldObj instanceof Map) {
                 return decryptField(fieldObj);
@@ -124,4 +227,4 @@ public class CloudBackupCrypto {
             return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,150 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.bilawoga.detection.BackupEnvelope;
+import com.example.bilawoga.detection.VersionVector;
+
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CLOUD BACKUP STATE
+ * What the cloud copy of the profile holds, kept in the encrypted preferences as a version
+ * vector, a content hash and the vector last uploaded. This device's counter only moves
+ * when the profile really changed, so an unchanged profile is never re-encrypted or
+ * re-uploaded, and a restore can skip a backup this device has already seen.
+ */
+public class CloudBackupState {
+    private static final String TAG = "CloudBackupState";
+    private static final String KEY_NODE = "__backup_node";
+    private static final String KEY_VECTOR = "__backup_vector";
+    private static final String KEY_HASH = "__backup_hash";
+    private static final String KEY_UPLOADED = "__backup_uploaded";
+
+    /** A profile ready to back up. */
+    public static final class Snapshot {
+        public final Map<String, String> fields;
+        public final VersionVector versionVector;
+
+        Snapshot(Map<String, String> fields, VersionVector versionVector) {
+            this.fields = fields;
+            this.versionVector = versionVector;
+        }
+    }
+
+    private CloudBackupState() {
+    }
+
+    /**
+     * The current profile with its version vector, or null when the last upload already
+     * holds it.
+     */
+    public static synchronized Snapshot prepare(Context context) {
+        SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
+        if (prefs == null) return null;
+        Map<String, String> fields = fieldsOf(EmergencyProfileManager.getInstance(context).getProfile());
+        String hash = BackupEnvelope.contentHash(fields);
+        VersionVector vector = readVector(prefs, KEY_VECTOR);
+        if (!hash.equals(prefs.getString(KEY_HASH, null))) {
+            vector = vector.increment(nodeId(prefs));
+            prefs.edit()
+                    .putString(KEY_VECTOR, vector.encode())
+                    .putString(KEY_HASH, hash)
+                    .apply();
+        }
+        if (vector.equals(readVector(prefs, KEY_UPLOADED))) {
+            Log.d(TAG, "Cloud backup is current " + vector);
+            return null;
+        }
+        return new Snapshot(fields, vector);
+    }
+
+    /**
+     * Record that {@code vector} reached the cloud. Ignored if the local profile has moved
+     * on since (or was wiped, as at logout): the upload no longer describes it.
+     */
+    public static synchronized void markUploaded(Context context, VersionVector vector) {
+        SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
+        if (prefs == null || !vector.equals(readVector(prefs, KEY_VECTOR))) return;
+        prefs.edit().putString(KEY_UPLOADED, vector.encode()).apply();
+    }
+
+    /**
+     * Restore the profile from a backup document. Skips the decrypt when this device has
+     * already seen everything in it. Returns whether the profile was written.
+     */
+    public static synchronized boolean restore(Context context, Map<String, Object> doc) {
+        SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
+        if (prefs == null || doc == null) return false;
+        VersionVector remote = CloudBackupCrypto.readVersionVector(doc);
+        VersionVector local = readVector(prefs, KEY_VECTOR);
+        if (remote != null) {
+            VersionVector.Order order = local.compareTo(remote);
+            if (order == VersionVector.Order.EQUAL || order == VersionVector.Order.AFTER) {
+                Log.d(TAG, "Backup " + remote + " already applied locally " + local);
+                return false;
+            }
+        }
+        Map<String, String> fields = CloudBackupCrypto.decryptPayload(doc);
+        if (fields == null) return false;
+
+        SharedPreferences.Editor editor = prefs.edit();
+        Map<String, String> restored = new HashMap<>();
+        for (Map.Entry<String, String> e : fields.entrySet()) {
+            if (EmergencyProfile.isProfileKey(e.getKey())) {
+                editor.putString(e.getKey(), e.getValue());
+                restored.put(e.getKey(), e.getValue());
+            }
+        }
+        if (remote != null) {
+            // The restored profile is exactly what the cloud holds; record it as uploaded
+            VersionVector merged = local.merge(remote);
+            editor.putString(KEY_VECTOR, merged.encode())
+                    .putString(KEY_HASH, BackupEnvelope.contentHash(fieldsOf(profileOf(restored))))
+                    .putString(KEY_UPLOADED, merged.encode());
+        }
+        editor.apply();
+        EmergencyProfileManager.getInstance(context).reload();
+        return true;
+    }
+
+    private static Map<String, String> fieldsOf(EmergencyProfile profile) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(EmergencyProfile.KEY_USERNAME, profile.userName);
+        fields.put(EmergencyProfile.KEY_INCIDENT_TYPE, profile.incidentType);
+        fields.put(EmergencyProfile.KEY_EMERGENCY_NUMBER_1, profile.emergencyNumber1);
+        fields.put(EmergencyProfile.KEY_EMERGENCY_NUMBER_2, profile.emergencyNumber2);
+        return fields;
+    }
+
+    private static EmergencyProfile profileOf(Map<String, String> fields) {
+        return new EmergencyProfile(
+                fields.get(EmergencyProfile.KEY_USERNAME),
+                fields.get(EmergencyProfile.KEY_INCIDENT_TYPE),
+                fields.get(EmergencyProfile.KEY_EMERGENCY_NUMBER_1),
+                fields.get(EmergencyProfile.KEY_EMERGENCY_NUMBER_2));
+    }
+
+    private static VersionVector readVector(SharedPreferences prefs, String key) {
+        try {
+            return VersionVector.decode(prefs.getString(key, null));
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Discarding unreadable version vector: " + e.getMessage());
+            return VersionVector.EMPTY;
+        }
+    }
+
+    private static String nodeId(SharedPreferences prefs) {
+        String node = prefs.getString(KEY_NODE, null);
+        if (node == null) {
+            node = String.format(Locale.US, "%08x", new SecureRandom().nextInt());
+            prefs.edit().putString(KEY_NODE, node).apply();
+        }
+        return node;
+    }
+}
@@ -8,16 +8,21 @@ import android.hardware.SensorManager;
 import android.media.AudioManager;
 import android.util.Log;
 
+import com.example.bilawoga.detection.Clock;
+import com.example.bilawoga.detection.EvidenceFusion;
+import com.example.bilawoga.detection.MotionPatternDetector;
+import com.example.bilawoga.detection.SosCoalescer;
+import com.example.bilawoga.detection.SensorSampleSink;
+import com.example.bilawoga.detection.SensorTypes;
+
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * COVERT EMERGENCY DETECTION SYSTEM
  * Detects subtle distress signals for abduction/coercion scenarios
  */
-public class CovertEmergencyDetector implements SensorEventListener {
+public class CovertEmergencyDetector implements SensorEventListener, SensorSampleSink {
     private static final String TAG = "CovertEmergencyDetector";
     
     // Detection Modes
@@ -25,24 +30,17 @@ public class CovertEmergencyDetector implements SensorEventListener {
         NORMAL, COVERT_POCKET, SILENT_EMERGENCY, ABDUCTION_ALERT
     }
     
-    // Covert Patterns
-    private static final int[] COVERT_PATTERN = {1, 2, 1, 3, 1, 2, 1};
-    private static final int[] ABDUCTION_PATTERN = {2, 1, 2, 1, 2, 1, 2};
-    
-    // Sensitivity
-    private static final float POCKET_SENSITIVITY = 0.6f;
-    private static final int PATTERN_TIMEOUT = 5000;
-    
     private final Context context;
     private final SensorManager sensorManager;
     private final Sensor accelerometer;
     private EmergencyMode currentMode = EmergencyMode.NORMAL;
     
-    private Queue<MovementData> movementHistory;
-    private List<Float> accelerationBuffer;
+    // Pattern matching lives in detection-core (MotionPatternDetector.Config.COVERT)
+    private final MotionPatternDetector patternDetector;
     private boolean isPhoneInPocket = false;
     private boolean isSilentMode = false;
     private int suspiciousActivityCount = 0;
+    private Clock clock = Clock.SYSTEM;
     
     public interface CovertEmergencyListener {
         void onCovertEmergencyDetected(EmergencyMode mode, float confidence, String pattern);
@@ -52,25 +50,12 @@ public class CovertEmergencyDetector implements SensorEventListener {
     
     private final CovertEmergencyListener listener;
     
-    private static class MovementData {
-        float acceleration;
-        long timestamp;
-        boolean isSignificant;
-        
-        MovementData(float acc, long time, boolean significant) {
-            this.acceleration = acc;
-            this.timestamp = time;
-            this.isSignificant = significant;
-        }
-    }
-    
     public CovertEmergencyDetector(Context context, CovertEmergencyListener listener) {
         this.context = context;
         this.listener = listener;
         this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
         this.accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-        this.movementHistory = new ConcurrentLinkedQueue<>();
-        this.accelerationBuffer = new ArrayList<>();
+        this.patternDetector = new MotionPatternDetector(MotionPatternDetector.Config.COVERT, patternListener);
         
         detectContext();
     }
@@ -96,149 +81,67 @@ public class CovertEmergencyDetector implements SensorEventListener {
         sensorManager.unregisterListener(this);
     }
     
+    /**
+     * Replace the time source, e.g. with a ReplayClock when driving from a sensor trace.
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+    
     @Override
     public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-            processAccelerometerData(event);
-        }
+        onSensorSample(event.sensor.getType(), event.timestamp, event.values[0], event.values[1], event.values[2]);
     }
     
-    private void processAccelerometerData(SensorEvent event) {
-        float x = event.values[0];
-        float y = event.values[1];
-        float z = event.values[2];
-        
-        float acceleration = (float) Math.sqrt(x * x + y * y + z * z);
-        long timestamp = System.currentTimeMillis();
-        
-        // Store data
-        accelerationBuffer.add(acceleration);
-        if (accelerationBuffer.size() > 50) {
-            accelerationBuffer.remove(0);
-        }
-        
-        // Detect pocket vs hand
-        detectPhonePosition();
-        
-        // Check for significant movement
-        boolean isSignificant = acceleration > POCKET_SENSITIVITY;
-        MovementData data = new MovementData(acceleration, timestamp, isSignificant);
-        movementHistory.offer(data);
-        
-        while (movementHistory.size() > 100) {
-            movementHistory.poll();
+    @Override
+    public void onSensorSample(int sensorType, long timestampNanos, float x, float y, float z) {
+        if (sensorType == SensorTypes.ACCELEROMETER) {
+            processAccelerometerData(x, y, z);
         }
-        
-        // Analyze patterns
-        analyzeCovertPatterns();
     }
     
-    private void detectPhonePosition() {
-        if (accelerationBuffer.size() > 10) {
-            float avgMovement = calculateAverageMovement();
-            float variance = calculateVariance();
-            
-            // Pocket: lower movement, higher variance
-            if (avgMovement < 0.5f && variance > 0.3f) {
-                isPhoneInPocket = true;
-                currentMode = EmergencyMode.COVERT_POCKET;
-            } else if (avgMovement > 1.0f && variance < 0.2f) {
-                isPhoneInPocket = false;
-                currentMode = EmergencyMode.NORMAL;
-            }
-        }
+    private void processAccelerometerData(float x, float y, float z) {
+        float acceleration = (float) Math.sqrt(x * x + y * y + z * z);
+        patternDetector.onAcceleration(acceleration, clock.currentTimeMillis());
     }
     
-    private void analyzeCovertPatterns() {
-        List<MovementData> recent = getRecentSignificantMovements();
+    private final MotionPatternDetector.PatternListener patternListener = new MotionPatternDetector.PatternListener() {
+        @Override
+        public void onPhonePosition(boolean inPocket) {
+            isPhoneInPocket = inPocket;
+            currentMode = inPocket ? EmergencyMode.COVERT_POCKET : EmergencyMode.NORMAL;
+        }
         
-        if (recent.size() >= 7) {
-            // Check covert pattern
-            if (matchPattern(recent, COVERT_PATTERN)) {
-                float confidence = calculateConfidence(recent);
-                if (confidence > 0.7f) {
+        @Override
+        public void onPatternMatched(MotionPatternDetector.Pattern pattern, float confidence) {
+            EmergencyFusion.getInstance(context).report(EvidenceFusion.Source.MOTION_PATTERN, confidence);
+            switch (pattern) {
+                case COVERT_SOS:
                     listener.onCovertEmergencyDetected(
                         EmergencyMode.COVERT_POCKET, 
                         confidence, 
                         "Covert SOS Pattern"
                     );
                     activateStealthSOS("Covert Pattern");
-                }
-            }
-            
-            // Check abduction pattern
-            if (matchPattern(recent, ABDUCTION_PATTERN)) {
-                float confidence = calculateConfidence(recent);
-                if (confidence > 0.8f) {
+                    break;
+                case ABDUCTION:
                     currentMode = EmergencyMode.ABDUCTION_ALERT;
                     float threatLevel = calculateThreatLevel();
                     String indicators = getThreatIndicators();
                     
                     listener.onAbductionAlert(threatLevel, indicators);
                     activateStealthSOS("Abduction Alert");
-                }
-            }
-        }
-    }
-    
-    private List<MovementData> getRecentSignificantMovements() {
-        List<MovementData> significant = new ArrayList<>();
-        long currentTime = System.currentTimeMillis();
-        
-        for (MovementData data : movementHistory) {
-            if (data.isSignificant && (currentTime - data.timestamp) < PATTERN_TIMEOUT) {
-                significant.add(data);
+                    break;
+                default:
+                    break;
             }
         }
         
-        return significant;
-    }
-    
-    private boolean matchPattern(List<MovementData> movements, int[] pattern) {
-        if (movements.size() < pattern.length) return false;
-        
-        int matches = 0;
-        for (int i = 0; i < pattern.length && i < movements.size(); i++) {
-            float intensity = movements.get(i).acceleration;
-            if (intensity >= pattern[i] * 0.5f && intensity <= pattern[i] * 1.5f) {
-                matches++;
-            }
-        }
-        
-        return (float) matches / pattern.length > 0.7f;
-    }
-    
-    private float calculateConfidence(List<MovementData> movements) {
-        if (movements.isEmpty()) return 0.0f;
-        
-        float avgIntensity = 0;
-        for (MovementData data : movements) {
-            avgIntensity += data.acceleration;
-        }
-        avgIntensity /= movements.size();
-        
-        // Higher confidence for consistent movements
-        float consistency = calculateConsistency(movements);
-        return (avgIntensity * 0.6f + consistency * 0.4f);
-    }
-    
-    private float calculateConsistency(List<MovementData> movements) {
-        if (movements.size() < 2) return 0.0f;
-        
-        float mean = 0;
-        for (MovementData data : movements) {
-            mean += data.acceleration;
+        @Override
+        public void onFalseAlarmPrevented(MotionPatternDetector.FalseAlarm reason) {
+            // Covert mode does not suppress patterns
         }
-        mean /= movements.size();
-        
-        float variance = 0;
-        for (MovementData data : movements) {
-            variance += Math.pow(data.acceleration - mean, 2);
-        }
-        variance /= movements.size();
-        
-        return Math.max(0, 1.0f - variance);
-    }
+    };
     
     private float calculateThreatLevel() {
         float threat = 0.0f;
@@ -258,26 +161,10 @@ public class CovertEmergencyDetector implements SensorEventListener {
     
     private void activateStealthSOS(String method) {
         listener.onStealthSOSActivated(method);
+        SOSCoordinator.getInstance(context).trigger(SosCoalescer.Source.MOTION_PATTERN, SosCoalescer.Urgency.CONFIRM, method);
         Log.i(TAG, "STEALTH SOS: " + method);
     }
     
-    private float calculateAverageMovement() {
-        if (accelerationBuffer.isEmpty()) return 0.0f;
-        float sum = 0;
-        for (float value : accelerationBuffer) sum += value;
-        return sum / accelerationBuffer.size();
-    }
-    
-    private float calculateVariance() {
-        if (accelerationBuffer.size() < 2) return 0.0f;
-        float mean = calculateAverageMovement();
-        float variance = 0;
-        for (float value : accelerationBuffer) {
-            variance += Math.pow(value - mean, 2);
-        }
-        return variance / accelerationBuffer.size();
-    }
-    
     @Override
     public void onAccuracyChanged(Sensor sensor, int accuracy) {
         // Not used
@@ -285,7 +172,6 @@ public class CovertEmergencyDetector implements SensorEventListener {
     
     public void cleanup() {
         stopDetection();
-        movementHistory.clear();
-        accelerationBuffer.clear();
+        patternDetector.reset();
     }
 } 
\ No newline at end of file
@@ -72,7 +72,7 @@ public class CrashRecoveryManager {
             crashPrefs.edit()
                     .putInt(KEY_CRASH_COUNT, crashCount)
                     .putLong(KEY_LAST_CRASH_TIME, currentTime)
-                    .apply();
+                    .commit(); // the process is about to die
             
             // Log crash to Firebase
             FirebaseCrashlytics crashlytics = FirebaseCrashlytics.getInstance();
@@ -125,7 +125,7 @@ public class CrashRecoveryManager {
             crashPrefs.edit()
                     .putString("last_event_type", eventType)
                     .putLong("last_event_time", currentTime)
-                    .apply();
+                    .commit();
         } catch (Exception e) {
             Log.e(TAG, "Failed to log to local storage: " + e.getMessage());
         }
@@ -136,7 +136,7 @@ public class CrashRecoveryManager {
             SharedPreferences crashPrefs = SecureStorageManager.getEncryptedSharedPreferences(context);
             crashPrefs.edit()
                     .putLong(KEY_LAST_SOS_TIME, System.currentTimeMillis())
-                    .apply();
+                    .commit();
         } catch (Exception e) {
             Log.e(TAG, "Failed to update last SOS time: " + e.getMessage());
         }
@@ -0,0 +1,128 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.bilawoga.detection.Clock;
+import com.example.bilawoga.detection.EvidenceFusion;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EMERGENCY FUSION
+ * One emergency score from every detector instead of six independent triggers.
+ *
+ * Detectors report their raw confidence (also below their own thresholds) with
+ * report(); evidence is stamped on one shared clock. A dedicated thread fuses it every
+ * EMIT_INTERVAL_MS (see EvidenceFusion for the model) and listeners get the score on the
+ * main thread, plus onFusedEmergency when the score crosses the trigger.
+ */
+public class EmergencyFusion {
+    private static final String TAG = "EmergencyFusion";
+    public static final long EMIT_INTERVAL_MS = 500;
+
+    private static EmergencyFusion instance;
+
+    public interface FusionListener {
+        void onFusedScore(float score, EvidenceFusion.Source strongest);
+        void onFusedEmergency(float score, String contributions);
+    }
+
+    private final EvidenceFusion fusion = new EvidenceFusion(EvidenceFusion.Config.defaults());
+    private final List<FusionListener> listeners = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+    private ScheduledFuture<?> tickTask;
+    private volatile Clock clock = Clock.SYSTEM;
+
+    private EmergencyFusion() {
+    }
+
+    public static synchronized EmergencyFusion getInstance(Context context) {
+        if (instance == null) {
+            instance = new EmergencyFusion();
+        }
+        return instance;
+    }
+
+    /**
+     * Record evidence from a detector, from any thread. Cheap: one calibration and a
+     * compare under a short lock.
+     */
+    public void report(EvidenceFusion.Source source, float confidence) {
+        fusion.report(source, confidence, clock.currentTimeMillis());
+    }
+
+    public void addListener(FusionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(FusionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Replace the time source, e.g. with a ReplayClock when driving from recorded evidence.
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public synchronized void start() {
+        if (tickTask != null) return;
+        tickTask = ticker.scheduleAtFixedRate(this::tick, EMIT_INTERVAL_MS, EMIT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Log.d(TAG, "Fusion started");
+    }
+
+    public synchronized void stop() {
+        if (tickTask != null) {
+            tickTask.cancel(false);
+            tickTask = null;
+        }
+        fusion.reset();
+        Log.d(TAG, "Fusion stopped");
+    }
+
+    private void tick() {
+        try {
+            EvidenceFusion.Result result = fusion.evaluate(clock.currentTimeMillis());
+            float score = result.score;
+            EvidenceFusion.Source strongest = result.strongest;
+            String contributions = result.triggered ? describe(result) : null;
+            mainHandler.post(() -> {
+                for (FusionListener listener : listeners) {
+                    listener.onFusedScore(score, strongest);
+                    if (contributions != null) {
+                        listener.onFusedEmergency(score, contributions);
+                    }
+                }
+            });
+            if (contributions != null) {
+                Log.w(TAG, "Fused emergency " + score + " from " + contributions);
+            }
+        } catch (Exception e) {
+            // Keep the schedule alive; a thrown exception would cancel it
+            Log.e(TAG, "Fusion tick failed: " + e.getMessage());
+        }
+    }
+
+    private static String describe(EvidenceFusion.Result result) {
+        StringBuilder sb = new StringBuilder();
+        for (EvidenceFusion.Source source : EvidenceFusion.Source.values()) {
+            float evidence = result.evidence[source.ordinal()];
+            if (evidence <= 0) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(source.name().toLowerCase(Locale.ROOT))
+                .append(String.format(Locale.ROOT, " %.1f", evidence));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.bilawoga.utils;
+
+import android.content.SharedPreferences;
+
+/**
+ * EMERGENCY PROFILE
+ * Immutable snapshot of who to alert and what to tell them. Numbers are validated once
+ * when the snapshot is built, so emergency paths only read fields.
+ *
+ * Get the current one from EmergencyProfileManager.
+ */
+public final class EmergencyProfile {
+    public static final String KEY_USERNAME = "USERNAME";
+    public static final String KEY_INCIDENT_TYPE = "INCIDENT_TYPE";
+    public static final String KEY_EMERGENCY_NUMBER_1 = "ENUM_1";
+    public static final String KEY_EMERGENCY_NUMBER_2 = "ENUM_2";
+
+    public static final EmergencyProfile EMPTY = new EmergencyProfile("", "", "", "");
+
+    /** Stored values; "" when not set. */
+    public final String userName;
+    public final String incidentType;
+    public final String emergencyNumber1;
+    public final String emergencyNumber2;
+
+    private final boolean number1Valid;
+    private final boolean number2Valid;
+
+    public EmergencyProfile(String userName, String incidentType, String emergencyNumber1, String emergencyNumber2) {
+        this.userName = userName != null ? userName : "";
+        this.incidentType = incidentType != null ? incidentType : "";
+        this.emergencyNumber1 = emergencyNumber1 != null ? emergencyNumber1 : "";
+        this.emergencyNumber2 = emergencyNumber2 != null ? emergencyNumber2 : "";
+        this.number1Valid = isValidNumber(this.emergencyNumber1);
+        this.number2Valid = isValidNumber(this.emergencyNumber2);
+    }
+
+    static EmergencyProfile fromPreferences(SharedPreferences prefs) {
+        if (prefs == null) {
+            return EMPTY;
+        }
+        return new EmergencyProfile(
+                prefs.getString(KEY_USERNAME, ""),
+                prefs.getString(KEY_INCIDENT_TYPE, ""),
+                prefs.getString(KEY_EMERGENCY_NUMBER_1, ""),
+                prefs.getString(KEY_EMERGENCY_NUMBER_2, ""));
+    }
+
+    static boolean isProfileKey(String key) {
+        return KEY_USERNAME.equals(key) || KEY_INCIDENT_TYPE.equals(key)
+                || KEY_EMERGENCY_NUMBER_1.equals(key) || KEY_EMERGENCY_NUMBER_2.equals(key);
+    }
+
+    public boolean isNumber1Valid() {
+        return number1Valid;
+    }
+
+    public boolean isNumber2Valid() {
+        return number2Valid;
+    }
+
+    public boolean hasValidNumber() {
+        return number1Valid || number2Valid;
+    }
+
+    /** Whether any contact is saved at all, valid or not. */
+    public boolean hasContacts() {
+        return isSet(emergencyNumber1) || isSet(emergencyNumber2);
+    }
+
+    public String userNameOr(String fallback) {
+        return userName.trim().isEmpty() ? fallback : userName;
+    }
+
+    public String incidentTypeOr(String fallback) {
+        return incidentType.trim().isEmpty() ? fallback : incidentType;
+    }
+
+    /**
+     * The SOS rules: at least 8 digits once formatting is stripped, and a + or 254 prefix.
+     */
+    public static boolean isValidNumber(String number) {
+        if (!isSet(number)) return false;
+        String clean = number.replaceAll("[^0-9+]", "");
+        if (clean.length() < 8) return false;
+        return clean.startsWith("+") || clean.startsWith("254");
+    }
+
+    private static boolean isSet(String number) {
+        return number != null && !number.trim().isEmpty() && !number.equalsIgnoreCase("NONE");
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * EMERGENCY PROFILE MANAGER
+ * Holds the current EmergencyProfile. It is loaded once and swapped whole when profile
+ * keys change, so getProfile() is a volatile read: no I/O, no crypto, no validation.
+ *
+ * Every writer of the profile keys is picked up through a preference listener. Writers
+ * that need the new snapshot visible right away (saving contacts before an SOS) call
+ * reload() after their edit.
+ */
+public class EmergencyProfileManager {
+    private static final String TAG = "EmergencyProfileManager";
+
+    private static EmergencyProfileManager instance;
+
+    public interface ProfileListener {
+        void onProfileChanged(EmergencyProfile profile);
+    }
+
+    private final SharedPreferences prefs;
+    private final List<ProfileListener> listeners = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile EmergencyProfile profile;
+
+    // Held in a field: SharedPreferences keeps only weak references to its listeners
+    private final SharedPreferences.OnSharedPreferenceChangeListener prefsListener = (p, key) -> {
+        if (EmergencyProfile.isProfileKey(key)) {
+            reload();
+        }
+    };
+
+    private EmergencyProfileManager(Context context) {
+        prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
+        profile = EmergencyProfile.fromPreferences(prefs);
+        if (prefs != null) {
+            prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+        }
+    }
+
+    public static synchronized EmergencyProfileManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new EmergencyProfileManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public EmergencyProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Rebuild the snapshot from preferences and notify listeners (on the main thread) if
+     * it changed.
+     */
+    public void reload() {
+        EmergencyProfile next = EmergencyProfile.fromPreferences(prefs);
+        EmergencyProfile previous;
+        synchronized (this) {
+            previous = profile;
+            if (sameProfile(previous, next)) {
+                return;
+            }
+            profile = next;
+        }
+        Log.d(TAG, "Emergency profile updated");
+        mainHandler.post(() -> {
+            for (ProfileListener listener : listeners) {
+                listener.onProfileChanged(next);
+            }
+        });
+    }
+
+    public void addListener(ProfileListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ProfileListener listener) {
+        listeners.remove(listener);
+    }
+
+    private static boolean sameProfile(EmergencyProfile a, EmergencyProfile b) {
+        return a.userName.equals(b.userName) && a.incidentType.equals(b.incidentType)
+                && a.emergencyNumber1.equals(b.emergencyNumber1) && a.emergencyNumber2.equals(b.emergencyNumber2);
+    }
+}
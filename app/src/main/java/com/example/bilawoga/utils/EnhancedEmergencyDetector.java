@@ -7,15 +7,17 @@ import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.media.AudioManager;
 import android.media.MediaRecorder;
-import android.speech.RecognitionListener;
-import android.speech.RecognizerIntent;
-import android.speech.SpeechRecognizer;
 import android.util.Log;
 
+import com.example.bilawoga.detection.Clock;
+import com.example.bilawoga.detection.EvidenceFusion;
+import com.example.bilawoga.detection.MotionPatternDetector;
+import com.example.bilawoga.detection.SosCoalescer;
+import com.example.bilawoga.detection.SensorSampleSink;
+import com.example.bilawoga.detection.SensorTypes;
+
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * ENHANCED EMERGENCY DETECTION SYSTEM
@@ -26,7 +28,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * - Context-aware movement analysis
  * - Multi-modal threat detection
  */
-public class EnhancedEmergencyDetector implements SensorEventListener {
+public class EnhancedEmergencyDetector implements SensorEventListener, SensorSampleSink {
     private static final String TAG = "EnhancedEmergencyDetector";
     
     // Detection Modes
@@ -34,66 +36,32 @@ public class EnhancedEmergencyDetector implements SensorEventListener {
         NORMAL, COVERT_POCKET, VOICE_EMERGENCY, ABDUCTION_ALERT, FALSE_ALARM_PREVENTION
     }
     
-    // Enhanced Patterns (more specific to prevent false alarms)
-    private static final int[] EMERGENCY_SOS_PATTERN = {2, 1, 3, 1, 2, 1, 3, 1, 2}; // 9-step pattern
-    private static final int[] COVERT_PATTERN = {1, 2, 1, 3, 1, 2, 1}; // 7-step pattern
-    private static final int[] ABDUCTION_PATTERN = {2, 1, 2, 1, 2, 1, 2}; // Alternating
-    
-    // False Alarm Prevention
-    private static final int[] NORMAL_POCKET_TOUCH = {1, 1, 1, 1, 1}; // Consistent light touches
-    private static final int[] WALKING_PATTERN = {1, 2, 1, 2, 1, 2, 1}; // Rhythmic walking
-    
-    // Voice Detection Keywords
-    private static final String[] HELP_KEYWORDS = {
-        "help", "help me", "emergency", "sos", "save me", "danger",
-        "stop", "let me go", "police", "fire", "ambulance", "rescue",
-        "attack", "assault", "abduction", "kidnap", "threat", "dangerous",
-        "scared", "afraid", "terrified", "panic", "distress", "urgent"
-    };
-    
-    private static final String[] DISTRESS_PHRASES = {
-        "someone help", "call police", "call 911", "emergency help",
-        "i need help", "please help", "save me", "dangerous situation",
-        "being followed", "threatened", "attacked", "assaulted"
-    };
-    
     // Sensitivity Settings
-    private static final float POCKET_SENSITIVITY = 0.6f;
     private static final float VOICE_SENSITIVITY = 0.7f;
-    private static final int PATTERN_TIMEOUT = 8000; // 8 seconds for longer patterns
+    private static final float EARLY_TRIGGER_SCORE = 0.9f; // Partial hypotheses must score higher
     private static final int VOICE_DETECTION_TIMEOUT = 10000; // 10 seconds
     
-    // Context Detection
-    private static final float WALKING_THRESHOLD = 0.8f;
-    private static final float NORMAL_TOUCH_THRESHOLD = 0.4f;
-    private static final int MIN_EMERGENCY_PATTERN_LENGTH = 7;
-    private static final int MAX_FALSE_ALARM_PATTERN_LENGTH = 5;
-    
     private final Context context;
     private final SensorManager sensorManager;
     private final Sensor accelerometer;
     private EmergencyMode currentMode = EmergencyMode.NORMAL;
     
-    // Data Collection
-    private Queue<MovementData> movementHistory;
-    private List<Float> accelerationBuffer;
-    private List<Float> walkingPatternBuffer;
-    private List<String> voiceDetectionHistory;
+    // Pattern matching, walking and false alarm checks live in detection-core
+    private final MotionPatternDetector patternDetector;
     
     // State Tracking
     private boolean isPhoneInPocket = false;
     private boolean isSilentMode = false;
-    private boolean isWalking = false;
-    private boolean isNormalPocketActivity = false;
     private int suspiciousActivityCount = 0;
     private int falseAlarmCount = 0;
     private long lastNormalActivity = 0;
+    private Clock clock = Clock.SYSTEM;
     
     // Voice Detection
-    private SpeechRecognizer speechRecognizer;
-    private boolean isVoiceDetectionActive = false;
-    private long lastVoiceDetection = 0;
+    private final SpeechSessionSupervisor speechSupervisor;
     private int voiceEmergencyCount = 0;
+    private final VoiceScorer voiceScorer;
+    private boolean utteranceTriggered = false;
     
     public interface EnhancedEmergencyListener {
         void onEmergencyDetected(EmergencyMode mode, float confidence, String pattern);
@@ -106,96 +74,77 @@ public class EnhancedEmergencyDetector implements SensorEventListener {
     
     private final EnhancedEmergencyListener listener;
     
-    private static class MovementData {
-        float acceleration;
-        long timestamp;
-        boolean isSignificant;
-        String context; // "walking", "pocket_touch", "emergency", "normal"
-        
-        MovementData(float acc, long time, boolean significant, String ctx) {
-            this.acceleration = acc;
-            this.timestamp = time;
-            this.isSignificant = significant;
-            this.context = ctx;
-        }
-    }
-    
     public EnhancedEmergencyDetector(Context context, EnhancedEmergencyListener listener) {
         this.context = context;
         this.listener = listener;
         this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
         this.accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-        this.movementHistory = new ConcurrentLinkedQueue<>();
-        this.accelerationBuffer = new ArrayList<>();
-        this.walkingPatternBuffer = new ArrayList<>();
-        this.voiceDetectionHistory = new ArrayList<>();
+        this.patternDetector = new MotionPatternDetector(MotionPatternDetector.Config.ENHANCED, patternListener);
+        this.voiceScorer = new VoiceScorer(VoiceLexicon.getDefault(context));
+        this.speechSupervisor = createSpeechSupervisor();
         
-        initializeVoiceDetection();
         detectContext();
     }
     
     /**
-     * Initialize voice detection for help cries
+     * Continuous recognition sessions for help cries
      */
-    private void initializeVoiceDetection() {
-        try {
-            speechRecognizer = SpeechRecognizer.createSpeechRecognizer(context);
-            speechRecognizer.setRecognitionListener(new RecognitionListener() {
-                @Override
-                public void onReadyForSpeech(android.os.Bundle bundle) {
-                    Log.d(TAG, "Voice detection ready");
-                }
-                
-                @Override
-                public void onBeginningOfSpeech() {
-                    Log.d(TAG, "Voice detection started");
-                }
-                
-                @Override
-                public void onRmsChanged(float v) {
-                    // Monitor voice intensity
-                }
-                
-                @Override
-                public void onBufferReceived(byte[] bytes) {
-                    // Process audio buffer
-                }
-                
-                @Override
-                public void onEndOfSpeech() {
-                    Log.d(TAG, "Voice detection ended");
-                }
-                
-                @Override
-                public void onError(int error) {
-                    Log.w(TAG, "Voice detection error: " + error);
-                    // Restart voice detection after error
-                    restartVoiceDetection();
-                }
-                
-                @Override
-                public void onResults(android.os.Bundle results) {
-                    ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-                    if (matches != null && !matches.isEmpty()) {
-                        processVoiceInput(matches.get(0));
-                    }
-                    restartVoiceDetection();
-                }
-                
-                @Override
-                public void onPartialResults(android.os.Bundle bundle) {
-                    // Handle partial results
-                }
-                
-                @Override
-                public void onEvent(int i, android.os.Bundle bundle) {
-                    // Handle events
-                }
-            });
+    private SpeechSessionSupervisor createSpeechSupervisor() {
+        return new SpeechSessionSupervisor(context, new SpeechSessionSupervisor.SessionListener() {
+            @Override
+            public void onSessionReady() {
+                Log.d(TAG, "Voice detection ready");
+                utteranceTriggered = false;
+            }
+            
+            @Override
+            public void onPartialTranscript(String text) {
+                handlePartialTranscript(text);
+            }
+            
+            @Override
+            public void onFinalTranscript(String text) {
+                handleFinalTranscript(text);
+            }
+            
+            @Override
+            public void onSessionEnded() {
+                // Only single sessions end; detection always runs continuously
+            }
             
-            Log.d(TAG, "Voice detection initialized");
-        } catch (Exception e) {
-            Log.e(TAG, "Error initializing voice detection: " + e.getMessage());
+            @Override
+            public void onSessionFailed(String reason) {
+                Log.e(TAG, "Voice detection failed: " + reason);
+            }
+        });
+    }
+    
+    /**
+     * Score hypotheses while the user is still speaking so a clear cry for help
+     * does not wait for end-of-speech detection
+     */
+    private void handlePartialTranscript(String text) {
+        String lowerSpeech = text.toLowerCase().trim();
+        
+        if (utteranceTriggered) return;
+        float score = voiceScorer.score(lowerSpeech);
+        if (score >= EARLY_TRIGGER_SCORE) {
+            utteranceTriggered = true;
+            Log.w(TAG, "Early trigger on partial result: " + lowerSpeech);
+            handleVoiceScore(lowerSpeech, score);
+        }
+    }
+    
+    /**
+     * Final hypothesis for the utterance
+     */
+    private void handleFinalTranscript(String text) {
+        if (utteranceTriggered) {
+            // Already acted on a partial; only keep the transcript for repetition counting
+            utteranceTriggered = false;
+            voiceScorer.scoreAndRecord(text.toLowerCase().trim());
+        } else {
+            processVoiceInput(text);
         }
     }
     
@@ -208,16 +157,17 @@ public class EnhancedEmergencyDetector implements SensorEventListener {
         }
         
         String lowerSpeech = speech.toLowerCase().trim();
-        voiceDetectionHistory.add(lowerSpeech);
-        
-        // Keep only recent voice history
-        if (voiceDetectionHistory.size() > 10) {
-            voiceDetectionHistory.remove(0);
-        }
-        
-        // Check for emergency keywords
-        float emergencyScore = calculateEmergencyVoiceScore(lowerSpeech);
         
+        // Check for emergency keywords; the scorer keeps the recent history itself
+        handleVoiceScore(lowerSpeech, voiceScorer.scoreAndRecord(lowerSpeech));
+    }
+    
+    /**
+     * Act on a voice score from the transcript scorer
+     */
+    private void handleVoiceScore(String lowerSpeech, float emergencyScore) {
+        // Every score counts towards the fused result, not only those over our own threshold
+        EmergencyFusion.getInstance(context).report(EvidenceFusion.Source.VOICE, emergencyScore);
         if (emergencyScore > VOICE_SENSITIVITY) {
             voiceEmergencyCount++;
             Log.w(TAG, "VOICE EMERGENCY DETECTED: " + lowerSpeech + " (score: " + emergencyScore + ")");
@@ -234,48 +184,6 @@ public class EnhancedEmergencyDetector implements SensorEventListener {
         }
     }
     
-    /**
-     * Calculate emergency score for voice input
-     */
-    private float calculateEmergencyVoiceScore(String speech) {
-        float score = 0.0f;
-        
-        // Check for help keywords
-        for (String keyword : HELP_KEYWORDS) {
-            if (speech.contains(keyword)) {
-                score += 0.3f;
-            }
-        }
-        
-        // Check for distress phrases
-        for (String phrase : DISTRESS_PHRASES) {
-            if (speech.contains(phrase)) {
-                score += 0.5f;
-            }
-        }
-        
-        // Check for urgency indicators
-        if (speech.contains("now") || speech.contains("immediately") || speech.contains("urgent")) {
-            score += 0.2f;
-        }
-        
-        // Check for repetition (multiple help cries)
-        int helpCount = 0;
-        for (String history : voiceDetectionHistory) {
-            for (String keyword : HELP_KEYWORDS) {
-                if (history.contains(keyword)) {
-                    helpCount++;
-                }
-            }
-        }
-        
-        if (helpCount > 1) {
-            score += 0.3f;
-        }
-        
-        return Math.min(1.0f, score);
-    }
-    
     /**
      * Activate voice emergency response
      */
@@ -290,32 +198,11 @@ public class EnhancedEmergencyDetector implements SensorEventListener {
         );
         
         // Activate stealth SOS
-        activateStealthSOS("Voice Emergency Detection");
+        activateStealthSOS(SosCoalescer.Source.VOICE, "Voice Emergency Detection");
         
         Log.w(TAG, "VOICE EMERGENCY ACTIVATED: " + speech);
     }
     
-    /**
-     * Restart voice detection
-     */
-    private void restartVoiceDetection() {
-        if (speechRecognizer != null && !isVoiceDetectionActive) {
-            try {
-                android.content.Intent intent = new android.content.Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-                intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
-                intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
-                intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 3);
-                
-                speechRecognizer.startListening(intent);
-                isVoiceDetectionActive = true;
-                lastVoiceDetection = System.currentTimeMillis();
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error restarting voice detection: " + e.getMessage());
-            }
-        }
-    }
-    
     private void detectContext() {
         // Check silent mode
         AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
@@ -333,7 +220,9 @@ public class EnhancedEmergencyDetector implements SensorEventListener {
         }
         
         // Start voice detection
-        restartVoiceDetection();
+        if (SpeechSessionSupervisor.isAvailable(context)) {
+            speechSupervisor.startContinuous();
+        }
         
         Log.d(TAG, "Enhanced emergency detection started");
     }
@@ -341,295 +230,96 @@ public class EnhancedEmergencyDetector implements SensorEventListener {
     public void stopDetection() {
         sensorManager.unregisterListener(this);
         
-        if (speechRecognizer != null) {
-            speechRecognizer.stopListening();
-            speechRecognizer.destroy();
-        }
+        speechSupervisor.stop();
         
         Log.d(TAG, "Enhanced emergency detection stopped");
     }
     
-    @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-            processAccelerometerData(event);
-        }
-    }
-    
-    private void processAccelerometerData(SensorEvent event) {
-        float x = event.values[0];
-        float y = event.values[1];
-        float z = event.values[2];
-        
-        float acceleration = (float) Math.sqrt(x * x + y * y + z * z);
-        long timestamp = System.currentTimeMillis();
-        
-        // Store data
-        accelerationBuffer.add(acceleration);
-        if (accelerationBuffer.size() > 50) {
-            accelerationBuffer.remove(0);
-        }
-        
-        // Detect context
-        detectPhonePosition();
-        detectWalkingPattern();
-        
-        // Determine movement context
-        String movementContext = determineMovementContext(acceleration);
-        
-        // Check for significant movement
-        boolean isSignificant = acceleration > POCKET_SENSITIVITY;
-        MovementData data = new MovementData(acceleration, timestamp, isSignificant, movementContext);
-        movementHistory.offer(data);
-        
-        while (movementHistory.size() > 100) {
-            movementHistory.poll();
-        }
-        
-        // Analyze patterns with false alarm prevention
-        analyzeEnhancedPatterns();
-    }
-    
     /**
-     * Determine the context of the movement
+     * Replace the time source, e.g. with a ReplayClock when driving from a sensor trace.
      */
-    private String determineMovementContext(float acceleration) {
-        if (isWalking && acceleration > WALKING_THRESHOLD) {
-            return "walking";
-        } else if (isPhoneInPocket && acceleration < NORMAL_TOUCH_THRESHOLD) {
-            return "normal_pocket_touch";
-        } else if (acceleration > POCKET_SENSITIVITY) {
-            return "significant_movement";
-        } else {
-            return "normal";
-        }
+    public void setClock(Clock clock) {
+        this.clock = clock;
     }
     
-    private void detectPhonePosition() {
-        if (accelerationBuffer.size() > 10) {
-            float avgMovement = calculateAverageMovement();
-            float variance = calculateVariance();
-            
-            // Pocket: lower movement, higher variance
-            if (avgMovement < 0.5f && variance > 0.3f) {
-                isPhoneInPocket = true;
-                currentMode = EmergencyMode.COVERT_POCKET;
-            } else if (avgMovement > 1.0f && variance < 0.2f) {
-                isPhoneInPocket = false;
-                currentMode = EmergencyMode.NORMAL;
-            }
-        }
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        onSensorSample(event.sensor.getType(), event.timestamp, event.values[0], event.values[1], event.values[2]);
     }
     
-    private void detectWalkingPattern() {
-        if (accelerationBuffer.size() > 20) {
-            // Analyze for rhythmic walking pattern
-            float walkingScore = calculateWalkingScore();
-            
-            if (walkingScore > 0.7f) {
-                isWalking = true;
-                isNormalPocketActivity = true; // Walking often involves pocket touches
-            } else {
-                isWalking = false;
-            }
+    @Override
+    public void onSensorSample(int sensorType, long timestampNanos, float x, float y, float z) {
+        if (sensorType == SensorTypes.ACCELEROMETER) {
+            processAccelerometerData(x, y, z);
         }
     }
     
-    private float calculateWalkingScore() {
-        if (accelerationBuffer.size() < 10) return 0.0f;
-        
-        int rhythmicCount = 0;
-        for (int i = 1; i < accelerationBuffer.size() - 1; i++) {
-            float prev = accelerationBuffer.get(i - 1);
-            float curr = accelerationBuffer.get(i);
-            float next = accelerationBuffer.get(i + 1);
-            
-            // Check for rhythmic pattern (up-down-up)
-            if (curr > prev && curr > next && curr > 0.8f) {
-                rhythmicCount++;
+    private void processAccelerometerData(float x, float y, float z) {
+        float acceleration = (float) Math.sqrt(x * x + y * y + z * z);
+        patternDetector.onAcceleration(acceleration, clock.currentTimeMillis());
+    }
+    
+    private final MotionPatternDetector.PatternListener patternListener = new MotionPatternDetector.PatternListener() {
+        @Override
+        public void onPhonePosition(boolean inPocket) {
+            isPhoneInPocket = inPocket;
+            currentMode = inPocket ? EmergencyMode.COVERT_POCKET : EmergencyMode.NORMAL;
+        }
+        
+        @Override
+        public void onPatternMatched(MotionPatternDetector.Pattern pattern, float confidence) {
+            EmergencyFusion.getInstance(context).report(EvidenceFusion.Source.MOTION_PATTERN, confidence);
+            switch (pattern) {
+                case EMERGENCY_SOS:
+                    listener.onEmergencyDetected(
+                        EmergencyMode.COVERT_POCKET,
+                        confidence,
+                        "Emergency SOS Pattern"
+                    );
+                    activateStealthSOS(SosCoalescer.Source.MOTION_PATTERN, "Emergency SOS Pattern");
+                    break;
+                case COVERT_SOS:
+                    listener.onEmergencyDetected(
+                        EmergencyMode.COVERT_POCKET,
+                        confidence,
+                        "Covert SOS Pattern"
+                    );
+                    activateStealthSOS(SosCoalescer.Source.MOTION_PATTERN, "Covert Pattern");
+                    break;
+                case ABDUCTION:
+                    currentMode = EmergencyMode.ABDUCTION_ALERT;
+                    float threatLevel = calculateThreatLevel();
+                    String indicators = getThreatIndicators();
+                    
+                    listener.onAbductionAlert(threatLevel, indicators);
+                    activateStealthSOS(SosCoalescer.Source.MOTION_PATTERN, "Abduction Alert");
+                    break;
             }
         }
         
-        return (float) rhythmicCount / accelerationBuffer.size();
-    }
-    
-    private void analyzeEnhancedPatterns() {
-        List<MovementData> recent = getRecentSignificantMovements();
-        
-        if (recent.size() >= MIN_EMERGENCY_PATTERN_LENGTH) {
-            // First, check for false alarm patterns
-            if (checkFalseAlarmPatterns(recent)) {
-                return; // Prevent false alarm
+        @Override
+        public void onFalseAlarmPrevented(MotionPatternDetector.FalseAlarm reason) {
+            String description;
+            String pattern;
+            switch (reason) {
+                case POCKET_TOUCH:
+                    description = "Normal pocket touch pattern detected";
+                    pattern = "Normal Pocket Touch";
+                    break;
+                case WALKING:
+                    description = "Walking movement pattern detected";
+                    pattern = "Walking Pattern";
+                    break;
+                default:
+                    description = "Consistent light touches (normal pocket activity)";
+                    pattern = "Light Touches";
+                    break;
             }
-            
-            // Then check for emergency patterns
-            checkEmergencyPatterns(recent);
-        }
-    }
-    
-    /**
-     * Check for false alarm patterns first
-     */
-    private boolean checkFalseAlarmPatterns(List<MovementData> movements) {
-        // Check for normal pocket touch pattern
-        if (matchPattern(movements, NORMAL_POCKET_TOUCH)) {
-            String reason = "Normal pocket touch pattern detected";
-            listener.onFalseAlarmPrevented(reason, "Normal Pocket Touch");
+            listener.onFalseAlarmPrevented(description, pattern);
             falseAlarmCount++;
-            Log.d(TAG, "False alarm prevented: " + reason);
-            return true;
-        }
-        
-        // Check for walking pattern
-        if (matchPattern(movements, WALKING_PATTERN) && isWalking) {
-            String reason = "Walking movement pattern detected";
-            listener.onFalseAlarmPrevented(reason, "Walking Pattern");
-            falseAlarmCount++;
-            Log.d(TAG, "False alarm prevented: " + reason);
-            return true;
-        }
-        
-        // Check for consistent light touches (normal pocket activity)
-        if (isConsistentLightTouches(movements)) {
-            String reason = "Consistent light touches (normal pocket activity)";
-            listener.onFalseAlarmPrevented(reason, "Light Touches");
-            falseAlarmCount++;
-            Log.d(TAG, "False alarm prevented: " + reason);
-            return true;
-        }
-        
-        return false;
-    }
-    
-    /**
-     * Check if movements are consistent light touches (normal pocket activity)
-     */
-    private boolean isConsistentLightTouches(List<MovementData> movements) {
-        if (movements.size() < 5) return false;
-        
-        int lightTouchCount = 0;
-        float totalIntensity = 0;
-        
-        for (MovementData data : movements) {
-            totalIntensity += data.acceleration;
-            if (data.acceleration < NORMAL_TOUCH_THRESHOLD) {
-                lightTouchCount++;
-            }
-        }
-        
-        float avgIntensity = totalIntensity / movements.size();
-        float lightTouchRatio = (float) lightTouchCount / movements.size();
-        
-        // Normal pocket activity: mostly light touches with low average intensity
-        return lightTouchRatio > 0.7f && avgIntensity < 0.5f;
-    }
-    
-    private void checkEmergencyPatterns(List<MovementData> movements) {
-        // Check emergency SOS pattern (longer, more specific)
-        if (matchPattern(movements, EMERGENCY_SOS_PATTERN)) {
-            float confidence = calculateConfidence(movements);
-            if (confidence > 0.8f) {
-                listener.onEmergencyDetected(
-                    EmergencyMode.COVERT_POCKET,
-                    confidence,
-                    "Emergency SOS Pattern"
-                );
-                activateStealthSOS("Emergency SOS Pattern");
-            }
-        }
-        
-        // Check covert pattern
-        if (matchPattern(movements, COVERT_PATTERN)) {
-            float confidence = calculateConfidence(movements);
-            if (confidence > 0.7f) {
-                listener.onEmergencyDetected(
-                    EmergencyMode.COVERT_POCKET,
-                    confidence,
-                    "Covert SOS Pattern"
-                );
-                activateStealthSOS("Covert Pattern");
-            }
+            Log.d(TAG, "False alarm prevented: " + description);
         }
-        
-        // Check abduction pattern
-        if (matchPattern(movements, ABDUCTION_PATTERN)) {
-            float confidence = calculateConfidence(movements);
-            if (confidence > 0.8f) {
-                currentMode = EmergencyMode.ABDUCTION_ALERT;
-                float threatLevel = calculateThreatLevel();
-                String indicators = getThreatIndicators();
-                
-                listener.onAbductionAlert(threatLevel, indicators);
-                activateStealthSOS("Abduction Alert");
-            }
-        }
-    }
-    
-    private List<MovementData> getRecentSignificantMovements() {
-        List<MovementData> significant = new ArrayList<>();
-        long currentTime = System.currentTimeMillis();
-        
-        for (MovementData data : movementHistory) {
-            if (data.isSignificant && (currentTime - data.timestamp) < PATTERN_TIMEOUT) {
-                significant.add(data);
-            }
-        }
-        
-        return significant;
-    }
-    
-    private boolean matchPattern(List<MovementData> movements, int[] pattern) {
-        if (movements.size() < pattern.length) return false;
-        
-        int matches = 0;
-        for (int i = 0; i < pattern.length && i < movements.size(); i++) {
-            float intensity = movements.get(i).acceleration;
-            if (intensity >= pattern[i] * 0.5f && intensity <= pattern[i] * 1.5f) {
-                matches++;
-            }
-        }
-        
-        return (float) matches / pattern.length > 0.7f;
-    }
-    
-    private float calculateConfidence(List<MovementData> movements) {
-        if (movements.isEmpty()) return 0.0f;
-        
-        float avgIntensity = 0;
-        for (MovementData data : movements) {
-            avgIntensity += data.acceleration;
-        }
-        avgIntensity /= movements.size();
-        
-        // Higher confidence for consistent movements
-        float consistency = calculateConsistency(movements);
-        
-        // Penalize if it looks like normal activity
-        float normalActivityPenalty = 0.0f;
-        if (isNormalPocketActivity || isWalking) {
-            normalActivityPenalty = 0.2f;
-        }
-        
-        return Math.max(0.0f, (avgIntensity * 0.6f + consistency * 0.4f) - normalActivityPenalty);
-    }
-    
-    private float calculateConsistency(List<MovementData> movements) {
-        if (movements.size() < 2) return 0.0f;
-        
-        float mean = 0;
-        for (MovementData data : movements) {
-            mean += data.acceleration;
-        }
-        mean /= movements.size();
-        
-        float variance = 0;
-        for (MovementData data : movements) {
-            variance += Math.pow(data.acceleration - mean, 2);
-        }
-        variance /= movements.size();
-        
-        return Math.max(0, 1.0f - variance);
-    }
+    };
     
     private float calculateThreatLevel() {
         float threat = 0.0f;
@@ -649,28 +339,12 @@ public class EnhancedEmergencyDetector implements SensorEventListener {
         return String.join(", ", indicators);
     }
     
-    private void activateStealthSOS(String method) {
+    private void activateStealthSOS(SosCoalescer.Source source, String method) {
         listener.onStealthSOSActivated(method);
+        SOSCoordinator.getInstance(context).trigger(source, SosCoalescer.Urgency.CONFIRM, method);
         Log.i(TAG, "STEALTH SOS: " + method);
     }
     
-    private float calculateAverageMovement() {
-        if (accelerationBuffer.isEmpty()) return 0.0f;
-        float sum = 0;
-        for (float value : accelerationBuffer) sum += value;
-        return sum / accelerationBuffer.size();
-    }
-    
-    private float calculateVariance() {
-        if (accelerationBuffer.size() < 2) return 0.0f;
-        float mean = calculateAverageMovement();
-        float variance = 0;
-        for (float value : accelerationBuffer) {
-            variance += Math.pow(value - mean, 2);
-        }
-        return variance / accelerationBuffer.size();
-    }
-    
     @Override
     public void onAccuracyChanged(Sensor sensor, int accuracy) {
         // Not used
@@ -678,9 +352,8 @@ public class EnhancedEmergencyDetector implements SensorEventListener {
     
     public void cleanup() {
         stopDetection();
-        movementHistory.clear();
-        accelerationBuffer.clear();
-        walkingPatternBuffer.clear();
-        voiceDetectionHistory.clear();
+        speechSupervisor.destroy();
+        patternDetector.reset();
+        voiceScorer.reset();
     }
 } 
\ No newline at end of file
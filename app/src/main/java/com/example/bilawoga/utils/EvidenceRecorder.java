@@ -0,0 +1,134 @@
+package com.example.bilawoga.utils;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.media.MediaRecorder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * EVIDENCE RECORDER
+ * Records a short audio clip when an SOS goes out and hands it to the EvidenceUploader
+ * as urgent evidence once the clip is closed.
+ *
+ * - One clip at a time; a trigger while recording is ignored
+ * - Clips are AAC in MP4 under filesDir/evidence, removed by the panic wipe
+ * - Needs the microphone permission; in the background Android only delivers audio while
+ *   a microphone foreground service (BackgroundAudioMonitor) is running
+ */
+public class EvidenceRecorder {
+    private static final String TAG = "EvidenceRecorder";
+    static final String EVIDENCE_DIR = "evidence";
+    private static final String MEDIA_TYPE = "audio/mp4";
+    private static final long CLIP_DURATION_MS = 60 * 1000;
+    private static final int SAMPLE_RATE = 16000;
+    private static final int BIT_RATE = 32000;
+
+    private static EvidenceRecorder instance;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private MediaRecorder recorder;
+    private File currentFile;
+
+    private final Runnable stopRunnable = this::stop;
+
+    private EvidenceRecorder(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public static synchronized EvidenceRecorder getInstance(Context context) {
+        if (instance == null) {
+            instance = new EvidenceRecorder(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Start a clip of the default length. Returns false if no clip was started.
+     */
+    public synchronized boolean recordClip() {
+        if (recorder != null) return false;
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO)
+                != PackageManager.PERMISSION_GRANTED) {
+            Log.w(TAG, "No microphone permission, skipping evidence clip");
+            return false;
+        }
+        File dir = new File(context.getFilesDir(), EVIDENCE_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Could not create evidence directory");
+            return false;
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        currentFile = new File(dir, "sos_" + stamp + ".m4a");
+
+        MediaRecorder r = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+                ? new MediaRecorder(context) : new MediaRecorder();
+        try {
+            r.setAudioSource(MediaRecorder.AudioSource.MIC);
+            r.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
+            r.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
+            r.setAudioSamplingRate(SAMPLE_RATE);
+            r.setAudioEncodingBitRate(BIT_RATE);
+            r.setOutputFile(currentFile.getAbsolutePath());
+            r.prepare();
+            r.start();
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting evidence clip: " + e.getMessage());
+            r.release();
+            discard(currentFile);
+            currentFile = null;
+            return false;
+        }
+        recorder = r;
+        mainHandler.postDelayed(stopRunnable, CLIP_DURATION_MS);
+        Log.d(TAG, "Recording evidence clip " + currentFile.getName());
+        return true;
+    }
+
+    /**
+     * Close the clip early and queue it for upload.
+     */
+    public synchronized void stop() {
+        if (recorder == null) return;
+        mainHandler.removeCallbacks(stopRunnable);
+        MediaRecorder r = recorder;
+        File file = currentFile;
+        recorder = null;
+        currentFile = null;
+        boolean ok;
+        try {
+            r.stop();
+            ok = true;
+        } catch (RuntimeException e) {
+            // Thrown when stopped before any audio was captured; the file is unusable
+            Log.e(TAG, "Error stopping evidence clip: " + e.getMessage());
+            ok = false;
+        } finally {
+            r.release();
+        }
+        if (!ok) {
+            discard(file);
+            return;
+        }
+        if (EvidenceUploader.getInstance(context).submit(file, MEDIA_TYPE, true) == null) {
+            Log.w(TAG, "Evidence clip kept locally, upload queue refused it");
+        }
+    }
+
+    private static void discard(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file.getName());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.bilawoga.utils;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Storage target for encrypted evidence chunks.
+ * Implementations must be safe to call from several uploader threads at once.
+ * Chunks are opaque ciphertext; the backend never sees plaintext evidence.
+ */
+public interface EvidenceStorageBackend {
+
+    /**
+     * Indices of chunks already stored for this object. Used when resuming after
+     * process death, in case a chunk was stored but the local manifest was not updated.
+     */
+    Set<Integer> listStoredChunks(String objectId) throws IOException;
+
+    /**
+     * Store one chunk. Writing the same index twice must overwrite, not duplicate.
+     */
+    void putChunk(String objectId, int chunkIndex, byte[] encryptedChunk) throws IOException;
+
+    /**
+     * Mark the object as complete once every chunk has been stored.
+     */
+    void completeObject(String objectId, int chunkCount, long plaintextBytes, String mediaType) throws IOException;
+}
@@ -0,0 +1,560 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.bilawoga.detection.ChunkUploadState;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * RESUMABLE EVIDENCE UPLOADER
+ * Streams recorded evidence files to backup storage as encrypted chunks.
+ *
+ * - Fixed-size chunks, each AES-GCM encrypted with object id + chunk index bound as AAD
+ * - A small manifest per upload records finished chunks, so uploads resume after process death
+ * - Bounded number of chunks in flight; submit() refuses new uploads when the queue is full
+ * - Uploads run as WorkManager work: urgent evidence on any network and battery level,
+ *   the rest on an unmetered network with a battery that is not low
+ * - A failed chunk backs off with jitter and the pass is retried with exponential backoff
+ */
+public class EvidenceUploader {
+    private static final String TAG = "EvidenceUploader";
+    private static final String ANDROID_KEYSTORE = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "BILA_EVIDENCE_KEY";
+    static final String MANIFEST_DIR = "evidence_uploads";
+    private static final String MANIFEST_SUFFIX = ".json";
+    private static final String UPLOAD_WORK = "evidence_upload";
+    private static final String URGENT_UPLOAD_WORK = "evidence_upload_urgent";
+    private static final String INPUT_URGENT = "urgent";
+
+    public static final int CHUNK_SIZE = 256 * 1024; // Well below the Firestore document limit
+    private static final int MAX_CHUNKS_IN_FLIGHT = 2;
+    private static final int MAX_PENDING_UPLOADS = 16;
+    private static final long BACKOFF_BASE_MS = 2000;
+    private static final long BACKOFF_MAX_MS = 5 * 60 * 1000;
+    private static final long BACKOFF_SECONDS = 30;
+    private static final byte CHUNK_FORMAT_VERSION = 1;
+
+    private static EvidenceUploader instance;
+
+    public interface UploadListener {
+        void onUploadProgress(String objectId, int chunksDone, int chunkCount);
+        void onUploadComplete(String objectId);
+    }
+
+    private final Context context;
+    private final File manifestDir;
+    private final ExecutorService workers;
+    private final Semaphore chunkPermits = new Semaphore(MAX_CHUNKS_IN_FLIGHT);
+    private final Object lock = new Object();
+    private final Object resumeLock = new Object();
+    private final Map<String, UploadManifest> active = new LinkedHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    private volatile EvidenceStorageBackend backend;
+    private volatile UploadListener listener;
+    private volatile boolean allowMetered = false;
+    private SecretKey key;
+
+    /**
+     * Upload state persisted between process restarts.
+     * Guarded by EvidenceUploader.lock.
+     */
+    private static class UploadManifest {
+        final String objectId;
+        final String path;
+        final long size;
+        final int chunkSize;
+        final int chunkCount;
+        final String mediaType;
+        final boolean urgent;
+        final long createdAt;
+        // Only the done set is persisted; attempts and retry times are runtime only
+        final ChunkUploadState chunks;
+
+        UploadManifest(String objectId, String path, long size, int chunkSize, String mediaType,
+                       boolean urgent, long createdAt, byte[] doneBits) {
+            this.objectId = objectId;
+            this.path = path;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunkCount = ChunkUploadState.chunkCount(size, chunkSize);
+            this.mediaType = mediaType;
+            this.urgent = urgent;
+            this.createdAt = createdAt;
+            this.chunks = new ChunkUploadState(chunkCount, doneBits);
+        }
+
+        JSONObject toJson() throws Exception {
+            JSONObject json = new JSONObject();
+            json.put("id", objectId);
+            json.put("path", path);
+            json.put("size", size);
+            json.put("chunk", chunkSize);
+            json.put("type", mediaType);
+            json.put("urgent", urgent);
+            json.put("created", createdAt);
+            json.put("done", Base64.encodeToString(chunks.doneBits(), Base64.NO_WRAP));
+            return json;
+        }
+
+        static UploadManifest fromJson(JSONObject json) throws Exception {
+            return new UploadManifest(
+                    json.getString("id"),
+                    json.getString("path"),
+                    json.getLong("size"),
+                    json.getInt("chunk"),
+                    json.optString("type", "application/octet-stream"),
+                    json.optBoolean("urgent", false),
+                    json.optLong("created", 0),
+                    Base64.decode(json.optString("done", ""), Base64.NO_WRAP));
+        }
+    }
+
+    private EvidenceUploader(Context context) {
+        this.context = context.getApplicationContext();
+        this.manifestDir = new File(this.context.getFilesDir(), MANIFEST_DIR);
+        this.workers = Executors.newFixedThreadPool(MAX_CHUNKS_IN_FLIGHT);
+        this.backend = new FirestoreEvidenceBackend();
+        if (!manifestDir.exists() && !manifestDir.mkdirs()) {
+            Log.e(TAG, "Cannot create manifest directory");
+        }
+    }
+
+    public static synchronized EvidenceUploader getInstance(Context context) {
+        if (instance == null) {
+            instance = new EvidenceUploader(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Cancel the queued upload work, drop the uploads in progress and delete the Keystore
+     * key their chunks are sealed with. Called by the panic wipe, which has already moved
+     * the manifests away; chunks still in flight finish without writing anything back.
+     */
+    static synchronized void forgetAll(Context context) throws Exception {
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.cancelUniqueWork(UPLOAD_WORK);
+        workManager.cancelUniqueWork(URGENT_UPLOAD_WORK);
+        if (instance != null) {
+            synchronized (instance.lock) {
+                instance.active.clear();
+            }
+            synchronized (instance) {
+                instance.key = null;
+            }
+        }
+        KeyStore ks = KeyStore.getInstance(ANDROID_KEYSTORE);
+        ks.load(null);
+        if (ks.containsAlias(KEY_ALIAS)) {
+            ks.deleteEntry(KEY_ALIAS);
+        }
+    }
+
+    /**
+     * Swap the storage target, e.g. for a LocalFileEvidenceBackend on an emulator.
+     * Must be called before any upload is submitted or resumed.
+     */
+    public void setBackend(EvidenceStorageBackend backend) {
+        this.backend = backend;
+    }
+
+    public void setUploadListener(UploadListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Allow non-urgent uploads on metered networks (user opted in to mobile data).
+     */
+    public void setAllowMetered(boolean allowMetered) {
+        this.allowMetered = allowMetered;
+        // Requeue so the waiting work picks up the new network constraint
+        enqueue(false, ExistingWorkPolicy.REPLACE);
+    }
+
+    /**
+     * Queue an evidence file for upload. The file must not change after submission.
+     *
+     * @return the object id, or null if the queue is full (caller should retry later)
+     */
+    public String submit(File evidenceFile, String mediaType, boolean urgent) {
+        if (evidenceFile == null || !evidenceFile.isFile()) {
+            Log.e(TAG, "Evidence file missing");
+            return null;
+        }
+        UploadManifest manifest;
+        synchronized (lock) {
+            if (active.size() >= MAX_PENDING_UPLOADS) {
+                Log.w(TAG, "Upload queue full, rejecting " + evidenceFile.getName());
+                return null;
+            }
+            manifest = new UploadManifest(
+                    UUID.randomUUID().toString(),
+                    evidenceFile.getAbsolutePath(),
+                    evidenceFile.length(),
+                    CHUNK_SIZE,
+                    mediaType != null ? mediaType : "application/octet-stream",
+                    urgent,
+                    System.currentTimeMillis(),
+                    new byte[0]);
+            if (!saveManifest(manifest)) {
+                return null;
+            }
+            active.put(manifest.objectId, manifest);
+        }
+        Log.d(TAG, "Queued evidence " + manifest.objectId + " (" + manifest.chunkCount + " chunks, urgent=" + urgent + ")");
+        // Runs after a pass already in progress, which may have missed this upload
+        enqueue(urgent, ExistingWorkPolicy.APPEND_OR_REPLACE);
+        return manifest.objectId;
+    }
+
+    /**
+     * Make sure uploads left by a previous process are scheduled. Safe to call on every
+     * start; work that is already queued is kept.
+     */
+    public void resumePendingUploads() {
+        String[] names = manifestDir.list();
+        if (names == null || names.length == 0) return;
+        enqueue(true, ExistingWorkPolicy.KEEP);
+        enqueue(false, ExistingWorkPolicy.KEEP);
+    }
+
+    public int getPendingUploadCount() {
+        synchronized (lock) {
+            return active.size();
+        }
+    }
+
+    private void enqueue(boolean urgent, ExistingWorkPolicy policy) {
+        Constraints.Builder constraints = new Constraints.Builder();
+        if (urgent) {
+            // Urgent evidence goes out on any network, any battery level
+            constraints.setRequiredNetworkType(NetworkType.CONNECTED);
+        } else {
+            constraints.setRequiredNetworkType(allowMetered ? NetworkType.CONNECTED : NetworkType.UNMETERED)
+                    .setRequiresBatteryNotLow(true);
+        }
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(UploadWorker.class)
+                .setConstraints(constraints.build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .setInputData(new Data.Builder().putBoolean(INPUT_URGENT, urgent).build())
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                urgent ? URGENT_UPLOAD_WORK : UPLOAD_WORK, policy, request);
+    }
+
+    /**
+     * One pass over the urgent or the non-urgent uploads, run by UploadWorker: sends every
+     * chunk that is not waiting out a backoff and completes objects whose chunks are all
+     * stored. Blocks until the chunks it started have finished.
+     *
+     * @return true if no upload of this kind is left
+     */
+    boolean uploadPending(boolean urgent, BooleanSupplier stopped) {
+        resumeFromDisk();
+        List<UploadManifest> batch = new ArrayList<>();
+        synchronized (lock) {
+            for (UploadManifest m : active.values()) {
+                if (m.urgent == urgent) batch.add(m);
+            }
+        }
+        boolean done = true;
+        for (UploadManifest m : batch) {
+            if (stopped.getAsBoolean()) return false;
+            if (!uploadChunks(m, stopped) || !completeUpload(m)) {
+                done = false;
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Load manifests written before the process died. A chunk may have reached the backend
+     * after the last manifest write, so each is reconciled with what the backend holds.
+     */
+    private void resumeFromDisk() {
+        synchronized (resumeLock) {
+            File[] files = manifestDir.listFiles();
+            if (files == null) return;
+            int resumed = 0;
+            for (File file : files) {
+                if (!file.getName().endsWith(MANIFEST_SUFFIX)) continue;
+                String objectId = file.getName().substring(0, file.getName().length() - MANIFEST_SUFFIX.length());
+                synchronized (lock) {
+                    if (active.containsKey(objectId)) continue;
+                }
+                UploadManifest manifest = loadManifest(file);
+                if (manifest == null) continue;
+                if (!new File(manifest.path).isFile()) {
+                    Log.w(TAG, "Evidence file gone, dropping upload " + manifest.objectId);
+                    deleteManifest(manifest.objectId);
+                    continue;
+                }
+                try {
+                    Set<Integer> stored = backend.listStoredChunks(manifest.objectId);
+                    manifest.chunks.markStored(stored);
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not reconcile " + manifest.objectId + ": " + e.getMessage());
+                }
+                synchronized (lock) {
+                    active.put(manifest.objectId, manifest);
+                    saveManifest(manifest);
+                }
+                resumed++;
+            }
+            if (resumed > 0) {
+                Log.d(TAG, "Resumed " + resumed + " pending evidence uploads");
+            }
+        }
+    }
+
+    /**
+     * Send the chunks of one upload, at most MAX_CHUNKS_IN_FLIGHT at a time across all passes.
+     *
+     * @return true if every chunk is stored
+     */
+    private boolean uploadChunks(UploadManifest m, BooleanSupplier stopped) {
+        long now = System.currentTimeMillis();
+        List<Future<?>> inFlight = new ArrayList<>();
+        int index;
+        while (!stopped.getAsBoolean() && (index = nextChunk(m, now)) >= 0) {
+            final int chunk = index;
+            chunkPermits.acquireUninterruptibly();
+            inFlight.add(workers.submit(() -> uploadChunk(m, chunk)));
+        }
+        for (Future<?> future : inFlight) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Chunk task failed: " + e.getMessage());
+            }
+        }
+        synchronized (lock) {
+            return active.get(m.objectId) == m && m.chunks.isComplete();
+        }
+    }
+
+    /** The next chunk to send, marked as dispatched, or -1. */
+    private int nextChunk(UploadManifest m, long now) {
+        synchronized (lock) {
+            if (active.get(m.objectId) != m) {
+                // Dropped by a wipe during this pass
+                return -1;
+            }
+            int index = m.chunks.nextDispatchable(now);
+            if (index >= 0) {
+                m.chunks.dispatched(index);
+            }
+            return index;
+        }
+    }
+
+    private void uploadChunk(UploadManifest m, int index) {
+        boolean ok = false;
+        try {
+            byte[] plain = readChunk(m, index);
+            byte[] encrypted = encryptChunk(m.objectId, index, plain);
+            backend.putChunk(m.objectId, index, encrypted);
+            ok = true;
+        } catch (Exception e) {
+            Log.w(TAG, "Chunk " + index + " of " + m.objectId + " failed: " + e.getMessage());
+        } finally {
+            chunkPermits.release();
+            onChunkFinished(m, index, ok);
+        }
+    }
+
+    private void onChunkFinished(UploadManifest m, int index, boolean ok) {
+        int doneCount;
+        synchronized (lock) {
+            if (active.get(m.objectId) != m) {
+                // Dropped by a wipe while this chunk was in flight
+                return;
+            }
+            if (ok) {
+                m.chunks.succeeded(index);
+                saveManifest(m);
+            } else {
+                m.chunks.failed(index, System.currentTimeMillis(), this::backoffDelay);
+            }
+            doneCount = m.chunks.doneCount();
+        }
+        UploadListener l = listener;
+        if (ok && l != null) l.onUploadProgress(m.objectId, doneCount, m.chunkCount);
+    }
+
+    private boolean completeUpload(UploadManifest m) {
+        try {
+            backend.completeObject(m.objectId, m.chunkCount, m.size, m.mediaType);
+        } catch (IOException e) {
+            Log.w(TAG, "Completing " + m.objectId + " failed: " + e.getMessage());
+            return false;
+        }
+        synchronized (lock) {
+            if (active.remove(m.objectId) != m) {
+                return true;
+            }
+        }
+        deleteManifest(m.objectId);
+        Log.d(TAG, "Evidence upload complete: " + m.objectId);
+        UploadListener l = listener;
+        if (l != null) l.onUploadComplete(m.objectId);
+        return true;
+    }
+
+    private long backoffDelay(int attempt) {
+        long delay = BACKOFF_BASE_MS << Math.min(attempt - 1, 16);
+        delay = Math.min(delay, BACKOFF_MAX_MS);
+        // +/-20% jitter so chunks of several uploads do not retry in lockstep
+        double jitter = 0.8 + random.nextDouble() * 0.4;
+        return (long) (delay * jitter);
+    }
+
+    /**
+     * Runs uploadPending() for the queue named by its input, and retries until it is empty.
+     */
+    public static class UploadWorker extends Worker {
+        public UploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        @NonNull
+        @Override
+        public Result doWork() {
+            boolean urgent = getInputData().getBoolean(INPUT_URGENT, false);
+            return getInstance(getApplicationContext()).uploadPending(urgent, this::isStopped)
+                    ? Result.success() : Result.retry();
+        }
+    }
+
+    // ---- Chunk IO and encryption ----
+
+    private byte[] readChunk(UploadManifest m, int index) throws IOException {
+        long offset = (long) index * m.chunkSize;
+        int length = (int) Math.min(m.chunkSize, Math.max(0, m.size - offset));
+        byte[] buffer = new byte[length];
+        try (RandomAccessFile file = new RandomAccessFile(m.path, "r")) {
+            file.seek(offset);
+            file.readFully(buffer);
+        }
+        return buffer;
+    }
+
+    private synchronized SecretKey getOrCreateKey() throws Exception {
+        if (key != null) return key;
+        KeyStore ks = KeyStore.getInstance(ANDROID_KEYSTORE);
+        ks.load(null);
+        if (ks.containsAlias(KEY_ALIAS)) {
+            key = ((KeyStore.SecretKeyEntry) ks.getEntry(KEY_ALIAS, null)).getSecretKey();
+            return key;
+        }
+        KeyGenParameterSpec spec = new KeyGenParameterSpec.Builder(
+                KEY_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(256)
+                .build();
+        KeyGenerator kg = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, ANDROID_KEYSTORE);
+        kg.init(spec);
+        key = kg.generateKey();
+        return key;
+    }
+
+    /**
+     * Chunk layout: [version][iv length][iv][ciphertext + tag].
+     * AAD binds the chunk to its object and position so chunks cannot be reordered or swapped.
+     */
+    private byte[] encryptChunk(String objectId, int index, byte[] plain) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, getOrCreateKey());
+        cipher.updateAAD((objectId + ":" + index).getBytes(StandardCharsets.UTF_8));
+        byte[] iv = cipher.getIV();
+        byte[] ct = cipher.doFinal(plain);
+        ByteBuffer out = ByteBuffer.allocate(2 + iv.length + ct.length);
+        out.put(CHUNK_FORMAT_VERSION);
+        out.put((byte) iv.length);
+        out.put(iv);
+        out.put(ct);
+        return out.array();
+    }
+
+    // ---- Manifest persistence ----
+
+    private boolean saveManifest(UploadManifest m) {
+        File target = new File(manifestDir, m.objectId + MANIFEST_SUFFIX);
+        File tmp = new File(manifestDir, m.objectId + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(m.toJson().toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        } catch (Exception e) {
+            Log.e(TAG, "Saving manifest failed: " + e.getMessage());
+            return false;
+        }
+        // Rename is atomic, so a crash leaves either the old or the new manifest
+        return tmp.renameTo(target);
+    }
+
+    private UploadManifest loadManifest(File file) {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return UploadManifest.fromJson(new JSONObject(new String(bytes, StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            Log.e(TAG, "Corrupt manifest " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteManifest(String objectId) {
+        File file = new File(manifestDir, objectId + MANIFEST_SUFFIX);
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete manifest " + objectId);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.bilawoga.utils;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.installations.FirebaseInstallations;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores evidence chunks in Firestore next to the profile backup:
+ * evidence/{installationId}/objects/{objectId}/chunks/{index}
+ * Chunks must stay well below the 1 MiB Firestore document limit.
+ * The object document lists the stored indices, written in the same batch as each chunk,
+ * so resuming reads one small document instead of downloading every chunk.
+ * All calls block and must only be made from uploader worker threads.
+ */
+public class FirestoreEvidenceBackend implements EvidenceStorageBackend {
+    private static final long CALL_TIMEOUT_SECONDS = 60;
+
+    private volatile String installationId;
+
+    private String owner() throws IOException {
+        if (installationId != null) return installationId;
+        try {
+            FirebaseAuth auth = FirebaseAuth.getInstance();
+            if (auth.getCurrentUser() == null) {
+                Tasks.await(auth.signInAnonymously(), CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            installationId = Tasks.await(FirebaseInstallations.getInstance().getId(), CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return installationId;
+        } catch (Exception e) {
+            throw new IOException("Backend sign-in failed: " + e.getMessage(), e);
+        }
+    }
+
+    private DocumentReference object(String objectId) throws IOException {
+        return FirebaseFirestore.getInstance()
+                .collection("evidence").document(owner())
+                .collection("objects").document(objectId);
+    }
+
+    @Override
+    public Set<Integer> listStoredChunks(String objectId) throws IOException {
+        Set<Integer> stored = new HashSet<>();
+        try {
+            DocumentSnapshot doc = Tasks.await(object(objectId).get(), CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Object indices = doc.get("stored");
+            if (indices instanceof List) {
+                for (Object index : (List<?>) indices) {
+                    if (index instanceof Number) stored.add(((Number) index).intValue());
+                }
+            }
+            return stored;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("List chunks failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void putChunk(String objectId, int chunkIndex, byte[] encryptedChunk) throws IOException {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("i", chunkIndex);
+        doc.put("data", Blob.fromBytes(encryptedChunk));
+        Map<String, Object> index = new HashMap<>();
+        index.put("stored", FieldValue.arrayUnion(chunkIndex));
+        try {
+            DocumentReference object = object(objectId);
+            WriteBatch batch = object.getFirestore().batch();
+            batch.set(object.collection("chunks").document(String.valueOf(chunkIndex)), doc);
+            batch.set(object, index, SetOptions.merge());
+            Tasks.await(batch.commit(), CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Put chunk failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void completeObject(String objectId, int chunkCount, long plaintextBytes, String mediaType) throws IOException {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("complete", true);
+        doc.put("chunks", chunkCount);
+        doc.put("size", plaintextBytes);
+        doc.put("type", mediaType);
+        doc.put("completed_at", System.currentTimeMillis());
+        try {
+            // Merge, so the stored indices are kept
+            Tasks.await(object(objectId).set(doc, SetOptions.merge()), CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Complete object failed: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bilawoga.utils;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.installations.FirebaseInstallations;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores the profile backup in Firestore at backups/{installationId}, signing in
+ * anonymously when needed.
+ * All calls block and must only be made from worker threads.
+ */
+public class FirestoreProfileBackupBackend implements ProfileBackupBackend {
+    private static final long CALL_TIMEOUT_SECONDS = 60;
+
+    private volatile String installationId;
+
+    private DocumentReference document() throws IOException {
+        try {
+            FirebaseAuth auth = FirebaseAuth.getInstance();
+            if (auth.getCurrentUser() == null) {
+                Tasks.await(auth.signInAnonymously(), CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            if (installationId == null) {
+                installationId = Tasks.await(FirebaseInstallations.getInstance().getId(),
+                        CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+        } catch (Exception e) {
+            throw new IOException("Backend sign-in failed: " + e.getMessage(), e);
+        }
+        return FirebaseFirestore.getInstance().collection("backups").document(installationId);
+    }
+
+    @Override
+    public void putBackup(Map<String, Object> doc) throws IOException {
+        try {
+            Tasks.await(document().set(doc), CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Put backup failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getBackup() throws IOException {
+        try {
+            DocumentSnapshot snapshot = Tasks.await(document().get(), CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return snapshot.exists() ? snapshot.getData() : null;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Get backup failed: " + e.getMessage(), e);
+        }
+    }
+}
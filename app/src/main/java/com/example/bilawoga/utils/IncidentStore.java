@@ -0,0 +1,303 @@
+package com.example.bilawoga.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import com.example.bilawoga.detection.AesGcmRecordCipher;
+import com.example.bilawoga.detection.IncidentRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * INCIDENT STORE
+ * SOS history in one SQLite database (no_backup/incidents/incidents.db): triggers,
+ * dispatches, location fixes, per-contact delivery status and security events, each an
+ * IncidentRecord.
+ *
+ * - The record id, incident id, time and type are plain columns so they can be indexed;
+ *   everything else (numbers, coordinates, incident text) is an AES-GCM payload under a
+ *   data key wrapped by the Keystore master key, like SecurePreferences. A panic wipe
+ *   therefore shreds this database along with the preferences
+ * - page() walks the log newest first with a (time, id) keyset cursor, so each page is an
+ *   index range scan however deep the user scrolls
+ * - Writes go through one background thread; record() never blocks the caller. Records
+ *   still queued when a panic wipe runs are dropped, not written to the new database
+ * - Queries block and must not run on the main thread
+ */
+public class IncidentStore {
+    private static final String TAG = "IncidentStore";
+    private static final String DIR_NAME = "incidents";
+    private static final String DB_NAME = "incidents.db";
+    private static final int DB_VERSION = 1;
+    private static final String TABLE = "records";
+    private static final String[] COLUMNS = {"id", "incident_id", "time", "type", "payload"};
+    /** The string blob SOSHelper used to append to; imported once, then removed. */
+    private static final String LEGACY_LOG_KEY = "security_log";
+    private static final Pattern LEGACY_LINE =
+            Pattern.compile("^\\[(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})\\] ([^:]+): (.*)$");
+
+    private static IncidentStore instance;
+
+    /** One page of records, newest first. */
+    public static final class Page {
+        public final List<IncidentRecord> records;
+        /** Pass to page() for the next, older page; null when there is none. */
+        public final String nextCursor;
+
+        Page(List<IncidentRecord> records, String nextCursor) {
+            this.records = records;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    private final Context context;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private SQLiteOpenHelper helper;
+    private AesGcmRecordCipher cipher;
+    /** Bumped by a wipe; a record queued under an older generation is dropped. */
+    private long generation;
+
+    private IncidentStore(Context context) {
+        this.context = context.getApplicationContext();
+        writer.execute(this::importLegacyLog);
+    }
+
+    public static synchronized IncidentStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new IncidentStore(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Close the database so the next use opens a new one, and drop the records still
+     * queued for the old one. Called by the panic wipe after it has destroyed the master
+     * key and moved the files away.
+     */
+    static synchronized void forgetAll() {
+        if (instance != null) {
+            instance.close();
+        }
+    }
+
+    /** Store a record in the background. */
+    public void record(IncidentRecord record) {
+        long queuedIn;
+        synchronized (this) {
+            queuedIn = generation;
+        }
+        writer.execute(() -> {
+            try {
+                // Checked and inserted under the lock, so a wipe cannot slip in between
+                synchronized (this) {
+                    if (queuedIn != generation) {
+                        Log.d(TAG, "Dropping " + record.type + " record queued before a wipe");
+                        return;
+                    }
+                    insert(database(), record);
+                }
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                Log.e(TAG, "Error storing " + record.type + " record: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Records newest first.
+     *
+     * @param cursor null for the newest page, else a previous page's nextCursor
+     * @param type   only records of this type, or null for all
+     */
+    public Page page(String cursor, int limit, IncidentRecord.Type type) {
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        if (type != null) {
+            where.append("type = ?");
+            args.add(Integer.toString(type.code));
+        }
+        if (cursor != null) {
+            // Same order as IncidentRecord.Cursor.isBefore()
+            IncidentRecord.Cursor after = IncidentRecord.Cursor.parse(cursor);
+            if (where.length() > 0) where.append(" AND ");
+            where.append("(time < ? OR (time = ? AND id < ?))");
+            args.add(Long.toString(after.timeMillis));
+            args.add(Long.toString(after.timeMillis));
+            args.add(Long.toString(after.id));
+        }
+        List<IncidentRecord> records = query(where.length() > 0 ? where.toString() : null,
+                args.toArray(new String[0]), "time DESC, id DESC", limit + 1);
+        if (records.size() <= limit) {
+            return new Page(records, null);
+        }
+        // The extra row only shows there is more; the cursor is the last row kept
+        IncidentRecord last = records.get(limit - 1);
+        return new Page(new ArrayList<>(records.subList(0, limit)), last.cursor().encode());
+    }
+
+    /** Every record of one incident, oldest first. */
+    public List<IncidentRecord> incident(long incidentId) {
+        return query("incident_id = ?", new String[]{Long.toString(incidentId)}, "time, id", -1);
+    }
+
+    /** Number of records since the given time, of one type or (null) of all. */
+    public long count(IncidentRecord.Type type, long sinceMillis) {
+        try {
+            SQLiteDatabase db = database();
+            return type == null
+                    ? DatabaseUtils.queryNumEntries(db, TABLE, "time >= ?",
+                            new String[]{Long.toString(sinceMillis)})
+                    : DatabaseUtils.queryNumEntries(db, TABLE, "type = ? AND time >= ?",
+                            new String[]{Integer.toString(type.code), Long.toString(sinceMillis)});
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            Log.e(TAG, "Error counting records: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private List<IncidentRecord> query(String where, String[] args, String orderBy, int limit) {
+        List<IncidentRecord> records = new ArrayList<>();
+        AesGcmRecordCipher cipher;
+        try (Cursor c = database().query(TABLE, COLUMNS, where, args, null, null, orderBy,
+                limit > 0 ? Integer.toString(limit) : null)) {
+            synchronized (this) {
+                cipher = this.cipher;
+            }
+            while (c.moveToNext()) {
+                long id = c.getLong(0);
+                long incidentId = c.getLong(1);
+                long time = c.getLong(2);
+                int type = c.getInt(3);
+                try {
+                    byte[] fields = cipher.open(c.getBlob(4), associatedData(incidentId, time, type));
+                    records.add(IncidentRecord.decode(id, incidentId, time, type, fields));
+                } catch (GeneralSecurityException | IllegalArgumentException e) {
+                    Log.e(TAG, "Skipping unreadable record " + id + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            Log.e(TAG, "Error reading records: " + e.getMessage());
+            return Collections.emptyList();
+        }
+        return records;
+    }
+
+    private void insert(SQLiteDatabase db, IncidentRecord record) throws GeneralSecurityException {
+        AesGcmRecordCipher cipher;
+        synchronized (this) {
+            cipher = this.cipher;
+        }
+        ContentValues values = new ContentValues();
+        values.put("incident_id", record.incidentId);
+        values.put("time", record.timeMillis);
+        values.put("type", record.type.code);
+        values.put("payload", cipher.seal(record.encodeFields(),
+                associatedData(record.incidentId, record.timeMillis, record.type.code)));
+        db.insertOrThrow(TABLE, null, values);
+    }
+
+    /** Binds a payload to its row, so payloads cannot be swapped between rows. */
+    private static byte[] associatedData(long incidentId, long time, int type) {
+        return ByteBuffer.allocate(20).putLong(incidentId).putLong(time).putInt(type).array();
+    }
+
+    private synchronized SQLiteDatabase database() throws IOException, GeneralSecurityException {
+        if (helper == null) {
+            File dir = new File(context.getNoBackupFilesDir(), DIR_NAME);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            cipher = new AesGcmRecordCipher(SecurePreferences.openDataKey(dir));
+            helper = new Helper(context, new File(dir, DB_NAME).getPath());
+        }
+        return helper.getWritableDatabase();
+    }
+
+    private synchronized void close() {
+        generation++;
+        if (helper != null) {
+            helper.close();
+            helper = null;
+            cipher = null;
+        }
+    }
+
+    /** Moves the lines SOSHelper used to keep in the encrypted preferences into the store. */
+    private void importLegacyLog() {
+        SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
+        if (prefs == null) return;
+        String log = prefs.getString(LEGACY_LOG_KEY, null);
+        if (log == null) return;
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        int count = 0;
+        try {
+            SQLiteDatabase db = database();
+            db.beginTransaction();
+            try {
+                for (String line : log.split("\n")) {
+                    Matcher m = LEGACY_LINE.matcher(line);
+                    if (!m.matches()) continue;
+                    long time;
+                    try {
+                        time = format.parse(m.group(1)).getTime();
+                    } catch (ParseException e) {
+                        continue;
+                    }
+                    insert(db, IncidentRecord.event(0, time, m.group(2), m.group(3)));
+                    count++;
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            Log.e(TAG, "Error importing security log: " + e.getMessage());
+            return;
+        }
+        prefs.edit().remove(LEGACY_LOG_KEY).apply();
+        Log.d(TAG, "Imported " + count + " security log entries");
+    }
+
+    private static final class Helper extends SQLiteOpenHelper {
+        Helper(Context context, String path) {
+            super(context, path, null, DB_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + TABLE + " ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "incident_id INTEGER NOT NULL, "
+                    + "time INTEGER NOT NULL, "
+                    + "type INTEGER NOT NULL, "
+                    + "payload BLOB NOT NULL)");
+            // id is the rowid, which SQLite appends to every index entry: these are really
+            // (time, id), (incident_id, time, id) and (type, time, id)
+            db.execSQL("CREATE INDEX records_time ON " + TABLE + " (time)");
+            db.execSQL("CREATE INDEX records_incident ON " + TABLE + " (incident_id, time)");
+            db.execSQL("CREATE INDEX records_type ON " + TABLE + " (type, time)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        }
+    }
+}
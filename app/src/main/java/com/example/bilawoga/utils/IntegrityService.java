@@ -0,0 +1,131 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.provider.Settings;
+import android.util.Log;
+
+import com.example.bilawoga.detection.IntegrityVerdict;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * INTEGRITY SERVICE
+ * The one place the tamper and signature checks run. The verdict is cached in the
+ * encrypted preferences with the boot id and the package's lastUpdateTime, and each half
+ * is only probed again when its key changes (see IntegrityVerdict): a normal launch
+ * probes nothing, a reboot re-runs the file-system probes, an update re-hashes the
+ * signing certificate.
+ *
+ * - current() never blocks; it is null until the first verify() has read the cache
+ * - verify() blocks on storage and, on a miss, the probes; AppStartup runs it off the
+ *   main thread
+ * - A cached verdict older than a day is still served, then re-verified in the background
+ */
+public class IntegrityService {
+    private static final String TAG = "IntegrityService";
+    private static final String KEY_VERDICT = "__integrity_verdict";
+    private static final String BOOT_ID_PATH = "/proc/sys/kernel/random/boot_id";
+    private static final long REVERIFY_AFTER_MS = 24 * 60 * 60 * 1000L;
+
+    private static IntegrityService instance;
+
+    private final Context context;
+    private final ExecutorService background = Executors.newSingleThreadExecutor();
+    private volatile IntegrityVerdict current;
+
+    private IntegrityService(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public static synchronized IntegrityService getInstance(Context context) {
+        if (instance == null) {
+            instance = new IntegrityService(context);
+        }
+        return instance;
+    }
+
+    /** The latest verdict, or null if none has been read or computed yet. Never blocks. */
+    public IntegrityVerdict current() {
+        return current;
+    }
+
+    /** Run verify() in the background. */
+    public void verifyAsync() {
+        background.execute(this::verify);
+    }
+
+    /**
+     * The verdict for the running install and boot: the cached one if it still holds,
+     * else probed now and cached. Not on the main thread.
+     */
+    public synchronized IntegrityVerdict verify() {
+        long lastUpdateTime = lastUpdateTime();
+        String bootId = bootId();
+        SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
+        IntegrityVerdict cached = current;
+        if (cached == null && prefs != null) {
+            cached = IntegrityVerdict.decode(prefs.getString(KEY_VERDICT, null));
+        }
+        if (cached != null && cached.holdsFor(lastUpdateTime, bootId)) {
+            current = cached;
+            if (cached.isOlderThan(REVERIFY_AFTER_MS, System.currentTimeMillis())) {
+                background.execute(() -> reverify(lastUpdateTime, bootId));
+            }
+            return cached;
+        }
+
+        // Only probe the half whose key changed
+        boolean tampered = cached != null && cached.deviceVerdictHolds(bootId)
+                ? cached.deviceTampered
+                : SecureStorageManager.isDeviceTampered();
+        boolean signatureOk = cached != null && cached.signatureVerdictHolds(lastUpdateTime)
+                ? cached.signatureOk
+                : SecureStorageManager.checkAppIntegrity(context);
+        IntegrityVerdict verdict = new IntegrityVerdict(lastUpdateTime, bootId,
+                System.currentTimeMillis(), tampered, signatureOk);
+        store(prefs, verdict);
+        return verdict;
+    }
+
+    private synchronized void reverify(long lastUpdateTime, String bootId) {
+        IntegrityVerdict verdict = new IntegrityVerdict(lastUpdateTime, bootId, System.currentTimeMillis(),
+                SecureStorageManager.isDeviceTampered(), SecureStorageManager.checkAppIntegrity(context));
+        store(SecureStorageManager.getEncryptedSharedPreferences(context), verdict);
+    }
+
+    private void store(SharedPreferences prefs, IntegrityVerdict verdict) {
+        current = verdict;
+        Log.d(TAG, "Verified: " + verdict);
+        if (prefs != null) {
+            prefs.edit().putString(KEY_VERDICT, verdict.encode()).apply();
+        }
+    }
+
+    private long lastUpdateTime() {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, "Error reading package info: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /** Changes on every boot; falls back to the boot count where /proc is not readable. */
+    private String bootId() {
+        try (BufferedReader reader = new BufferedReader(new FileReader(BOOT_ID_PATH))) {
+            String line = reader.readLine();
+            if (line != null && !line.trim().isEmpty()) {
+                return line.trim();
+            }
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "Boot id unavailable: " + e.getMessage());
+        }
+        return "count-" + Settings.Global.getInt(context.getContentResolver(), Settings.Global.BOOT_COUNT, 0);
+    }
+}
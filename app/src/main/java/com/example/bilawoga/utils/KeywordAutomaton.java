@@ -0,0 +1,175 @@
+package com.example.bilawoga.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Aho-Corasick matcher compiled to a dense transition table.
+ * Finds every pattern in a text in one left-to-right pass, independent of how many
+ * patterns there are. Matching is case-insensitive and by whole words: "help" does not
+ * match "helpline". A pattern ending in '*' is a stem and only has to start a word:
+ * "kidnap*" matches "kidnap", "kidnapped" and "kidnapping".
+ *
+ * Immutable after construction and safe to share between threads.
+ */
+public final class KeywordAutomaton {
+    private static final String STEM_MARKER = "*";
+
+    public interface MatchSink {
+        void onMatch(int patternId, int start, int end);
+    }
+
+    private final char[] alphabet;        // sorted, lower case
+    private final int[][] next;           // [state][symbol] -> state
+    private final int[][] outputs;        // pattern ids ending in each state (incl. via fail links)
+    private final int[] patternLengths;   // without the stem marker
+    private final boolean[] stems;
+
+    private KeywordAutomaton(char[] alphabet, int[][] next, int[][] outputs, int[] patternLengths,
+                             boolean[] stems) {
+        this.alphabet = alphabet;
+        this.next = next;
+        this.outputs = outputs;
+        this.patternLengths = patternLengths;
+        this.stems = stems;
+    }
+
+    public int patternCount() {
+        return patternLengths.length;
+    }
+
+    /**
+     * Compile the patterns. Pattern ids are their positions in the list.
+     */
+    public static KeywordAutomaton compile(List<String> patterns) {
+        TreeSet<Character> symbols = new TreeSet<>();
+        String[] normalized = new String[patterns.size()];
+        boolean[] stems = new boolean[normalized.length];
+        for (int i = 0; i < normalized.length; i++) {
+            String pattern = normalize(patterns.get(i));
+            if (pattern.endsWith(STEM_MARKER)) {
+                stems[i] = true;
+                pattern = pattern.substring(0, pattern.length() - 1).trim();
+            }
+            normalized[i] = pattern;
+            for (char c : normalized[i].toCharArray()) symbols.add(c);
+        }
+        char[] alphabet = new char[symbols.size()];
+        int a = 0;
+        for (char c : symbols) alphabet[a++] = c;
+
+        // Trie
+        List<int[]> gotoTable = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        gotoTable.add(newRow(alphabet.length));
+        out.add(new ArrayList<>());
+        int[] lengths = new int[normalized.length];
+        for (int p = 0; p < normalized.length; p++) {
+            String pattern = normalized[p];
+            lengths[p] = pattern.length();
+            if (pattern.isEmpty()) continue;
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int sym = Arrays.binarySearch(alphabet, pattern.charAt(i));
+                if (gotoTable.get(state)[sym] < 0) {
+                    gotoTable.get(state)[sym] = gotoTable.size();
+                    gotoTable.add(newRow(alphabet.length));
+                    out.add(new ArrayList<>());
+                }
+                state = gotoTable.get(state)[sym];
+            }
+            out.get(state).add(p);
+        }
+
+        // Failure links by BFS, folded into a full DFA
+        int states = gotoTable.size();
+        int[] fail = new int[states];
+        int[][] next = new int[states][];
+        for (int s = 0; s < states; s++) next[s] = gotoTable.get(s).clone();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int sym = 0; sym < alphabet.length; sym++) {
+            if (next[0][sym] < 0) {
+                next[0][sym] = 0;
+            } else {
+                fail[next[0][sym]] = 0;
+                queue.add(next[0][sym]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            out.get(s).addAll(out.get(fail[s]));
+            for (int sym = 0; sym < alphabet.length; sym++) {
+                int t = gotoTable.get(s)[sym];
+                if (t < 0) {
+                    next[s][sym] = next[fail[s]][sym];
+                } else {
+                    fail[t] = next[fail[s]][sym];
+                    queue.add(t);
+                }
+            }
+        }
+
+        int[][] outputs = new int[states][];
+        for (int s = 0; s < states; s++) {
+            List<Integer> ids = out.get(s);
+            outputs[s] = new int[ids.size()];
+            for (int i = 0; i < ids.size(); i++) outputs[s][i] = ids.get(i);
+        }
+        return new KeywordAutomaton(alphabet, next, outputs, lengths, stems);
+    }
+
+    /**
+     * Report every whole-word (or, for stems, word-initial) pattern occurrence in the text.
+     * Allocation free.
+     */
+    public void scan(CharSequence text, MatchSink sink) {
+        int state = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int sym = Arrays.binarySearch(alphabet, c);
+            if (sym < 0) {
+                state = 0;
+                continue;
+            }
+            state = next[state][sym];
+            int[] hits = outputs[state];
+            if (hits.length == 0) continue;
+            boolean endsWord = i + 1 >= length || !Character.isLetterOrDigit(text.charAt(i + 1));
+            for (int id : hits) {
+                if (!endsWord && !stems[id]) continue;
+                int start = i + 1 - patternLengths[id];
+                if (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1))) {
+                    sink.onMatch(id, start, i + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lower case and collapse runs of whitespace so "help  me" and "Help me" compile alike.
+     */
+    static String normalize(String pattern) {
+        StringBuilder sb = new StringBuilder(pattern.length());
+        boolean space = false;
+        for (char c : pattern.trim().toCharArray()) {
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space) sb.append(' ');
+            space = false;
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    private static int[] newRow(int size) {
+        int[] row = new int[size];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
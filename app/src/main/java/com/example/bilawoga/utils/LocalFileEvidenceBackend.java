@@ -0,0 +1,71 @@
+package com.example.bilawoga.utils;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * File-system stand-in for evidence storage.
+ * Layout: root/objectId/00000.chunk ... plus a "complete" marker file.
+ * Useful for testing the uploader on a device or emulator without network access.
+ */
+public class LocalFileEvidenceBackend implements EvidenceStorageBackend {
+    private static final String TAG = "LocalFileEvidenceBackend";
+    private static final String CHUNK_SUFFIX = ".chunk";
+    private static final String COMPLETE_MARKER = "complete";
+
+    private final File root;
+
+    public LocalFileEvidenceBackend(File root) {
+        this.root = root;
+    }
+
+    @Override
+    public Set<Integer> listStoredChunks(String objectId) {
+        Set<Integer> stored = new HashSet<>();
+        File[] files = new File(root, objectId).listFiles();
+        if (files == null) return stored;
+        for (File f : files) {
+            String name = f.getName();
+            if (name.endsWith(CHUNK_SUFFIX)) {
+                try {
+                    stored.add(Integer.parseInt(name.substring(0, name.length() - CHUNK_SUFFIX.length())));
+                } catch (NumberFormatException ignore) {
+                    // Not one of ours
+                }
+            }
+        }
+        return stored;
+    }
+
+    @Override
+    public void putChunk(String objectId, int chunkIndex, byte[] encryptedChunk) throws IOException {
+        File dir = new File(root, objectId);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        // Write to a temp file first so a crash never leaves a truncated chunk behind
+        File tmp = new File(dir, chunkIndex + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(encryptedChunk);
+            out.getFD().sync();
+        }
+        File target = new File(dir, String.format(java.util.Locale.US, "%05d%s", chunkIndex, CHUNK_SUFFIX));
+        if (!tmp.renameTo(target)) {
+            throw new IOException("Cannot commit chunk " + chunkIndex);
+        }
+    }
+
+    @Override
+    public void completeObject(String objectId, int chunkCount, long plaintextBytes, String mediaType) throws IOException {
+        File marker = new File(new File(root, objectId), COMPLETE_MARKER);
+        try (FileOutputStream out = new FileOutputStream(marker)) {
+            out.write((chunkCount + "|" + plaintextBytes + "|" + mediaType).getBytes());
+        }
+        Log.d(TAG, "Object complete: " + objectId + " (" + chunkCount + " chunks)");
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.bilawoga.utils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * File-system stand-in for profile backup storage: the document as JSON in
+ * root/backup.json. Useful for testing backup and restore on a device or emulator
+ * without network access.
+ */
+public class LocalFileProfileBackupBackend implements ProfileBackupBackend {
+    private static final String BACKUP_FILE = "backup.json";
+
+    private final File root;
+
+    public LocalFileProfileBackupBackend(File root) {
+        this.root = root;
+    }
+
+    @Override
+    public synchronized void putBackup(Map<String, Object> doc) throws IOException {
+        if (!root.exists() && !root.mkdirs()) {
+            throw new IOException("Cannot create " + root);
+        }
+        // Write to a temp file first so a crash never leaves a truncated backup behind
+        File tmp = new File(root, BACKUP_FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(new JSONObject(doc).toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(new File(root, BACKUP_FILE))) {
+            throw new IOException("Cannot commit backup");
+        }
+    }
+
+    @Override
+    public synchronized Map<String, Object> getBackup() throws IOException {
+        File file = new File(root, BACKUP_FILE);
+        if (!file.isFile()) return null;
+        try {
+            JSONObject json = new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            Map<String, Object> doc = new HashMap<>();
+            for (Iterator<String> keys = json.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                doc.put(key, json.get(key));
+            }
+            return doc;
+        } catch (JSONException e) {
+            throw new IOException("Unreadable backup: " + e.getMessage(), e);
+        }
+    }
+}
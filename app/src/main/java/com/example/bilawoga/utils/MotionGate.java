@@ -0,0 +1,193 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+import android.util.Log;
+
+import com.example.bilawoga.detection.SensorSampleSink;
+import com.example.bilawoga.detection.StillnessDetector;
+
+/**
+ * MOTION GATE
+ * Keeps the full-rate accelerometer stream only while the phone is moving.
+ *
+ * ACTIVE: accelerometer at SENSOR_DELAY_GAME, every sample forwarded to the sink. After
+ * STILL_MILLIS without movement the gate parks.
+ *
+ * PARKED: the full-rate listener is unregistered and the SoC may sleep. Either of these
+ * re-arms it:
+ *  - TYPE_SIGNIFICANT_MOTION (one-shot wake-up trigger)
+ *  - TYPE_STEP_DETECTOR (wake-up variant when the device has one)
+ * Only when the device has neither, a 1 Hz accelerometer batched with BACKSTOP_LATENCY_MS
+ * report latency is compared with the resting orientation. It is a backstop, not a
+ * bound: a non-wakeup accelerometer FIFO does not wake the SoC, so its samples may only
+ * arrive when something else wakes the device. Small movements (e.g. the phone being
+ * picked up without walking) are not seen while parked.
+ *
+ * All callbacks arrive on the thread that called start() (the main thread in
+ * ServiceMine); the gate is not thread-safe.
+ */
+public class MotionGate implements SensorEventListener {
+    private static final String TAG = "MotionGate";
+
+    private static final long STILL_MILLIS = 2 * 60 * 1000;
+    private static final float STILL_TOLERANCE = 0.6f; // m/s^2
+    private static final float WAKE_TOLERANCE = 1.0f; // m/s^2
+    private static final int BACKSTOP_SAMPLING_US = 1_000_000;
+    private static final int BACKSTOP_LATENCY_MS = 5 * 60 * 1000;
+
+    private final SensorManager sensorManager;
+    private final SensorSampleSink sink;
+    private final Sensor accelerometer;
+    private final Sensor backstopAccelerometer;
+    private final Sensor significantMotion;
+    private final Sensor stepDetector;
+    private final StillnessDetector stillness = new StillnessDetector(STILL_TOLERANCE, STILL_MILLIS);
+    private final StillnessDetector parkedAnchor = new StillnessDetector(WAKE_TOLERANCE, 0);
+
+    private boolean running = false;
+    private boolean parked = false;
+
+    private final TriggerEventListener significantMotionListener = new TriggerEventListener() {
+        @Override
+        public void onTrigger(TriggerEvent event) {
+            // One-shot: the trigger is already disarmed
+            wake("significant motion");
+        }
+    };
+
+    public MotionGate(Context context, SensorSampleSink sink) {
+        this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        this.sink = sink;
+        if (sensorManager != null) {
+            accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+            significantMotion = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+            Sensor wakeUpStep = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR, true);
+            stepDetector = wakeUpStep != null ? wakeUpStep : sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
+            if (significantMotion == null && stepDetector == null) {
+                Sensor wakeUpAccelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER, true);
+                backstopAccelerometer = wakeUpAccelerometer != null ? wakeUpAccelerometer : accelerometer;
+            } else {
+                backstopAccelerometer = null;
+            }
+        } else {
+            accelerometer = null;
+            backstopAccelerometer = null;
+            significantMotion = null;
+            stepDetector = null;
+        }
+    }
+
+    public boolean hasAccelerometer() {
+        return accelerometer != null;
+    }
+
+    public boolean isParked() {
+        return parked;
+    }
+
+    /** Start in ACTIVE mode. */
+    public void start() {
+        if (accelerometer == null) {
+            Log.w(TAG, "No accelerometer; motion gate not started");
+            return;
+        }
+        running = true;
+        activate();
+    }
+
+    public void stop() {
+        running = false;
+        parked = false;
+        if (sensorManager == null) return;
+        sensorManager.unregisterListener(this);
+        if (significantMotion != null) {
+            sensorManager.cancelTriggerSensor(significantMotionListener, significantMotion);
+        }
+    }
+
+    /**
+     * Re-register whatever the current mode needs, e.g. from a watchdog after the system
+     * dropped listeners. Does not wake a parked gate.
+     */
+    public void ensureRegistered() {
+        if (!running) return;
+        if (parked) {
+            armWakeSources();
+        } else {
+            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
+        }
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        if (!running) return;
+        int type = event.sensor.getType();
+        if (type == Sensor.TYPE_STEP_DETECTOR) {
+            if (parked) wake("step");
+            return;
+        }
+        if (type != Sensor.TYPE_ACCELEROMETER) return;
+
+        float x = event.values[0], y = event.values[1], z = event.values[2];
+        if (parked) {
+            if (event.sensor == backstopAccelerometer && parkedAnchor.moved(x, y, z)) {
+                wake("accelerometer");
+            }
+            return;
+        }
+        sink.onSensorSample(type, event.timestamp, x, y, z);
+        if (stillness.onAcceleration(event.timestamp, x, y, z)) {
+            park(x, y, z);
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // Not used
+    }
+
+    private void activate() {
+        parked = false;
+        stillness.reset();
+        sensorManager.unregisterListener(this);
+        if (significantMotion != null) {
+            sensorManager.cancelTriggerSensor(significantMotionListener, significantMotion);
+        }
+        sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
+    }
+
+    private void park(float x, float y, float z) {
+        parked = true;
+        sensorManager.unregisterListener(this);
+        // Resting orientation the backstop accelerometer is compared with
+        parkedAnchor.reset();
+        parkedAnchor.onAcceleration(0, x, y, z);
+        armWakeSources();
+        Log.d(TAG, "Device still; full-rate accelerometer parked");
+    }
+
+    private void armWakeSources() {
+        if (significantMotion != null) {
+            sensorManager.requestTriggerSensor(significantMotionListener, significantMotion);
+        }
+        if (stepDetector != null) {
+            sensorManager.registerListener(this, stepDetector, SensorManager.SENSOR_DELAY_NORMAL);
+        }
+        if (backstopAccelerometer != null) {
+            sensorManager.registerListener(this, backstopAccelerometer, BACKSTOP_SAMPLING_US,
+                    BACKSTOP_LATENCY_MS * 1000);
+        }
+    }
+
+    private void wake(String source) {
+        if (!running || !parked) return;
+        Log.d(TAG, "Movement (" + source + "); full-rate accelerometer re-armed");
+        activate();
+    }
+}
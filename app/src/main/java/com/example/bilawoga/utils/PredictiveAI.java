@@ -2,6 +2,11 @@ package com.example.bilawoga.utils;
 
 import android.content.Context;
 import android.util.Log;
+
+import com.example.bilawoga.detection.HourOfWeekHistogram;
+import com.example.bilawoga.detection.LocalTimeBuckets;
+
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -19,6 +24,12 @@ public class PredictiveAI {
     private final Map<String, Float> threatIndicators;
     private float currentThreatLevel = 0.0f;
     
+    // Local-time activity model; time risk is how unusual the current hour-of-week is
+    private static final double MIN_TIME_HISTOGRAM_WEIGHT = 500;
+    private final LocalTimeBuckets timeBuckets = new LocalTimeBuckets(ZoneId.systemDefault());
+    private final HourOfWeekHistogram activityHistogram =
+        new HourOfWeekHistogram(HourOfWeekHistogram.DEFAULT_HALF_LIFE_MS, MIN_TIME_HISTOGRAM_WEIGHT);
+    
     public interface PredictiveAIListener {
         void onThreatPredicted(String threatType, float confidence, String reason);
         void onSafetyRecommendation(String recommendation, float priority);
@@ -65,6 +76,7 @@ public class PredictiveAI {
         
         // Update learned patterns
         userPatterns.put("movement_frequency", (avgIntensity + intensity) / 2);
+        activityHistogram.add(timestamp, timeBuckets.bucket(timestamp), 1.0f);
         listener.onBehavioralLearning("movement_pattern", 1.0f - deviation);
     }
     
@@ -83,8 +95,7 @@ public class PredictiveAI {
     }
     
     public void analyzeTime(long timestamp) {
-        long hour = (timestamp / (60 * 60 * 1000)) % 24;
-        float timeRisk = calculateTimeRisk(hour);
+        float timeRisk = activityHistogram.timeRisk(timestamp, timeBuckets.bucket(timestamp));
         
         if (timeRisk > 0.6f) {
             threatIndicators.put("abnormal_time", timeRisk);
@@ -103,7 +114,7 @@ public class PredictiveAI {
         float risk = 0.3f; // Base risk
         
         // Higher risk at night
-        long hour = (timestamp / (60 * 60 * 1000)) % 24;
+        int hour = timeBuckets.localHour(timestamp);
         if (hour < 6 || hour > 22) {
             risk += 0.3f;
         }
@@ -116,22 +127,6 @@ public class PredictiveAI {
         return Math.min(1.0f, risk);
     }
     
-    private float calculateTimeRisk(long hour) {
-        float risk = 0.0f;
-        
-        // Higher risk at night
-        if (hour < 6 || hour > 22) {
-            risk += 0.4f;
-        }
-        
-        // Higher risk in early morning
-        if (hour >= 1 && hour <= 4) {
-            risk += 0.3f;
-        }
-        
-        return Math.min(1.0f, risk);
-    }
-    
     public float getCurrentThreatLevel() {
         float totalThreat = 0.0f;
         for (float threat : threatIndicators.values()) {
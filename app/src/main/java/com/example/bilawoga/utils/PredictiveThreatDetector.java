@@ -1,18 +1,46 @@
 package com.example.bilawoga.utils;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.location.Location;
+import android.os.SystemClock;
+import android.util.Base64;
 import android.util.Log;
 
+import androidx.core.content.ContextCompat;
+
+import com.example.bilawoga.detection.Clock;
+import com.example.bilawoga.detection.EvidenceFusion;
+import com.example.bilawoga.detection.RollupFormat;
+import com.example.bilawoga.detection.RollupReader;
+import com.example.bilawoga.detection.RollupWriter;
+import com.example.bilawoga.detection.SensorSampleRing;
+import com.example.bilawoga.detection.SensorSampleSink;
+import com.example.bilawoga.detection.SensorTypes;
+import com.example.bilawoga.detection.ThreatScorer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ADVANCED AI PREDICTIVE THREAT DETECTION SYSTEM
@@ -23,44 +51,61 @@ import java.util.concurrent.ConcurrentHashMap;
  * - Behavioral analysis and anomaly detection
  * - Proactive safety recommendations
  * - Multi-dimensional threat assessment
+ *
+ * Threading: sensor callbacks only append to a lock-free ring. A dedicated analysis
+ * thread drains it into the scorer, assesses every 5 s and owns all scoring and location
+ * state. Listener callbacks get a detached copy of each assessment and run on the
+ * callback executor (main thread by default), so neither side can stall sensor delivery.
  */
-public class PredictiveThreatDetector implements SensorEventListener {
+public class PredictiveThreatDetector implements SensorEventListener, SensorSampleSink {
     private static final String TAG = "PredictiveThreatDetector";
     
     // Learning Parameters
-    private static final int LEARNING_PERIOD_DAYS = 7;
-    private static final int PATTERN_MEMORY_SIZE = 1000;
-    private static final float ANOMALY_THRESHOLD = 0.8f;
-    private static final float THREAT_PREDICTION_THRESHOLD = 0.7f;
+    private static final int LEARNING_PERIOD_DAYS = ThreatScorer.LEARNING_PERIOD_DAYS;
     
     // Behavioral Analysis
     private static final int BEHAVIORAL_WINDOW = 24 * 60 * 60 * 1000; // 24 hours
     private static final int LOCATION_ANALYSIS_RADIUS = 100; // meters
     private static final int TIME_ANALYSIS_WINDOW = 60 * 60 * 1000; // 1 hour
     
+    // Analysis thread drains sensor samples this often; the ring holds several drains' worth
+    private static final long DRAIN_INTERVAL_MS = 1000;
+    private static final int SAMPLE_RING_CAPACITY = 4096;
+    private static final int LOCATION_HISTORY_LIMIT = 100;
+    
+    // Learned hour-of-week activity, saved every 10 minutes of assessments
+    private static final String PREF_ACTIVITY_HISTOGRAM = "ACTIVITY_HISTOGRAM";
+    private static final int ASSESSMENTS_PER_SAVE = 120;
+    private int assessmentsSinceSave = 0;
+    
+    // Minute rollups of movement, kept for LEARNING_PERIOD_DAYS; relearned from at startup
+    static final String HISTORY_FILE = "movement_history" + RollupFormat.FILE_EXTENSION;
+    private static final int ROLLUP_BLOCK_MINUTES = 10;
+    private RollupWriter historyWriter;
+    
     private final Context context;
     private final SensorManager sensorManager;
     private final Sensor accelerometer;
     private final Sensor gyroscope;
     private final Sensor magnetometer;
     
-    // Data Collection
-    private Map<String, List<BehavioralData>> behavioralHistory;
-    private Map<String, List<LocationData>> locationHistory;
-    private Map<String, List<TimePatternData>> timePatterns;
-    private List<SensorData> sensorBuffer;
+    // Sensor thread -> analysis thread
+    private final SensorSampleRing samples = new SensorSampleRing(SAMPLE_RING_CAPACITY);
+    private final ScheduledExecutorService analysisExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final Executor callbackExecutor;
+    private ScheduledFuture<?> analysisTask;
     
-    // AI Learning Models
-    private Map<String, Float> normalPatterns;
-    private Map<String, Float> threatIndicators;
-    private Map<String, Float> locationRiskScores;
-    private Map<String, Float> timeRiskScores;
+    // Confined to the analysis thread
+    private final Map<String, ArrayDeque<LocationData>> locationHistory = new HashMap<>();
+    // Scoring runs in detection-core so it can be replayed and benchmarked off-device
+    private final ThreatScorer scorer = new ThreatScorer();
+    private final SensorSampleSink scorerSink = this::score;
     
-    // Threat Prediction
-    private float currentThreatLevel = 0.0f;
-    private String currentThreatType = "NONE";
-    private List<String> activePredictions;
-    private long lastPredictionUpdate = 0;
+    // Threat Prediction; written by the analysis thread, read from anywhere
+    private volatile float currentThreatLevel = 0.0f;
+    private volatile String currentThreatType = "NONE";
+    private volatile List<String> activePredictions = Collections.emptyList();
+    private volatile Clock clock = Clock.SYSTEM;
     
     public interface PredictiveThreatListener {
         void onThreatPredicted(String threatType, float confidence, String reason);
@@ -73,24 +118,6 @@ public class PredictiveThreatDetector implements SensorEventListener {
     private final PredictiveThreatListener listener;
     
     // Data Structures
-    private static class BehavioralData {
-        long timestamp;
-        float movementIntensity;
-        float locationLatitude;
-        float locationLongitude;
-        String activityType; // "walking", "driving", "stationary", "unknown"
-        float confidence;
-        
-        BehavioralData(long time, float movement, float lat, float lon, String activity, float conf) {
-            this.timestamp = time;
-            this.movementIntensity = movement;
-            this.locationLatitude = lat;
-            this.locationLongitude = lon;
-            this.activityType = activity;
-            this.confidence = conf;
-        }
-    }
-    
     private static class LocationData {
         long timestamp;
         float latitude;
@@ -109,83 +136,27 @@ public class PredictiveThreatDetector implements SensorEventListener {
         }
     }
     
-    private static class TimePatternData {
-        long timestamp;
-        int hourOfDay;
-        int dayOfWeek;
-        String activityType;
-        float frequency;
-        
-        TimePatternData(long time, int hour, int day, String activity, float freq) {
-            this.timestamp = time;
-            this.hourOfDay = hour;
-            this.dayOfWeek = day;
-            this.activityType = activity;
-            this.frequency = freq;
-        }
-    }
-    
-    private static class SensorData {
-        long timestamp;
-        float accelerometerX, accelerometerY, accelerometerZ;
-        float gyroscopeX, gyroscopeY, gyroscopeZ;
-        float magnetometerX, magnetometerY, magnetometerZ;
-        
-        SensorData(long time, float ax, float ay, float az, float gx, float gy, float gz, float mx, float my, float mz) {
-            this.timestamp = time;
-            this.accelerometerX = ax;
-            this.accelerometerY = ay;
-            this.accelerometerZ = az;
-            this.gyroscopeX = gx;
-            this.gyroscopeY = gy;
-            this.gyroscopeZ = gz;
-            this.magnetometerX = mx;
-            this.magnetometerY = my;
-            this.magnetometerZ = mz;
-        }
+    public PredictiveThreatDetector(Context context, PredictiveThreatListener listener) {
+        this(context, listener, ContextCompat.getMainExecutor(context));
     }
     
-    public PredictiveThreatDetector(Context context, PredictiveThreatListener listener) {
+    /**
+     * @param callbackExecutor where listener callbacks run
+     */
+    public PredictiveThreatDetector(Context context, PredictiveThreatListener listener, Executor callbackExecutor) {
         this.context = context;
         this.listener = listener;
+        this.callbackExecutor = callbackExecutor;
         this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
         this.accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
         this.gyroscope = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
         this.magnetometer = sensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD);
+        analysisExecutor.execute(this::loadActivityHistogram);
+        analysisExecutor.execute(this::loadMovementHistory);
         
-        // Initialize data structures
-        this.behavioralHistory = new ConcurrentHashMap<>();
-        this.locationHistory = new ConcurrentHashMap<>();
-        this.timePatterns = new ConcurrentHashMap<>();
-        this.sensorBuffer = new ArrayList<>();
-        
-        // Initialize AI models
-        this.normalPatterns = new ConcurrentHashMap<>();
-        this.threatIndicators = new ConcurrentHashMap<>();
-        this.locationRiskScores = new ConcurrentHashMap<>();
-        this.timeRiskScores = new ConcurrentHashMap<>();
-        this.activePredictions = new ArrayList<>();
-        
-        initializeLearningModels();
         Log.d(TAG, "Predictive threat detector initialized");
     }
     
-    private void initializeLearningModels() {
-        // Initialize with default patterns
-        normalPatterns.put("movement_frequency", 0.5f);
-        normalPatterns.put("location_consistency", 0.7f);
-        normalPatterns.put("time_patterns", 0.6f);
-        normalPatterns.put("activity_regularity", 0.8f);
-        
-        // Initialize threat indicators
-        threatIndicators.put("unusual_movement", 0.0f);
-        threatIndicators.put("dangerous_location", 0.0f);
-        threatIndicators.put("abnormal_time", 0.0f);
-        threatIndicators.put("behavioral_anomaly", 0.0f);
-        
-        Log.d(TAG, "AI learning models initialized");
-    }
-    
     public void startDetection() {
         if (accelerometer != null) {
             sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
@@ -196,148 +167,193 @@ public class PredictiveThreatDetector implements SensorEventListener {
         if (magnetometer != null) {
             sensorManager.registerListener(this, magnetometer, SensorManager.SENSOR_DELAY_GAME);
         }
+        if (analysisTask == null) {
+            analysisTask = analysisExecutor.scheduleWithFixedDelay(this::analyze,
+                    DRAIN_INTERVAL_MS, DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
         
         Log.d(TAG, "Predictive threat detection started");
     }
     
     public void stopDetection() {
         sensorManager.unregisterListener(this);
+        if (analysisTask != null) {
+            analysisTask.cancel(false);
+            analysisTask = null;
+        }
         Log.d(TAG, "Predictive threat detection stopped");
     }
     
+    /**
+     * Replace the time source, e.g. with a ReplayClock when driving from a sensor trace.
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+    
     @Override
     public void onSensorChanged(SensorEvent event) {
-        long timestamp = System.currentTimeMillis();
-        
-        switch (event.sensor.getType()) {
-            case Sensor.TYPE_ACCELEROMETER:
-                processAccelerometerData(event, timestamp);
-                break;
-            case Sensor.TYPE_GYROSCOPE:
-                processGyroscopeData(event, timestamp);
-                break;
-            case Sensor.TYPE_MAGNETIC_FIELD:
-                processMagnetometerData(event, timestamp);
-                break;
-        }
-        
-        // Analyze patterns periodically
-        if (timestamp - lastPredictionUpdate > 5000) { // Every 5 seconds
-            analyzeBehavioralPatterns();
-            predictThreats();
-            updateThreatLevel();
-            lastPredictionUpdate = timestamp;
-        }
+        onSensorSample(event.sensor.getType(), event.timestamp, event.values[0], event.values[1], event.values[2]);
     }
     
-    private void processAccelerometerData(SensorEvent event, long timestamp) {
-        float x = event.values[0];
-        float y = event.values[1];
-        float z = event.values[2];
-        
-        float acceleration = (float) Math.sqrt(x * x + y * y + z * z);
-        
-        // Store in sensor buffer
-        if (sensorBuffer.size() > 50) {
-            sensorBuffer.remove(0);
-        }
-        
-        // Create behavioral data
-        BehavioralData data = new BehavioralData(
-            timestamp,
-            acceleration,
-            0.0f, // Will be updated with location
-            0.0f, // Will be updated with location
-            classifyActivity(acceleration),
-            calculateConfidence(acceleration)
-        );
-        
-        storeBehavioralData("movement", data);
+    @Override
+    public void onSensorSample(int sensorType, long timestampNanos, float x, float y, float z) {
+        // Cheap, lock-free hand-off; everything else happens on the analysis thread
+        samples.onSensorSample(sensorType, timestampNanos, x, y, z);
     }
     
-    private void processGyroscopeData(SensorEvent event, long timestamp) {
-        float x = event.values[0];
-        float y = event.values[1];
-        float z = event.values[2];
-        
-        // Analyze rotation patterns for threat detection
-        float rotationMagnitude = (float) Math.sqrt(x * x + y * y + z * z);
-        
-        if (rotationMagnitude > 2.0f) {
-            // Unusual rotation detected
-            threatIndicators.put("unusual_movement", 
-                Math.min(1.0f, threatIndicators.get("unusual_movement") + 0.1f));
+    private void score(int sensorType, long timestampNanos, float x, float y, float z) {
+        switch (sensorType) {
+            case SensorTypes.ACCELEROMETER:
+                scorer.onAcceleration(timestampNanos, x, y, z);
+                break;
+            case SensorTypes.GYROSCOPE:
+                scorer.onRotation(x, y, z);
+                break;
+            case SensorTypes.MAGNETIC_FIELD:
+                scorer.onMagneticField(x, y, z);
+                break;
         }
     }
     
-    private void processMagnetometerData(SensorEvent event, long timestamp) {
-        float x = event.values[0];
-        float y = event.values[1];
-        float z = event.values[2];
-        
-        // Analyze magnetic field changes for context
-        float magneticMagnitude = (float) Math.sqrt(x * x + y * y + z * z);
-        
-        // Detect if phone is being moved in unusual ways
-        if (magneticMagnitude > 100.0f) {
-            // Strong magnetic field change - possible threat
-            threatIndicators.put("unusual_movement", 
-                Math.min(1.0f, threatIndicators.get("unusual_movement") + 0.05f));
+    /** Analysis thread: drain samples and assess when due. */
+    private void analyze() {
+        try {
+            samples.drainTo(scorerSink);
+            long timestamp = clock.currentTimeMillis();
+            if (!scorer.isAssessmentDue(timestamp)) { // Every 5 seconds
+                return;
+            }
+            ThreatScorer.Assessment assessment = scorer.assess(timestamp).copy();
+            EmergencyFusion.getInstance(context).report(EvidenceFusion.Source.PREDICTIVE, assessment.threatLevel);
+            if (++assessmentsSinceSave >= ASSESSMENTS_PER_SAVE) {
+                saveActivityHistogram();
+                flushMovementHistory();
+            }
+            
+            float previousLevel = currentThreatLevel;
+            currentThreatLevel = assessment.threatLevel;
+            boolean predicted = assessment.threatLevel > ThreatScorer.THREAT_PREDICTION_THRESHOLD;
+            if (predicted) {
+                currentThreatType = assessment.threatType.name();
+                activePredictions = Collections.unmodifiableList(describeFactors(assessment.factors));
+            } else {
+                activePredictions = Collections.emptyList();
+            }
+            boolean levelChanged = Math.abs(assessment.threatLevel - previousLevel) > 0.1f;
+            
+            callbackExecutor.execute(() -> {
+                reportBehavioralPatterns(assessment);
+                if (predicted) {
+                    predictThreats(assessment);
+                }
+                if (levelChanged) {
+                    listener.onThreatLevelChanged(assessment.threatLevel,
+                            String.join(", ", describeFactors(assessment.factors)));
+                }
+            });
+        } catch (Exception e) {
+            // Keep the schedule alive; a thrown exception would cancel it
+            Log.e(TAG, "Threat analysis failed: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Analysis thread. Drop history past the learning period, relearn the movement models
+     * from what is left, then keep appending new minutes.
+     */
+    private void loadMovementHistory() {
+        File file = new File(context.getFilesDir(), HISTORY_FILE);
+        try {
+            long now = clock.currentTimeMillis();
+            long start = SystemClock.elapsedRealtime();
+            if (file.exists()) {
+                int oldestMinute = (int) ((now - LEARNING_PERIOD_DAYS * 24L * 60 * 60 * 1000) / 60_000L);
+                RollupWriter.compact(file, oldestMinute);
+                long wallToSensorNanos = SystemClock.elapsedRealtimeNanos() - now * 1_000_000L;
+                try (RollupReader reader = new RollupReader(file)) {
+                    int minutes = scorer.warmStart(reader, wallToSensorNanos);
+                    Log.d(TAG, "Relearned " + minutes + " minutes of movement in "
+                        + (SystemClock.elapsedRealtime() - start) + " ms");
+                }
+            }
+            historyWriter = new RollupWriter(file, ROLLUP_BLOCK_MINUTES);
+            scorer.setRollupSink(historyWriter);
+        } catch (IOException e) {
+            Log.e(TAG, "Movement history unavailable: " + e.getMessage());
+            // Corrupt header: start a fresh history rather than learning nothing forever
+            if (file.delete()) {
+                analysisExecutor.execute(this::loadMovementHistory);
+            }
+        }
+    }
+    
+    /** Analysis thread. */
+    private void flushMovementHistory() {
+        if (historyWriter == null) return;
+        try {
+            historyWriter.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write movement history: " + e.getMessage());
+        }
+    }
+    
+    /** Analysis thread. */
+    private void loadActivityHistogram() {
+        try {
+            String saved = SecureStorageManager.getEncryptedSharedPreferences(context)
+                .getString(PREF_ACTIVITY_HISTOGRAM, null);
+            if (saved != null) {
+                scorer.getActivityHistogram().readFrom(
+                    new DataInputStream(new ByteArrayInputStream(Base64.decode(saved, Base64.NO_WRAP))));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Could not load activity histogram: " + e.getMessage());
+        }
+    }
+    
+    /** Analysis thread. */
+    private void saveActivityHistogram() {
+        assessmentsSinceSave = 0;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            scorer.getActivityHistogram().writeTo(new DataOutputStream(bytes));
+            SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
+            prefs.edit()
+                .putString(PREF_ACTIVITY_HISTOGRAM, Base64.encodeToString(bytes.toByteArray(), Base64.NO_WRAP))
+                .apply();
+        } catch (Exception e) {
+            Log.e(TAG, "Could not save activity histogram: " + e.getMessage());
         }
     }
     
-    private String classifyActivity(float acceleration) {
-        if (acceleration < 0.5f) return "stationary";
-        else if (acceleration < 1.5f) return "walking";
-        else if (acceleration < 3.0f) return "running";
-        else return "unknown";
-    }
-    
-    private float calculateConfidence(float acceleration) {
-        // Higher confidence for more consistent movements
-        return Math.min(1.0f, acceleration / 5.0f);
-    }
-    
-    private void storeBehavioralData(String category, BehavioralData data) {
-        if (!behavioralHistory.containsKey(category)) {
-            behavioralHistory.put(category, new ArrayList<>());
-        }
-        
-        List<BehavioralData> history = behavioralHistory.get(category);
-        history.add(data);
-        
-        // Keep only recent data
-        while (history.size() > PATTERN_MEMORY_SIZE) {
-            history.remove(0);
-        }
+    public void updateLocation(float latitude, float longitude, float accuracy) {
+        long timestamp = clock.currentTimeMillis();
+        analysisExecutor.execute(() -> recordLocation(timestamp, latitude, longitude, accuracy));
     }
     
-    public void updateLocation(float latitude, float longitude, float accuracy) {
-        long timestamp = System.currentTimeMillis();
-        
+    private void recordLocation(long timestamp, float latitude, float longitude, float accuracy) {
         // Classify location type
         String locationType = classifyLocation(latitude, longitude);
-        float riskScore = calculateLocationRisk(latitude, longitude, locationType);
+        float riskScore = scorer.locationRisk(locationType, timestamp);
         
         LocationData locationData = new LocationData(
             timestamp, latitude, longitude, accuracy, locationType, riskScore
         );
         
-        // Store location data
-        if (!locationHistory.containsKey(locationType)) {
-            locationHistory.put(locationType, new ArrayList<>());
+        // Store location data, keeping only recent entries
+        ArrayDeque<LocationData> history = locationHistory.get(locationType);
+        if (history == null) {
+            history = new ArrayDeque<>();
+            locationHistory.put(locationType, history);
         }
-        
-        List<LocationData> history = locationHistory.get(locationType);
-        history.add(locationData);
-        
-        // Keep only recent location data
-        while (history.size() > 100) {
-            history.remove(0);
+        history.addLast(locationData);
+        while (history.size() > LOCATION_HISTORY_LIMIT) {
+            history.removeFirst();
         }
         
         // Update location risk scores
-        locationRiskScores.put(locationType, riskScore);
+        scorer.recordLocationRisk(locationType, riskScore);
         
         Log.d(TAG, "Location updated: " + locationType + " (risk: " + riskScore + ")");
     }
@@ -376,216 +392,48 @@ public class PredictiveThreatDetector implements SensorEventListener {
         return false;
     }
     
-    private float calculateLocationRisk(float latitude, float longitude, String locationType) {
-        float risk = 0.0f;
-        
-        switch (locationType) {
-            case "safe":
-                risk = 0.1f;
-                break;
-            case "dangerous":
-                risk = 0.9f;
-                break;
-            case "unknown":
-                risk = 0.5f;
-                break;
-            default:
-                risk = 0.3f;
-        }
-        
-        // Add time-based risk factors
-        long currentHour = System.currentTimeMillis() / (60 * 60 * 1000) % 24;
-        if (currentHour < 6 || currentHour > 22) {
-            risk += 0.2f; // Higher risk at night
+    private void reportBehavioralPatterns(ThreatScorer.Assessment assessment) {
+        // Movement anomalies
+        if (assessment.movementAnalyzed) {
+            float anomaly = assessment.movementAnomaly;
+            if (anomaly > ThreatScorer.ANOMALY_THRESHOLD) {
+                listener.onAnomalyDetected("unusual_movement", anomaly,
+                    "Movement while " + assessment.activity.name().toLowerCase(Locale.ROOT) + " is "
+                        + String.format(Locale.ROOT, "%.1f", assessment.movementZScore)
+                        + " standard deviations above normal");
+            }
+            listener.onBehavioralLearning("movement_pattern", 1.0f - anomaly);
         }
         
-        return Math.min(1.0f, risk);
-    }
-    
-    private void analyzeBehavioralPatterns() {
-        // Analyze movement patterns
-        analyzeMovementPatterns();
-        
-        // Analyze location patterns
-        analyzeLocationPatterns();
-        
-        // Analyze time patterns
-        analyzeTimePatterns();
-        
-        // Update normal patterns based on learning
-        updateNormalPatterns();
-    }
-    
-    private void analyzeMovementPatterns() {
-        if (!behavioralHistory.containsKey("movement")) return;
-        
-        List<BehavioralData> movements = behavioralHistory.get("movement");
-        if (movements.size() < 10) return;
-        
-        // Calculate average movement intensity
-        float totalIntensity = 0;
-        for (BehavioralData data : movements) {
-            totalIntensity += data.movementIntensity;
-        }
-        float avgIntensity = totalIntensity / movements.size();
-        
-        // Check for anomalies
-        float currentIntensity = movements.get(movements.size() - 1).movementIntensity;
-        float intensityDeviation = Math.abs(currentIntensity - avgIntensity) / avgIntensity;
-        
-        if (intensityDeviation > ANOMALY_THRESHOLD) {
-            listener.onAnomalyDetected("unusual_movement", intensityDeviation, 
-                "Movement intensity deviates " + (intensityDeviation * 100) + "% from normal");
-        }
-        
-        // Learn normal patterns
-        normalPatterns.put("movement_frequency", avgIntensity);
-        listener.onBehavioralLearning("movement_pattern", 1.0f - intensityDeviation);
-    }
-    
-    private void analyzeLocationPatterns() {
-        // Analyze location consistency
-        float locationConsistency = calculateLocationConsistency();
-        normalPatterns.put("location_consistency", locationConsistency);
-        
         // Check for unusual locations
-        if (locationConsistency < 0.3f) {
-            listener.onAnomalyDetected("unusual_location", 1.0f - locationConsistency,
+        if (assessment.locationConsistency < 0.3f) {
+            listener.onAnomalyDetected("unusual_location", 1.0f - assessment.locationConsistency,
                 "User is in an unusual location");
         }
-    }
-    
-    private float calculateLocationConsistency() {
-        // Simplified location consistency calculation
-        // In a real implementation, this would analyze location patterns over time
-        return 0.7f; // Default value
-    }
-    
-    private void analyzeTimePatterns() {
-        long currentTime = System.currentTimeMillis();
-        int currentHour = (int) (currentTime / (60 * 60 * 1000)) % 24;
-        int currentDay = (int) (currentTime / (24 * 60 * 60 * 1000)) % 7;
         
         // Check if current time is unusual for user's patterns
-        float timeRisk = calculateTimeRisk(currentHour, currentDay);
-        timeRiskScores.put("current_time", timeRisk);
-        
-        if (timeRisk > 0.7f) {
-            listener.onAnomalyDetected("unusual_time", timeRisk,
-                "User activity at unusual time: " + currentHour + ":00");
-        }
-    }
-    
-    private float calculateTimeRisk(int hour, int day) {
-        float risk = 0.0f;
-        
-        // Higher risk at night
-        if (hour < 6 || hour > 22) {
-            risk += 0.3f;
-        }
-        
-        // Higher risk on weekends (if user normally works)
-        if (day == 0 || day == 6) { // Saturday or Sunday
-            risk += 0.2f;
+        if (assessment.timeRisk > 0.7f) {
+            listener.onAnomalyDetected("unusual_time", assessment.timeRisk,
+                "User activity at unusual time: " + assessment.hour + ":00");
         }
-        
-        return Math.min(1.0f, risk);
     }
     
-    private void updateNormalPatterns() {
-        // Update patterns based on recent behavior
-        // This is a simplified version - real implementation would use ML algorithms
+    private void predictThreats(ThreatScorer.Assessment assessment) {
+        String threatType = assessment.threatType.name();
+        listener.onThreatPredicted(threatType, assessment.threatLevel,
+            String.join(", ", describeFactors(assessment.factors)));
         
-        for (Map.Entry<String, Float> entry : normalPatterns.entrySet()) {
-            String pattern = entry.getKey();
-            float currentValue = entry.getValue();
-            
-            // Gradually adjust patterns based on recent observations
-            // This simulates learning
-            float adjustment = 0.01f; // Small learning rate
-            normalPatterns.put(pattern, currentValue + adjustment);
-        }
+        // Provide safety recommendations
+        provideSafetyRecommendations(threatType, assessment.threatLevel);
     }
     
-    private void predictThreats() {
-        float threatScore = 0.0f;
+    private static List<String> describeFactors(int factors) {
         List<String> threatFactors = new ArrayList<>();
-        
-        // Movement-based threats
-        float movementThreat = threatIndicators.get("unusual_movement");
-        if (movementThreat > 0.5f) {
-            threatScore += movementThreat * 0.3f;
-            threatFactors.add("Unusual movement patterns");
-        }
-        
-        // Location-based threats
-        float locationThreat = 0.0f;
-        for (float risk : locationRiskScores.values()) {
-            locationThreat = Math.max(locationThreat, risk);
-        }
-        if (locationThreat > 0.7f) {
-            threatScore += locationThreat * 0.4f;
-            threatFactors.add("Dangerous location detected");
-        }
-        
-        // Time-based threats
-        float timeThreat = timeRiskScores.getOrDefault("current_time", 0.0f);
-        if (timeThreat > 0.6f) {
-            threatScore += timeThreat * 0.2f;
-            threatFactors.add("Unusual time activity");
-        }
-        
-        // Behavioral anomalies
-        float behavioralThreat = calculateBehavioralAnomalyScore();
-        if (behavioralThreat > 0.5f) {
-            threatScore += behavioralThreat * 0.3f;
-            threatFactors.add("Behavioral anomalies detected");
-        }
-        
-        // Update current threat level
-        currentThreatLevel = Math.min(1.0f, threatScore);
-        
-        // Predict specific threats
-        if (currentThreatLevel > THREAT_PREDICTION_THRESHOLD) {
-            String threatType = determineThreatType(threatFactors);
-            currentThreatType = threatType;
-            
-            listener.onThreatPredicted(threatType, currentThreatLevel, 
-                String.join(", ", threatFactors));
-            
-            // Provide safety recommendations
-            provideSafetyRecommendations(threatType, currentThreatLevel);
-        }
-    }
-    
-    private float calculateBehavioralAnomalyScore() {
-        float anomalyScore = 0.0f;
-        
-        // Check for deviations from normal patterns
-        for (Map.Entry<String, Float> entry : normalPatterns.entrySet()) {
-            String pattern = entry.getKey();
-            float normalValue = entry.getValue();
-            
-            // Calculate current deviation (simplified)
-            float currentDeviation = Math.abs(normalValue - 0.5f); // Simplified
-            anomalyScore += currentDeviation;
-        }
-        
-        return Math.min(1.0f, anomalyScore / normalPatterns.size());
-    }
-    
-    private String determineThreatType(List<String> factors) {
-        if (factors.contains("Dangerous location detected")) {
-            return "LOCATION_THREAT";
-        } else if (factors.contains("Unusual movement patterns")) {
-            return "MOVEMENT_THREAT";
-        } else if (factors.contains("Unusual time activity")) {
-            return "TIME_THREAT";
-        } else if (factors.contains("Behavioral anomalies detected")) {
-            return "BEHAVIORAL_THREAT";
-        } else {
-            return "GENERAL_THREAT";
-        }
+        if ((factors & ThreatScorer.FACTOR_MOVEMENT) != 0) threatFactors.add("Unusual movement patterns");
+        if ((factors & ThreatScorer.FACTOR_LOCATION) != 0) threatFactors.add("Dangerous location detected");
+        if ((factors & ThreatScorer.FACTOR_TIME) != 0) threatFactors.add("Unusual time activity");
+        if ((factors & ThreatScorer.FACTOR_BEHAVIORAL) != 0) threatFactors.add("Behavioral anomalies detected");
+        return threatFactors;
     }
     
     private void provideSafetyRecommendations(String threatType, float threatLevel) {
@@ -620,17 +468,6 @@ public class PredictiveThreatDetector implements SensorEventListener {
         }
     }
     
-    private void updateThreatLevel() {
-        float previousLevel = currentThreatLevel;
-        
-        // Threat level is already calculated in predictThreats()
-        // Just notify listener if it changed significantly
-        if (Math.abs(currentThreatLevel - previousLevel) > 0.1f) {
-            String factors = String.join(", ", activePredictions);
-            listener.onThreatLevelChanged(currentThreatLevel, factors);
-        }
-    }
-    
     public float getCurrentThreatLevel() {
         return currentThreatLevel;
     }
@@ -648,16 +485,26 @@ public class PredictiveThreatDetector implements SensorEventListener {
         // Not used
     }
     
+    /**
+     * Stop detection and release the analysis thread. The detector cannot be restarted.
+     */
     public void cleanup() {
         stopDetection();
-        behavioralHistory.clear();
-        locationHistory.clear();
-        timePatterns.clear();
-        sensorBuffer.clear();
-        normalPatterns.clear();
-        threatIndicators.clear();
-        locationRiskScores.clear();
-        timeRiskScores.clear();
-        activePredictions.clear();
+        analysisExecutor.execute(() -> {
+            saveActivityHistogram();
+            scorer.setRollupSink(null);
+            if (historyWriter != null) {
+                try {
+                    historyWriter.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not close movement history: " + e.getMessage());
+                }
+                historyWriter = null;
+            }
+            locationHistory.clear();
+            scorer.reset();
+        });
+        analysisExecutor.shutdown();
+        activePredictions = Collections.emptyList();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.example.bilawoga.utils;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Storage target for the profile backup document (see CloudBackupCrypto for its fields).
+ * Calls block and are only made from ProfileBackupQueue's workers.
+ * Documents arrive already encrypted; the backend never sees the plaintext profile.
+ */
+public interface ProfileBackupBackend {
+
+    /**
+     * Replace this installation's backup with {@code doc}.
+     */
+    void putBackup(Map<String, Object> doc) throws IOException;
+
+    /**
+     * This installation's backup, or null if there is none.
+     */
+    Map<String, Object> getBackup() throws IOException;
+}
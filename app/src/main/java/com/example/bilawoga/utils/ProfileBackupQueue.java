@@ -0,0 +1,240 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.bilawoga.detection.VersionVector;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PROFILE BACKUP QUEUE
+ * Moves profile backup and restore off the UI path and onto WorkManager.
+ *
+ * - enqueueBackup() seals the profile right away (no network) and hands the encrypted
+ *   document to a unique work request, so it survives logout wiping local data, process
+ *   death and reboots
+ * - Uploads wait for a network and a battery that is not low, and retry with backoff
+ * - A newer backup replaces one that is still waiting: only the latest profile is sent
+ * - prefetchRestore() fetches the cloud copy whenever a network shows up and restores it
+ *   if the device still has no contacts, so startup never waits for Firestore; never
+ *   after a panic wipe (SecureStorageManager.wasWiped()), when only restoreNow() restores
+ */
+public class ProfileBackupQueue {
+    private static final String TAG = "ProfileBackupQueue";
+    private static final String BACKUP_WORK = "profile_backup";
+    private static final String PREFETCH_WORK = "profile_restore_prefetch";
+    /** Work input key for the vector being uploaded; every other key is the document. */
+    private static final String INPUT_VECTOR = "__vector";
+    private static final long BACKOFF_SECONDS = 30;
+
+    private static ProfileBackupQueue instance;
+
+    public enum EnqueueResult {
+        QUEUED,
+        /** The cloud copy already holds the current profile. */
+        UP_TO_DATE,
+        /** Secure storage could not be opened or the profile not sealed; nothing was queued. */
+        UNAVAILABLE
+    }
+
+    public interface RestoreCallback {
+        void onRestoreResult(boolean restored);
+    }
+
+    private final Context context;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile ProfileBackupBackend backend = new FirestoreProfileBackupBackend();
+    // Last document seen in the cloud, so a manual restore need not fetch it again
+    private volatile Map<String, Object> prefetched;
+
+    private ProfileBackupQueue(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public static synchronized ProfileBackupQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new ProfileBackupQueue(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Cancel the queued restore and drop the cached cloud copy, so nothing from before a
+     * wipe is written back. Unless keepBackup, the queued upload is cancelled too;
+     * logging out after "Back up to cloud" keeps it so the backup still goes out.
+     */
+    static void forgetAll(Context context, boolean keepBackup) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.cancelUniqueWork(PREFETCH_WORK);
+        if (!keepBackup) {
+            workManager.cancelUniqueWork(BACKUP_WORK);
+        }
+        synchronized (ProfileBackupQueue.class) {
+            if (instance != null) {
+                instance.prefetched = null;
+            }
+        }
+    }
+
+    /**
+     * Swap the storage target, e.g. for a LocalFileProfileBackupBackend on an emulator.
+     */
+    public void setBackend(ProfileBackupBackend backend) {
+        this.backend = backend;
+        this.prefetched = null;
+    }
+
+    /**
+     * Seal the current profile and queue its upload. Returns without touching the network.
+     */
+    public EnqueueResult enqueueBackup() {
+        SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
+        if (prefs == null) {
+            return EnqueueResult.UNAVAILABLE;
+        }
+        CloudBackupState.Snapshot snapshot = CloudBackupState.prepare(context);
+        if (snapshot == null) {
+            return EnqueueResult.UP_TO_DATE;
+        }
+        Map<String, Object> doc = CloudBackupCrypto.buildEncryptedPayload(
+                snapshot.fields, snapshot.versionVector, System.currentTimeMillis());
+        if (doc == null) {
+            // WorkManager persists its input; a plaintext profile must never land there
+            return EnqueueResult.UNAVAILABLE;
+        }
+        Data input = new Data.Builder()
+                .putAll(doc)
+                .putString(INPUT_VECTOR, snapshot.versionVector.encode())
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(BackupWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .setRequiresBatteryNotLow(true)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .setInputData(input)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(BACKUP_WORK, ExistingWorkPolicy.REPLACE, request);
+        Log.d(TAG, "Backup queued " + snapshot.versionVector);
+        return EnqueueResult.QUEUED;
+    }
+
+    /**
+     * Fetch the cloud copy once a network is available and restore it if this device has
+     * no contacts yet. Safe to call on every start; a pending prefetch is kept.
+     */
+    public void prefetchRestore() {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(RestoreWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(PREFETCH_WORK, ExistingWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Restore now, for when the user asks. Uses the prefetched copy if there is one,
+     * otherwise fetches it; the callback runs on the main thread.
+     */
+    public void restoreNow(RestoreCallback callback) {
+        executor.execute(() -> {
+            boolean restored = false;
+            try {
+                Map<String, Object> doc = prefetched;
+                if (doc == null) {
+                    doc = backend.getBackup();
+                    prefetched = doc;
+                }
+                restored = doc != null && CloudBackupState.restore(context, doc);
+            } catch (IOException e) {
+                Log.e(TAG, "Restore failed: " + e.getMessage());
+            }
+            boolean result = restored;
+            mainHandler.post(() -> callback.onRestoreResult(result));
+        });
+    }
+
+    private boolean upload(Data input) {
+        Map<String, Object> doc = new HashMap<>(input.getKeyValueMap());
+        Object vector = doc.remove(INPUT_VECTOR);
+        try {
+            backend.putBackup(doc);
+        } catch (IOException e) {
+            Log.e(TAG, "Backup upload failed: " + e.getMessage());
+            return false;
+        }
+        prefetched = doc;
+        if (vector instanceof String) {
+            CloudBackupState.markUploaded(context, VersionVector.decode((String) vector));
+        }
+        Log.d(TAG, "Backup uploaded");
+        return true;
+    }
+
+    private boolean prefetch() {
+        Map<String, Object> doc;
+        try {
+            doc = backend.getBackup();
+        } catch (IOException e) {
+            Log.e(TAG, "Backup prefetch failed: " + e.getMessage());
+            return false;
+        }
+        prefetched = doc;
+        if (SecureStorageManager.wasWiped(context)) {
+            // Queued before a panic wipe; only the user may bring the data back
+            return true;
+        }
+        if (doc != null && !EmergencyProfileManager.getInstance(context).getProfile().hasContacts()) {
+            if (CloudBackupState.restore(context, doc)) {
+                Log.d(TAG, "Profile restored from prefetched backup");
+            }
+        }
+        return true;
+    }
+
+    public static class BackupWorker extends Worker {
+        public BackupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        @NonNull
+        @Override
+        public Result doWork() {
+            return getInstance(getApplicationContext()).upload(getInputData()) ? Result.success() : Result.retry();
+        }
+    }
+
+    public static class RestoreWorker extends Worker {
+        public RestoreWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        @NonNull
+        @Override
+        public Result doWork() {
+            return getInstance(getApplicationContext()).prefetch() ? Result.success() : Result.retry();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.tracing.Trace;
+
+import com.example.bilawoga.CountdownActivity;
+import com.example.bilawoga.detection.Clock;
+import com.example.bilawoga.detection.IncidentRecord;
+import com.example.bilawoga.detection.SosCoalescer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * SOS COORDINATOR
+ * Every SOS path (shake, motion patterns, audio, voice, the SOS button) goes through
+ * trigger() instead of starting its own countdown or send.
+ *
+ * The first trigger opens a session (see SosCoalescer): location resolution starts right
+ * away, then either the countdown is shown or the SOS is sent. Triggers that follow within
+ * the session window only add evidence, or cut the countdown short when they are more
+ * urgent. Each session resolves its location once and dispatches once, except that the
+ * SOS button sends an already sent session again, and a send that reached no contact is
+ * released so the next trigger retries it.
+ *
+ * Each dispatch also starts an EvidenceRecorder clip, which is uploaded once it closes.
+ *
+ * Every trigger, dispatch and cancel is recorded in the IncidentStore under the session's
+ * opening time, which is what ties an incident's records together across restarts.
+ */
+public class SOSCoordinator {
+    private static final String TAG = "SOSCoordinator";
+    /**
+     * Async trace section from opening the countdown to its first frame; measured by the
+     * shake journey in :macrobenchmark.
+     */
+    public static final String TRACE_COUNTDOWN = "SosTriggerToCountdown";
+
+    private static SOSCoordinator instance;
+
+    private final Context context;
+    private final SosCoalescer coalescer = new SosCoalescer();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private SOSHelper sosHelper;
+    private volatile Clock clock = Clock.SYSTEM;
+
+    // Location of the current session, shared by the countdown and the send
+    private long locationSessionId;
+    private boolean locationResolved;
+    private Location location;
+    private final List<Consumer<Location>> locationWaiters = new ArrayList<>();
+
+    private SOSCoordinator(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public static synchronized SOSCoordinator getInstance(Context context) {
+        if (instance == null) {
+            instance = new SOSCoordinator(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Report an SOS trigger, from any thread.
+     *
+     * @param incident what to tell the contacts, e.g. "AI Detected Emergency: scream";
+     *                 null uses the incident type from the user's profile
+     */
+    public synchronized SosCoalescer.Outcome trigger(SosCoalescer.Source source, SosCoalescer.Urgency urgency,
+                                                     String incident) {
+        long now = clock.currentTimeMillis();
+        SosCoalescer.Outcome outcome = coalescer.offer(source, urgency, incident, now);
+        SosCoalescer.Session session = coalescer.current(now);
+        incidents().record(IncidentRecord.trigger(session.openedMillis, now, source.name(), urgency.name(),
+                outcome.name()));
+        switch (outcome) {
+            case OPENED:
+                Log.d(TAG, "SOS session " + session.id + " opened by " + source + " (" + urgency + ")");
+                resolveLocation(session.id);
+                if (urgency == SosCoalescer.Urgency.IMMEDIATE) {
+                    dispatch(session.id);
+                } else {
+                    showCountdown(session.id);
+                }
+                break;
+            case ESCALATED:
+                Log.d(TAG, "SOS session " + session.id + " escalated by " + source);
+                dispatch(session.id);
+                break;
+            case MERGED:
+                Log.d(TAG, "SOS session " + session.id + " joined by " + source);
+                if (!session.isDispatched() && session.urgency == SosCoalescer.Urgency.CONFIRM) {
+                    // Still waiting on a countdown that may never have appeared (background
+                    // launch blocked); bring it up so this trigger is not silently dropped
+                    if (!startCountdown(session.id)) {
+                        dispatch(session.id);
+                    }
+                }
+                break;
+            case RESEND:
+                Log.d(TAG, "SOS session " + session.id + " sent again by " + source);
+                send(coalescer.markRedispatched(session.id, now));
+                break;
+        }
+        return outcome;
+    }
+
+    /**
+     * Send the session's SOS. Safe to call more than once or after a cancel; only the
+     * first call for a live session sends.
+     */
+    public synchronized boolean dispatch(long sessionId) {
+        SosCoalescer.Session session = coalescer.markDispatched(sessionId, clock.currentTimeMillis());
+        if (session == null) {
+            Log.d(TAG, "SOS session " + sessionId + " already sent or cancelled");
+            return false;
+        }
+        send(session);
+        return true;
+    }
+
+    private void send(SosCoalescer.Session session) {
+        if (session == null) {
+            return;
+        }
+        EmergencyProfile profile = EmergencyProfileManager.getInstance(context).getProfile();
+        String incident = session.incident;
+        if (incident == null) {
+            incident = profile.incidentTypeOr("an emergency");
+        }
+        String corroboration = session.corroboration();
+        if (!corroboration.isEmpty()) {
+            incident += " (also detected: " + corroboration + ")";
+        }
+
+        Log.d(TAG, "Dispatching SOS session " + session.id + " opened by " + session.openedBy);
+        int contacts = (profile.isNumber1Valid() ? 1 : 0)
+                + (profile.isNumber2Valid() && !profile.emergencyNumber2.equals(profile.emergencyNumber1) ? 1 : 0);
+        incidents().record(IncidentRecord.dispatch(session.openedMillis, session.dispatchedMillis,
+                session.openedBy.name(), incident, contacts));
+        EvidenceRecorder.getInstance(context).recordClip();
+        helper().sendEmergencySOS(profile, incident, session.openedMillis,
+                callback -> awaitLocation(session.id, callback), sent -> {
+                    if (!sent && coalescer.dispatchFailed(session.id, session.dispatchedMillis)) {
+                        Log.w(TAG, "SOS session " + session.id + " reached no contact; next trigger retries");
+                    }
+                });
+    }
+
+    /**
+     * The user cancelled the countdown. Returns false if the SOS has already gone out.
+     */
+    public synchronized boolean cancel(long sessionId) {
+        long now = clock.currentTimeMillis();
+        SosCoalescer.Session session = coalescer.current(now);
+        if (!coalescer.cancel(sessionId)) {
+            return false;
+        }
+        Log.d(TAG, "SOS session " + sessionId + " cancelled");
+        incidents().record(IncidentRecord.cancel(session.openedMillis, now));
+        locationWaiters.clear();
+        return true;
+    }
+
+    /**
+     * Replace the time source, e.g. with a ReplayClock when driving from a sensor trace.
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    private void showCountdown(long sessionId) {
+        Trace.beginAsyncSection(TRACE_COUNTDOWN, (int) sessionId);
+        if (!startCountdown(sessionId)) {
+            // No countdown means nobody can cancel; better to send than to drop it
+            Trace.endAsyncSection(TRACE_COUNTDOWN, (int) sessionId);
+            dispatch(sessionId);
+        }
+    }
+
+    /** Start, or bring back to the front, the countdown for a session. */
+    private boolean startCountdown(long sessionId) {
+        try {
+            Intent i = new Intent(context, CountdownActivity.class);
+            // A countdown already on top keeps running instead of starting over
+            i.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            i.putExtra(CountdownActivity.EXTRA_SESSION_ID, sessionId);
+            context.startActivity(i);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start countdown: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void resolveLocation(long sessionId) {
+        locationSessionId = sessionId;
+        locationResolved = false;
+        location = null;
+        locationWaiters.clear();
+        // The location request and its timeout are tied to the main looper
+        mainHandler.post(() -> helper().getCurrentLocation(fix -> onLocation(sessionId, fix)));
+    }
+
+    private void onLocation(long sessionId, Location fix) {
+        List<Consumer<Location>> waiters;
+        synchronized (this) {
+            // Only the first answer counts; the lookup's timeout path can answer again
+            if (sessionId != locationSessionId || locationResolved) {
+                return;
+            }
+            locationResolved = true;
+            location = fix;
+            waiters = new ArrayList<>(locationWaiters);
+            locationWaiters.clear();
+        }
+        for (Consumer<Location> waiter : waiters) {
+            waiter.accept(fix);
+        }
+    }
+
+    private synchronized void awaitLocation(long sessionId, Consumer<Location> callback) {
+        if (sessionId != locationSessionId) {
+            // Never started for this session; look it up now
+            resolveLocation(sessionId);
+        }
+        if (locationResolved) {
+            Location fix = location;
+            mainHandler.post(() -> callback.accept(fix));
+        } else {
+            locationWaiters.add(callback);
+        }
+    }
+
+    private IncidentStore incidents() {
+        return IncidentStore.getInstance(context);
+    }
+
+    private synchronized SOSHelper helper() {
+        if (sosHelper == null) {
+            sosHelper = new SOSHelper(context);
+        }
+        return sosHelper;
+    }
+}
@@ -7,7 +7,6 @@ import android.app.PendingIntent;
 import android.content.ActivityNotFoundException;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.location.LocationManager;
@@ -22,7 +21,7 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import com.example.bilawoga.MainActivity;
-import com.example.bilawoga.ServiceMine;
+import com.example.bilawoga.detection.IncidentRecord;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationAvailability;
 import com.google.android.gms.location.LocationCallback;
@@ -37,6 +36,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import android.net.Uri;
 import java.security.SecureRandom;
 import java.util.UUID;
@@ -53,6 +53,11 @@ public class SOSHelper {
     // SMS constants - must match MainActivity
     public static final String SMS_SENT_ACTION = "com.example.bilawoga.SMS_SENT";
     public static final String SMS_DELIVERED_ACTION = "com.example.bilawoga.SMS_DELIVERED";
+    // Extras on the SMS status broadcasts, so the receiver can record the delivery
+    public static final String EXTRA_INCIDENT_ID = "incidentId";
+    public static final String EXTRA_CONTACT = "contact";
+    // Each status PendingIntent needs its own request code or they share extras
+    private static final AtomicInteger SMS_REQUEST_CODES = new AtomicInteger();
     
     private final Context context;
     private final FusedLocationProviderClient fusedLocationClient;
@@ -93,26 +98,30 @@ public class SOSHelper {
     // No-op used by ShakeService to centralize routing (kept for API stability)
     public void testSMSSending(String number) { /* intentionally empty */ }
 
-    public static void sendSOSFromService(ServiceMine serviceMine, FusedLocationProviderClient fusedLocationClient, String userName, String incidentType) {
-        try {
-            // read numbers
-            SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(serviceMine);
-            String em1 = prefs != null ? prefs.getString("ENUM_1", null) : null;
-            String em2 = prefs != null ? prefs.getString("ENUM_2", null) : null;
-            Intent i = new Intent(serviceMine, CountdownActivity.class);
-            i.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-            i.putExtra(CountdownActivity.EXTRA_USER, userName);
-            i.putExtra(CountdownActivity.EXTRA_INCIDENT, incidentType);
-            i.putExtra(CountdownActivity.EXTRA_EM1, em1);
-            i.putExtra(CountdownActivity.EXTRA_EM2, em2);
-            serviceMine.startActivity(i);
-        } catch (Throwable t) {
-            Log.e(TAG, "Failed to start countdown: " + t.getMessage());
-        }
-    }
-
     public void sendEmergencySOS(String userName, String incidentType, 
                                String emergencyNumber1, String emergencyNumber2) {
+        send(userName, incidentType, System.currentTimeMillis(), emergencyNumber1, isValidNumber(emergencyNumber1),
+                emergencyNumber2, isValidNumber(emergencyNumber2), this::getCurrentLocation, null);
+    }
+
+    /**
+     * Send to the contacts of an already validated profile, with a location that was
+     * already requested, e.g. by SOSCoordinator when the SOS session opened, so the
+     * countdown and the send share one location fix.
+     *
+     * @param incidentId the id the incident's records are stored under in the IncidentStore
+     * @param onResult   told whether at least one SMS went out
+     */
+    public void sendEmergencySOS(EmergencyProfile profile, String incidentType, long incidentId,
+                               Consumer<Consumer<Location>> locationSource, Consumer<Boolean> onResult) {
+        send(profile.userName, incidentType, incidentId, profile.emergencyNumber1, profile.isNumber1Valid(),
+                profile.emergencyNumber2, profile.isNumber2Valid(), locationSource, onResult);
+    }
+
+    private void send(String userName, String incidentType, long incidentId,
+                      String emergencyNumber1, boolean hasValidNumber1,
+                      String emergencyNumber2, boolean hasValidNumber2,
+                      Consumer<Consumer<Location>> locationSource, Consumer<Boolean> onResult) {
         // Validate input
         if (userName == null || userName.trim().isEmpty()) {
             userName = "Unknown User";
@@ -122,14 +131,11 @@ public class SOSHelper {
             incidentType = "Emergency";
         }
         
-        // Check for valid emergency numbers
-        boolean hasValidNumber1 = isValidNumber(emergencyNumber1);
-        boolean hasValidNumber2 = isValidNumber(emergencyNumber2);
-        
         if (!hasValidNumber1 && !hasValidNumber2) {
             Log.e(TAG, "No valid emergency numbers provided");
             showToast("No valid emergency numbers found! Please add emergency contacts in settings.");
             logSecurityEvent("SOS_FAILED", "No valid emergency numbers provided");
+            if (onResult != null) onResult.accept(false);
             return;
         }
         
@@ -155,7 +161,7 @@ public class SOSHelper {
         // Get current location and then send emergency messages immediately
         String finalIncidentType = incidentType;
         String finalUserName = userName;
-        getCurrentLocation(location -> {
+        locationSource.accept(location -> {
             String locationText = "Location unavailable";
             
             if (location != null) {
@@ -163,10 +169,13 @@ public class SOSHelper {
                     location.getLatitude(), location.getLongitude());
                 Log.d(TAG, "Emergency location obtained: " + locationText);
                 logSecurityEvent("EMERGENCY_SOS_LOCATION", "Emergency location: " + locationText);
+                incidents().record(IncidentRecord.location(incidentId, System.currentTimeMillis(),
+                        location.getLatitude(), location.getLongitude(), location.getAccuracy()));
             } else {
                 Log.e(TAG, "Could not get emergency location");
                 showToast("Could not get location. Sending emergency SOS with available information...");
                 logSecurityEvent("EMERGENCY_SOS_LOCATION", "Emergency location unavailable");
+                incidents().record(IncidentRecord.locationUnavailable(incidentId, System.currentTimeMillis()));
             }
             
             // Create the emergency message with better format
@@ -182,7 +191,8 @@ public class SOSHelper {
             if (hasValidNumber1) {
                 messagesAttempted++;
                 Log.d(TAG, "EMERGENCY: Sending SOS immediately to first emergency number: " + maskNumber(emergencyNumber1));
-                boolean sent1 = sendSMS(emergencyNumber1, message);
+                boolean sent1 = sendSMS(emergencyNumber1, message, incidentId);
+                recordDelivery(incidentId, emergencyNumber1, sent1);
                 if (sent1) {
                     messagesSent++;
                     logSecurityEvent("EMERGENCY_SOS_SENT_1", "EMERGENCY SMS sent to: " + maskNumber(emergencyNumber1));
@@ -196,7 +206,8 @@ public class SOSHelper {
             if (hasValidNumber2 && !emergencyNumber2.equals(emergencyNumber1)) {
                 messagesAttempted++;
                 Log.d(TAG, "EMERGENCY: Sending SOS immediately to second emergency number: " + maskNumber(emergencyNumber2));
-                boolean sent2 = sendSMS(emergencyNumber2, message);
+                boolean sent2 = sendSMS(emergencyNumber2, message, incidentId);
+                recordDelivery(incidentId, emergencyNumber2, sent2);
                 if (sent2) {
                     messagesSent++;
                     logSecurityEvent("EMERGENCY_SOS_SENT_2", "EMERGENCY SMS sent to: " + maskNumber(emergencyNumber2));
@@ -216,6 +227,7 @@ public class SOSHelper {
                 logSecurityEvent("EMERGENCY_SOS_FAILED", "Failed to send any emergency SMS messages");
                 showToast("EMERGENCY ALERT FAILED: Please check your emergency contacts");
             }
+            if (onResult != null) onResult.accept(messageSent);
         });
     }
     
@@ -370,131 +382,39 @@ public class SOSHelper {
      * Stores map data securely with 12-hour expiration
      */
     private void storeSecureMapData(String token, String location, String userName) {
-        try {
-            SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
-            if (prefs != null) {
-                SharedPreferences.Editor editor = prefs.edit();
-                
-                // Store map data with token as key (12-hour expiry)
-                String mapData = String.format(Locale.US, "%s|%s|%d", 
-                    location, userName, System.currentTimeMillis());
-                
-                editor.putString("emergency_map_" + token, mapData);
-                editor.apply();
-                
-                Log.d(TAG, "Secure map data stored for token: " + token.substring(0, 6) + "****");
-                logSecurityEvent("SECURE_MAP_STORED", "Emergency map data secured (12hr expiry)");
-                
-                // Clean up old map tokens (older than 12 hours)
-                cleanupExpiredMapTokens(prefs);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error storing secure map data: " + e.getMessage());
-            logSecurityEvent("SECURE_MAP_ERROR", "Failed to store map data: " + e.getMessage());
-        }
+        storeSecureToken(SecureTokenStore.Kind.MAP, token, location, userName);
+        logSecurityEvent("SECURE_MAP_STORED", "Emergency map data secured (12hr expiry)");
     }
     
     /**
-     * Stores location data securely with expiration
+     * Stores location data securely with 24-hour expiration
      */
     private void storeSecureLocationData(String token, String location, String userName) {
-        try {
-            SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
-            if (prefs != null) {
-                SharedPreferences.Editor editor = prefs.edit();
-                
-                // Store location data with token as key
-                String locationData = String.format(Locale.US, "%s|%s|%d", 
-                    location, userName, System.currentTimeMillis());
-                
-                editor.putString("emergency_location_" + token, locationData);
-                editor.apply();
-                
-                Log.d(TAG, "Secure location data stored for token: " + token.substring(0, 4) + "****");
-                logSecurityEvent("SECURE_LOCATION_STORED", "Emergency location data secured");
-                
-                // Clean up old tokens (older than 24 hours)
-                cleanupExpiredLocationTokens(prefs);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error storing secure location data: " + e.getMessage());
-            logSecurityEvent("SECURE_LOCATION_ERROR", "Failed to store location data: " + e.getMessage());
-        }
+        storeSecureToken(SecureTokenStore.Kind.LOCATION, token, location, userName);
+        logSecurityEvent("SECURE_LOCATION_STORED", "Emergency location data secured");
     }
     
     /**
-     * Cleans up expired map tokens for security (12-hour expiry)
+     * Expired tokens are removed by SecureTokenStore on its own schedule, not here
      */
-    private void cleanupExpiredMapTokens(SharedPreferences prefs) {
+    private void storeSecureToken(SecureTokenStore.Kind kind, String token, String location, String userName) {
         try {
-            SharedPreferences.Editor editor = prefs.edit();
-            long currentTime = System.currentTimeMillis();
-            long expirationTime = 12 * 60 * 60 * 1000; // 12 hours for map tokens
-            
-            // Get all keys and check for expired emergency map tokens
-            for (String key : prefs.getAll().keySet()) {
-                if (key.startsWith("emergency_map_")) {
-                    String mapData = prefs.getString(key, "");
-                    if (!mapData.isEmpty()) {
-                        String[] parts = mapData.split("\\|");
-                        if (parts.length >= 3) {
-                            try {
-                                long timestamp = Long.parseLong(parts[2]);
-                                if (currentTime - timestamp > expirationTime) {
-                                    editor.remove(key);
-                                    Log.d(TAG, "Cleaned up expired map token (12hr expiry)");
-                                }
-                            } catch (NumberFormatException e) {
-                                // Invalid timestamp, remove the key
-                                editor.remove(key);
-                            }
-                        }
-                    }
-                }
+            SecureTokenStore store = SecureTokenStore.getInstance(context);
+            if (store != null) {
+                store.put(kind, token, location, userName);
+                Log.d(TAG, "Secure " + kind + " token stored: " + token.substring(0, 4) + "****");
             }
-            editor.apply();
         } catch (Exception e) {
-            Log.e(TAG, "Error during map token cleanup: " + e.getMessage());
+            Log.e(TAG, "Error storing secure token: " + e.getMessage());
+            logSecurityEvent("SECURE_TOKEN_ERROR", "Failed to store token: " + e.getMessage());
         }
     }
     
     /**
-     * Cleans up expired location tokens for security
+     * Best available location: last known fix first, then one high-accuracy update with a
+     * 3 second timeout. The callback gets null when there is none.
      */
-    private void cleanupExpiredLocationTokens(SharedPreferences prefs) {
-        try {
-            SharedPreferences.Editor editor = prefs.edit();
-            long currentTime = System.currentTimeMillis();
-            long expirationTime = 24 * 60 * 60 * 1000; // 24 hours
-            
-            // Get all keys and check for expired emergency location tokens
-            for (String key : prefs.getAll().keySet()) {
-                if (key.startsWith("emergency_location_")) {
-                    String locationData = prefs.getString(key, "");
-                    if (!locationData.isEmpty()) {
-                        String[] parts = locationData.split("\\|");
-                        if (parts.length >= 3) {
-                            try {
-                                long timestamp = Long.parseLong(parts[2]);
-                                if (currentTime - timestamp > expirationTime) {
-                                    editor.remove(key);
-                                    Log.d(TAG, "Cleaned up expired location token");
-                                }
-                            } catch (NumberFormatException e) {
-                                // Invalid timestamp, remove the key
-                                editor.remove(key);
-                            }
-                        }
-                    }
-                }
-            }
-            editor.apply();
-        } catch (Exception e) {
-            Log.e(TAG, "Error during token cleanup: " + e.getMessage());
-        }
-    }
-    
-    private void getCurrentLocation(Consumer<Location> callback) {
+    public void getCurrentLocation(Consumer<Location> callback) {
         // Check if location permission is granted
         if (ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED &&
             ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
@@ -654,7 +574,7 @@ public class SOSHelper {
         }
     }
     
-    private boolean sendSMS(String number, String message) {
+    private boolean sendSMS(String number, String message, long incidentId) {
         try {
             // Security logging - log the SMS attempt
             logSecurityEvent("SMS_ATTEMPT", "Attempting to send SMS to: " + maskNumber(number));
@@ -680,7 +600,7 @@ public class SOSHelper {
                 logSecurityEvent("SMS_APP_NOT_FOUND", "No SMS app, using direct send for: " + maskNumber(number));
                 
                 // Fallback to direct SMS sending if no SMS app is available
-                return sendSMSDirect(number, message);
+                return sendSMSDirect(number, message, incidentId);
             }
             
         } catch (Exception e) {
@@ -689,11 +609,11 @@ public class SOSHelper {
             
             // Fallback to direct SMS sending
             Log.d(TAG, "Falling back to direct SMS sending");
-            return sendSMSDirect(number, message);
+            return sendSMSDirect(number, message, incidentId);
         }
     }
     
-    private boolean sendSMSDirect(String number, String message) {
+    private boolean sendSMSDirect(String number, String message, long incidentId) {
         try {
             Log.d(TAG, "Starting direct SMS send to: " + maskNumber(number));
             
@@ -705,13 +625,8 @@ public class SOSHelper {
                 SmsManager smsManager = SmsManager.getDefault();
                 
                 // Create pending intents for delivery status
-                Intent sentIntent = new Intent(SMS_SENT_ACTION);
-                sentIntent.putExtra("phoneNumber", number);
-                PendingIntent sentPI = PendingIntent.getBroadcast(context, 0, sentIntent, PendingIntent.FLAG_IMMUTABLE);
-                
-                Intent deliveredIntent = new Intent(SMS_DELIVERED_ACTION);
-                deliveredIntent.putExtra("phoneNumber", number);
-                PendingIntent deliveredPI = PendingIntent.getBroadcast(context, 0, deliveredIntent, PendingIntent.FLAG_IMMUTABLE);
+                PendingIntent sentPI = smsStatusIntent(SMS_SENT_ACTION, number, incidentId);
+                PendingIntent deliveredPI = smsStatusIntent(SMS_DELIVERED_ACTION, number, incidentId);
                 
                 Log.d(TAG, "Sending SMS via SmsManager to: " + maskNumber(number));
                 
@@ -751,7 +666,7 @@ public class SOSHelper {
     public void testSMSSending(String testNumber) {
         Log.d(TAG, "Testing SMS sending to: " + maskNumber(testNumber));
         String testMessage = "Test SMS from BilaWoga Emergency App - " + new SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(new Date());
-        boolean result = sendSMSDirect(testNumber, testMessage);
+        boolean result = sendSMSDirect(testNumber, testMessage, 0);
         Log.d(TAG, "Test SMS result: " + result);
     }
     
@@ -784,24 +699,26 @@ public class SOSHelper {
                number.substring(0, 2) + "****" + number.substring(number.length() - 2) : "****";
     }
     
+    private PendingIntent smsStatusIntent(String action, String number, long incidentId) {
+        Intent intent = new Intent(action);
+        intent.setPackage(context.getPackageName());
+        intent.putExtra(EXTRA_INCIDENT_ID, incidentId);
+        intent.putExtra(EXTRA_CONTACT, maskNumber(number));
+        return PendingIntent.getBroadcast(context, SMS_REQUEST_CODES.incrementAndGet(), intent,
+                PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private void recordDelivery(long incidentId, String number, boolean queued) {
+        incidents().record(IncidentRecord.delivery(incidentId, System.currentTimeMillis(), maskNumber(number),
+                queued ? IncidentRecord.DeliveryStatus.QUEUED : IncidentRecord.DeliveryStatus.FAILED));
+    }
+
     private void logSecurityEvent(String event, String details) {
-        String log = String.format(Locale.US, "[%s] %s: %s\n",
-            new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date()),
-            event, details);
-            
-        try {
-            // Get the encrypted shared preferences
-            SharedPreferences prefs = SecureStorageManager.getEncryptedSharedPreferences(context);
-            if (prefs != null) {
-                // Append to the security log
-                String existingLogs = prefs.getString("security_log", "");
-                SharedPreferences.Editor editor = prefs.edit();
-                editor.putString("security_log", existingLogs + log);
-                editor.apply();
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error writing to security log: " + e.getMessage());
-        }
+        incidents().record(IncidentRecord.event(0, System.currentTimeMillis(), event, details));
+    }
+
+    private IncidentStore incidents() {
+        return IncidentStore.getInstance(context);
     }
     
     private void showToast(String message) {
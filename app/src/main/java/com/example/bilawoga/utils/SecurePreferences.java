@@ -0,0 +1,457 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.example.bilawoga.detection.AesGcmRecordCipher;
+import com.example.bilawoga.detection.KvLogStore;
+import com.example.bilawoga.detection.PrefValues;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * SECURE PREFERENCES
+ * SharedPreferences backed by an encrypted append-only log (KvLogStore) instead of
+ * EncryptedSharedPreferences, which re-encrypts and rewrites the whole XML file on every
+ * apply(). Here an edit appends one AES-GCM record holding just the changed keys, so a
+ * counter increment costs the same however much else is stored.
+ *
+ * Records are sealed with a software data key; only the data key is wrapped by the
+ * Android Keystore, so there is one Keystore operation per process instead of one per
+ * value. Values live in memory after open. Edits are atomic: one editor is one record.
+ * apply() hands the write to a background thread; commit() waits until it is on disk.
+ * Unlike the framework's SharedPreferences, nothing flushes pending apply() writes when
+ * an activity pauses or a service stops, so a process killed in between loses them.
+ * Anything that must survive a crash or a kill (crash and SOS bookkeeping) uses commit().
+ * Compaction runs on its own thread once the log is mostly dead records.
+ *
+ * Because everything on disk hangs off the one Keystore master key, destroyMasterKey()
+ * makes every store unreadable in a single Keystore call, whatever their size. See
+ * SecureStorageManager.secureWipeAllData().
+ */
+public class SecurePreferences implements SharedPreferences {
+    private static final String TAG = "SecurePreferences";
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String MASTER_KEY_ALIAS = "bilawoga_kv_master";
+    private static final String DATA_KEY_FILE = "data.key";
+
+    /** Every store opened in this process, so a wipe can reach the live instances. */
+    private static final Set<SecurePreferences> OPEN = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private final File dir;
+    private KvLogStore store;
+    private final Map<String, Object> values = new HashMap<>();
+    private final Set<OnSharedPreferenceChangeListener> listeners =
+            Collections.newSetFromMap(new WeakHashMap<>());
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private SecurePreferences(File dir, KvLogStore store) {
+        this.dir = dir;
+        this.store = store;
+        for (Map.Entry<String, byte[]> e : store.snapshot().entrySet()) {
+            try {
+                values.put(e.getKey(), PrefValues.decode(e.getValue()));
+            } catch (RuntimeException ex) {
+                Log.e(TAG, "Skipping unreadable value for " + e.getKey() + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Open (or create) the store in the app's no-backup directory. The Keystore key does
+     * not leave the device, so neither should the files it protects.
+     */
+    public static SecurePreferences open(Context context, String name) throws IOException, GeneralSecurityException {
+        File dir = new File(context.getNoBackupFilesDir(), name);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        SecurePreferences prefs = new SecurePreferences(dir, openStore(dir));
+        synchronized (OPEN) {
+            OPEN.add(prefs);
+        }
+        return prefs;
+    }
+
+    private static KvLogStore openStore(File dir) throws IOException, GeneralSecurityException {
+        return new KvLogStore(dir, new AesGcmRecordCipher(openDataKey(dir)));
+    }
+
+    /**
+     * The data key for the files in {@code dir}, created on first use and wrapped by the
+     * master key. Other encrypted stores use this too, so a wipe treats their directory
+     * like any store: isStoreDir() is true and destroyMasterKey() shreds it.
+     */
+    static SecretKey openDataKey(File dir) throws IOException, GeneralSecurityException {
+        File keyFile = new File(dir, DATA_KEY_FILE);
+        if (keyFile.exists() && !masterKeyExists()) {
+            // Left by a wipe that was interrupted after the key went; nothing here is readable
+            Log.w(TAG, "Discarding " + dir.getName() + ": its master key was destroyed");
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    if (!f.delete()) {
+                        throw new IOException("Cannot delete " + f.getName());
+                    }
+                }
+            }
+        }
+        return loadOrCreateDataKey(keyFile);
+    }
+
+    /** Whether {@code dir} holds a store, i.e. is something open() created. */
+    static boolean isStoreDir(File dir) {
+        return new File(dir, DATA_KEY_FILE).isFile();
+    }
+
+    static List<SecurePreferences> openInstances() {
+        synchronized (OPEN) {
+            return new ArrayList<>(OPEN);
+        }
+    }
+
+    /**
+     * Delete the Keystore master key. Every data key on disk was wrapped by it, so every
+     * store's files become unreadable at once; the next open() creates a new master key.
+     */
+    static void destroyMasterKey() throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+        if (keyStore.containsAlias(MASTER_KEY_ALIAS)) {
+            keyStore.deleteEntry(MASTER_KEY_ALIAS);
+        }
+    }
+
+    /**
+     * Drop every value and carry on with a new, empty store in the same directory. The
+     * caller has already moved the old files out of the way. Returns the old store, still
+     * open, for the caller to close off the calling thread (it may be mid-write).
+     */
+    KvLogStore reopenEmpty() {
+        List<String> removedKeys;
+        KvLogStore old;
+        synchronized (this) {
+            removedKeys = new ArrayList<>(values.keySet());
+            values.clear();
+            old = store;
+            store = null;
+            try {
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("Cannot create " + dir);
+                }
+                store = openStore(dir);
+            } catch (IOException | GeneralSecurityException e) {
+                // Edits are kept in memory only until the app reopens the store
+                Log.e(TAG, "Cannot reopen " + dir.getName() + " after wipe: " + e.getMessage());
+            }
+        }
+        notifyListeners(removedKeys);
+        return old;
+    }
+
+    private static SecretKey loadOrCreateDataKey(File keyFile) throws IOException, GeneralSecurityException {
+        AesGcmRecordCipher wrapper = new AesGcmRecordCipher(getOrCreateMasterKey());
+        byte[] aad = keyFile.getName().getBytes(StandardCharsets.UTF_8);
+        if (keyFile.exists()) {
+            return new SecretKeySpec(wrapper.open(Files.readAllBytes(keyFile.toPath()), aad), "AES");
+        }
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        SecretKey dataKey = generator.generateKey();
+        File temp = new File(keyFile.getPath() + ".tmp");
+        Files.write(temp.toPath(), wrapper.seal(dataKey.getEncoded(), aad));
+        if (!temp.renameTo(keyFile)) {
+            throw new IOException("Cannot store data key");
+        }
+        return dataKey;
+    }
+
+    private static boolean masterKeyExists() throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+        return keyStore.containsAlias(MASTER_KEY_ALIAS);
+    }
+
+    private static SecretKey getOrCreateMasterKey() throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+        if (keyStore.containsAlias(MASTER_KEY_ALIAS)) {
+            return (SecretKey) keyStore.getKey(MASTER_KEY_ALIAS, null);
+        }
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(MASTER_KEY_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(256)
+                .build());
+        return generator.generateKey();
+    }
+
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        Map<String, Object> copy = new HashMap<>(values.size());
+        for (Map.Entry<String, Object> e : values.entrySet()) {
+            Object v = e.getValue();
+            copy.put(e.getKey(), v instanceof Set ? new HashSet<>((Set<?>) v) : v);
+        }
+        return copy;
+    }
+
+    @Nullable
+    @Override
+    public synchronized String getString(String key, @Nullable String defValue) {
+        Object v = values.get(key);
+        return v != null ? (String) v : defValue;
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized Set<String> getStringSet(String key, @Nullable Set<String> defValues) {
+        Object v = values.get(key);
+        return v != null ? new HashSet<>((Set<String>) v) : defValues;
+    }
+
+    @Override
+    public synchronized int getInt(String key, int defValue) {
+        Object v = values.get(key);
+        return v != null ? (Integer) v : defValue;
+    }
+
+    @Override
+    public synchronized long getLong(String key, long defValue) {
+        Object v = values.get(key);
+        return v != null ? (Long) v : defValue;
+    }
+
+    @Override
+    public synchronized float getFloat(String key, float defValue) {
+        Object v = values.get(key);
+        return v != null ? (Float) v : defValue;
+    }
+
+    @Override
+    public synchronized boolean getBoolean(String key, boolean defValue) {
+        Object v = values.get(key);
+        return v != null ? (Boolean) v : defValue;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public Editor edit() {
+        return new SecureEditor();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (listeners) {
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (listeners) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Apply an editor's changes to memory and queue its record, in one step so the log
+     * order matches the order callers observed.
+     */
+    private synchronized Runnable commitToMemory(boolean clear, Map<String, Object> changes,
+                                                 List<String> changedKeys, boolean[] result, boolean sync) {
+        KvLogStore.Batch batch = new KvLogStore.Batch();
+        if (clear && !values.isEmpty()) {
+            values.clear();
+            batch.clear();
+        }
+        for (Map.Entry<String, Object> e : changes.entrySet()) {
+            String key = e.getKey();
+            Object v = e.getValue();
+            if (v == null) {
+                if (values.remove(key) != null) {
+                    batch.remove(key);
+                    changedKeys.add(key);
+                }
+            } else {
+                Object stored = v instanceof Set ? new HashSet<>((Set<?>) v) : v;
+                if (!stored.equals(values.put(key, stored))) {
+                    batch.put(key, PrefValues.encode(stored));
+                    changedKeys.add(key);
+                }
+            }
+        }
+        // Bound now: after a wipe, records queued for the old store must not reach the new one
+        KvLogStore target = store;
+        return () -> {
+            if (target == null) {
+                Log.e(TAG, "Failed to write preferences: store unavailable");
+                return;
+            }
+            try {
+                target.write(batch, sync);
+                result[0] = true;
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write preferences: " + e.getMessage());
+            }
+            if (target.needsCompaction()) {
+                compactor.execute(() -> compact(target));
+            }
+        };
+    }
+
+    private void compact(KvLogStore target) {
+        try {
+            long before = target.getDiskBytes();
+            if (target.compact()) {
+                Log.d(TAG, "Compacted " + before + " -> " + target.getDiskBytes() + " bytes");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Compaction failed: " + e.getMessage());
+        }
+    }
+
+    private void notifyListeners(List<String> changedKeys) {
+        if (changedKeys.isEmpty()) return;
+        List<OnSharedPreferenceChangeListener> snapshot;
+        synchronized (listeners) {
+            if (listeners.isEmpty()) return;
+            snapshot = new ArrayList<>(listeners);
+        }
+        mainHandler.post(() -> {
+            for (String key : changedKeys) {
+                for (OnSharedPreferenceChangeListener l : snapshot) {
+                    l.onSharedPreferenceChanged(this, key);
+                }
+            }
+        });
+    }
+
+    private final class SecureEditor implements Editor {
+        private final Map<String, Object> changes = new HashMap<>();
+        private boolean clear;
+
+        @Override
+        public synchronized Editor putString(String key, @Nullable String value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putStringSet(String key, @Nullable Set<String> values) {
+            changes.put(key, values == null ? null : new HashSet<>(values));
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putInt(String key, int value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putLong(String key, long value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putFloat(String key, float value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putBoolean(String key, boolean value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor remove(String key) {
+            changes.put(key, null);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            List<String> changedKeys = new ArrayList<>();
+            boolean[] result = new boolean[1];
+            Future<?> pending;
+            synchronized (this) {
+                pending = queue(changedKeys, result, true);
+            }
+            try {
+                pending.get();
+            } catch (Exception e) {
+                Log.e(TAG, "Commit interrupted: " + e.getMessage());
+                return false;
+            }
+            notifyListeners(changedKeys);
+            return result[0];
+        }
+
+        /** Visible to readers at once; lost if the process dies before the write thread runs. */
+        @Override
+        public void apply() {
+            List<String> changedKeys = new ArrayList<>();
+            synchronized (this) {
+                queue(changedKeys, new boolean[1], false);
+            }
+            notifyListeners(changedKeys);
+        }
+
+        private Future<?> queue(List<String> changedKeys, boolean[] result, boolean sync) {
+            Future<?> pending;
+            // The writer queue must see records in memory order, so queue under the same lock
+            synchronized (SecurePreferences.this) {
+                pending = writer.submit(commitToMemory(clear, changes, changedKeys, result, sync));
+            }
+            changes.clear();
+            clear = false;
+            return pending;
+        }
+    }
+}
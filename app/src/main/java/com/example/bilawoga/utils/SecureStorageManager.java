@@ -7,6 +7,7 @@ import android.content.pm.PackageManager;
 import android.content.pm.Signature;
 import android.content.pm.SigningInfo;
 import android.os.Build;
+import android.os.SystemClock;
 import android.security.keystore.KeyGenParameterSpec;
 import android.util.Base64;
 import android.util.Log;
@@ -14,59 +15,250 @@ import android.util.Log;
 import androidx.security.crypto.EncryptedSharedPreferences;
 import androidx.security.crypto.MasterKey;
 
+import com.example.bilawoga.BuildConfig;
+
+import com.example.bilawoga.detection.KvLogStore;
+
+import java.io.File;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SecureStorageManager {
 
     private static final String TAG = "SecureStorageManager";
     private static final String PREFS_FILE_NAME = "secure_prefs";
+    /** Directory of the log-structured store that replaced the secure_prefs XML file. */
+    private static final String STORE_NAME = "secure_kv";
+    /** Set in the migration batch; if present, the legacy file only needs deleting. */
+    private static final String MIGRATED_FLAG = "__migrated_" + PREFS_FILE_NAME;
+    /** Written into the emptied store by a panic wipe; stops automatic cloud restores. */
+    private static final String WIPED_FLAG = "__wiped";
+    /** Renamed-away data waiting for deletion after a wipe, under the no-backup directory. */
+    private static final String WIPE_DIR = ".wipe";
+    /** Unencrypted data under the files directory that a wipe removes. */
+    private static final String[] PLAIN_DATA_FILES = {
+            EvidenceUploader.MANIFEST_DIR,
+            EvidenceRecorder.EVIDENCE_DIR,
+            SensorTraceRecorder.TRACE_DIR,
+            PredictiveThreatDetector.HISTORY_FILE
+    };
+    private static final ExecutorService WIPE_EXECUTOR = Executors.newSingleThreadExecutor();
     private static SharedPreferences encryptedSharedPreferences;
 
+    /**
+     * The app's encrypted preferences. Opened once per process; later calls are a field
+     * read. Returns null if the store cannot be opened securely.
+     */
     public static synchronized SharedPreferences getEncryptedSharedPreferences(Context context) {
+        if (encryptedSharedPreferences != null) {
+            return encryptedSharedPreferences;
+        }
         try {
             if (context == null) {
                 Log.e(TAG, "Context is null, cannot create encrypted preferences");
                 return null;
             }
 
+            SecurePreferences prefs = SecurePreferences.open(context.getApplicationContext(), STORE_NAME);
+            migrateLegacyPreferences(context.getApplicationContext(), prefs);
+            purgeWipeDir(context.getApplicationContext());
+            encryptedSharedPreferences = prefs;
+            Log.d(TAG, "Encrypted preferences opened successfully");
+            return encryptedSharedPreferences;
+        } catch (GeneralSecurityException | IOException e) {
+            Log.e(TAG, "CRITICAL SECURITY ERROR: Unable to create encrypted preferences. Sensitive data will NOT be stored. App cannot proceed securely. Error: " + e.getMessage());
+            return null;
+        } catch (Exception e) {
+            Log.e(TAG, "Unexpected error creating encrypted preferences: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * One-time copy of the old EncryptedSharedPreferences file into the new store. The
+     * copy and the migrated flag go in one batch, so a crash leaves either nothing or
+     * everything; the legacy file is deleted only after that batch is on disk.
+     */
+    private static void migrateLegacyPreferences(Context context, SecurePreferences prefs)
+            throws GeneralSecurityException, IOException {
+        File legacy = new File(context.getDataDir(), "shared_prefs/" + PREFS_FILE_NAME + ".xml");
+        if (!legacy.exists()) {
+            return;
+        }
+        if (!prefs.contains(MIGRATED_FLAG)) {
             MasterKey masterKey = new MasterKey.Builder(context)
                     .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
                     .build();
-
-            SharedPreferences encryptedPrefs = EncryptedSharedPreferences.create(
+            SharedPreferences old = EncryptedSharedPreferences.create(
                     context,
                     PREFS_FILE_NAME,
                     masterKey,
                     EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
                     EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
             );
-            Log.d(TAG, "Encrypted SharedPreferences created successfully");
-            return encryptedPrefs;
-        } catch (GeneralSecurityException | IOException e) {
-            Log.e(TAG, "CRITICAL SECURITY ERROR: Unable to create encrypted preferences. Sensitive data will NOT be stored. App cannot proceed securely. Error: " + e.getMessage());
-            return null;
-        } catch (Exception e) {
-            Log.e(TAG, "Unexpected error creating encrypted preferences: " + e.getMessage());
-            return null;
+            SharedPreferences.Editor editor = prefs.edit();
+            int count = 0;
+            for (Map.Entry<String, ?> e : old.getAll().entrySet()) {
+                Object v = e.getValue();
+                if (v instanceof String) editor.putString(e.getKey(), (String) v);
+                else if (v instanceof Integer) editor.putInt(e.getKey(), (Integer) v);
+                else if (v instanceof Long) editor.putLong(e.getKey(), (Long) v);
+                else if (v instanceof Float) editor.putFloat(e.getKey(), (Float) v);
+                else if (v instanceof Boolean) editor.putBoolean(e.getKey(), (Boolean) v);
+                else if (v instanceof Set) {
+                    @SuppressWarnings("unchecked")
+                    Set<String> set = (Set<String>) v;
+                    editor.putStringSet(e.getKey(), set);
+                } else {
+                    continue;
+                }
+                count++;
+            }
+            editor.putBoolean(MIGRATED_FLAG, true);
+            if (!editor.commit()) {
+                throw new IOException("Could not write migrated preferences");
+            }
+            Log.d(TAG, "Migrated " + count + " entries from " + PREFS_FILE_NAME);
         }
+        context.deleteSharedPreferences(PREFS_FILE_NAME);
     }
 
-    // NEW METHOD: Securely wipe all stored data
+    /**
+     * Securely wipe all stored data, in time that does not grow with the amount stored:
+     * 1. destroy the Keystore master key that wraps every store's data key, so what is on
+     *    disk can no longer be decrypted;
+     * 2. rename the store directories and the other data files into a wipe directory,
+     *    one rename each;
+     * 3. give every open store a new, empty log under a new key, so code holding the
+     *    preferences keeps working.
+     * The renamed files are deleted in the background, or on the next start if the
+     * process dies first.
+     *
+     * This is the panic wipe: it also cancels the queued backup, restore and evidence upload work, deletes
+     * the cloud backup and evidence Keystore keys, and leaves a marker (wasWiped()) so the
+     * cloud copy is never restored automatically afterwards.
+     */
     public static void secureWipeAllData(Context context) {
+        secureWipeAllData(context, false);
+    }
+
+    /**
+     * @param keepBackup for logging out after "Back up to cloud": the queued upload, the
+     *                   backup key it needs to be restored on this device and automatic
+     *                   restore are all left in place; everything else is wiped
+     */
+    public static void secureWipeAllData(Context context, boolean keepBackup) {
+        long start = SystemClock.elapsedRealtime();
+        Context app = context.getApplicationContext();
+        // First, so no queued worker runs against the data while it goes
+        ProfileBackupQueue.forgetAll(app, keepBackup);
         try {
-            SharedPreferences prefs = getEncryptedSharedPreferences(context);
-            if (prefs != null) {
-                SharedPreferences.Editor editor = prefs.edit();
-                editor.clear();
-                editor.apply();
-                Log.d(TAG, "All encrypted data securely wiped");
+            SecurePreferences.destroyMasterKey();
+        } catch (GeneralSecurityException | IOException e) {
+            // Carry on: the files are still moved out of reach and deleted
+            Log.e(TAG, "Error destroying master key: " + e.getMessage());
+        }
+
+        File wipeDir = new File(app.getNoBackupFilesDir(), WIPE_DIR);
+        List<File> toDelete = new ArrayList<>();
+        toDelete.add(wipeDir);
+        File[] stores = app.getNoBackupFilesDir().listFiles(SecurePreferences::isStoreDir);
+        if (stores != null) {
+            for (File store : stores) {
+                moveToWipeDir(wipeDir, store, toDelete);
+            }
+        }
+        for (String name : PLAIN_DATA_FILES) {
+            File file = new File(app.getFilesDir(), name);
+            if (file.exists()) {
+                moveToWipeDir(wipeDir, file, toDelete);
             }
+        }
+
+        List<KvLogStore> oldStores = new ArrayList<>();
+        for (SecurePreferences prefs : SecurePreferences.openInstances()) {
+            oldStores.add(prefs.reopenEmpty());
+        }
+        SecureTokenStore.forgetAll();
+        IncidentStore.forgetAll();
+        try {
+            EvidenceUploader.forgetAll(app);
         } catch (Exception e) {
-            Log.e(TAG, "Error wiping data: " + e.getMessage());
+            Log.e(TAG, "Error deleting evidence key: " + e.getMessage());
+        }
+        if (!keepBackup) {
+            try {
+                CloudBackupCrypto.destroyKey();
+            } catch (Exception e) {
+                Log.e(TAG, "Error deleting backup key: " + e.getMessage());
+            }
+            SharedPreferences prefs = getEncryptedSharedPreferences(app);
+            if (prefs == null || !prefs.edit().putBoolean(WIPED_FLAG, true).commit()) {
+                Log.e(TAG, "Could not record the wipe; a cloud restore may still run");
+            }
+        }
+        Log.d(TAG, "All data wiped in " + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        WIPE_EXECUTOR.execute(() -> {
+            for (KvLogStore store : oldStores) {
+                if (store == null) continue;
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Error closing wiped store: " + e.getMessage());
+                }
+            }
+            for (File file : toDelete) {
+                deleteRecursively(file);
+            }
+            Log.d(TAG, "Wiped files deleted");
+        });
+    }
+
+    /** Whether the data here was panic-wiped, i.e. must not come back from the cloud on its own. */
+    public static boolean wasWiped(Context context) {
+        SharedPreferences prefs = getEncryptedSharedPreferences(context);
+        return prefs != null && prefs.getBoolean(WIPED_FLAG, false);
+    }
+
+    private static void moveToWipeDir(File wipeDir, File file, List<File> toDelete) {
+        if (!wipeDir.isDirectory() && !wipeDir.mkdirs()) {
+            toDelete.add(file);
+            return;
+        }
+        File target = new File(wipeDir, System.nanoTime() + "_" + file.getName());
+        if (!file.renameTo(target)) {
+            // Not renamed; it is still deleted, just not out of sight first
+            toDelete.add(file);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            Log.e(TAG, "Could not delete " + file.getName());
+        }
+    }
+
+    /** Deletes what an interrupted wipe left behind. */
+    private static void purgeWipeDir(Context context) {
+        File wipeDir = new File(context.getNoBackupFilesDir(), WIPE_DIR);
+        if (wipeDir.exists()) {
+            WIPE_EXECUTOR.execute(() -> deleteRecursively(wipeDir));
         }
     }
 
@@ -102,15 +294,14 @@ public class SecureStorageManager {
         return false;
     }
 
-    // Tamper detection: root/emulator
+    // Tamper detection: root/emulator. Probes the file system; use IntegrityService for
+    // the cached verdict
     public static boolean isDeviceTampered() {
         try {
-            // Root check: su binary
-            String[] paths = {"/system/bin/su", "/system/xbin/su", "/sbin/su"};
-            for (String path : paths) {
-                if (new java.io.File(path).exists()) return true;
-            }
-            // Emulator check
+            // Benchmark builds run on the managed AOSP emulator, which is rooted for
+            // profile collection: neither probe means anything there
+            if (BuildConfig.ALLOW_EMULATOR) return false;
+            if (hasSuBinary()) return true;
             String fingerprint = android.os.Build.FINGERPRINT;
             String model = android.os.Build.MODEL;
             String product = android.os.Build.PRODUCT;
@@ -123,7 +314,27 @@ public class SecureStorageManager {
             return false;
         }
     }
-    // App integrity check: signature
+    // Root check: su binary or Superuser app
+    static boolean hasSuBinary() {
+        String[] paths = {
+            "/system/app/Superuser.apk",
+            "/sbin/su",
+            "/system/bin/su",
+            "/system/xbin/su",
+            "/data/local/xbin/su",
+            "/data/local/bin/su",
+            "/system/sd/xbin/su",
+            "/system/bin/failsafe/su",
+            "/data/local/su"
+        };
+        for (String path : paths) {
+            if (new java.io.File(path).exists()) return true;
+        }
+        return false;
+    }
+
+    // App integrity check: signature. Hashes the signing certificate; use IntegrityService
+    // for the cached verdict
     public static boolean checkAppIntegrity(Context context) {
         try {
             String expected = BuildConfig.SIGNATURE_SHA256; // Define per build type
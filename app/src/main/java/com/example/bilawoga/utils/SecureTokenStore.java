@@ -0,0 +1,251 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.bilawoga.detection.ExpiryIndex;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SECURE TOKEN STORE
+ * Short-lived map and location tokens handed out in SOS messages. They live in their own
+ * encrypted store ("secure_tokens") with an in-memory ExpiryIndex over it, so storing a
+ * token is one record append, looking one up is a hash probe, and expired tokens are
+ * removed by a task scheduled for the earliest expiry instead of a scan of every stored
+ * preference on each write.
+ */
+public class SecureTokenStore {
+    private static final String TAG = "SecureTokenStore";
+    private static final String STORE_NAME = "secure_tokens";
+    /** Set once tokens left in the main preferences by older versions are moved here. */
+    private static final String LEGACY_MIGRATED_FLAG = "__migrated_legacy_tokens";
+
+    private static SecureTokenStore instance;
+
+    public enum Kind {
+        MAP("emergency_map_", TimeUnit.HOURS.toMillis(12)),
+        LOCATION("emergency_location_", TimeUnit.HOURS.toMillis(24));
+
+        final String prefix;
+        final long ttlMillis;
+
+        Kind(String prefix, long ttlMillis) {
+            this.prefix = prefix;
+            this.ttlMillis = ttlMillis;
+        }
+    }
+
+    /** What a token resolves to. */
+    public static final class TokenData {
+        public final String location;
+        public final String userName;
+        public final long createdMillis;
+
+        TokenData(String location, String userName, long createdMillis) {
+            this.location = location;
+            this.userName = userName;
+            this.createdMillis = createdMillis;
+        }
+    }
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final ExpiryIndex<TokenData> index = new ExpiryIndex<>();
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor();
+    private ScheduledFuture<?> pendingCleanup;
+    private long pendingCleanupAt = Long.MAX_VALUE;
+
+    private SecureTokenStore(Context context) throws IOException, GeneralSecurityException {
+        this.context = context;
+        prefs = SecurePreferences.open(context, STORE_NAME);
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, ?> e : prefs.getAll().entrySet()) {
+            if (e.getValue() instanceof String) {
+                load(e.getKey(), (String) e.getValue(), now);
+            }
+        }
+        cleaner.execute(this::migrateLegacyTokens);
+        synchronized (this) {
+            scheduleCleanup();
+        }
+    }
+
+    /**
+     * The shared store, or null if it cannot be opened securely. The first call opens the
+     * store and reads it into memory; later calls are a field read.
+     */
+    public static synchronized SecureTokenStore getInstance(Context context) {
+        if (instance == null) {
+            try {
+                instance = new SecureTokenStore(context.getApplicationContext());
+            } catch (GeneralSecurityException | IOException e) {
+                Log.e(TAG, "Unable to open token store: " + e.getMessage());
+                return null;
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Drop the in-memory index after a wipe. The store's files are handled by
+     * SecureStorageManager.secureWipeAllData().
+     */
+    static synchronized void forgetAll() {
+        if (instance == null) {
+            return;
+        }
+        synchronized (instance) {
+            instance.index.clear();
+            instance.scheduleCleanup();
+        }
+    }
+
+    /** Store a token for its kind's lifetime. */
+    public synchronized void put(Kind kind, String token, String location, String userName) {
+        long now = System.currentTimeMillis();
+        TokenData data = new TokenData(location, userName, now);
+        long expiresAt = now + kind.ttlMillis;
+        index.put(kind.prefix + token, data, expiresAt);
+        prefs.edit().putString(kind.prefix + token, encode(data, expiresAt)).apply();
+        if (expiresAt < pendingCleanupAt) {
+            scheduleCleanup();
+        }
+    }
+
+    /** The token's data, or null if it is unknown or has expired. */
+    public synchronized TokenData get(Kind kind, String token) {
+        return index.get(kind.prefix + token, System.currentTimeMillis());
+    }
+
+    public synchronized void remove(Kind kind, String token) {
+        if (index.remove(kind.prefix + token) != null) {
+            prefs.edit().remove(kind.prefix + token).apply();
+        }
+    }
+
+    private synchronized void removeExpired() {
+        pendingCleanup = null;
+        pendingCleanupAt = Long.MAX_VALUE;
+        List<ExpiryIndex.Entry<TokenData>> expired = index.removeExpired(System.currentTimeMillis());
+        if (!expired.isEmpty()) {
+            SharedPreferences.Editor editor = prefs.edit();
+            for (ExpiryIndex.Entry<TokenData> entry : expired) {
+                editor.remove(entry.token);
+            }
+            editor.apply();
+            Log.d(TAG, "Removed " + expired.size() + " expired tokens");
+        }
+        scheduleCleanup();
+    }
+
+    /** (Re)arm the cleanup task for the earliest expiry. Caller holds the lock. */
+    private void scheduleCleanup() {
+        long next = index.nextExpiryMillis();
+        if (next == pendingCleanupAt) {
+            return;
+        }
+        if (pendingCleanup != null) {
+            pendingCleanup.cancel(false);
+            pendingCleanup = null;
+        }
+        pendingCleanupAt = next;
+        if (next != Long.MAX_VALUE) {
+            long delay = Math.max(0, next - System.currentTimeMillis());
+            pendingCleanup = cleaner.schedule(this::removeExpired, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Older versions kept tokens in the main encrypted preferences and swept them on every
+     * write. Move the live ones here and drop the rest, once.
+     */
+    private void migrateLegacyTokens() {
+        if (prefs.getBoolean(LEGACY_MIGRATED_FLAG, false)) {
+            return;
+        }
+        try {
+            SharedPreferences main = SecureStorageManager.getEncryptedSharedPreferences(context);
+            if (main == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            SharedPreferences.Editor mainEditor = main.edit();
+            int moved = 0;
+            for (Map.Entry<String, ?> e : main.getAll().entrySet()) {
+                Kind kind = kindOf(e.getKey());
+                if (kind == null) {
+                    continue;
+                }
+                mainEditor.remove(e.getKey());
+                if (!(e.getValue() instanceof String)) {
+                    continue;
+                }
+                // Legacy format: location|userName|createdMillis
+                String[] parts = ((String) e.getValue()).split("\\|");
+                if (parts.length < 3) {
+                    continue;
+                }
+                try {
+                    long created = Long.parseLong(parts[parts.length - 1]);
+                    long expiresAt = created + kind.ttlMillis;
+                    if (expiresAt > now) {
+                        TokenData data = new TokenData(parts[0], parts[1], created);
+                        synchronized (this) {
+                            index.put(e.getKey(), data, expiresAt);
+                            prefs.edit().putString(e.getKey(), encode(data, expiresAt)).apply();
+                        }
+                        moved++;
+                    }
+                } catch (NumberFormatException ignored) {
+                    // Unreadable timestamp; the token is dropped
+                }
+            }
+            prefs.edit().putBoolean(LEGACY_MIGRATED_FLAG, true).apply();
+            mainEditor.apply();
+            synchronized (this) {
+                scheduleCleanup();
+            }
+            Log.d(TAG, "Moved " + moved + " legacy tokens");
+        } catch (Exception e) {
+            Log.e(TAG, "Error migrating legacy tokens: " + e.getMessage());
+        }
+    }
+
+    private void load(String key, String stored, long now) {
+        // Stored format: expiresAtMillis|createdMillis|location|userName
+        String[] parts = stored.split("\\|", 4);
+        try {
+            long expiresAt = Long.parseLong(parts[0]);
+            if (parts.length == 4 && expiresAt > now) {
+                index.put(key, new TokenData(parts[2], parts[3], Long.parseLong(parts[1])), expiresAt);
+                return;
+            }
+        } catch (NumberFormatException ignored) {
+            // Unreadable; dropped below
+        }
+        prefs.edit().remove(key).apply();
+    }
+
+    private static String encode(TokenData data, long expiresAt) {
+        return String.format(Locale.US, "%d|%d|%s|%s", expiresAt, data.createdMillis, data.location, data.userName);
+    }
+
+    private static Kind kindOf(String key) {
+        for (Kind kind : Kind.values()) {
+            if (key.startsWith(kind.prefix)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+}
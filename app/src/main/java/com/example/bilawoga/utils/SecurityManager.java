@@ -11,6 +11,8 @@ import android.widget.Toast;
 import androidx.annotation.RequiresApi;
 import androidx.fragment.app.FragmentActivity;
 
+import com.example.bilawoga.detection.IntegrityVerdict;
+
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
@@ -221,10 +223,14 @@ public class SecurityManager {
                 return true;
             }
             
-            // Check if app is installed from unknown sources
-            // This would check installation source
-            
-            return false;
+            // Root, emulator and signature verdict; cached, never probes here
+            IntegrityService integrity = IntegrityService.getInstance(context);
+            IntegrityVerdict verdict = integrity.current();
+            if (verdict == null) {
+                integrity.verifyAsync();
+                return false;
+            }
+            return !verdict.isTrusted();
         } catch (Exception e) {
             Log.e(TAG, "Error detecting tampering: " + e.getMessage());
             return false;
@@ -233,14 +239,14 @@ public class SecurityManager {
     
     public void secureWipeData() {
         try {
-            // Securely wipe sensitive data
+            // Encrypted stores and data files: crypto-shredded, see SecureStorageManager
+            SecureStorageManager.secureWipeAllData(context);
+            
+            // Stealth and biometric settings; a small plain file, cleared directly
             SharedPreferences.Editor editor = securePrefs.edit();
             editor.clear();
             editor.apply();
             
-            // Clear other sensitive data
-            // This would clear all stored sensitive information
-            
             Log.d(TAG, "Secure data wipe completed");
         } catch (Exception e) {
             Log.e(TAG, "Error during secure wipe: " + e.getMessage());
@@ -252,29 +252,11 @@ public class SecurityUtils {
     }
     
     /**
-     * SECURITY: Check if device is rooted (basic check)
+     * SECURITY: Check if device is rooted (basic check). Probes the file system on every
+     * call; IntegrityService has the cached verdict
      */
     public static boolean isDeviceRooted() {
-        // Basic root detection - in production, use more sophisticated methods
-        String[] paths = {
-            "/system/app/Superuser.apk",
-            "/sbin/su",
-            "/system/bin/su",
-            "/system/xbin/su",
-            "/data/local/xbin/su",
-            "/data/local/bin/su",
-            "/system/sd/xbin/su",
-            "/system/bin/failsafe/su",
-            "/data/local/su"
-        };
-        
-        for (String path : paths) {
-            if (new java.io.File(path).exists()) {
-                return true;
-            }
-        }
-        
-        return false;
+        return SecureStorageManager.hasSuBinary();
     }
     
     /**
@@ -0,0 +1,174 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.bilawoga.detection.SensorTraceFormat;
+import com.example.bilawoga.detection.SensorTraceWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * SENSOR TRACE RECORDER
+ * Records accelerometer, gyroscope and magnetometer streams to compact delta-encoded
+ * traces in filesDir/sensor_traces, for replaying the motion detectors off-device
+ * (throughput benchmarks, false-trigger regression on labelled recordings).
+ *
+ * Sensor events are delivered and written on a dedicated thread, never the main thread.
+ * Recording stops by itself after the requested duration.
+ */
+public class SensorTraceRecorder implements SensorEventListener {
+    private static final String TAG = "SensorTraceRecorder";
+    static final String TRACE_DIR = "sensor_traces";
+    private static final long DEFAULT_MAX_DURATION_MS = 30 * 60 * 1000;
+
+    private static SensorTraceRecorder instance;
+
+    private final Context context;
+    private final SensorManager sensorManager;
+    private HandlerThread thread;
+    private Handler handler;
+    private SensorTraceWriter writer;
+    private File currentFile;
+    private boolean recording = false;
+
+    private final Runnable stopRunnable = this::stop;
+
+    private SensorTraceRecorder(Context context) {
+        this.context = context.getApplicationContext();
+        this.sensorManager = (SensorManager) this.context.getSystemService(Context.SENSOR_SERVICE);
+    }
+
+    public static synchronized SensorTraceRecorder getInstance(Context context) {
+        if (instance == null) {
+            instance = new SensorTraceRecorder(context);
+        }
+        return instance;
+    }
+
+    public File getTraceDir() {
+        File dir = new File(context.getFilesDir(), TRACE_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Could not create trace directory");
+        }
+        return dir;
+    }
+
+    /**
+     * Start recording with the default 30 minute limit.
+     *
+     * @param label short scenario name kept in the file name, e.g. "walking", "bus", "sos"
+     */
+    public File start(String label) {
+        return start(label, DEFAULT_MAX_DURATION_MS);
+    }
+
+    public synchronized File start(String label, long maxDurationMs) {
+        if (recording) return currentFile;
+        if (sensorManager == null) {
+            Log.e(TAG, "Sensor manager not available");
+            return null;
+        }
+
+        String stamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        String safeLabel = label == null ? "unlabelled" : label.replaceAll("[^A-Za-z0-9_-]", "_");
+        currentFile = new File(getTraceDir(), "trace_" + stamp + "_" + safeLabel + SensorTraceFormat.FILE_EXTENSION);
+
+        thread = new HandlerThread("Sensor Trace Recorder");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        recording = true;
+
+        register(Sensor.TYPE_ACCELEROMETER);
+        register(Sensor.TYPE_GYROSCOPE);
+        register(Sensor.TYPE_MAGNETIC_FIELD);
+        handler.postDelayed(stopRunnable, maxDurationMs);
+
+        Log.d(TAG, "Recording sensor trace to " + currentFile.getName());
+        return currentFile;
+    }
+
+    public synchronized void stop() {
+        if (!recording) return;
+        recording = false;
+        sensorManager.unregisterListener(this);
+
+        final Handler h = handler;
+        final HandlerThread t = thread;
+        h.removeCallbacks(stopRunnable);
+        // Close on the recording thread so no event is mid-write
+        h.post(() -> {
+            closeWriter();
+            t.quitSafely();
+        });
+        handler = null;
+        thread = null;
+        Log.d(TAG, "Sensor trace recording stopped");
+    }
+
+    public synchronized boolean isRecording() {
+        return recording;
+    }
+
+    public List<File> listTraces() {
+        File[] files = getTraceDir().listFiles((dir, name) -> name.endsWith(SensorTraceFormat.FILE_EXTENSION));
+        if (files == null) return new ArrayList<>();
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    private void register(int type) {
+        Sensor sensor = sensorManager.getDefaultSensor(type);
+        if (sensor != null) {
+            sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_GAME, handler);
+        } else {
+            Log.w(TAG, "Sensor type " + type + " not available, not recorded");
+        }
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        if (!recording) return;
+        try {
+            if (writer == null) {
+                // Anchor the trace to wall time so replayed detectors see the original time of day
+                long ageMs = (SystemClock.elapsedRealtimeNanos() - event.timestamp) / 1_000_000;
+                writer = new SensorTraceWriter(currentFile, System.currentTimeMillis() - ageMs, event.timestamp);
+            }
+            writer.append(event.sensor.getType(), event.timestamp, event.values[0], event.values[1], event.values[2]);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing sensor trace: " + e.getMessage());
+            stop();
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // Not used
+    }
+
+    private void closeWriter() {
+        if (writer == null) return;
+        try {
+            Log.d(TAG, "Trace closed with " + writer.getSamplesWritten() + " samples");
+            writer.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing sensor trace: " + e.getMessage());
+        }
+        writer = null;
+    }
+}
@@ -2,24 +2,32 @@ package com.example.bilawoga.utils;
 
 import android.content.Context;
 import android.util.Log;
+
+import com.example.bilawoga.detection.EvidenceFusion;
 import org.tensorflow.lite.Interpreter;
-import be.tarsos.dsp.AudioDispatcher;
-import be.tarsos.dsp.io.android.AudioDispatcherFactory;
-import be.tarsos.dsp.mfcc.MFCC;
 
 import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SilentEmergencyAI {
     private static final String TAG = "SilentEmergencyAI";
     private final Context context;
+    private static final int MODEL_FRAMES = 431;
     private Interpreter tflite;
-    private AudioDispatcher dispatcher;
+    // Two windows: the audio thread fills one while the inference thread reads the other
+    private float[][][][] collecting = new float[1][AudioFeatureStream.NUM_COEFFICIENTS][MODEL_FRAMES][1];
+    private float[][][][] inferring = new float[1][AudioFeatureStream.NUM_COEFFICIENTS][MODEL_FRAMES][1];
+    private final float[][] modelOutput = new float[1][1];
+    // A full-window run takes far longer than a frame; keep it off the shared audio thread
+    private final ExecutorService inference = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean inferenceBusy = new AtomicBoolean(false);
+    private int framesCollected = 0;
     private boolean isMonitoring = false;
     private EmergencyListener listener;
     private static final float THRESHOLD = 0.5f; // Emergency probability threshold
@@ -52,51 +60,59 @@ public class SilentEmergencyAI {
     public void startSilentMonitoring() {
         if (isMonitoring || tflite == null) return;
         isMonitoring = true;
-        // Remove incorrect Object declaration and use the static method directly
-        dispatcher = AudioDispatcherFactory.fromDefaultMicrophone(16000, 1024, 512);
-        MFCC mfcc = new MFCC(1024, 16000, 40, 50, 300, 8000);
-        List<float[]> mfccFrames = new ArrayList<>();
-        dispatcher.addAudioProcessor(mfcc);
-        dispatcher.addAudioProcessor(new be.tarsos.dsp.AudioProcessor() {
-            @Override
-            public boolean process(be.tarsos.dsp.AudioEvent audioEvent) {
-                float[] mfccs = mfcc.getMFCC();
-                mfccFrames.add(mfccs.clone());
-                if (mfccFrames.size() >= 431) {
-                    float[][][][] input = new float[1][40][431][1];
-                    for (int t = 0; t < 431; t++) {
-                        for (int f = 0; f < 40; f++) {
-                            input[0][f][t][0] = mfccFrames.get(t)[f];
-                        }
-                    }
-                    float[][] output = new float[1][1];
-                    tflite.run(input, output);
-                    float emergencyProb = output[0][0];
-                    if (emergencyProb > THRESHOLD) {
-                        if (listener != null) {
-                            listener.onEmergencyDetected("AI Detected Emergency", emergencyProb);
-                            listener.onEmergencyConfirmed("AI Detected Emergency");
-                        }
-                    }
-                    mfccFrames.clear();
-                }
-                return true;
+        framesCollected = 0;
+        AudioFeatureStream.getInstance().addListener(frameListener);
+    }
+
+    // Frames come from the shared feature stream; the model input is filled in place
+    private final AudioFeatureStream.FeatureFrameListener frameListener = (mfccs, frameIndex) -> {
+        for (int f = 0; f < AudioFeatureStream.NUM_COEFFICIENTS; f++) {
+            collecting[0][f][framesCollected][0] = mfccs[f];
+        }
+        framesCollected++;
+        if (framesCollected >= MODEL_FRAMES) {
+            framesCollected = 0;
+            if (!inferenceBusy.compareAndSet(false, true)) {
+                // Previous window still running; skip this one rather than queue behind it
+                Log.w(TAG, "Inference behind, dropping window " + frameIndex);
+                return;
             }
-            @Override
-            public void processingFinished() {
-                // No action needed
+            float[][][][] full = collecting;
+            collecting = inferring;
+            inferring = full;
+            inference.execute(() -> runModel(full));
+        }
+    };
+
+    /** On the inference thread. */
+    private void runModel(float[][][][] window) {
+        try {
+            tflite.run(window, modelOutput);
+            float emergencyProb = modelOutput[0][0];
+            EmergencyFusion.getInstance(context).report(EvidenceFusion.Source.AUDIO_MODEL, emergencyProb);
+            if (emergencyProb > THRESHOLD) {
+                if (listener != null) {
+                    listener.onEmergencyDetected("AI Detected Emergency", emergencyProb);
+                    listener.onEmergencyConfirmed("AI Detected Emergency");
+                }
             }
-        });
-        new Thread(dispatcher, "Audio Dispatcher").start();
+        } catch (Exception e) {
+            Log.e(TAG, "Inference failed: " + e.getMessage());
+        } finally {
+            inferenceBusy.set(false);
+        }
     }
 
     public void stopSilentMonitoring() {
         isMonitoring = false;
-        if (dispatcher != null) dispatcher.stop();
+        AudioFeatureStream.getInstance().removeListener(frameListener);
     }
     
     public void cleanup() {
         stopSilentMonitoring();
-        if (tflite != null) tflite.close();
+        // Close after any run already queued
+        Interpreter model = tflite;
+        if (model != null) inference.execute(model::close);
+        inference.shutdown();
     }
 }
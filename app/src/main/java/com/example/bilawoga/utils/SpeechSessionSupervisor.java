@@ -0,0 +1,267 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.speech.RecognitionListener;
+import android.speech.RecognizerIntent;
+import android.speech.SpeechRecognizer;
+import android.util.Log;
+
+import java.util.ArrayList;
+
+/**
+ * SPEECH SESSION SUPERVISOR
+ * Owns one SpeechRecognizer and keeps it listening without spinning.
+ *
+ * - Requests partial results and offline recognition, and streams partial hypotheses
+ * - Continuous mode restarts after every session; single-shot mode ends after one
+ * - Silence (no match / speech timeout) restarts quickly, backing off if it keeps happening
+ * - Busy, client and network errors back off exponentially with jitter
+ * - Missing permission stops the supervisor for good
+ *
+ * Must be used from the main thread, like SpeechRecognizer itself.
+ */
+public class SpeechSessionSupervisor {
+    private static final String TAG = "SpeechSessionSupervisor";
+
+    private static final long QUIET_RESTART_MS = 250;
+    private static final int QUIET_SESSIONS_BEFORE_BACKOFF = 5;
+    private static final long QUIET_BACKOFF_MAX_MS = 10000;
+    private static final long ERROR_BACKOFF_BASE_MS = 1000;
+    private static final long ERROR_BACKOFF_MAX_MS = 60000;
+
+    public interface SessionListener {
+        void onSessionReady();
+        void onPartialTranscript(String text);
+        void onFinalTranscript(String text);
+        /** Single-shot session finished, or the supervisor stopped for good. */
+        void onSessionEnded();
+        void onSessionFailed(String reason);
+    }
+
+    private final Context context;
+    private final SessionListener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private SpeechRecognizer recognizer;
+    private boolean running = false;
+    private boolean continuous = false;
+    private boolean sessionActive = false;
+    private int quietSessions = 0;
+    private int consecutiveErrors = 0;
+
+    private final Runnable startRunnable = this::startSession;
+
+    public SpeechSessionSupervisor(Context context, SessionListener listener) {
+        this.context = context;
+        this.listener = listener;
+    }
+
+    public static boolean isAvailable(Context context) {
+        return SpeechRecognizer.isRecognitionAvailable(context);
+    }
+
+    /**
+     * Listen until stop() is called, restarting sessions as needed.
+     */
+    public void startContinuous() {
+        start(true);
+    }
+
+    /**
+     * Listen for a single utterance, then report onSessionEnded().
+     */
+    public void startSingle() {
+        start(false);
+    }
+
+    private void start(boolean continuousMode) {
+        if (running) return;
+        running = true;
+        continuous = continuousMode;
+        quietSessions = 0;
+        consecutiveErrors = 0;
+        handler.removeCallbacks(startRunnable);
+        startSession();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+        handler.removeCallbacks(startRunnable);
+        if (recognizer != null && sessionActive) {
+            try {
+                recognizer.cancel();
+            } catch (Exception e) {
+                Log.e(TAG, "Error cancelling recognizer: " + e.getMessage());
+            }
+        }
+        sessionActive = false;
+    }
+
+    public void destroy() {
+        stop();
+        if (recognizer != null) {
+            recognizer.destroy();
+            recognizer = null;
+        }
+    }
+
+    private void startSession() {
+        if (!running) return;
+        try {
+            if (recognizer == null) {
+                recognizer = SpeechRecognizer.createSpeechRecognizer(context);
+                recognizer.setRecognitionListener(recognitionListener);
+            }
+            Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+            intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+            intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
+            intent.putExtra(RecognizerIntent.EXTRA_PREFER_OFFLINE, true);
+            intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 3);
+            intent.putExtra(RecognizerIntent.EXTRA_CALLING_PACKAGE, context.getPackageName());
+            recognizer.startListening(intent);
+            sessionActive = true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting recognition session: " + e.getMessage());
+            sessionActive = false;
+            scheduleRestart(errorBackoff(++consecutiveErrors));
+        }
+    }
+
+    private void onSessionFinished(boolean quiet, boolean hardError) {
+        sessionActive = false;
+        if (!running) return;
+
+        if (!continuous) {
+            running = false;
+            listener.onSessionEnded();
+            return;
+        }
+
+        if (hardError) {
+            scheduleRestart(errorBackoff(++consecutiveErrors));
+        } else if (quiet) {
+            consecutiveErrors = 0;
+            quietSessions++;
+            scheduleRestart(quietBackoff(quietSessions));
+        } else {
+            consecutiveErrors = 0;
+            quietSessions = 0;
+            scheduleRestart(0);
+        }
+    }
+
+    private void scheduleRestart(long delayMs) {
+        if (!running) return;
+        handler.removeCallbacks(startRunnable);
+        if (delayMs <= 0) {
+            handler.post(startRunnable);
+        } else {
+            Log.d(TAG, "Restarting recognition in " + delayMs + "ms");
+            handler.postDelayed(startRunnable, delayMs);
+        }
+    }
+
+    private long quietBackoff(int sessions) {
+        if (sessions <= QUIET_SESSIONS_BEFORE_BACKOFF) return QUIET_RESTART_MS;
+        int doublings = Math.min(sessions - QUIET_SESSIONS_BEFORE_BACKOFF, 10);
+        return Math.min(QUIET_RESTART_MS << doublings, QUIET_BACKOFF_MAX_MS);
+    }
+
+    private long errorBackoff(int errors) {
+        long delay = Math.min(ERROR_BACKOFF_BASE_MS << Math.min(errors - 1, 10), ERROR_BACKOFF_MAX_MS);
+        double jitter = 0.8 + Math.random() * 0.4;
+        return (long) (delay * jitter);
+    }
+
+    private final RecognitionListener recognitionListener = new RecognitionListener() {
+        @Override
+        public void onReadyForSpeech(Bundle bundle) {
+            listener.onSessionReady();
+        }
+
+        @Override
+        public void onBeginningOfSpeech() {
+            // Somebody is talking; silence backoff no longer applies
+            quietSessions = 0;
+        }
+
+        @Override
+        public void onRmsChanged(float v) {
+            // Not used
+        }
+
+        @Override
+        public void onBufferReceived(byte[] bytes) {
+            // Not used
+        }
+
+        @Override
+        public void onEndOfSpeech() {
+            // Final results or an error follow
+        }
+
+        @Override
+        public void onError(int error) {
+            if (!sessionActive) return; // Late callback after cancel()
+            switch (error) {
+                case SpeechRecognizer.ERROR_NO_MATCH:
+                case SpeechRecognizer.ERROR_SPEECH_TIMEOUT:
+                    onSessionFinished(true, false);
+                    break;
+                case SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS:
+                    Log.e(TAG, "Recognition permission missing, stopping");
+                    sessionActive = false;
+                    running = false;
+                    listener.onSessionFailed("Microphone permission missing");
+                    listener.onSessionEnded();
+                    break;
+                case SpeechRecognizer.ERROR_RECOGNIZER_BUSY:
+                    // Release our claim so the busy recognizer can recover
+                    try {
+                        recognizer.cancel();
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error cancelling busy recognizer: " + e.getMessage());
+                    }
+                    Log.w(TAG, "Recognition error: " + error);
+                    onSessionFinished(false, true);
+                    break;
+                default:
+                    Log.w(TAG, "Recognition error: " + error);
+                    onSessionFinished(false, true);
+                    break;
+            }
+        }
+
+        @Override
+        public void onResults(Bundle results) {
+            ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            if (matches != null && !matches.isEmpty() && matches.get(0) != null) {
+                listener.onFinalTranscript(matches.get(0));
+                onSessionFinished(false, false);
+            } else {
+                onSessionFinished(true, false);
+            }
+        }
+
+        @Override
+        public void onPartialResults(Bundle partialResults) {
+            ArrayList<String> partial = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            if (partial != null && !partial.isEmpty() && partial.get(0) != null && !partial.get(0).isEmpty()) {
+                listener.onPartialTranscript(partial.get(0));
+            }
+        }
+
+        @Override
+        public void onEvent(int i, Bundle bundle) {
+            // Not used
+        }
+    };
+}
@@ -1,44 +1,30 @@
 package com.example.bilawoga.utils;
 
 import android.content.Context;
-import android.speech.RecognitionListener;
-import android.speech.RecognizerIntent;
-import android.speech.SpeechRecognizer;
 import android.util.Log;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.example.bilawoga.detection.EvidenceFusion;
+import com.example.bilawoga.detection.SosCoalescer;
 
 /**
  * VOICE EMERGENCY DETECTION SYSTEM
  * Listens for help cries and distress calls
+ *
+ * Recognition sessions are run by SpeechSessionSupervisor, and partial results can
+ * trigger before the speaker has finished.
  */
 public class VoiceEmergencyDetector {
     private static final String TAG = "VoiceEmergencyDetector";
     
-    // Emergency keywords and phrases
-    private static final String[] HELP_KEYWORDS = {
-        "help", "help me", "emergency", "sos", "save me", "danger",
-        "stop", "let me go", "police", "fire", "ambulance", "rescue",
-        "attack", "assault", "abduction", "kidnap", "threat", "dangerous",
-        "scared", "afraid", "terrified", "panic", "distress", "urgent"
-    };
-    
-    private static final String[] DISTRESS_PHRASES = {
-        "someone help", "call police", "call 911", "emergency help",
-        "i need help", "please help", "save me", "dangerous situation",
-        "being followed", "threatened", "attacked", "assaulted"
-    };
-    
     private static final float VOICE_SENSITIVITY = 0.7f;
+    private static final float EARLY_TRIGGER_SCORE = 0.9f; // Partial hypotheses must score higher
     private static final int VOICE_DETECTION_TIMEOUT = 10000; // 10 seconds
     
     private final Context context;
-    private SpeechRecognizer speechRecognizer;
-    private boolean isVoiceDetectionActive = false;
-    private long lastVoiceDetection = 0;
+    private final SpeechSessionSupervisor speechSupervisor;
     private int voiceEmergencyCount = 0;
-    private List<String> voiceDetectionHistory;
+    private final VoiceScorer voiceScorer;
+    private boolean utteranceTriggered = false;
     
     public interface VoiceEmergencyListener {
         void onVoiceEmergencyDetected(String detectedWords, float confidence);
@@ -51,71 +37,64 @@ public class VoiceEmergencyDetector {
     public VoiceEmergencyDetector(Context context, VoiceEmergencyListener listener) {
         this.context = context;
         this.listener = listener;
-        this.voiceDetectionHistory = new ArrayList<>();
-        
-        initializeVoiceDetection();
+        this.voiceScorer = new VoiceScorer(VoiceLexicon.getDefault(context));
+        this.speechSupervisor = createSpeechSupervisor();
     }
     
-    private void initializeVoiceDetection() {
-        try {
-            speechRecognizer = SpeechRecognizer.createSpeechRecognizer(context);
-            speechRecognizer.setRecognitionListener(new RecognitionListener() {
-                @Override
-                public void onReadyForSpeech(android.os.Bundle bundle) {
-                    Log.d(TAG, "Voice detection ready");
-                    listener.onVoiceDetectionReady();
-                }
-                
-                @Override
-                public void onBeginningOfSpeech() {
-                    Log.d(TAG, "Voice detection started");
-                }
-                
-                @Override
-                public void onRmsChanged(float v) {
-                    // Monitor voice intensity
-                }
-                
-                @Override
-                public void onBufferReceived(byte[] bytes) {
-                    // Process audio buffer
-                }
-                
-                @Override
-                public void onEndOfSpeech() {
-                    Log.d(TAG, "Voice detection ended");
-                }
-                
-                @Override
-                public void onError(int error) {
-                    Log.w(TAG, "Voice detection error: " + error);
-                    restartVoiceDetection();
-                }
-                
-                @Override
-                public void onResults(android.os.Bundle results) {
-                    ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-                    if (matches != null && !matches.isEmpty()) {
-                        processVoiceInput(matches.get(0));
-                    }
-                    restartVoiceDetection();
-                }
-                
-                @Override
-                public void onPartialResults(android.os.Bundle bundle) {
-                    // Handle partial results
-                }
-                
-                @Override
-                public void onEvent(int i, android.os.Bundle bundle) {
-                    // Handle events
-                }
-            });
+    private SpeechSessionSupervisor createSpeechSupervisor() {
+        return new SpeechSessionSupervisor(context, new SpeechSessionSupervisor.SessionListener() {
+            @Override
+            public void onSessionReady() {
+                Log.d(TAG, "Voice detection ready");
+                utteranceTriggered = false;
+                listener.onVoiceDetectionReady();
+            }
+            
+            @Override
+            public void onPartialTranscript(String text) {
+                handlePartialTranscript(text);
+            }
             
-            Log.d(TAG, "Voice detection initialized");
-        } catch (Exception e) {
-            Log.e(TAG, "Error initializing voice detection: " + e.getMessage());
-            listener.onVoiceDetectionError("Voice detection initialization failed");
+            @Override
+            public void onFinalTranscript(String text) {
+                handleFinalTranscript(text);
+            }
+            
+            @Override
+            public void onSessionEnded() {
+                // Only single sessions end; detection always runs continuously
+            }
+            
+            @Override
+            public void onSessionFailed(String reason) {
+                listener.onVoiceDetectionError(reason);
+            }
+        });
+    }
+    
+    /**
+     * Score hypotheses while the user is still speaking so a clear cry for help
+     * does not wait for end-of-speech detection
+     */
+    private void handlePartialTranscript(String text) {
+        String lowerSpeech = text.toLowerCase().trim();
+        
+        if (utteranceTriggered) return;
+        float score = voiceScorer.score(lowerSpeech);
+        if (score >= EARLY_TRIGGER_SCORE) {
+            utteranceTriggered = true;
+            Log.w(TAG, "Early trigger on partial result: " + lowerSpeech);
+            handleVoiceScore(lowerSpeech, score);
+        }
+    }
+    
+    private void handleFinalTranscript(String text) {
+        if (utteranceTriggered) {
+            // Already acted on a partial; only keep the transcript for repetition counting
+            utteranceTriggered = false;
+            voiceScorer.scoreAndRecord(text.toLowerCase().trim());
+        } else {
+            processVoiceInput(text);
         }
     }
     
@@ -125,16 +104,14 @@ public class VoiceEmergencyDetector {
         }
         
         String lowerSpeech = speech.toLowerCase().trim();
-        voiceDetectionHistory.add(lowerSpeech);
-        
-        // Keep only recent voice history
-        if (voiceDetectionHistory.size() > 10) {
-            voiceDetectionHistory.remove(0);
-        }
-        
-        // Check for emergency keywords
-        float emergencyScore = calculateEmergencyVoiceScore(lowerSpeech);
         
+        // Check for emergency keywords; the scorer keeps the recent history itself
+        handleVoiceScore(lowerSpeech, voiceScorer.scoreAndRecord(lowerSpeech));
+    }
+    
+    private void handleVoiceScore(String lowerSpeech, float emergencyScore) {
+        // Every score counts towards the fused result, not only those over our own threshold
+        EmergencyFusion.getInstance(context).report(EvidenceFusion.Source.VOICE, emergencyScore);
         if (emergencyScore > VOICE_SENSITIVITY) {
             voiceEmergencyCount++;
             Log.w(TAG, "VOICE EMERGENCY DETECTED: " + lowerSpeech + " (score: " + emergencyScore + ")");
@@ -151,83 +128,29 @@ public class VoiceEmergencyDetector {
         }
     }
     
-    private float calculateEmergencyVoiceScore(String speech) {
-        float score = 0.0f;
-        
-        // Check for help keywords
-        for (String keyword : HELP_KEYWORDS) {
-            if (speech.contains(keyword)) {
-                score += 0.3f;
-            }
-        }
-        
-        // Check for distress phrases
-        for (String phrase : DISTRESS_PHRASES) {
-            if (speech.contains(phrase)) {
-                score += 0.5f;
-            }
-        }
-        
-        // Check for urgency indicators
-        if (speech.contains("now") || speech.contains("immediately") || speech.contains("urgent")) {
-            score += 0.2f;
-        }
-        
-        // Check for repetition (multiple help cries)
-        int helpCount = 0;
-        for (String history : voiceDetectionHistory) {
-            for (String keyword : HELP_KEYWORDS) {
-                if (history.contains(keyword)) {
-                    helpCount++;
-                }
-            }
-        }
-        
-        if (helpCount > 1) {
-            score += 0.3f;
-        }
-        
-        return Math.min(1.0f, score);
-    }
-    
     private void activateVoiceEmergency(String speech, float score) {
         Log.w(TAG, "VOICE EMERGENCY ACTIVATED: " + speech + " (confidence: " + score + ")");
-    }
-    
-    private void restartVoiceDetection() {
-        if (speechRecognizer != null && !isVoiceDetectionActive) {
-            try {
-                android.content.Intent intent = new android.content.Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-                intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
-                intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
-                intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 3);
-                
-                speechRecognizer.startListening(intent);
-                isVoiceDetectionActive = true;
-                lastVoiceDetection = System.currentTimeMillis();
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error restarting voice detection: " + e.getMessage());
-                listener.onVoiceDetectionError("Voice detection restart failed");
-            }
-        }
+        SOSCoordinator.getInstance(context).trigger(SosCoalescer.Source.VOICE, SosCoalescer.Urgency.CONFIRM,
+                "Voice Emergency Detection");
     }
     
     public void startDetection() {
-        restartVoiceDetection();
+        if (SpeechSessionSupervisor.isAvailable(context)) {
+            speechSupervisor.startContinuous();
+        } else {
+            listener.onVoiceDetectionError("Voice detection unavailable");
+        }
         Log.d(TAG, "Voice emergency detection started");
     }
     
     public void stopDetection() {
-        if (speechRecognizer != null) {
-            speechRecognizer.stopListening();
-            speechRecognizer.destroy();
-        }
+        speechSupervisor.stop();
         Log.d(TAG, "Voice emergency detection stopped");
     }
     
     public void cleanup() {
         stopDetection();
-        voiceDetectionHistory.clear();
+        speechSupervisor.destroy();
+        voiceScorer.reset();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.example.bilawoga.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WEIGHTED DISTRESS LEXICON
+ * Keywords, phrases and urgency words for voice scoring, loaded from
+ * assets/lexicons/voice_*.txt and compiled once into a KeywordAutomaton.
+ *
+ * Line format: category|weight|phrase   (# starts a comment)
+ * Categories: keyword (counts toward repetition), phrase, urgency (best one counts once)
+ * Phrases match whole words; a trailing '*' makes the last word a stem, so "attack*" also
+ * matches "attacked" and "attacking" (see KeywordAutomaton).
+ */
+public class VoiceLexicon {
+    private static final String TAG = "VoiceLexicon";
+    private static final String LEXICON_DIR = "lexicons";
+    private static final String[] DEFAULT_LANGUAGES = {"en", "sw", "lg"};
+
+    public static final int CATEGORY_KEYWORD = 0;
+    public static final int CATEGORY_PHRASE = 1;
+    public static final int CATEGORY_URGENCY = 2;
+
+    private static VoiceLexicon defaultLexicon;
+
+    private final KeywordAutomaton automaton;
+    private final float[] weights;
+    private final int[] categories;
+    private final String[] phrases;
+
+    private VoiceLexicon(List<String> phrases, List<Float> weights, List<Integer> categories) {
+        this.automaton = KeywordAutomaton.compile(phrases);
+        this.phrases = phrases.toArray(new String[0]);
+        this.weights = new float[weights.size()];
+        this.categories = new int[categories.size()];
+        for (int i = 0; i < this.weights.length; i++) {
+            this.weights[i] = weights.get(i);
+            this.categories[i] = categories.get(i);
+        }
+    }
+
+    /**
+     * English, Swahili and Luganda lexicons, compiled once per process.
+     */
+    public static synchronized VoiceLexicon getDefault(Context context) {
+        if (defaultLexicon == null) {
+            defaultLexicon = load(context, DEFAULT_LANGUAGES);
+        }
+        return defaultLexicon;
+    }
+
+    public static VoiceLexicon load(Context context, String... languages) {
+        List<String> phrases = new ArrayList<>();
+        List<Float> weights = new ArrayList<>();
+        List<Integer> categories = new ArrayList<>();
+        for (String language : languages) {
+            String asset = LEXICON_DIR + "/voice_" + language + ".txt";
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    context.getAssets().open(asset), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    parseLine(line, phrases, weights, categories);
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Lexicon " + asset + " not loaded: " + e.getMessage());
+            }
+        }
+        Log.d(TAG, "Compiled " + phrases.size() + " voice lexicon entries");
+        return new VoiceLexicon(phrases, weights, categories);
+    }
+
+    private static void parseLine(String line, List<String> phrases, List<Float> weights, List<Integer> categories) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) return;
+        String[] parts = line.split("\\|", 3);
+        if (parts.length != 3) {
+            Log.w(TAG, "Bad lexicon line: " + line);
+            return;
+        }
+        int category;
+        switch (parts[0].trim()) {
+            case "keyword": category = CATEGORY_KEYWORD; break;
+            case "phrase": category = CATEGORY_PHRASE; break;
+            case "urgency": category = CATEGORY_URGENCY; break;
+            default:
+                Log.w(TAG, "Unknown lexicon category: " + parts[0]);
+                return;
+        }
+        try {
+            weights.add(Float.parseFloat(parts[1].trim()));
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Bad lexicon weight: " + line);
+            return;
+        }
+        categories.add(category);
+        phrases.add(parts[2].trim());
+    }
+
+    public KeywordAutomaton getAutomaton() {
+        return automaton;
+    }
+
+    public int size() {
+        return phrases.length;
+    }
+
+    public float weight(int id) {
+        return weights[id];
+    }
+
+    public int category(int id) {
+        return categories[id];
+    }
+
+    public String phrase(int id) {
+        return phrases[id];
+    }
+}
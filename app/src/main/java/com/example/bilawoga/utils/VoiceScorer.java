@@ -0,0 +1,107 @@
+package com.example.bilawoga.utils;
+
+import java.util.Arrays;
+
+/**
+ * VOICE TRANSCRIPT SCORER
+ * Scores a transcript against the distress lexicon in a single automaton pass.
+ *
+ * - Keyword and phrase weights are summed, each entry counted once per transcript
+ * - The strongest urgency word adds its weight once
+ * - Repetition bonus when help keywords recur across the recent transcripts;
+ *   the count is kept as a running total instead of rescanning history
+ *
+ * One instance per detector. Not thread-safe; call from a single thread.
+ */
+public class VoiceScorer {
+    private static final int HISTORY_SIZE = 10;
+    private static final float REPETITION_BONUS = 0.3f;
+
+    private final VoiceLexicon lexicon;
+    private final int[] seenGeneration;
+    private int generation = 0;
+
+    // Per-transcript keyword hit counts for the last HISTORY_SIZE transcripts
+    private final int[] historyHits = new int[HISTORY_SIZE];
+    private int historyPos = 0;
+    private int historyCount = 0;
+    private int historyTotal = 0;
+
+    // Scratch state for the current scan
+    private float scanWeight;
+    private float scanUrgency;
+    private int scanKeywordHits;
+
+    private final KeywordAutomaton.MatchSink sink = (id, start, end) -> {
+        if (seenGeneration[id] == generation) return;
+        seenGeneration[id] = generation;
+        switch (lexicon.category(id)) {
+            case VoiceLexicon.CATEGORY_KEYWORD:
+                scanKeywordHits++;
+                scanWeight += lexicon.weight(id);
+                break;
+            case VoiceLexicon.CATEGORY_URGENCY:
+                scanUrgency = Math.max(scanUrgency, lexicon.weight(id));
+                break;
+            default:
+                scanWeight += lexicon.weight(id);
+                break;
+        }
+    };
+
+    public VoiceScorer(VoiceLexicon lexicon) {
+        this.lexicon = lexicon;
+        this.seenGeneration = new int[lexicon.size()];
+    }
+
+    /**
+     * Score without adding the transcript to history (e.g. partial hypotheses).
+     */
+    public float score(String transcript) {
+        scan(transcript);
+        return combine(historyTotal + scanKeywordHits);
+    }
+
+    /**
+     * Score a final transcript and remember it for repetition counting.
+     */
+    public float scoreAndRecord(String transcript) {
+        scan(transcript);
+        if (historyCount == HISTORY_SIZE) {
+            historyTotal -= historyHits[historyPos];
+        } else {
+            historyCount++;
+        }
+        historyHits[historyPos] = scanKeywordHits;
+        historyTotal += scanKeywordHits;
+        historyPos = (historyPos + 1) % HISTORY_SIZE;
+        return combine(historyTotal);
+    }
+
+    public void reset() {
+        historyPos = 0;
+        historyCount = 0;
+        historyTotal = 0;
+    }
+
+    private void scan(String transcript) {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(seenGeneration, 0);
+            generation = 1;
+        }
+        scanWeight = 0;
+        scanUrgency = 0;
+        scanKeywordHits = 0;
+        if (transcript != null) {
+            lexicon.getAutomaton().scan(transcript, sink);
+        }
+    }
+
+    private float combine(int repetitionHits) {
+        float score = scanWeight + scanUrgency;
+        if (repetitionHits > 1) {
+            score += REPETITION_BONUS;
+        }
+        return Math.min(1.0f, score);
+    }
+}
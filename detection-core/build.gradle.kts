@@ -0,0 +1,67 @@
+// Platform-independent detection code shared by the app and the offline tools.
+// No Android dependencies: everything here must run on a plain JVM.
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+sourceSets {
+    // Offline evaluation tools; not shipped in the app
+    create("eval") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+configurations["evalImplementation"].extendsFrom(configurations.implementation.get())
+configurations["evalRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
+
+dependencies {
+    // Same TarsosDSP build the app uses, so MFCC features match on and off device
+    api(files("../app/libs/TarsosDSP-2.4.jar"))
+    testImplementation(libs.junit)
+}
+
+// ./gradlew :detection-core:jmh [-PjmhInclude=MotionDetector]
+// Benchmarks live in src/jmh/java; results land in build/results/jmh/results.json
+jmh {
+    // JMH core and annotation processor come from the plugin at this version
+    jmhVersion.set(libs.versions.jmh)
+    // Allocation rate per operation alongside timing
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    project.findProperty("jmhInclude")?.let { includes.add(it.toString()) }
+}
+
+// ./gradlew :detection-core:evaluateSoundCorpus -Pcorpus=/path/to/wavs [-Pthreads=8] [-Pdetector=sound|mfcc]
+tasks.register<JavaExec>("evaluateSoundCorpus") {
+    group = "verification"
+    description = "Streams a labelled WAV corpus through the sound detectors and reports accuracy and cost."
+    classpath = sourceSets["eval"].runtimeClasspath
+    mainClass.set("com.example.bilawoga.detection.eval.SoundCorpusEvaluator")
+    args = listOfNotNull(
+        project.findProperty("corpus")?.let { "--corpus=$it" },
+        project.findProperty("threads")?.let { "--threads=$it" },
+        project.findProperty("detector")?.let { "--detector=$it" },
+        project.findProperty("classifier")?.let { "--classifier=$it" },
+        project.findProperty("frameSamples")?.let { "--frame-samples=$it" }
+    )
+}
+
+// ./gradlew :detection-core:evaluateSensorTraces -Ptraces=/path/to/traces [-Pthreads=8] [-Pdetectors=shake-medium,enhanced]
+tasks.register<JavaExec>("evaluateSensorTraces") {
+    group = "verification"
+    description = "Replays labelled sensor traces through the motion detectors and reports trigger rates and throughput."
+    classpath = sourceSets["eval"].runtimeClasspath
+    mainClass.set("com.example.bilawoga.detection.eval.SensorTraceEvaluator")
+    args = listOfNotNull(
+        project.findProperty("traces")?.let { "--traces=$it" },
+        project.findProperty("threads")?.let { "--threads=$it" },
+        project.findProperty("detectors")?.let { "--detectors=$it" }
+    )
+}
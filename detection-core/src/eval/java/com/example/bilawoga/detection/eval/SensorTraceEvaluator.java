@@ -0,0 +1,281 @@
+package com.example.bilawoga.detection.eval;
+
+import com.example.bilawoga.detection.MotionPatternDetector;
+import com.example.bilawoga.detection.ReplayClock;
+import com.example.bilawoga.detection.SensorReplayEngine;
+import com.example.bilawoga.detection.SensorSampleSink;
+import com.example.bilawoga.detection.SensorTraceFormat;
+import com.example.bilawoga.detection.SensorTraceReader;
+import com.example.bilawoga.detection.SensorTypes;
+import com.example.bilawoga.detection.ShakeEngine;
+import com.example.bilawoga.detection.ShakeProfile;
+import com.example.bilawoga.detection.ThreatScorer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * OFFLINE SENSOR TRACE EVALUATOR
+ * Replays recorded sensor traces (SensorTraceRecorder output) through the motion
+ * detectors as fast as possible and reports trigger rates and replay throughput.
+ *
+ * Corpus layout: one sub-directory per scenario, e.g.
+ *   traces/walking/*.bwst
+ *   traces/pocket/*.bwst
+ *   traces/bus/*.bwst
+ *   traces/sos/*.bwst            (positives; any label starting with "sos" or "real_sos")
+ *
+ * For negative scenarios the figure to watch is false triggers per hour; for positives,
+ * the fraction of recordings that triggered at least once.
+ *
+ * Options:
+ *   --traces=DIR          required
+ *   --detectors=a,b,...   subset of shake-high,shake-medium,shake-low,covert,enhanced,threat (default: all)
+ *   --threads=N           worker threads (default: all cores)
+ *
+ * Each detector gets its own replay per file with a ReplayClock, so timing-dependent
+ * logic (cooldowns, pattern timeouts, time-of-day risk) behaves as it did on the device.
+ */
+public final class SensorTraceEvaluator {
+
+    private interface Harness {
+        SensorSampleSink create(ReplayClock clock, Runnable onTrigger);
+    }
+
+    private static final Map<String, Harness> DETECTORS = new LinkedHashMap<>();
+
+    static {
+        DETECTORS.put("shake-high", (clock, onTrigger) -> shakeHarness(ShakeProfile.HIGH, onTrigger));
+        DETECTORS.put("shake-medium", (clock, onTrigger) -> shakeHarness(ShakeProfile.MEDIUM, onTrigger));
+        DETECTORS.put("shake-low", (clock, onTrigger) -> shakeHarness(ShakeProfile.LOW, onTrigger));
+        DETECTORS.put("covert", (clock, onTrigger) -> patternHarness(MotionPatternDetector.Config.COVERT, clock, onTrigger));
+        DETECTORS.put("enhanced", (clock, onTrigger) -> patternHarness(MotionPatternDetector.Config.ENHANCED, clock, onTrigger));
+        DETECTORS.put("threat", (clock, onTrigger) -> {
+            ThreatScorer scorer = new ThreatScorer();
+            return (type, ts, x, y, z) -> {
+                switch (type) {
+                    case SensorTypes.ACCELEROMETER: scorer.onAcceleration(ts, x, y, z); break;
+                    case SensorTypes.GYROSCOPE: scorer.onRotation(x, y, z); break;
+                    case SensorTypes.MAGNETIC_FIELD: scorer.onMagneticField(x, y, z); break;
+                    default: break;
+                }
+                long now = clock.currentTimeMillis();
+                if (scorer.isAssessmentDue(now)
+                        && scorer.assess(now).threatLevel > ThreatScorer.THREAT_PREDICTION_THRESHOLD) {
+                    onTrigger.run();
+                }
+            };
+        });
+    }
+
+    private static SensorSampleSink shakeHarness(ShakeProfile profile, Runnable onTrigger) {
+        ShakeEngine engine = new ShakeEngine(profile);
+        return (type, ts, x, y, z) -> {
+            if (type == SensorTypes.ACCELEROMETER && engine.onAcceleration(ts, x, y, z)) {
+                onTrigger.run();
+            }
+        };
+    }
+
+    private static SensorSampleSink patternHarness(MotionPatternDetector.Config config, ReplayClock clock, Runnable onTrigger) {
+        MotionPatternDetector detector = new MotionPatternDetector(config, new MotionPatternDetector.PatternListener() {
+            @Override
+            public void onPhonePosition(boolean inPocket) {
+            }
+
+            @Override
+            public void onPatternMatched(MotionPatternDetector.Pattern pattern, float confidence) {
+                onTrigger.run();
+            }
+
+            @Override
+            public void onFalseAlarmPrevented(MotionPatternDetector.FalseAlarm reason) {
+            }
+        });
+        return (type, ts, x, y, z) -> {
+            if (type == SensorTypes.ACCELEROMETER) {
+                detector.onAcceleration((float) Math.sqrt(x * x + y * y + z * z), clock.currentTimeMillis());
+            }
+        };
+    }
+
+    private static final class TraceResult {
+        final String label;
+        final Map<String, Integer> triggers = new LinkedHashMap<>();
+        final Map<String, Long> elapsedNanos = new LinkedHashMap<>();
+        long samples;
+        double seconds;
+
+        TraceResult(String label) {
+            this.label = label;
+        }
+    }
+
+    private SensorTraceEvaluator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        String traces = options.get("traces");
+        if (traces == null) {
+            System.err.println("usage: SensorTraceEvaluator --traces=DIR [--detectors=shake-high,shake-medium,shake-low,covert,enhanced,threat] [--threads=N]");
+            System.exit(2);
+        }
+        List<String> detectors = new ArrayList<>(DETECTORS.keySet());
+        if (options.containsKey("detectors")) {
+            detectors = Arrays.asList(options.get("detectors").split(","));
+            for (String d : detectors) {
+                if (!DETECTORS.containsKey(d)) {
+                    System.err.println("Unknown detector " + d + "; expected one of " + DETECTORS.keySet());
+                    System.exit(2);
+                }
+            }
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        List<File> files = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        collectCorpus(new File(traces), files, labels);
+        if (files.isEmpty()) {
+            System.err.println("No " + SensorTraceFormat.FILE_EXTENSION + " files found under " + traces);
+            System.exit(1);
+        }
+
+        final List<String> selected = detectors;
+        long wallStart = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<TraceResult>> futures = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            String label = labels.get(i);
+            futures.add(pool.submit(() -> evaluateTrace(file, label, selected)));
+        }
+        List<TraceResult> results = new ArrayList<>();
+        for (Future<TraceResult> f : futures) {
+            results.add(f.get());
+        }
+        pool.shutdown();
+
+        report(results, selected, System.nanoTime() - wallStart, threads);
+    }
+
+    private static TraceResult evaluateTrace(File file, String label, List<String> detectors) throws Exception {
+        TraceResult result = new TraceResult(label);
+        for (String name : detectors) {
+            int[] count = new int[1];
+            try (SensorTraceReader reader = new SensorTraceReader(file)) {
+                ReplayClock clock = new ReplayClock(reader.getStartWallMillis());
+                SensorSampleSink sink = DETECTORS.get(name).create(clock, () -> count[0]++);
+                SensorReplayEngine.Result replay =
+                        SensorReplayEngine.replay(reader, SensorReplayEngine.AS_FAST_AS_POSSIBLE, clock, sink);
+                result.samples = replay.samples;
+                result.seconds = replay.traceNanos / 1e9;
+                result.elapsedNanos.put(name, replay.elapsedNanos);
+            }
+            result.triggers.put(name, count[0]);
+        }
+        return result;
+    }
+
+    private static boolean isPositive(String label) {
+        return label.startsWith("sos") || label.startsWith("real_sos");
+    }
+
+    private static void report(List<TraceResult> results, List<String> detectors, long wallNanos, int threads) {
+        Map<String, List<TraceResult>> byLabel = new TreeMap<>();
+        long totalSamples = 0;
+        double totalSeconds = 0;
+        for (TraceResult r : results) {
+            byLabel.computeIfAbsent(r.label, k -> new ArrayList<>()).add(r);
+            totalSamples += r.samples;
+            totalSeconds += r.seconds;
+        }
+
+        System.out.println("== Sensor trace evaluation ==");
+        System.out.printf(Locale.ROOT, "traces          %d (%.2f h, %d samples)%n",
+                results.size(), totalSeconds / 3600, totalSamples);
+        System.out.println();
+
+        for (String detector : detectors) {
+            System.out.println("-- " + detector + " --");
+            System.out.printf(Locale.ROOT, "%-16s %6s %8s %9s %12s%n", "scenario", "files", "hours", "triggers", "result");
+            long elapsed = 0;
+            for (Map.Entry<String, List<TraceResult>> e : byLabel.entrySet()) {
+                int triggers = 0, fired = 0;
+                double seconds = 0;
+                for (TraceResult r : e.getValue()) {
+                    int t = r.triggers.get(detector);
+                    triggers += t;
+                    if (t > 0) fired++;
+                    seconds += r.seconds;
+                    elapsed += r.elapsedNanos.get(detector);
+                }
+                String outcome = isPositive(e.getKey())
+                        ? String.format(Locale.ROOT, "%d/%d hit", fired, e.getValue().size())
+                        : (seconds > 0 ? String.format(Locale.ROOT, "%.2f/h", triggers / (seconds / 3600)) : "n/a");
+                System.out.printf(Locale.ROOT, "%-16s %6d %8.2f %9d %12s%n",
+                        e.getKey(), e.getValue().size(), seconds / 3600, triggers, outcome);
+            }
+            if (elapsed > 0) {
+                System.out.printf(Locale.ROOT, "replay          %.0f samples/s, %.0fx real time (%.1f ns/sample)%n",
+                        totalSamples * 1e9 / elapsed, totalSeconds / (elapsed / 1e9), elapsed / (double) Math.max(1, totalSamples));
+            }
+            System.out.println();
+        }
+
+        double wallSeconds = wallNanos / 1e9;
+        System.out.printf(Locale.ROOT, "wall            %.2f s on %d threads%n", wallSeconds, threads);
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new TreeMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) continue;
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    private static void collectCorpus(File root, List<File> files, List<String> labels) {
+        File[] dirs = root.listFiles(File::isDirectory);
+        if (dirs == null) return;
+        Arrays.sort(dirs);
+        for (File dir : dirs) {
+            String label = SoundCorpusEvaluator.slug(dir.getName());
+            List<File> traces = new ArrayList<>();
+            collectTraces(dir, traces);
+            traces.sort(null);
+            for (File trace : traces) {
+                files.add(trace);
+                labels.add(label);
+            }
+        }
+    }
+
+    private static void collectTraces(File dir, List<File> out) {
+        File[] entries = dir.listFiles();
+        if (entries == null) return;
+        for (File entry : entries) {
+            if (entry.isDirectory()) {
+                collectTraces(entry, out);
+            } else if (entry.getName().endsWith(SensorTraceFormat.FILE_EXTENSION)) {
+                out.add(entry);
+            }
+        }
+    }
+}
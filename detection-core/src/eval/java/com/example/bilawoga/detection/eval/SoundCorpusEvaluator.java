@@ -0,0 +1,381 @@
+package com.example.bilawoga.detection.eval;
+
+import com.example.bilawoga.detection.FrameWindowClassifier;
+import com.example.bilawoga.detection.MfccFeatureExtractor;
+import com.example.bilawoga.detection.SoundDetection;
+import com.example.bilawoga.detection.SoundFrameAnalyzer;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * OFFLINE SOUND CORPUS EVALUATOR
+ * Streams labelled WAV files through the same frame -> spectrum -> classifier code
+ * the app runs, and reports accuracy and cost.
+ *
+ * Corpus layout: one sub-directory per label, e.g.
+ *   corpus/adult_distress/*.wav
+ *   corpus/screaming_abuse/*.wav
+ *   corpus/help_cry/*.wav
+ *   corpus/background/*.wav      (negatives; also "negative", "none", "normal")
+ *
+ * Detector types map to labels by lower-casing and replacing non-letters with '_'
+ * ("Screaming/Abuse" -> screaming_abuse). Each file is predicted as its most frequent
+ * detection type, or background if nothing fired.
+ *
+ * Options:
+ *   --corpus=DIR          required
+ *   --detector=sound|mfcc sound = BackgroundAudioMonitor path, mfcc = SilentEmergencyAI path
+ *   --classifier=CLASS    FrameWindowClassifier implementation for --detector=mfcc;
+ *                         without one only the MFCC front end is timed
+ *   --threshold=P         classifier probability threshold (default 0.5, as on device)
+ *   --frame-samples=N     capture frame size for --detector=sound (default 1792,
+ *                         a typical AudioRecord minimum buffer at 44.1 kHz)
+ *   --threads=N           worker threads (default: all cores)
+ *
+ * Files are processed in parallel but results are reported in sorted path order, and
+ * all accuracy figures are deterministic. Only the timing figures vary between runs.
+ */
+public final class SoundCorpusEvaluator {
+    private static final String NEGATIVE = "background";
+    private static final String[] NEGATIVE_LABELS = {"background", "negative", "none", "normal"};
+    private static final String MODEL_TYPE = "AI Detected Emergency";
+
+    private static final ThreadMXBean CPU = ManagementFactory.getThreadMXBean();
+
+    private final String detector;
+    private final int frameSamples;
+    private final String classifierClass;
+    private final float threshold;
+
+    private static final class FileResult {
+        final String path;
+        final String label;
+        final double seconds;
+        final Map<String, Integer> detections = new LinkedHashMap<>();
+        long[] frameCpuNanos = new long[0];
+        int frames;
+        int totalDetections;
+
+        FileResult(String path, String label, double seconds) {
+            this.path = path;
+            this.label = label;
+            this.seconds = seconds;
+        }
+
+        void addDetection(String type) {
+            detections.merge(slug(type), 1, Integer::sum);
+            totalDetections++;
+        }
+
+        String predicted() {
+            String best = NEGATIVE;
+            int bestCount = 0;
+            for (Map.Entry<String, Integer> e : detections.entrySet()) {
+                if (e.getValue() > bestCount) {
+                    best = e.getKey();
+                    bestCount = e.getValue();
+                }
+            }
+            return best;
+        }
+    }
+
+    private SoundCorpusEvaluator(String detector, int frameSamples, String classifierClass, float threshold) {
+        this.detector = detector;
+        this.frameSamples = frameSamples;
+        this.classifierClass = classifierClass;
+        this.threshold = threshold;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        String corpus = options.get("corpus");
+        if (corpus == null) {
+            System.err.println("usage: SoundCorpusEvaluator --corpus=DIR [--detector=sound|mfcc] "
+                    + "[--classifier=CLASS] [--threshold=P] [--frame-samples=N] [--threads=N]");
+            System.exit(2);
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        SoundCorpusEvaluator evaluator = new SoundCorpusEvaluator(
+                options.getOrDefault("detector", "sound"),
+                Integer.parseInt(options.getOrDefault("frame-samples", "1792")),
+                options.get("classifier"),
+                Float.parseFloat(options.getOrDefault("threshold", "0.5")));
+
+        List<File> files = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        collectCorpus(new File(corpus), files, labels);
+        if (files.isEmpty()) {
+            System.err.println("No .wav files found under " + corpus);
+            System.exit(1);
+        }
+
+        if (CPU.isCurrentThreadCpuTimeSupported()) {
+            CPU.setThreadCpuTimeEnabled(true);
+        }
+
+        long wallStart = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<FileResult>> futures = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            String label = labels.get(i);
+            futures.add(pool.submit(() -> evaluator.evaluateFile(file, label)));
+        }
+        List<FileResult> results = new ArrayList<>();
+        for (Future<FileResult> f : futures) {
+            results.add(f.get());
+        }
+        pool.shutdown();
+        long wallNanos = System.nanoTime() - wallStart;
+
+        evaluator.report(results, wallNanos, threads);
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new TreeMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) continue;
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    private static void collectCorpus(File root, List<File> files, List<String> labels) {
+        File[] dirs = root.listFiles(File::isDirectory);
+        if (dirs == null) return;
+        Arrays.sort(dirs);
+        for (File dir : dirs) {
+            String label = normalizeLabel(dir.getName());
+            List<File> wavs = new ArrayList<>();
+            collectWavs(dir, wavs);
+            wavs.sort(null);
+            for (File wav : wavs) {
+                files.add(wav);
+                labels.add(label);
+            }
+        }
+    }
+
+    private static void collectWavs(File dir, List<File> out) {
+        File[] entries = dir.listFiles();
+        if (entries == null) return;
+        for (File entry : entries) {
+            if (entry.isDirectory()) {
+                collectWavs(entry, out);
+            } else if (entry.getName().toLowerCase(Locale.ROOT).endsWith(".wav")) {
+                out.add(entry);
+            }
+        }
+    }
+
+    private static String normalizeLabel(String name) {
+        String slug = slug(name);
+        for (String negative : NEGATIVE_LABELS) {
+            if (negative.equals(slug)) return NEGATIVE;
+        }
+        return slug;
+    }
+
+    static String slug(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_").replaceAll("^_|_$", "");
+    }
+
+    // ---- Per-file evaluation ----
+
+    private FileResult evaluateFile(File file, String label) throws Exception {
+        WavReader.Audio audio = WavReader.read(file);
+        FileResult result = new FileResult(file.getPath(), label, audio.durationSeconds());
+        if ("mfcc".equals(detector)) {
+            evaluateMfcc(audio, result);
+        } else {
+            evaluateSound(audio, result);
+        }
+        return result;
+    }
+
+    /**
+     * BackgroundAudioMonitor path: consecutive capture frames at 44.1 kHz, 16-bit,
+     * detections rate limited exactly like the service, on stream time.
+     */
+    private void evaluateSound(WavReader.Audio audio, FileResult result) {
+        float[] pcm = WavReader.resample(audio.samples, audio.sampleRate, SoundFrameAnalyzer.SAMPLE_RATE);
+        SoundFrameAnalyzer analyzer = new SoundFrameAnalyzer();
+        short[] frame = new short[frameSamples];
+        int frames = pcm.length / frameSamples;
+        long[] cpu = new long[frames];
+        long lastTriggerMs = Long.MIN_VALUE / 2;
+
+        for (int f = 0; f < frames; f++) {
+            int offset = f * frameSamples;
+            for (int i = 0; i < frameSamples; i++) {
+                float v = Math.max(-1f, Math.min(1f, pcm[offset + i]));
+                frame[i] = (short) Math.round(v * 32767f);
+            }
+            long t0 = cpuNow();
+            SoundDetection detection = analyzer.analyze(frame);
+            cpu[f] = cpuNow() - t0;
+
+            long streamMs = (long) offset * 1000 / SoundFrameAnalyzer.SAMPLE_RATE;
+            if (detection.isEmergency && streamMs - lastTriggerMs >= SoundFrameAnalyzer.TRIGGER_LOCKOUT_MS) {
+                lastTriggerMs = streamMs;
+                result.addDetection(detection.type);
+            }
+        }
+        result.frames = frames;
+        result.frameCpuNanos = cpu;
+    }
+
+    /**
+     * SilentEmergencyAI path: 16 kHz MFCC frames (1024 window, 512 hop), classified in
+     * consecutive non-overlapping windows like the app does.
+     */
+    private void evaluateMfcc(WavReader.Audio audio, FileResult result) throws Exception {
+        float[] pcm = WavReader.resample(audio.samples, audio.sampleRate, MfccFeatureExtractor.SAMPLE_RATE);
+        MfccFeatureExtractor extractor = new MfccFeatureExtractor();
+        FrameWindowClassifier classifier = classifierClass == null ? null
+                : (FrameWindowClassifier) Class.forName(classifierClass).getDeclaredConstructor().newInstance();
+        int windowFrames = classifier != null ? classifier.windowFrames() : 0;
+        float[][] window = classifier != null ? new float[windowFrames][] : null;
+        int collected = 0;
+
+        float[] buffer = new float[MfccFeatureExtractor.FRAME_SIZE];
+        int frames = pcm.length < MfccFeatureExtractor.FRAME_SIZE ? 0
+                : 1 + (pcm.length - MfccFeatureExtractor.FRAME_SIZE) / MfccFeatureExtractor.FRAME_HOP;
+        long[] cpu = new long[frames];
+
+        for (int f = 0; f < frames; f++) {
+            System.arraycopy(pcm, f * MfccFeatureExtractor.FRAME_HOP, buffer, 0, MfccFeatureExtractor.FRAME_SIZE);
+            long t0 = cpuNow();
+            float[] coefficients = extractor.process(buffer);
+            if (classifier != null) {
+                window[collected++] = coefficients;
+                if (collected == windowFrames) {
+                    if (classifier.classify(window) > threshold) {
+                        result.addDetection(MODEL_TYPE);
+                    }
+                    collected = 0;
+                }
+            }
+            cpu[f] = cpuNow() - t0;
+        }
+        result.frames = frames;
+        result.frameCpuNanos = cpu;
+    }
+
+    private static long cpuNow() {
+        return CPU.isCurrentThreadCpuTimeSupported() ? CPU.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    // ---- Reporting ----
+
+    private void report(List<FileResult> results, long wallNanos, int threads) {
+        TreeSet<String> classes = new TreeSet<>();
+        double totalSeconds = 0, negativeSeconds = 0;
+        int negativeAlarms = 0, totalFrames = 0;
+        int tp = 0, fp = 0, fn = 0, tn = 0;
+        for (FileResult r : results) {
+            classes.add(r.label);
+            classes.add(r.predicted());
+            totalSeconds += r.seconds;
+            totalFrames += r.frames;
+            boolean positive = !NEGATIVE.equals(r.label);
+            boolean fired = r.totalDetections > 0;
+            if (!positive) {
+                negativeSeconds += r.seconds;
+                negativeAlarms += r.totalDetections;
+            }
+            if (positive && fired) tp++;
+            else if (positive) fn++;
+            else if (fired) fp++;
+            else tn++;
+        }
+
+        System.out.println("== Sound corpus evaluation ==");
+        System.out.printf(Locale.ROOT, "detector        %s%s%n", detector,
+                "mfcc".equals(detector) && classifierClass == null ? " (features only, no classifier)" : "");
+        System.out.printf(Locale.ROOT, "files           %d (%.1f min audio)%n", results.size(), totalSeconds / 60);
+        System.out.println();
+
+        System.out.println("-- Per-class (file level) --");
+        System.out.printf(Locale.ROOT, "%-24s %6s %6s %6s %9s %7s%n", "class", "tp", "fp", "fn", "precision", "recall");
+        for (String c : classes) {
+            int ctp = 0, cfp = 0, cfn = 0;
+            for (FileResult r : results) {
+                String p = r.predicted();
+                if (p.equals(c) && r.label.equals(c)) ctp++;
+                else if (p.equals(c)) cfp++;
+                else if (r.label.equals(c)) cfn++;
+            }
+            System.out.printf(Locale.ROOT, "%-24s %6d %6d %6d %9s %7s%n", c, ctp, cfp, cfn,
+                    ratio(ctp, ctp + cfp), ratio(ctp, ctp + cfn));
+        }
+        System.out.println();
+
+        System.out.println("-- Misclassified files --");
+        for (FileResult r : results) {
+            if (!r.predicted().equals(r.label)) {
+                System.out.printf(Locale.ROOT, "%s  label=%s predicted=%s%n", r.path, r.label, r.predicted());
+            }
+        }
+        System.out.println();
+
+        System.out.println("-- Emergency vs background --");
+        System.out.printf(Locale.ROOT, "tp=%d fp=%d fn=%d tn=%d  precision=%s recall=%s%n",
+                tp, fp, fn, tn, ratio(tp, tp + fp), ratio(tp, tp + fn));
+        System.out.printf(Locale.ROOT, "false alarms/hour  %s  (%d alarms in %.2f h of background)%n",
+                negativeSeconds > 0 ? String.format(Locale.ROOT, "%.2f", negativeAlarms / (negativeSeconds / 3600)) : "n/a",
+                negativeAlarms, negativeSeconds / 3600);
+        System.out.println();
+
+        long[] all = new long[totalFrames];
+        int n = 0;
+        long cpuTotal = 0;
+        for (FileResult r : results) {
+            for (long v : r.frameCpuNanos) {
+                all[n++] = v;
+                cpuTotal += v;
+            }
+        }
+        Arrays.sort(all);
+        double wallSeconds = wallNanos / 1e9;
+        System.out.println("-- Cost --");
+        System.out.printf(Locale.ROOT, "frames          %d%n", totalFrames);
+        if (totalFrames > 0) {
+            System.out.printf(Locale.ROOT, "cpu/frame us    mean=%.1f p50=%.1f p95=%.1f p99=%.1f max=%.1f%n",
+                    cpuTotal / 1e3 / totalFrames, pct(all, 0.50), pct(all, 0.95), pct(all, 0.99), all[totalFrames - 1] / 1e3);
+        }
+        System.out.printf(Locale.ROOT, "cpu total       %.2f s (%.1fx real time per core)%n",
+                cpuTotal / 1e9, cpuTotal > 0 ? totalSeconds / (cpuTotal / 1e9) : 0);
+        System.out.printf(Locale.ROOT, "wall            %.2f s on %d threads (%.1fx real time)%n",
+                wallSeconds, threads, wallSeconds > 0 ? totalSeconds / wallSeconds : 0);
+    }
+
+    private static double pct(long[] sorted, double q) {
+        int index = (int) Math.min(sorted.length - 1, Math.floor(q * sorted.length));
+        return sorted[index] / 1e3;
+    }
+
+    private static String ratio(int num, int den) {
+        return den == 0 ? "n/a" : String.format(Locale.ROOT, "%.3f", num / (double) den);
+    }
+}
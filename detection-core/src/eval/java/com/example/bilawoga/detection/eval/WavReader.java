@@ -0,0 +1,149 @@
+package com.example.bilawoga.detection.eval;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Minimal RIFF/WAVE reader: PCM 8/16/24/32-bit or IEEE float, any channel count.
+ * Channels are averaged to mono and samples scaled to [-1, 1].
+ */
+final class WavReader {
+
+    static final class Audio {
+        final float[] samples;
+        final int sampleRate;
+
+        Audio(float[] samples, int sampleRate) {
+            this.samples = samples;
+            this.sampleRate = sampleRate;
+        }
+
+        double durationSeconds() {
+            return samples.length / (double) sampleRate;
+        }
+    }
+
+    private WavReader() {
+    }
+
+    static Audio read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (readTag(in) != 0x46464952 /* RIFF */) throw new IOException("Not a RIFF file: " + file);
+            readIntLE(in);
+            if (readTag(in) != 0x45564157 /* WAVE */) throw new IOException("Not a WAVE file: " + file);
+
+            int format = -1, channels = 0, sampleRate = 0, bits = 0;
+            while (true) {
+                int tag;
+                try {
+                    tag = readTag(in);
+                } catch (EOFException e) {
+                    throw new IOException("No data chunk in " + file);
+                }
+                long size = readIntLE(in) & 0xFFFFFFFFL;
+                if (tag == 0x20746D66 /* fmt  */) {
+                    format = readShortLE(in);
+                    channels = readShortLE(in);
+                    sampleRate = readIntLE(in);
+                    readIntLE(in);   // byte rate
+                    readShortLE(in); // block align
+                    bits = readShortLE(in);
+                    byte[] extra = new byte[(int) (size - 16)];
+                    in.readFully(extra);
+                    if ((size & 1) != 0) in.readUnsignedByte();
+                    if (format == 0xFFFE && extra.length >= 10) {
+                        // WAVE_FORMAT_EXTENSIBLE: real format code starts the sub-format GUID
+                        format = (extra[8] & 0xFF) | ((extra[9] & 0xFF) << 8);
+                    }
+                } else if (tag == 0x61746164 /* data */) {
+                    if (format < 0) throw new IOException("data before fmt in " + file);
+                    return new Audio(readSamples(in, size, format, channels, bits), sampleRate);
+                } else {
+                    skipFully(in, size + (size & 1));
+                }
+            }
+        }
+    }
+
+    private static float[] readSamples(DataInputStream in, long size, int format, int channels, int bits)
+            throws IOException {
+        int bytesPerSample = bits / 8;
+        if (channels <= 0 || bytesPerSample <= 0) throw new IOException("Bad WAV format");
+        int frames = (int) (size / ((long) bytesPerSample * channels));
+        float[] out = new float[frames];
+        byte[] frame = new byte[bytesPerSample * channels];
+        for (int f = 0; f < frames; f++) {
+            in.readFully(frame);
+            float sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += decode(frame, c * bytesPerSample, format, bits);
+            }
+            out[f] = sum / channels;
+        }
+        return out;
+    }
+
+    private static float decode(byte[] b, int o, int format, int bits) throws IOException {
+        switch (bits) {
+            case 8:
+                return ((b[o] & 0xFF) - 128) / 128f;
+            case 16:
+                return (short) ((b[o] & 0xFF) | (b[o + 1] << 8)) / 32768f;
+            case 24:
+                return ((b[o] & 0xFF) | ((b[o + 1] & 0xFF) << 8) | (b[o + 2] << 16)) / 8388608f;
+            case 32: {
+                int v = (b[o] & 0xFF) | ((b[o + 1] & 0xFF) << 8) | ((b[o + 2] & 0xFF) << 16) | (b[o + 3] << 24);
+                return format == 3 ? Float.intBitsToFloat(v) : v / 2147483648f;
+            }
+            default:
+                throw new IOException("Unsupported bit depth: " + bits);
+        }
+    }
+
+    /**
+     * Linear interpolation resampler; deterministic, good enough for detector evaluation.
+     */
+    static float[] resample(float[] in, int fromRate, int toRate) {
+        if (fromRate == toRate) return in;
+        int outLength = (int) ((long) in.length * toRate / fromRate);
+        float[] out = new float[outLength];
+        double step = fromRate / (double) toRate;
+        for (int i = 0; i < outLength; i++) {
+            double pos = i * step;
+            int i0 = (int) pos;
+            int i1 = Math.min(i0 + 1, in.length - 1);
+            double frac = pos - i0;
+            out[i] = (float) (in[i0] * (1 - frac) + in[i1] * frac);
+        }
+        return out;
+    }
+
+    private static int readTag(DataInputStream in) throws IOException {
+        return readIntLE(in);
+    }
+
+    private static int readIntLE(DataInputStream in) throws IOException {
+        int b0 = in.readUnsignedByte(), b1 = in.readUnsignedByte(), b2 = in.readUnsignedByte(), b3 = in.readUnsignedByte();
+        return b0 | (b1 << 8) | (b2 << 16) | (b3 << 24);
+    }
+
+    private static int readShortLE(DataInputStream in) throws IOException {
+        int b0 = in.readUnsignedByte(), b1 = in.readUnsignedByte();
+        return b0 | (b1 << 8);
+    }
+
+    private static void skipFully(DataInputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                in.readUnsignedByte();
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.bilawoga.detection.bench;
+
+import com.example.bilawoga.detection.MotionPatternDetector;
+import com.example.bilawoga.detection.ShakeEngine;
+import com.example.bilawoga.detection.ShakeProfile;
+import com.example.bilawoga.detection.ThreatScorer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-sample cost of each motion detector. One benchmark invocation is one accelerometer
+ * sample; run with -prof gc (the default in build.gradle.kts) to see allocation per sample.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MotionDetectorBenchmark {
+    private static final int LENGTH = 1 << 14;
+    private static final long SAMPLE_MILLIS = 1000 / SensorSignals.SAMPLE_RATE_HZ;
+
+    @Param({"still", "walking", "shaking"})
+    public String signal;
+
+    private SensorSignals samples;
+    private int index;
+    private long now;
+    private int events;
+
+    private ShakeEngine shake;
+    private MotionPatternDetector covert;
+    private MotionPatternDetector enhanced;
+    private ThreatScorer threat;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        samples = SensorSignals.generate(signal, LENGTH);
+        MotionPatternDetector.PatternListener counting = new MotionPatternDetector.PatternListener() {
+            @Override
+            public void onPhonePosition(boolean inPocket) {
+            }
+
+            @Override
+            public void onPatternMatched(MotionPatternDetector.Pattern pattern, float confidence) {
+                events++;
+            }
+
+            @Override
+            public void onFalseAlarmPrevented(MotionPatternDetector.FalseAlarm reason) {
+                events++;
+            }
+        };
+        shake = new ShakeEngine(ShakeProfile.MEDIUM);
+        covert = new MotionPatternDetector(MotionPatternDetector.Config.COVERT, counting);
+        enhanced = new MotionPatternDetector(MotionPatternDetector.Config.ENHANCED, counting);
+        threat = new ThreatScorer();
+        now = 1_700_000_000_000L;
+    }
+
+    private int next() {
+        index = (index + 1) & (LENGTH - 1);
+        now += SAMPLE_MILLIS;
+        return index;
+    }
+
+    private float magnitude(int i) {
+        float x = samples.x[i], y = samples.y[i], z = samples.z[i];
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+
+    @Benchmark
+    public boolean shakeEngine() {
+        int i = next();
+        return shake.onAcceleration(now * 1_000_000L, samples.x[i], samples.y[i], samples.z[i]);
+    }
+
+    @Benchmark
+    public int covertPatterns() {
+        int i = next();
+        covert.onAcceleration(magnitude(i), now);
+        return events;
+    }
+
+    @Benchmark
+    public int enhancedPatterns() {
+        int i = next();
+        enhanced.onAcceleration(magnitude(i), now);
+        return events;
+    }
+
+    @Benchmark
+    public float threatScorer() {
+        int i = next();
+        threat.onAcceleration(now * 1_000_000L, samples.x[i], samples.y[i], samples.z[i]);
+        if (threat.isAssessmentDue(now)) {
+            return threat.assess(now).threatLevel;
+        }
+        return 0;
+    }
+}
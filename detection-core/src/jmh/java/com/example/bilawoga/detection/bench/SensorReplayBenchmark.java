@@ -0,0 +1,116 @@
+package com.example.bilawoga.detection.bench;
+
+import com.example.bilawoga.detection.MotionPatternDetector;
+import com.example.bilawoga.detection.ReplayClock;
+import com.example.bilawoga.detection.SensorReplayEngine;
+import com.example.bilawoga.detection.SensorSample;
+import com.example.bilawoga.detection.SensorSampleSink;
+import com.example.bilawoga.detection.SensorTraceReader;
+import com.example.bilawoga.detection.SensorTypes;
+import com.example.bilawoga.detection.ShakeEngine;
+import com.example.bilawoga.detection.ShakeProfile;
+import com.example.bilawoga.detection.ThreatScorer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput in samples per second: decoding a memory-mapped trace alone,
+ * and decoding it while driving every motion detector, as the replay tool does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorReplayBenchmark {
+    private static final int ACCEL_SAMPLES = 1 << 14;
+    private static final int TRACE_SAMPLES = ACCEL_SAMPLES * 3; // accel + gyro + mag
+
+    private File trace;
+    private final SensorSample sample = new SensorSample();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        trace = SensorSignals.generate("walking", ACCEL_SAMPLES).writeTrace("replay-bench");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRACE_SAMPLES)
+    public float decodeOnly() throws IOException {
+        float checksum = 0;
+        try (SensorTraceReader reader = new SensorTraceReader(trace)) {
+            while (reader.next(sample)) {
+                checksum += sample.x;
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRACE_SAMPLES)
+    public long replayAllDetectors() throws IOException {
+        try (SensorTraceReader reader = new SensorTraceReader(trace)) {
+            ReplayClock clock = new ReplayClock(reader.getStartWallMillis());
+            int[] events = new int[1];
+            ShakeEngine shake = new ShakeEngine(ShakeProfile.MEDIUM);
+            MotionPatternDetector.PatternListener counting = new MotionPatternDetector.PatternListener() {
+                @Override
+                public void onPhonePosition(boolean inPocket) {
+                }
+
+                @Override
+                public void onPatternMatched(MotionPatternDetector.Pattern pattern, float confidence) {
+                    events[0]++;
+                }
+
+                @Override
+                public void onFalseAlarmPrevented(MotionPatternDetector.FalseAlarm reason) {
+                }
+            };
+            MotionPatternDetector covert = new MotionPatternDetector(MotionPatternDetector.Config.COVERT, counting);
+            MotionPatternDetector enhanced = new MotionPatternDetector(MotionPatternDetector.Config.ENHANCED, counting);
+            ThreatScorer threat = new ThreatScorer();
+
+            SensorSampleSink sink = (type, ts, x, y, z) -> {
+                long now = clock.currentTimeMillis();
+                switch (type) {
+                    case SensorTypes.ACCELEROMETER:
+                        if (shake.onAcceleration(ts, x, y, z)) events[0]++;
+                        float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+                        covert.onAcceleration(magnitude, now);
+                        enhanced.onAcceleration(magnitude, now);
+                        threat.onAcceleration(ts, x, y, z);
+                        break;
+                    case SensorTypes.GYROSCOPE:
+                        threat.onRotation(x, y, z);
+                        break;
+                    case SensorTypes.MAGNETIC_FIELD:
+                        threat.onMagneticField(x, y, z);
+                        break;
+                    default:
+                        break;
+                }
+                if (threat.isAssessmentDue(now)) {
+                    threat.assess(now);
+                }
+            };
+            return SensorReplayEngine.replay(reader, SensorReplayEngine.AS_FAST_AS_POSSIBLE, clock, sink).samples + events[0];
+        }
+    }
+}
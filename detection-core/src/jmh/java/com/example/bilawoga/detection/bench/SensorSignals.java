@@ -0,0 +1,79 @@
+package com.example.bilawoga.detection.bench;
+
+import com.example.bilawoga.detection.SensorTraceWriter;
+import com.example.bilawoga.detection.SensorTypes;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic accelerometer streams at 50 Hz, so benchmark inputs are the
+ * same on every machine. Real recordings go through the eval tool instead.
+ */
+final class SensorSignals {
+    static final int SAMPLE_RATE_HZ = 50;
+    static final long SAMPLE_INTERVAL_NANOS = 1_000_000_000L / SAMPLE_RATE_HZ;
+    private static final float G = 9.80665f;
+
+    final float[] x;
+    final float[] y;
+    final float[] z;
+
+    private SensorSignals(int length) {
+        x = new float[length];
+        y = new float[length];
+        z = new float[length];
+    }
+
+    /**
+     * @param kind still (lying on a table), walking (2 Hz gait) or shaking (6 Hz, strong)
+     * @param length number of samples; a power of two lets callers wrap with a mask
+     */
+    static SensorSignals generate(String kind, int length) {
+        SensorSignals s = new SensorSignals(length);
+        Random random = new Random(42);
+        for (int i = 0; i < length; i++) {
+            double t = i / (double) SAMPLE_RATE_HZ;
+            float noise = 0.05f;
+            float ax = 0, ay = 0, az = G;
+            switch (kind) {
+                case "walking":
+                    az += (float) (2.5 * Math.sin(2 * Math.PI * 2.0 * t));
+                    ax += (float) (0.8 * Math.sin(2 * Math.PI * 1.0 * t));
+                    noise = 0.3f;
+                    break;
+                case "shaking":
+                    ax += (float) (15.0 * Math.sin(2 * Math.PI * 6.0 * t));
+                    ay += (float) (6.0 * Math.cos(2 * Math.PI * 6.0 * t));
+                    noise = 1.0f;
+                    break;
+                default:
+                    break;
+            }
+            s.x[i] = ax + (float) random.nextGaussian() * noise;
+            s.y[i] = ay + (float) random.nextGaussian() * noise;
+            s.z[i] = az + (float) random.nextGaussian() * noise;
+        }
+        return s;
+    }
+
+    /**
+     * Write the signal as a trace with gyroscope and magnetometer samples interleaved,
+     * roughly the mix SensorTraceRecorder produces.
+     */
+    File writeTrace(String prefix) throws IOException {
+        File file = File.createTempFile(prefix, ".bwst");
+        file.deleteOnExit();
+        long start = 1_000_000_000L;
+        try (SensorTraceWriter writer = new SensorTraceWriter(file, 1_700_000_000_000L, start)) {
+            for (int i = 0; i < x.length; i++) {
+                long ts = start + i * SAMPLE_INTERVAL_NANOS;
+                writer.append(SensorTypes.ACCELEROMETER, ts, x[i], y[i], z[i]);
+                writer.append(SensorTypes.GYROSCOPE, ts + 1000, x[i] * 0.1f, y[i] * 0.1f, 0.01f);
+                writer.append(SensorTypes.MAGNETIC_FIELD, ts + 2000, 22.0f, -5.0f, 40.0f + x[i] * 0.01f);
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.bilawoga.detection.bench;
+
+import com.example.bilawoga.detection.MfccFeatureExtractor;
+import com.example.bilawoga.detection.SoundDetection;
+import com.example.bilawoga.detection.SoundFrameAnalyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of the two audio front ends: the BackgroundAudioMonitor level/spectrum
+ * path and the MFCC extraction shared by the keyword spotter and SilentEmergencyAI.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SoundFrameBenchmark {
+
+    /** Typical AudioRecord minimum buffer at 44.1 kHz, in samples. */
+    @Param({"1792"})
+    public int frameSamples;
+
+    private SoundFrameAnalyzer analyzer;
+    private MfccFeatureExtractor mfcc;
+    private short[] pcmFrame;
+    private float[] mfccFrame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        pcmFrame = new short[frameSamples];
+        for (int i = 0; i < frameSamples; i++) {
+            double tone = Math.sin(2 * Math.PI * 2500 * i / (double) SoundFrameAnalyzer.SAMPLE_RATE);
+            pcmFrame[i] = (short) (8000 * tone + random.nextGaussian() * 2000);
+        }
+        mfccFrame = new float[MfccFeatureExtractor.FRAME_SIZE];
+        for (int i = 0; i < mfccFrame.length; i++) {
+            mfccFrame[i] = (float) (0.3 * Math.sin(2 * Math.PI * 440 * i / (double) MfccFeatureExtractor.SAMPLE_RATE)
+                    + random.nextGaussian() * 0.05);
+        }
+        analyzer = new SoundFrameAnalyzer();
+        mfcc = new MfccFeatureExtractor();
+    }
+
+    @Benchmark
+    public SoundDetection soundFrame() {
+        return analyzer.analyze(pcmFrame);
+    }
+
+    @Benchmark
+    public float[] mfccFrame() {
+        return mfcc.process(mfccFrame);
+    }
+}
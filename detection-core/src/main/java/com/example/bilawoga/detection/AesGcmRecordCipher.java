@@ -0,0 +1,60 @@
+package com.example.bilawoga.detection;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * AES-GCM records: iv (12 bytes) | ciphertext | tag (16 bytes).
+ *
+ * The IV comes from the provider (init without parameters), which also suits keys that
+ * refuse caller-chosen IVs, such as Android Keystore keys.
+ */
+public final class AesGcmRecordCipher implements RecordCipher {
+    public static final int IV_BYTES = 12;
+    public static final int TAG_BITS = 128;
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    private final SecretKey key;
+
+    public AesGcmRecordCipher(SecretKey key) {
+        this.key = key;
+    }
+
+    @Override
+    public byte[] seal(byte[] plaintext, byte[] associatedData) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, key);
+        byte[] iv = cipher.getIV();
+        if (iv == null || iv.length != IV_BYTES) {
+            throw new GeneralSecurityException("Unexpected GCM IV length");
+        }
+        if (associatedData != null) {
+            cipher.updateAAD(associatedData);
+        }
+        byte[] out = new byte[IV_BYTES + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(iv, 0, out, 0, IV_BYTES);
+        int n = cipher.doFinal(plaintext, 0, plaintext.length, out, IV_BYTES);
+        if (IV_BYTES + n != out.length) {
+            byte[] exact = new byte[IV_BYTES + n];
+            System.arraycopy(out, 0, exact, 0, exact.length);
+            return exact;
+        }
+        return out;
+    }
+
+    @Override
+    public byte[] open(byte[] sealed, byte[] associatedData) throws GeneralSecurityException {
+        if (sealed.length < IV_BYTES + TAG_BITS / 8) {
+            throw new GeneralSecurityException("Record too short");
+        }
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, sealed, 0, IV_BYTES));
+        if (associatedData != null) {
+            cipher.updateAAD(associatedData);
+        }
+        return cipher.doFinal(sealed, IV_BYTES, sealed.length - IV_BYTES);
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.bilawoga.detection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Envelope-encrypted backup blob: a set of string fields, compressed and sealed as one
+ * record under a data key, with the data key itself wrapped by a key-encryption key and
+ * carried alongside. All multi-byte fields are big-endian.
+ *
+ *   magic "BWBK" | version u8 | vector length u16 | version vector utf8
+ *   | wrapped key length u16 | wrapped key | sealed u8[rest]
+ *
+ * sealed is one AEAD record (see RecordCipher) whose associated data is every byte before
+ * it, so the vector and wrapped key cannot be swapped between blobs. The plaintext is the
+ * deflated field list:
+ *   count i32 | count x (key length u16 | key utf8 | value length i32 | value utf8)
+ *
+ * The header can be read without any key, so a reader can compare version vectors
+ * before paying for an unwrap.
+ */
+public final class BackupEnvelope {
+    public static final int MAGIC = 0x4257424B; // "BWBK"
+    public static final int VERSION = 1;
+    /** Upper bound on the inflated field list, so a corrupt blob cannot exhaust memory. */
+    static final int MAX_PLAINTEXT_SIZE = 1 << 20;
+
+    /** The unencrypted part of a blob. */
+    public static final class Header {
+        public final VersionVector versionVector;
+        public final byte[] wrappedKey;
+        final int sealedOffset;
+
+        Header(VersionVector versionVector, byte[] wrappedKey, int sealedOffset) {
+            this.versionVector = versionVector;
+            this.wrappedKey = wrappedKey;
+            this.sealedOffset = sealedOffset;
+        }
+    }
+
+    private BackupEnvelope() {
+    }
+
+    /**
+     * @param wrappedKey the data key behind {@code dataCipher}, wrapped by the caller
+     */
+    public static byte[] seal(Map<String, String> fields, VersionVector versionVector, byte[] wrappedKey,
+                              RecordCipher dataCipher) throws GeneralSecurityException {
+        byte[] vector = versionVector.encode().getBytes(StandardCharsets.UTF_8);
+        if (vector.length > 0xFFFF || wrappedKey.length > 0xFFFF) {
+            throw new IllegalArgumentException("Header field too long");
+        }
+        ByteBuffer header = ByteBuffer.allocate(4 + 1 + 2 + vector.length + 2 + wrappedKey.length);
+        header.putInt(MAGIC).put((byte) VERSION)
+                .putShort((short) vector.length).put(vector)
+                .putShort((short) wrappedKey.length).put(wrappedKey);
+        byte[] aad = header.array();
+        byte[] sealed = dataCipher.seal(deflate(serialize(fields)), aad);
+        byte[] out = Arrays.copyOf(aad, aad.length + sealed.length);
+        System.arraycopy(sealed, 0, out, aad.length, sealed.length);
+        return out;
+    }
+
+    /**
+     * @throws IllegalArgumentException if this is not a blob this version can read
+     */
+    public static Header readHeader(byte[] blob) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(blob);
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a backup envelope");
+            }
+            int version = in.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported backup envelope version " + version);
+            }
+            byte[] vector = new byte[in.getShort() & 0xFFFF];
+            in.get(vector);
+            byte[] wrappedKey = new byte[in.getShort() & 0xFFFF];
+            in.get(wrappedKey);
+            return new Header(VersionVector.decode(new String(vector, StandardCharsets.UTF_8)),
+                    wrappedKey, in.position());
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated backup envelope");
+        }
+    }
+
+    /**
+     * Decrypt the fields.
+     *
+     * @param dataCipher a cipher over the data key unwrapped from {@code header.wrappedKey}
+     * @throws GeneralSecurityException if the blob was altered or the key is wrong
+     */
+    public static Map<String, String> open(byte[] blob, Header header, RecordCipher dataCipher)
+            throws GeneralSecurityException {
+        byte[] aad = Arrays.copyOf(blob, header.sealedOffset);
+        byte[] sealed = Arrays.copyOfRange(blob, header.sealedOffset, blob.length);
+        try {
+            return deserialize(inflate(dataCipher.open(sealed, aad)));
+        } catch (IOException | DataFormatException e) {
+            // Authenticated but unreadable: written by a broken or newer encoder
+            throw new GeneralSecurityException("Malformed backup contents: " + e.getMessage());
+        }
+    }
+
+    /**
+     * SHA-256 of the fields in their serialized form, as hex. Equal field sets give equal
+     * hashes, so a writer can tell whether anything changed since the last backup without
+     * keeping the plaintext.
+     */
+    public static String contentHash(Map<String, String> fields) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(serialize(fields));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] serialize(Map<String, String> fields) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            // Sorted, so the same fields always serialize (and hash) the same way
+            TreeMap<String, String> sorted = new TreeMap<>(fields);
+            out.writeInt(sorted.size());
+            for (Map.Entry<String, String> e : sorted.entrySet()) {
+                byte[] key = e.getKey().getBytes(StandardCharsets.UTF_8);
+                byte[] value = (e.getValue() != null ? e.getValue() : "").getBytes(StandardCharsets.UTF_8);
+                if (key.length > 0xFFFF) {
+                    throw new IllegalArgumentException("Field name too long");
+                }
+                out.writeShort(key.length);
+                out.write(key);
+                out.writeInt(value.length);
+                out.write(value);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, String> deserialize(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Negative field count");
+        }
+        Map<String, String> fields = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[in.readUnsignedShort()];
+            in.readFully(key);
+            int valueLength = in.readInt();
+            if (valueLength < 0 || valueLength > bytes.length) {
+                throw new IOException("Bad value length");
+            }
+            byte[] value = new byte[valueLength];
+            in.readFully(value);
+            fields.put(new String(key, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8));
+        }
+        return fields;
+    }
+
+    private static byte[] deflate(byte[] plain) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(plain);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] compressed) throws IOException, DataFormatException {
+        Inflater inflater = new Inflater();
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed), inflater)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[512];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+                if (out.size() > MAX_PLAINTEXT_SIZE) {
+                    throw new DataFormatException("Backup contents too large");
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
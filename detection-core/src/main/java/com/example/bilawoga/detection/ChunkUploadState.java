@@ -0,0 +1,135 @@
+package com.example.bilawoga.detection;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Which chunks of one chunked upload are done, in flight or waiting to retry.
+ *
+ * Only the done set survives a restart (doneBits() / the resuming constructor); attempts
+ * and retry times start over with the process. A chunk's retry time is dropped as soon as
+ * it is dispatched again, so earliestRetryAfter() only ever names chunks that are really
+ * waiting.
+ *
+ * Not thread-safe; the uploader guards it with its own lock.
+ */
+public final class ChunkUploadState {
+    public final int chunkCount;
+    private final BitSet done;
+    private final BitSet inFlight = new BitSet();
+    private final Map<Integer, Integer> attempts = new HashMap<>();
+    private final Map<Integer, Long> retryAt = new HashMap<>();
+
+    /** A new upload with nothing done. */
+    public ChunkUploadState(int chunkCount) {
+        this(chunkCount, new byte[0]);
+    }
+
+    /**
+     * Resume from a previous doneBits(). Bits beyond chunkCount are ignored.
+     *
+     * @throws IllegalArgumentException if chunkCount is not positive
+     */
+    public ChunkUploadState(int chunkCount, byte[] doneBits) {
+        if (chunkCount <= 0) {
+            throw new IllegalArgumentException("chunkCount must be positive: " + chunkCount);
+        }
+        this.chunkCount = chunkCount;
+        this.done = BitSet.valueOf(doneBits);
+        if (done.length() > chunkCount) {
+            done.clear(chunkCount, done.length());
+        }
+    }
+
+    /** Number of chunkSize chunks in size bytes; an empty file is still one chunk. */
+    public static int chunkCount(long size, int chunkSize) {
+        return (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * The lowest chunk that is neither done, in flight nor waiting out a backoff at
+     * {@code nowMillis}, or -1.
+     */
+    public int nextDispatchable(long nowMillis) {
+        for (int i = done.nextClearBit(0); i < chunkCount; i = done.nextClearBit(i + 1)) {
+            if (inFlight.get(i)) continue;
+            Long at = retryAt.get(i);
+            if (at != null && at > nowMillis) continue;
+            return i;
+        }
+        return -1;
+    }
+
+    /** Chunk {@code index} has been handed to a worker. */
+    public void dispatched(int index) {
+        inFlight.set(index);
+        retryAt.remove(index);
+    }
+
+    public void succeeded(int index) {
+        inFlight.clear(index);
+        done.set(index);
+        attempts.remove(index);
+        retryAt.remove(index);
+    }
+
+    /**
+     * Chunk {@code index} failed; it becomes dispatchable again after
+     * {@code backoff.applyAsLong(attempt)} ms, where attempt counts this chunk's failures.
+     *
+     * @return the attempt number
+     */
+    public int failed(int index, long nowMillis, IntToLongFunction backoff) {
+        inFlight.clear(index);
+        int attempt = attempts.merge(index, 1, Integer::sum);
+        retryAt.put(index, nowMillis + backoff.applyAsLong(attempt));
+        return attempt;
+    }
+
+    /**
+     * Mark chunks the backend already holds as done, e.g. ones that arrived after the last
+     * manifest write. Out-of-range indices are ignored.
+     *
+     * @return how many chunks this newly marked done
+     */
+    public int markStored(Iterable<Integer> indices) {
+        int added = 0;
+        for (int index : indices) {
+            if (index < 0 || index >= chunkCount || done.get(index)) continue;
+            done.set(index);
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * The earliest pending retry time after {@code nowMillis}, or Long.MAX_VALUE. Retries
+     * already due are left out: they are either dispatched or waiting for a free slot, and
+     * a finishing chunk wakes the uploader for those.
+     */
+    public long earliestRetryAfter(long nowMillis) {
+        long earliest = Long.MAX_VALUE;
+        for (Map.Entry<Integer, Long> entry : retryAt.entrySet()) {
+            long at = entry.getValue();
+            if (at > nowMillis && !inFlight.get(entry.getKey())) {
+                earliest = Math.min(earliest, at);
+            }
+        }
+        return earliest;
+    }
+
+    public int doneCount() {
+        return done.cardinality();
+    }
+
+    public boolean isComplete() {
+        return done.cardinality() >= chunkCount;
+    }
+
+    /** The done set, for persisting; pass back to the resuming constructor. */
+    public byte[] doneBits() {
+        return done.toByteArray();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Time source for detectors. Live code uses SYSTEM; trace replay swaps in a
+ * ReplayClock so time advances with the recording instead of the wall clock.
+ */
+public interface Clock {
+    Clock SYSTEM = System::currentTimeMillis;
+
+    long currentTimeMillis();
+}
@@ -0,0 +1,73 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Rule-based emergency sound classifier.
+ * Tuned to avoid baby cries and family arguments: looks for loud frames whose
+ * spectrum has many strong components in adult distress, scream or help-cry bands.
+ */
+public class EmergencySoundDetector {
+    public static final String TYPE_ADULT_DISTRESS = "Adult Distress";
+    public static final String TYPE_SCREAMING = "Screaming/Abuse";
+    public static final String TYPE_HELP_CRY = "Help Cry";
+
+    // Emergency detection parameters - tuned to avoid baby cries and family arguments
+    private static final int EMERGENCY_THRESHOLD = 85; // Higher threshold to avoid normal sounds
+    private static final int CRYING_FREQUENCY_MIN = 300; // Hz - adjusted to focus on adult distress
+    private static final int CRYING_FREQUENCY_MAX = 600; // Hz - avoid baby crying range
+    private static final int SCREAMING_FREQUENCY_MIN = 1000; // Hz - screaming frequency range
+    private static final int SCREAMING_FREQUENCY_MAX = 2500; // Hz
+
+    public SoundDetection detectEmergency(double db, double[] frequencies) {
+        // Check for sustained high volume sounds (potential screaming/abuse)
+        if (db > EMERGENCY_THRESHOLD) {
+            // Analyze frequency patterns to distinguish emergency from normal sounds
+            if (isAdultDistressSound(frequencies)) {
+                return new SoundDetection(true, TYPE_ADULT_DISTRESS, 0.9f);
+            } else if (isScreamingSound(frequencies)) {
+                return new SoundDetection(true, TYPE_SCREAMING, 0.8f);
+            } else if (isHelpCry(frequencies)) {
+                return new SoundDetection(true, TYPE_HELP_CRY, 0.7f);
+            }
+        }
+
+        // Check for sustained moderate volume adult distress
+        if (db > 70 && db <= EMERGENCY_THRESHOLD && isAdultDistressSound(frequencies)) {
+            return new SoundDetection(true, TYPE_ADULT_DISTRESS, 0.6f);
+        }
+
+        return SoundDetection.NONE;
+    }
+
+    private boolean isAdultDistressSound(double[] frequencies) {
+        // Check for adult distress patterns (avoiding baby cries)
+        int distressCount = 0;
+        for (int i = CRYING_FREQUENCY_MIN; i < CRYING_FREQUENCY_MAX && i < frequencies.length; i++) {
+            if (frequencies[i] > 1500) { // Higher threshold for adult sounds
+                distressCount++;
+            }
+        }
+        return distressCount > 12; // More components needed for adult distress
+    }
+
+    private boolean isScreamingSound(double[] frequencies) {
+        // Check if dominant frequencies are in screaming range
+        int screamingCount = 0;
+        for (int i = SCREAMING_FREQUENCY_MIN; i < SCREAMING_FREQUENCY_MAX && i < frequencies.length; i++) {
+            if (frequencies[i] > 2500) { // Higher threshold for screaming
+                screamingCount++;
+            }
+        }
+        return screamingCount > 18; // More components needed for screaming
+    }
+
+    private boolean isHelpCry(double[] frequencies) {
+        // Check for "help" or "stop" type cries
+        int helpCount = 0;
+        for (int i = 800; i < 1500 && i < frequencies.length; i++) {
+            if (frequencies[i] > 2000) { // Specific range for help cries
+                helpCount++;
+            }
+        }
+        return helpCount > 8; // Moderate threshold for help cries
+    }
+}
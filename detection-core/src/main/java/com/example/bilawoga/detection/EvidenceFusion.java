@@ -0,0 +1,178 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Combines time-stamped evidence from independent detectors into one emergency
+ * probability.
+ *
+ * Model: naive Bayes in log-odds. Each source's raw confidence is calibrated Platt-style,
+ * llr = weight * logit(confidence) + bias, and only positive evidence is kept. Evidence
+ * fades with a per-source half-life, and per source only the strongest current evidence
+ * counts, so a detector that reports every frame cannot outvote the others. The fused
+ * score is sigmoid(logit(prior) + sum of source evidence).
+ *
+ * Two weak signals from different sources (a faint scream and a weak abduction pattern)
+ * can therefore cross the trigger together where neither detector's own threshold would.
+ * Default calibrations are hand-set; fitted values belong in Config.
+ *
+ * report() may be called from any thread; evaluate() is meant for one ticking thread.
+ */
+public final class EvidenceFusion {
+
+    public enum Source {
+        MOTION_PATTERN, AUDIO_SOUND, AUDIO_MODEL, VOICE, PREDICTIVE
+    }
+
+    /** Calibration and memory for one source. */
+    public static final class SourceModel {
+        public final float weight;
+        public final float bias;
+        public final long halfLifeMillis;
+
+        public SourceModel(float weight, float bias, long halfLifeMillis) {
+            this.weight = weight;
+            this.bias = bias;
+            this.halfLifeMillis = halfLifeMillis;
+        }
+    }
+
+    public static final class Config {
+        final SourceModel[] models = new SourceModel[Source.values().length];
+        float priorProbability = 0.001f;
+        float triggerScore = 0.8f;
+        float releaseScore = 0.5f;
+        long cooldownMillis = 30_000;
+
+        public static Config defaults() {
+            Config c = new Config();
+            // With the 0.001 prior: one event source at 0.5 fuses to ~0.3, at 0.7 to ~0.8;
+            // two event sources at 0.4 together to ~0.9
+            // Motion patterns are rare; hold them long enough to meet a scream
+            c.models[Source.MOTION_PATTERN.ordinal()] = new SourceModel(3.0f, 6.0f, 20_000);
+            c.models[Source.AUDIO_SOUND.ordinal()] = new SourceModel(3.0f, 6.0f, 10_000);
+            c.models[Source.AUDIO_MODEL.ordinal()] = new SourceModel(3.0f, 6.0f, 10_000);
+            c.models[Source.VOICE.ordinal()] = new SourceModel(3.0f, 6.0f, 15_000);
+            // Context rather than an event: weaker, slower to fade
+            c.models[Source.PREDICTIVE.ordinal()] = new SourceModel(2.0f, 3.0f, 60_000);
+            return c;
+        }
+
+        public Config source(Source source, SourceModel model) {
+            models[source.ordinal()] = model;
+            return this;
+        }
+
+        public Config prior(float probability) {
+            this.priorProbability = probability;
+            return this;
+        }
+
+        /**
+         * @param trigger fused score that raises an emergency
+         * @param release score the fused result must fall below before it can trigger again
+         */
+        public Config thresholds(float trigger, float release) {
+            this.triggerScore = trigger;
+            this.releaseScore = release;
+            return this;
+        }
+
+        public Config cooldown(long millis) {
+            this.cooldownMillis = millis;
+            return this;
+        }
+    }
+
+    /** Output of one evaluate(); reused, so copy what you need before the next call. */
+    public static final class Result {
+        public long timeMillis;
+        public float score;
+        /** Current evidence per source, in log-likelihood ratio units, by Source ordinal. */
+        public final float[] evidence = new float[Source.values().length];
+        public Source strongest;
+        /** True on the evaluation that crossed the trigger. */
+        public boolean triggered;
+    }
+
+    private static final float EPSILON = 1e-4f;
+
+    private final Config config;
+    private final float priorLogOdds;
+    private final float[] llr;
+    private final long[] reportedAt;
+    private final Result result = new Result();
+    private boolean armed = true;
+    private long lastTriggerMillis = Long.MIN_VALUE / 2;
+
+    public EvidenceFusion(Config config) {
+        this.config = config;
+        this.priorLogOdds = logit(config.priorProbability);
+        int n = Source.values().length;
+        llr = new float[n];
+        reportedAt = new long[n];
+    }
+
+    /**
+     * @param confidence the detector's own score in [0, 1], reported whether or not it
+     *                   passed the detector's threshold
+     */
+    public synchronized void report(Source source, float confidence, long timeMillis) {
+        SourceModel model = config.models[source.ordinal()];
+        if (model == null) return;
+        float evidence = Math.max(0, model.weight * logit(confidence) + model.bias);
+        int i = source.ordinal();
+        if (evidence >= decayed(i, timeMillis)) {
+            llr[i] = evidence;
+            reportedAt[i] = timeMillis;
+        }
+    }
+
+    /**
+     * Fuse current evidence. Call at a fixed rate from one thread.
+     */
+    public synchronized Result evaluate(long nowMillis) {
+        Result r = result;
+        float logOdds = priorLogOdds;
+        float strongest = 0;
+        r.strongest = null;
+        for (Source source : Source.values()) {
+            int i = source.ordinal();
+            float e = decayed(i, nowMillis);
+            r.evidence[i] = e;
+            logOdds += e;
+            if (e > strongest) {
+                strongest = e;
+                r.strongest = source;
+            }
+        }
+        r.timeMillis = nowMillis;
+        r.score = (float) (1 / (1 + Math.exp(-logOdds)));
+
+        r.triggered = false;
+        if (r.score < config.releaseScore) {
+            armed = true;
+        } else if (armed && r.score >= config.triggerScore
+                && nowMillis - lastTriggerMillis >= config.cooldownMillis) {
+            r.triggered = true;
+            armed = false;
+            lastTriggerMillis = nowMillis;
+        }
+        return r;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < llr.length; i++) llr[i] = 0;
+        armed = true;
+    }
+
+    private float decayed(int i, long nowMillis) {
+        if (llr[i] == 0) return 0;
+        SourceModel model = config.models[i];
+        long age = Math.max(0, nowMillis - reportedAt[i]);
+        return (float) (llr[i] * Math.pow(0.5, age / (double) model.halfLifeMillis));
+    }
+
+    private static float logit(float p) {
+        float c = Math.max(EPSILON, Math.min(1 - EPSILON, p));
+        return (float) Math.log(c / (1 - c));
+    }
+}
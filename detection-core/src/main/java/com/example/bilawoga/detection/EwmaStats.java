@@ -0,0 +1,71 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Exponentially weighted mean and variance with a time-based half-life.
+ *
+ * Weights decay with sensor time rather than sample count, so irregular sample rates do
+ * not change the horizon. Until the number of samples reaches the equivalent window the
+ * update falls back to a plain running average, so early estimates are not anchored to
+ * the first sample. O(1) per update, constant memory.
+ */
+public final class EwmaStats {
+    private final double decayPerNano;
+
+    private long count = 0;
+    private long lastTimestampNanos;
+    private double mean = 0;
+    private double variance = 0;
+
+    public EwmaStats(long halfLifeMillis) {
+        this.decayPerNano = Math.log(2) / (halfLifeMillis * 1e6);
+    }
+
+    public void add(long timestampNanos, double value) {
+        add(timestampNanos, value, 1);
+    }
+
+    /**
+     * Add a value that stands for several samples, e.g. the mean of a stored aggregate.
+     */
+    public void add(long timestampNanos, double value, long weight) {
+        if (weight <= 0) return;
+        if (count == 0) {
+            mean = value;
+            variance = 0;
+        } else {
+            long dt = Math.max(0, timestampNanos - lastTimestampNanos);
+            double alpha = Math.max(-Math.expm1(-decayPerNano * dt), weight / (double) (count + weight));
+            double diff = value - mean;
+            double increment = alpha * diff;
+            mean += increment;
+            variance = (1 - alpha) * (variance + diff * increment);
+        }
+        count += weight;
+        lastTimestampNanos = timestampNanos;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    public double variance() {
+        return variance;
+    }
+
+    /**
+     * @return standard deviations from the mean, 0 while the variance is still zero
+     */
+    public double zScore(double value) {
+        return variance > 0 ? (value - mean) / Math.sqrt(variance) : 0;
+    }
+
+    public void reset() {
+        count = 0;
+        mean = 0;
+        variance = 0;
+    }
+}
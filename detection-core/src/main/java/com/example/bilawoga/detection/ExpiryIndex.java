@@ -0,0 +1,111 @@
+package com.example.bilawoga.detection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Values keyed by token, each with an expiry time. Lookup is a hash probe; a min-heap
+ * ordered by expiry makes put O(log n) and removing what has expired O(expired * log n),
+ * so cleanup never looks at entries that are still live.
+ *
+ * Replacing or removing a token leaves its old heap node behind. Such stale nodes are
+ * dropped when they reach the top of the heap, and the heap is rebuilt once they
+ * outnumber the live entries. Not thread-safe.
+ */
+public final class ExpiryIndex<V> {
+
+    public static final class Entry<V> {
+        public final String token;
+        public final V value;
+        public final long expiresAtMillis;
+
+        Entry(String token, V value, long expiresAtMillis) {
+            this.token = token;
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final Map<String, Entry<V>> byToken = new HashMap<>();
+    private PriorityQueue<Entry<V>> byExpiry = newHeap(11);
+
+    private static <V> PriorityQueue<Entry<V>> newHeap(int capacity) {
+        return new PriorityQueue<>(capacity, (a, b) -> Long.compare(a.expiresAtMillis, b.expiresAtMillis));
+    }
+
+    /** Add or replace a token. Returns the entry it replaced, or null. */
+    public Entry<V> put(String token, V value, long expiresAtMillis) {
+        Entry<V> entry = new Entry<>(token, value, expiresAtMillis);
+        Entry<V> previous = byToken.put(token, entry);
+        byExpiry.add(entry);
+        if (previous != null) {
+            maybeRebuild();
+        }
+        return previous;
+    }
+
+    /** The token's value, or null if it is unknown or expired at {@code nowMillis}. */
+    public V get(String token, long nowMillis) {
+        Entry<V> entry = byToken.get(token);
+        return entry != null && entry.expiresAtMillis > nowMillis ? entry.value : null;
+    }
+
+    public Entry<V> remove(String token) {
+        Entry<V> removed = byToken.remove(token);
+        if (removed != null) {
+            maybeRebuild();
+        }
+        return removed;
+    }
+
+    /**
+     * Remove and return every entry whose expiry is at or before {@code nowMillis}, oldest
+     * first.
+     */
+    public List<Entry<V>> removeExpired(long nowMillis) {
+        List<Entry<V>> expired = null;
+        Entry<V> top;
+        while ((top = byExpiry.peek()) != null && top.expiresAtMillis <= nowMillis) {
+            byExpiry.poll();
+            if (byToken.get(top.token) == top) {
+                byToken.remove(top.token);
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(top);
+            }
+        }
+        return expired != null ? expired : Collections.emptyList();
+    }
+
+    /** Earliest expiry among live entries, or Long.MAX_VALUE when empty. */
+    public long nextExpiryMillis() {
+        Entry<V> top;
+        while ((top = byExpiry.peek()) != null && byToken.get(top.token) != top) {
+            byExpiry.poll();
+        }
+        return top != null ? top.expiresAtMillis : Long.MAX_VALUE;
+    }
+
+    public int size() {
+        return byToken.size();
+    }
+
+    public void clear() {
+        byToken.clear();
+        byExpiry.clear();
+    }
+
+    private void maybeRebuild() {
+        if (byExpiry.size() <= 2 * byToken.size() + 16) {
+            return;
+        }
+        PriorityQueue<Entry<V>> heap = newHeap(Math.max(11, byToken.size()));
+        heap.addAll(byToken.values());
+        byExpiry = heap;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.bilawoga.detection;
+
+/**
+ * A model that scores a window of MFCC frames, e.g. the silent emergency model.
+ * Implementations wrap whatever runtime is available on the platform.
+ */
+public interface FrameWindowClassifier {
+
+    /** Number of consecutive frames the model expects. */
+    int windowFrames();
+
+    /**
+     * @param frames windowFrames() x NUM_COEFFICIENTS, oldest first
+     * @return emergency probability in [0, 1]
+     */
+    float classify(float[][] frames);
+}
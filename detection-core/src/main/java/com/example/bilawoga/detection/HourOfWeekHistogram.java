@@ -0,0 +1,144 @@
+package com.example.bilawoga.detection;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Learned activity level for each of the 168 local hour-of-week slots, with exponential
+ * decay so the model follows a changing routine.
+ *
+ * Decay is lazy: new observations are weighted up by exp(t / tau) relative to a
+ * reference time instead of decaying all buckets, so each update touches one bucket and
+ * a running total. Weights are rebased before they can overflow.
+ *
+ * Time risk is how unusual a slot is for this user: 0 for slots at or above the average
+ * activity, up to 1 for slots where the user is never active. Until enough activity has
+ * been seen the fixed night/weekend rules are used instead.
+ *
+ * Persisted form (writeTo/readFrom) is a version byte, the reference time and 168 floats.
+ * Not thread-safe.
+ */
+public final class HourOfWeekHistogram {
+    public static final long DEFAULT_HALF_LIFE_MS = 28L * 24 * 60 * 60 * 1000;
+    private static final int FORMAT_VERSION = 1;
+    // Rebase before exp() of the weight exponent gets near float range
+    private static final double MAX_EXPONENT = 30;
+
+    private final double decayPerMilli;
+    private final double minTrainedWeight;
+    private final float[] weights = new float[LocalTimeBuckets.HOURS_PER_WEEK];
+    private double total = 0;
+    private long referenceMillis = Long.MIN_VALUE;
+
+    /**
+     * @param halfLifeMillis    how quickly old activity is forgotten
+     * @param minTrainedWeight  total decayed weight needed before learned risk is used
+     */
+    public HourOfWeekHistogram(long halfLifeMillis, double minTrainedWeight) {
+        this.decayPerMilli = Math.log(2) / halfLifeMillis;
+        this.minTrainedWeight = minTrainedWeight;
+    }
+
+    /** Record activity in a slot. */
+    public void add(long epochMillis, int bucket, float weight) {
+        if (referenceMillis == Long.MIN_VALUE) {
+            referenceMillis = epochMillis;
+        }
+        double exponent = decayPerMilli * (epochMillis - referenceMillis);
+        if (exponent > MAX_EXPONENT) {
+            rebase(epochMillis);
+            exponent = 0;
+        }
+        float w = (float) (weight * Math.exp(exponent));
+        weights[bucket] += w;
+        total += w;
+    }
+
+    /**
+     * @return decayed total weight as of epochMillis, in add() weight units
+     */
+    public double effectiveTotal(long epochMillis) {
+        if (referenceMillis == Long.MIN_VALUE) return 0;
+        return total * Math.exp(-decayPerMilli * (epochMillis - referenceMillis));
+    }
+
+    public boolean isTrained(long epochMillis) {
+        return effectiveTotal(epochMillis) >= minTrainedWeight;
+    }
+
+    /**
+     * @return 0 (usual) to 1 (never active in this slot); fixed rules until trained
+     */
+    public float timeRisk(long epochMillis, int bucket) {
+        if (!isTrained(epochMillis)) {
+            return defaultRisk(bucket);
+        }
+        int n = weights.length;
+        // Light smoothing with the neighbouring hours so sparse slots are not all "unusual"
+        double slot = weights[bucket] + 0.5 * (weights[(bucket + n - 1) % n] + weights[(bucket + 1) % n]);
+        double expected = 2 * total / n;
+        return (float) Math.max(0, Math.min(1, 1 - slot / expected));
+    }
+
+    /** Fixed rules used before the histogram is trained: night, then weekend. */
+    public static float defaultRisk(int bucket) {
+        int hour = bucket % 24;
+        int day = bucket / 24;
+        float risk = 0.0f;
+        if (hour < 6 || hour > 22) {
+            risk += 0.3f; // Higher risk at night
+        }
+        if (day >= 5) {
+            risk += 0.2f; // Weekend
+        }
+        return Math.min(1.0f, risk);
+    }
+
+    public void reset() {
+        Arrays.fill(weights, 0);
+        total = 0;
+        referenceMillis = Long.MIN_VALUE;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeLong(referenceMillis);
+        for (float w : weights) {
+            out.writeFloat(w);
+        }
+    }
+
+    /**
+     * Replace the contents with a histogram written by writeTo.
+     *
+     * @throws IOException on an unknown version or truncated input
+     */
+    public void readFrom(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported histogram version " + version);
+        }
+        long reference = in.readLong();
+        float[] read = new float[weights.length];
+        double sum = 0;
+        for (int i = 0; i < read.length; i++) {
+            read[i] = in.readFloat();
+            sum += read[i];
+        }
+        System.arraycopy(read, 0, weights, 0, read.length);
+        referenceMillis = reference;
+        total = sum;
+    }
+
+    private void rebase(long epochMillis) {
+        float scale = (float) Math.exp(-decayPerMilli * (epochMillis - referenceMillis));
+        total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] *= scale;
+            total += weights[i];
+        }
+        referenceMillis = epochMillis;
+    }
+}
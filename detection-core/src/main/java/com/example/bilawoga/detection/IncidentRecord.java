@@ -0,0 +1,336 @@
+package com.example.bilawoga.detection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One entry in the incident log. The records of one SOS share an incident id (the time
+ * its session opened); records outside any SOS use 0. Each type has its own factory and
+ * fields; a store only needs the id, incident id, time and type, and can treat the
+ * fields as an opaque (encrypted) payload via encodeFields() and decode().
+ */
+public final class IncidentRecord {
+
+    public enum Type {
+        /** Something asked for an SOS: the button, a detector, a shake. */
+        TRIGGER(1),
+        /** The SOS went out to the contacts. */
+        DISPATCH(2),
+        /** What happened to the message for one contact. */
+        DELIVERY(3),
+        /** The location sent with the SOS. */
+        LOCATION(4),
+        /** The user stopped the countdown. */
+        CANCEL(5),
+        /** Anything else worth keeping, e.g. security events. */
+        EVENT(6);
+
+        public final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        public static Type fromCode(int code) {
+            for (Type t : values()) {
+                if (t.code == code) return t;
+            }
+            throw new IllegalArgumentException("Unknown incident record type " + code);
+        }
+    }
+
+    public enum DeliveryStatus {
+        /** Handed to the SMS service. */
+        QUEUED,
+        /** Could not be sent. */
+        FAILED,
+        /** Left the device. */
+        SENT,
+        /** The carrier reported delivery. */
+        DELIVERED,
+        /** The carrier reported failure. */
+        NOT_DELIVERED
+    }
+
+    private static final String SOURCE = "source";
+    private static final String URGENCY = "urgency";
+    private static final String OUTCOME = "outcome";
+    private static final String INCIDENT = "incident";
+    private static final String CONTACTS = "contacts";
+    private static final String CONTACT = "contact";
+    private static final String STATUS = "status";
+    private static final String LATITUDE = "lat";
+    private static final String LONGITUDE = "lng";
+    private static final String ACCURACY = "acc";
+    private static final String NAME = "name";
+    private static final String DETAILS = "details";
+    /** Longest field value kept; longer values are cut (writeUTF's limit is 64 KiB). */
+    static final int MAX_VALUE_CHARS = 4096;
+
+    /** Row id given by the store; 0 until stored. Newer records have larger ids. */
+    public final long id;
+    public final long incidentId;
+    public final long timeMillis;
+    public final Type type;
+    private final Map<String, String> fields;
+
+    private IncidentRecord(long id, long incidentId, long timeMillis, Type type, Map<String, String> fields) {
+        this.id = id;
+        this.incidentId = incidentId;
+        this.timeMillis = timeMillis;
+        this.type = type;
+        this.fields = fields;
+    }
+
+    public static IncidentRecord trigger(long incidentId, long timeMillis, String source, String urgency,
+                                         String outcome) {
+        return builder(incidentId, timeMillis, Type.TRIGGER)
+                .put(SOURCE, source).put(URGENCY, urgency).put(OUTCOME, outcome).build();
+    }
+
+    public static IncidentRecord dispatch(long incidentId, long timeMillis, String source, String incident,
+                                          int contacts) {
+        return builder(incidentId, timeMillis, Type.DISPATCH)
+                .put(SOURCE, source).put(INCIDENT, incident).put(CONTACTS, Integer.toString(contacts)).build();
+    }
+
+    /**
+     * @param contact how the contact is shown, typically a masked number
+     */
+    public static IncidentRecord delivery(long incidentId, long timeMillis, String contact, DeliveryStatus status) {
+        return builder(incidentId, timeMillis, Type.DELIVERY)
+                .put(CONTACT, contact).put(STATUS, status.name()).build();
+    }
+
+    /** A location fix. */
+    public static IncidentRecord location(long incidentId, long timeMillis, double latitude, double longitude,
+                                          float accuracyMeters) {
+        return builder(incidentId, timeMillis, Type.LOCATION)
+                .put(LATITUDE, Double.toString(latitude))
+                .put(LONGITUDE, Double.toString(longitude))
+                .put(ACCURACY, Float.toString(accuracyMeters)).build();
+    }
+
+    /** No location could be found; the SOS went out without one. */
+    public static IncidentRecord locationUnavailable(long incidentId, long timeMillis) {
+        return builder(incidentId, timeMillis, Type.LOCATION).build();
+    }
+
+    public static IncidentRecord cancel(long incidentId, long timeMillis) {
+        return builder(incidentId, timeMillis, Type.CANCEL).build();
+    }
+
+    public static IncidentRecord event(long incidentId, long timeMillis, String name, String details) {
+        return builder(incidentId, timeMillis, Type.EVENT).put(NAME, name).put(DETAILS, details).build();
+    }
+
+    /** TRIGGER and DISPATCH: what set it off, e.g. SHAKE. */
+    public String getSource() {
+        return fields.get(SOURCE);
+    }
+
+    /** TRIGGER: CONFIRM or IMMEDIATE. */
+    public String getUrgency() {
+        return fields.get(URGENCY);
+    }
+
+    /** TRIGGER: whether it opened, escalated or joined a session. */
+    public String getOutcome() {
+        return fields.get(OUTCOME);
+    }
+
+    /** DISPATCH: the incident text sent to the contacts. */
+    public String getIncident() {
+        return fields.get(INCIDENT);
+    }
+
+    /** DISPATCH: number of contacts the SOS went to. */
+    public int getContactCount() {
+        String v = fields.get(CONTACTS);
+        return v != null ? Integer.parseInt(v) : 0;
+    }
+
+    /** DELIVERY: the contact, as recorded. */
+    public String getContact() {
+        return fields.get(CONTACT);
+    }
+
+    /** DELIVERY: the status, or null for other types. */
+    public DeliveryStatus getDeliveryStatus() {
+        String v = fields.get(STATUS);
+        return v != null ? DeliveryStatus.valueOf(v) : null;
+    }
+
+    /** LOCATION: whether there was a fix; the coordinates are NaN otherwise. */
+    public boolean hasLocation() {
+        return fields.containsKey(LATITUDE);
+    }
+
+    public double getLatitude() {
+        return parseDouble(LATITUDE);
+    }
+
+    public double getLongitude() {
+        return parseDouble(LONGITUDE);
+    }
+
+    public float getAccuracyMeters() {
+        return (float) parseDouble(ACCURACY);
+    }
+
+    /** EVENT: its name, e.g. SMS_APP_VERIFIED. */
+    public String getName() {
+        return fields.get(NAME);
+    }
+
+    /** EVENT: free text. */
+    public String getDetails() {
+        return fields.get(DETAILS);
+    }
+
+    /**
+     * A position in the newest-first log: records order by time, then by id, so a cursor
+     * is exact even when several records share a millisecond.
+     */
+    public static final class Cursor {
+        public final long timeMillis;
+        public final long id;
+
+        Cursor(long timeMillis, long id) {
+            this.timeMillis = timeMillis;
+            this.id = id;
+        }
+
+        /**
+         * @throws IllegalArgumentException if {@code encoded} is not a cursor from encode()
+         */
+        public static Cursor parse(String encoded) {
+            int split = encoded.indexOf(':');
+            if (split < 0) {
+                throw new IllegalArgumentException("Bad cursor " + encoded);
+            }
+            try {
+                return new Cursor(Long.parseLong(encoded.substring(0, split)),
+                        Long.parseLong(encoded.substring(split + 1)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad cursor " + encoded);
+            }
+        }
+
+        public String encode() {
+            return timeMillis + ":" + id;
+        }
+
+        /** Whether {@code record} comes after this position, i.e. is older. */
+        public boolean isBefore(IncidentRecord record) {
+            return record.timeMillis < timeMillis || (record.timeMillis == timeMillis && record.id < id);
+        }
+    }
+
+    /** This record's position in the log; the next page starts after it. */
+    public Cursor cursor() {
+        return new Cursor(timeMillis, id);
+    }
+
+    /** The same record with the store's row id. */
+    public IncidentRecord withId(long id) {
+        return new IncidentRecord(id, incidentId, timeMillis, type, fields);
+    }
+
+    /** The type-specific fields, for the store to encrypt. */
+    public byte[] encodeFields() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(fields.size());
+            for (Map.Entry<String, String> e : fields.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeUTF(e.getValue());
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Rebuild a record from its stored columns and decrypted fields.
+     *
+     * @throws IllegalArgumentException if the fields cannot be read or the type is unknown
+     */
+    public static IncidentRecord decode(long id, long incidentId, long timeMillis, int typeCode, byte[] encodedFields) {
+        Type type = Type.fromCode(typeCode);
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(encodedFields));
+            int count = in.readUnsignedShort();
+            Map<String, String> fields = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                fields.put(in.readUTF(), in.readUTF());
+            }
+            return new IncidentRecord(id, incidentId, timeMillis, type, Collections.unmodifiableMap(fields));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unreadable incident record fields: " + e.getMessage());
+        }
+    }
+
+    /** One line for a log screen, without the time. */
+    public String summary() {
+        switch (type) {
+            case TRIGGER:
+                return "Triggered by " + getSource() + " (" + getUrgency() + ", " + getOutcome() + ")";
+            case DISPATCH:
+                return "SOS sent to " + getContactCount() + " contact(s): " + getIncident();
+            case DELIVERY:
+                return getContact() + ": " + getDeliveryStatus();
+            case LOCATION:
+                return hasLocation()
+                        ? String.format(Locale.US, "Location %.6f, %.6f (within %.0f m)",
+                                getLatitude(), getLongitude(), getAccuracyMeters())
+                        : "Location unavailable";
+            case CANCEL:
+                return "Cancelled";
+            default:
+                return getName() + ": " + getDetails();
+        }
+    }
+
+    private double parseDouble(String key) {
+        String v = fields.get(key);
+        return v != null ? Double.parseDouble(v) : Double.NaN;
+    }
+
+    private static Builder builder(long incidentId, long timeMillis, Type type) {
+        return new Builder(incidentId, timeMillis, type);
+    }
+
+    private static final class Builder {
+        private final long incidentId;
+        private final long timeMillis;
+        private final Type type;
+        private final Map<String, String> fields = new TreeMap<>();
+
+        Builder(long incidentId, long timeMillis, Type type) {
+            this.incidentId = incidentId;
+            this.timeMillis = timeMillis;
+            this.type = type;
+        }
+
+        Builder put(String key, String value) {
+            if (value != null) {
+                fields.put(key, value.length() > MAX_VALUE_CHARS ? value.substring(0, MAX_VALUE_CHARS) : value);
+            }
+            return this;
+        }
+
+        IncidentRecord build() {
+            return new IncidentRecord(0, incidentId, timeMillis, type, Collections.unmodifiableMap(fields));
+        }
+    }
+}
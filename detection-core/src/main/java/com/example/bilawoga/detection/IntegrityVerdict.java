@@ -0,0 +1,97 @@
+package com.example.bilawoga.detection;
+
+/**
+ * The result of the device and app integrity checks, with the state it was computed for
+ * so it can be cached and reused until that state changes:
+ *
+ * - deviceTampered (su binaries, emulator) can only change across a reboot, so it holds
+ *   for as long as the boot id is the same
+ * - signatureOk (signing certificate hash) can only change when the package is replaced,
+ *   so it holds for as long as the package's lastUpdateTime is the same
+ *
+ * Encoded as one line for storage:
+ *   version | lastUpdateTime | bootId | verifiedAtMillis | deviceTampered | signatureOk
+ */
+public final class IntegrityVerdict {
+    public static final int VERSION = 1;
+    private static final String SEPARATOR = "|";
+
+    public final long lastUpdateTime;
+    public final String bootId;
+    public final long verifiedAtMillis;
+    public final boolean deviceTampered;
+    public final boolean signatureOk;
+
+    /**
+     * @throws IllegalArgumentException if bootId is empty or contains the separator
+     */
+    public IntegrityVerdict(long lastUpdateTime, String bootId, long verifiedAtMillis,
+                            boolean deviceTampered, boolean signatureOk) {
+        if (bootId == null || bootId.isEmpty() || bootId.contains(SEPARATOR)) {
+            throw new IllegalArgumentException("Bad boot id " + bootId);
+        }
+        this.lastUpdateTime = lastUpdateTime;
+        this.bootId = bootId;
+        this.verifiedAtMillis = verifiedAtMillis;
+        this.deviceTampered = deviceTampered;
+        this.signatureOk = signatureOk;
+    }
+
+    /** Neither a tampered device nor a wrong signature. */
+    public boolean isTrusted() {
+        return !deviceTampered && signatureOk;
+    }
+
+    /** deviceTampered still holds on the boot with this id. */
+    public boolean deviceVerdictHolds(String currentBootId) {
+        return bootId.equals(currentBootId);
+    }
+
+    /** signatureOk still holds for the package installed at this time. */
+    public boolean signatureVerdictHolds(long currentLastUpdateTime) {
+        return lastUpdateTime == currentLastUpdateTime;
+    }
+
+    /** Both halves hold: nothing needs probing again. */
+    public boolean holdsFor(long currentLastUpdateTime, String currentBootId) {
+        return signatureVerdictHolds(currentLastUpdateTime) && deviceVerdictHolds(currentBootId);
+    }
+
+    /** Verified more than maxAgeMillis ago, or in the future (clock changed). */
+    public boolean isOlderThan(long maxAgeMillis, long nowMillis) {
+        return nowMillis - verifiedAtMillis > maxAgeMillis || nowMillis < verifiedAtMillis;
+    }
+
+    public String encode() {
+        return VERSION + SEPARATOR + lastUpdateTime + SEPARATOR + bootId + SEPARATOR
+                + verifiedAtMillis + SEPARATOR + (deviceTampered ? 1 : 0) + SEPARATOR + (signatureOk ? 1 : 0);
+    }
+
+    /**
+     * @return the verdict, or null if {@code encoded} is null, from another version or
+     *         malformed; callers then verify from scratch
+     */
+    public static IntegrityVerdict decode(String encoded) {
+        if (encoded == null) return null;
+        String[] parts = encoded.split("\\|", -1);
+        if (parts.length != 6 || !Integer.toString(VERSION).equals(parts[0])) return null;
+        try {
+            return new IntegrityVerdict(Long.parseLong(parts[1]), parts[2], Long.parseLong(parts[3]),
+                    flag(parts[4]), flag(parts[5]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean flag(String value) {
+        if ("1".equals(value)) return true;
+        if ("0".equals(value)) return false;
+        throw new IllegalArgumentException("Bad flag " + value);
+    }
+
+    @Override
+    public String toString() {
+        return "IntegrityVerdict{tampered=" + deviceTampered + ", signatureOk=" + signatureOk
+                + ", lastUpdateTime=" + lastUpdateTime + ", bootId=" + bootId + "}";
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.bilawoga.detection;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Layout of an encrypted key-value log segment (.bwkv). All multi-byte fields are
+ * big-endian.
+ *
+ * Header (16 bytes):
+ *   magic "BWKV" | version u8 | reserved u8[3] | segment id i64
+ *
+ * Records, appended until end of file:
+ *   length i32 | sealed u8[length]
+ *
+ * sealed is one AEAD record (see RecordCipher) whose associated data is
+ * magic | segment id | record offset, so a record only opens where it was written.
+ * The plaintext is one batch, applied all or nothing:
+ *   ops i32 | ops x (kind u8 | key length u16 | key utf8 | [value length i32 | value])
+ *
+ * A record that is cut short or fails to open marks the end of the segment. Segments are
+ * replayed in id order; a compacted snapshot begins with CLEAR.
+ */
+public final class KvLogFormat {
+    public static final int MAGIC = 0x42574B56; // "BWKV"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    /** Upper bound on a sealed record, so a corrupt length cannot cause a huge read. */
+    public static final int MAX_RECORD_SIZE = 4 << 20;
+    public static final String FILE_EXTENSION = ".bwkv";
+
+    static final byte OP_PUT = 1;
+    static final byte OP_REMOVE = 2;
+    static final byte OP_CLEAR = 3;
+
+    private KvLogFormat() {
+    }
+
+    static String segmentName(long segmentId) {
+        return String.format(Locale.ROOT, "%016x", segmentId) + FILE_EXTENSION;
+    }
+
+    /** Segment id from a file name, or -1 if it is not a segment. */
+    static long segmentId(String fileName) {
+        if (!fileName.endsWith(FILE_EXTENSION) || fileName.length() != 16 + FILE_EXTENSION.length()) {
+            return -1;
+        }
+        try {
+            return Long.parseUnsignedLong(fileName.substring(0, 16), 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static byte[] associatedData(long segmentId, long offset) {
+        return ByteBuffer.allocate(20).putInt(MAGIC).putLong(segmentId).putLong(offset).array();
+    }
+}
@@ -0,0 +1,413 @@
+package com.example.bilawoga.detection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Encrypted, append-only key-value store (see KvLogFormat).
+ *
+ * A write appends one sealed batch to the active segment, so its cost depends on the
+ * batch, not on the size of the store. All live values are kept in an in-memory index,
+ * rebuilt on open by replaying the segments. Segments roll over at segmentLimit bytes.
+ * compact() writes the live set to a fresh segment and drops the older ones. It holds the
+ * lock only to roll the active segment and to swap files, so writes carry on while it
+ * runs.
+ *
+ * Thread-safe.
+ */
+public final class KvLogStore implements Closeable {
+    /** Default segment size before rolling over. */
+    public static final long DEFAULT_SEGMENT_LIMIT = 256 * 1024;
+    /** Compact once the log holds this many bytes and at least twice the live data. */
+    public static final long COMPACT_MIN_BYTES = 64 * 1024;
+    private static final int SNAPSHOT_RECORD_BYTES = 64 * 1024;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final class Op {
+        final byte kind;
+        final String key;
+        final byte[] value;
+
+        Op(byte kind, String key, byte[] value) {
+            this.kind = kind;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final Op CLEAR = new Op(KvLogFormat.OP_CLEAR, null, null);
+
+    /** Changes applied together: either all of them survive a crash or none does. */
+    public static final class Batch {
+        final List<Op> ops = new ArrayList<>();
+
+        public Batch put(String key, byte[] value) {
+            ops.add(new Op(KvLogFormat.OP_PUT, key, value.clone()));
+            return this;
+        }
+
+        public Batch remove(String key) {
+            ops.add(new Op(KvLogFormat.OP_REMOVE, key, null));
+            return this;
+        }
+
+        /** Drops everything written before it, including earlier ops in this batch. */
+        public Batch clear() {
+            ops.add(CLEAR);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return ops.isEmpty();
+        }
+    }
+
+    private final File dir;
+    private final RecordCipher cipher;
+    private final long segmentLimit;
+    private final Map<String, byte[]> index = new HashMap<>();
+    private final TreeMap<Long, File> segments = new TreeMap<>();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private FileChannel active;
+    private long activeId;
+    private long activeSize;
+    private long diskBytes;
+    private long liveBytes;
+    private boolean closed;
+
+    public KvLogStore(File dir, RecordCipher cipher) throws IOException {
+        this(dir, cipher, DEFAULT_SEGMENT_LIMIT);
+    }
+
+    /**
+     * Open the store in dir, replaying its segments. A record torn by a crash at the end
+     * of the newest segment is cut off before appending resumes.
+     */
+    public KvLogStore(File dir, RecordCipher cipher, long segmentLimit) throws IOException {
+        this.dir = dir;
+        this.cipher = cipher;
+        this.segmentLimit = segmentLimit;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.getName().endsWith(TEMP_SUFFIX)) {
+                    // Snapshot that never got renamed; the segments it came from are still here
+                    Files.deleteIfExists(f.toPath());
+                    continue;
+                }
+                long id = KvLogFormat.segmentId(f.getName());
+                if (id >= 0) segments.put(id, f);
+            }
+        }
+        long validLength = -1;
+        for (Map.Entry<Long, File> e : segments.entrySet()) {
+            validLength = replay(e.getKey(), e.getValue());
+            diskBytes += e.getValue().length();
+        }
+        if (segments.isEmpty() || validLength < 0) {
+            openSegment(segments.isEmpty() ? 1 : segments.lastKey() + 1);
+        } else {
+            activeId = segments.lastKey();
+            active = FileChannel.open(segments.lastEntry().getValue().toPath(),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            diskBytes -= active.size() - validLength;
+            active.truncate(validLength);
+            activeSize = validLength;
+        }
+    }
+
+    /** The stored value, or null. The array is shared; do not modify it. */
+    public synchronized byte[] get(String key) {
+        return index.get(key);
+    }
+
+    /** Copy of every live entry. */
+    public synchronized Map<String, byte[]> snapshot() {
+        return new HashMap<>(index);
+    }
+
+    /**
+     * Append a batch. With sync the call returns only once the batch is on stable storage;
+     * without, it survives a process crash but not necessarily a power loss.
+     */
+    public synchronized void write(Batch batch, boolean sync) throws IOException {
+        ensureOpen();
+        if (batch.isEmpty()) return;
+        byte[] plaintext = encode(batch.ops);
+        if (activeSize > KvLogFormat.HEADER_SIZE && activeSize + plaintext.length + 64 > segmentLimit) {
+            rollOver(activeId + 1);
+        }
+        append(active, activeId, activeSize, plaintext);
+        if (sync) {
+            active.force(false);
+        }
+        apply(batch.ops);
+    }
+
+    /** Whether enough of the log is dead to be worth compacting. */
+    public synchronized boolean needsCompaction() {
+        return !closed && diskBytes >= COMPACT_MIN_BYTES && diskBytes > 2 * liveBytes;
+    }
+
+    /**
+     * Rewrite the live set into one snapshot segment and delete everything before it.
+     * Returns false if another compaction is already running.
+     */
+    public boolean compact() throws IOException {
+        if (!compacting.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            long snapshotId;
+            Map<String, byte[]> live;
+            synchronized (this) {
+                ensureOpen();
+                // New writes go after the snapshot's slot in id order
+                snapshotId = activeId + 1;
+                rollOver(activeId + 2);
+                live = new HashMap<>(index);
+            }
+
+            File target = new File(dir, KvLogFormat.segmentName(snapshotId));
+            File temp = new File(dir, target.getName() + TEMP_SUFFIX);
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long size = writeHeader(channel, snapshotId);
+                List<Op> ops = new ArrayList<>();
+                ops.add(CLEAR);
+                int pending = 0;
+                for (Map.Entry<String, byte[]> e : live.entrySet()) {
+                    ops.add(new Op(KvLogFormat.OP_PUT, e.getKey(), e.getValue()));
+                    pending += e.getKey().length() + e.getValue().length + 16;
+                    if (pending >= SNAPSHOT_RECORD_BYTES) {
+                        size = append(channel, snapshotId, size, encode(ops));
+                        ops.clear();
+                        pending = 0;
+                    }
+                }
+                if (!ops.isEmpty()) {
+                    append(channel, snapshotId, size, encode(ops));
+                }
+                channel.force(true);
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+            synchronized (this) {
+                List<Long> obsolete = new ArrayList<>(segments.headMap(snapshotId).keySet());
+                for (Long id : obsolete) {
+                    File f = segments.remove(id);
+                    diskBytes -= f.length();
+                    Files.deleteIfExists(f.toPath());
+                }
+                segments.put(snapshotId, target);
+                diskBytes += target.length();
+            }
+            return true;
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    public synchronized long getLiveBytes() {
+        return liveBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        active.close();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException("Store is closed");
+    }
+
+    private long replay(long segmentId, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(KvLogFormat.HEADER_SIZE);
+            if (size < KvLogFormat.HEADER_SIZE || readFully(channel, header, 0) < KvLogFormat.HEADER_SIZE) {
+                return -1;
+            }
+            header.flip();
+            if (header.getInt() != KvLogFormat.MAGIC || header.get() != KvLogFormat.VERSION) {
+                return -1;
+            }
+            header.position(8);
+            if (header.getLong() != segmentId) {
+                return -1;
+            }
+            long offset = KvLogFormat.HEADER_SIZE;
+            ByteBuffer length = ByteBuffer.allocate(4);
+            while (offset + 4 <= size) {
+                length.clear();
+                readFully(channel, length, offset);
+                int n = length.getInt(0);
+                if (n <= 0 || n > KvLogFormat.MAX_RECORD_SIZE || offset + 4 + n > size) break;
+                ByteBuffer sealed = ByteBuffer.allocate(n);
+                readFully(channel, sealed, offset + 4);
+                List<Op> ops;
+                try {
+                    ops = decode(cipher.open(sealed.array(), KvLogFormat.associatedData(segmentId, offset)));
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    break;
+                }
+                apply(ops);
+                offset += 4 + n;
+            }
+            return offset;
+        }
+    }
+
+    private void apply(List<Op> ops) {
+        for (Op op : ops) {
+            if (op.kind == KvLogFormat.OP_CLEAR) {
+                index.clear();
+                liveBytes = 0;
+            } else if (op.kind == KvLogFormat.OP_PUT) {
+                byte[] old = index.put(op.key, op.value);
+                if (old != null) liveBytes -= entrySize(op.key, old);
+                liveBytes += entrySize(op.key, op.value);
+            } else {
+                byte[] old = index.remove(op.key);
+                if (old != null) liveBytes -= entrySize(op.key, old);
+            }
+        }
+    }
+
+    private static long entrySize(String key, byte[] value) {
+        // Roughly what the entry costs in a snapshot record
+        return 7 + key.length() + value.length + 4;
+    }
+
+    private void openSegment(long id) throws IOException {
+        File file = new File(dir, KvLogFormat.segmentName(id));
+        active = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeSize = writeHeader(active, id);
+        activeId = id;
+        segments.put(id, file);
+        diskBytes += activeSize;
+    }
+
+    private void rollOver(long nextId) throws IOException {
+        active.force(false);
+        active.close();
+        openSegment(nextId);
+    }
+
+    private static long writeHeader(FileChannel channel, long segmentId) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(KvLogFormat.HEADER_SIZE);
+        header.putInt(KvLogFormat.MAGIC).put((byte) KvLogFormat.VERSION).put(new byte[3]).putLong(segmentId).flip();
+        writeFully(channel, header, 0);
+        return KvLogFormat.HEADER_SIZE;
+    }
+
+    /** Seal and append one record at offset; returns the new end of the segment. */
+    private long append(FileChannel channel, long segmentId, long offset, byte[] plaintext) throws IOException {
+        byte[] sealed;
+        try {
+            sealed = cipher.seal(plaintext, KvLogFormat.associatedData(segmentId, offset));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot seal record: " + e.getMessage(), e);
+        }
+        if (sealed.length > KvLogFormat.MAX_RECORD_SIZE) {
+            throw new IOException("Record too large: " + sealed.length + " bytes");
+        }
+        ByteBuffer record = ByteBuffer.allocate(4 + sealed.length);
+        record.putInt(sealed.length).put(sealed).flip();
+        writeFully(channel, record, offset);
+        long end = offset + 4 + sealed.length;
+        if (channel == active) {
+            activeSize = end;
+            diskBytes += 4 + sealed.length;
+        }
+        return end;
+    }
+
+    private static byte[] encode(List<Op> ops) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(ops.size());
+        for (Op op : ops) {
+            out.writeByte(op.kind);
+            if (op.kind == KvLogFormat.OP_CLEAR) continue;
+            byte[] key = op.key.getBytes(StandardCharsets.UTF_8);
+            if (key.length > 0xFFFF) throw new IOException("Key too long");
+            out.writeShort(key.length);
+            out.write(key);
+            if (op.kind == KvLogFormat.OP_PUT) {
+                out.writeInt(op.value.length);
+                out.write(op.value);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<Op> decode(byte[] plaintext) {
+        ByteBuffer in = ByteBuffer.wrap(plaintext);
+        int count = in.getInt();
+        if (count < 0) throw new IllegalArgumentException("Bad op count");
+        List<Op> ops = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            byte kind = in.get();
+            if (kind == KvLogFormat.OP_CLEAR) {
+                ops.add(CLEAR);
+                continue;
+            }
+            if (kind != KvLogFormat.OP_PUT && kind != KvLogFormat.OP_REMOVE) {
+                throw new IllegalArgumentException("Bad op " + kind);
+            }
+            byte[] key = new byte[in.getShort() & 0xFFFF];
+            in.get(key);
+            byte[] value = null;
+            if (kind == KvLogFormat.OP_PUT) {
+                value = new byte[in.getInt()];
+                in.get(value);
+            }
+            ops.add(new Op(kind, new String(key, StandardCharsets.UTF_8), value));
+        }
+        return ops;
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + total);
+            if (n < 0) break;
+            total += n;
+        }
+        return total;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long p = position;
+        while (buffer.hasRemaining()) {
+            p += channel.write(buffer, p);
+        }
+    }
+}
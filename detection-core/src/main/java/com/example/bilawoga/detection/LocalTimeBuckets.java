@@ -0,0 +1,71 @@
+package com.example.bilawoga.detection;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneOffsetTransition;
+
+/**
+ * Maps epoch millis to local hour-of-week buckets (0 = Monday 00:00-01:00, 167 = Sunday
+ * 23:00-24:00) without allocating on the hot path.
+ *
+ * The bucket of the current local hour is cached with the UTC range it covers; java.time
+ * is only consulted when a timestamp falls outside that range, i.e. about once an hour.
+ * DST transitions end the cached range early, so offsets are always current.
+ * Not thread-safe.
+ */
+public final class LocalTimeBuckets {
+    public static final int HOURS_PER_WEEK = 7 * 24;
+
+    private final ZoneId zone;
+    private long validFromMillis = Long.MAX_VALUE;
+    private long validUntilMillis = Long.MIN_VALUE;
+    private int cachedBucket;
+
+    public LocalTimeBuckets(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public int bucket(long epochMillis) {
+        if (epochMillis < validFromMillis || epochMillis >= validUntilMillis) {
+            refresh(epochMillis);
+        }
+        return cachedBucket;
+    }
+
+    public int localHour(long epochMillis) {
+        return bucket(epochMillis) % 24;
+    }
+
+    /** Monday = 0 ... Sunday = 6. */
+    public int localDayOfWeek(long epochMillis) {
+        return bucket(epochMillis) / 24;
+    }
+
+    private void refresh(long epochMillis) {
+        Instant instant = Instant.ofEpochMilli(epochMillis);
+        ZonedDateTime local = instant.atZone(zone);
+        ZonedDateTime hourStart = local.truncatedTo(ChronoUnit.HOURS);
+        long from = hourStart.toInstant().toEpochMilli();
+        long until = from + 60 * 60 * 1000;
+
+        // An offset change inside this hour ends the range early
+        ZoneOffsetTransition next = zone.getRules().nextTransition(instant);
+        if (next != null) {
+            until = Math.min(until, next.getInstant().toEpochMilli());
+        }
+        ZoneOffsetTransition previous = zone.getRules().previousTransition(instant);
+        if (previous != null) {
+            from = Math.max(from, previous.getInstant().toEpochMilli());
+        }
+
+        validFromMillis = from;
+        validUntilMillis = until;
+        cachedBucket = (local.getDayOfWeek().getValue() - 1) * 24 + local.getHour();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.bilawoga.detection;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.mfcc.MFCC;
+
+/**
+ * MFCC front end shared by the keyword spotter and the silent emergency model.
+ * The app feeds it from the microphone dispatcher; offline tools feed it windows
+ * cut from WAV files. Both use these parameters, so features match.
+ */
+public class MfccFeatureExtractor {
+    public static final int SAMPLE_RATE = 16000;
+    public static final int FRAME_SIZE = 1024;
+    public static final int FRAME_HOP = 512;          // 32 ms per frame
+    public static final int NUM_COEFFICIENTS = 40;
+    public static final int NUM_MEL_FILTERS = 50;
+    public static final float LOWER_FREQ = 300;
+    public static final float UPPER_FREQ = 8000;
+
+    private final MFCC mfcc;
+    private final AudioEvent event;
+
+    public MfccFeatureExtractor() {
+        this.mfcc = newMfcc();
+        this.event = new AudioEvent(new TarsosDSPAudioFormat(SAMPLE_RATE, 16, 1, true, false));
+    }
+
+    /**
+     * A TarsosDSP MFCC processor configured with the shared parameters.
+     */
+    public static MFCC newMfcc() {
+        return new MFCC(FRAME_SIZE, SAMPLE_RATE, NUM_COEFFICIENTS, NUM_MEL_FILTERS, LOWER_FREQ, UPPER_FREQ);
+    }
+
+    /**
+     * @param window FRAME_SIZE samples in [-1, 1]
+     * @return NUM_COEFFICIENTS coefficients; owned by the caller
+     */
+    public float[] process(float[] window) {
+        event.setFloatBuffer(window);
+        mfcc.process(event);
+        return mfcc.getMFCC().clone();
+    }
+
+    public static long frameToMillis(long frames) {
+        return frames * FRAME_HOP * 1000L / SAMPLE_RATE;
+    }
+}
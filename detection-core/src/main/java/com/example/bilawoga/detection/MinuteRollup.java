@@ -0,0 +1,32 @@
+package com.example.bilawoga.detection;
+
+/**
+ * One minute of movement history: how many samples, their mean and peak intensity
+ * (|a| - g, m/s^2) and the dominant activity. Mutable so readers can reuse one instance.
+ */
+public final class MinuteRollup {
+    /** Minutes since the epoch, UTC. */
+    public int minute;
+    public int count;
+    public float mean;
+    public float max;
+    public ThreatScorer.Activity activity = ThreatScorer.Activity.STILL;
+
+    public interface Sink {
+        /** The rollup instance may be reused after the call returns. */
+        void onMinuteRollup(MinuteRollup rollup);
+    }
+
+    public MinuteRollup set(int minute, int count, float mean, float max, ThreatScorer.Activity activity) {
+        this.minute = minute;
+        this.count = count;
+        this.mean = mean;
+        this.max = max;
+        this.activity = activity;
+        return this;
+    }
+
+    public long startMillis() {
+        return minute * 60_000L;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.bilawoga.detection;
+
+/**
+ * One accelerometer sample as it moves through a ShakeFilter chain. A single instance is
+ * reused for every sample, so filters must not keep a reference to it.
+ *
+ * Energies are means of squared magnitudes; thresholds are compared squared so the
+ * per-sample path needs no square root.
+ */
+public final class MotionFrame {
+    public long timestampNanos;
+    /** Seconds since the previous sample, 0 for the first sample after a reset. */
+    public float dt;
+
+    /** Raw acceleration, m/s^2. */
+    public float x;
+    public float y;
+    public float z;
+
+    /** Acceleration with gravity removed, m/s^2. */
+    public float linearX;
+    public float linearY;
+    public float linearZ;
+
+    /** Squared jerk magnitude of this sample, (m/s^3)^2. */
+    public float jerkSq;
+
+    /** Windowed mean of squared linear acceleration, (m/s^2)^2. */
+    public float energy;
+    /** Windowed mean of squared jerk, (m/s^3)^2. */
+    public float jerkEnergy;
+}
@@ -0,0 +1,301 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Movement pattern matcher behind CovertEmergencyDetector and EnhancedEmergencyDetector.
+ * Fed accelerometer magnitudes, it tracks pocket and walking context and reports pattern
+ * matches and suppressed false alarms through a PatternListener.
+ *
+ * The per-sample path does not allocate: history lives in fixed ring buffers, and the
+ * buffer mean, variance and walking peak count are maintained incrementally instead of
+ * being recomputed from lists. Not thread-safe; feed it from one sensor thread.
+ */
+public final class MotionPatternDetector {
+
+    public enum Pattern {
+        EMERGENCY_SOS, COVERT_SOS, ABDUCTION
+    }
+
+    public enum FalseAlarm {
+        POCKET_TOUCH, WALKING, LIGHT_TOUCHES
+    }
+
+    public interface PatternListener {
+        /** Called whenever the buffer statistics say "in pocket" or "in hand". */
+        void onPhonePosition(boolean inPocket);
+
+        void onPatternMatched(Pattern pattern, float confidence);
+
+        void onFalseAlarmPrevented(FalseAlarm reason);
+    }
+
+    /**
+     * COVERT checks the covert and abduction patterns only. ENHANCED adds the longer SOS
+     * pattern, walking detection and false alarm suppression, and a longer timeout.
+     */
+    public static final class Config {
+        public static final Config COVERT = new Config(5000, false);
+        public static final Config ENHANCED = new Config(8000, true);
+
+        final long patternTimeoutMs;
+        final boolean contextAware;
+
+        public Config(long patternTimeoutMs, boolean contextAware) {
+            this.patternTimeoutMs = patternTimeoutMs;
+            this.contextAware = contextAware;
+        }
+    }
+
+    // Patterns are expected intensities per significant movement
+    private static final int[] EMERGENCY_SOS_PATTERN = {2, 1, 3, 1, 2, 1, 3, 1, 2};
+    private static final int[] COVERT_PATTERN = {1, 2, 1, 3, 1, 2, 1};
+    private static final int[] ABDUCTION_PATTERN = {2, 1, 2, 1, 2, 1, 2};
+    private static final int[] NORMAL_POCKET_TOUCH = {1, 1, 1, 1, 1};
+    private static final int[] WALKING_PATTERN = {1, 2, 1, 2, 1, 2, 1};
+
+    private static final float POCKET_SENSITIVITY = 0.6f;
+    private static final float NORMAL_TOUCH_THRESHOLD = 0.4f;
+    private static final float WALKING_PEAK_THRESHOLD = 0.8f;
+    private static final int MIN_PATTERN_LENGTH = 7;
+
+    private static final int BUFFER_SIZE = 50;
+    private static final int HISTORY_SIZE = 100;
+
+    private final Config config;
+    private final PatternListener listener;
+
+    // Last BUFFER_SIZE magnitudes, for position and walking context
+    private final float[] buffer = new float[BUFFER_SIZE];
+    private final boolean[] peak = new boolean[BUFFER_SIZE];
+    private int bufferStart = 0;
+    private int bufferCount = 0;
+    private double bufferSum = 0;
+    private double bufferSumSquares = 0;
+    private int peakCount = 0;
+
+    // Last HISTORY_SIZE samples, for pattern matching
+    private final float[] historyValue = new float[HISTORY_SIZE];
+    private final long[] historyTime = new long[HISTORY_SIZE];
+    private final boolean[] historySignificant = new boolean[HISTORY_SIZE];
+    private int historyStart = 0;
+    private int historyCount = 0;
+
+    // Recent significant movements, oldest first; rebuilt per sample without allocating
+    private final float[] recent = new float[HISTORY_SIZE];
+    private int recentCount = 0;
+
+    private boolean inPocket = false;
+    private boolean walking = false;
+    private boolean normalPocketActivity = false;
+
+    public MotionPatternDetector(Config config, PatternListener listener) {
+        this.config = config;
+        this.listener = listener;
+    }
+
+    /**
+     * @param magnitude acceleration magnitude in m/s^2
+     * @param nowMillis detector clock time of the sample
+     */
+    public void onAcceleration(float magnitude, long nowMillis) {
+        appendToBuffer(magnitude);
+        detectPhonePosition();
+        if (config.contextAware) {
+            detectWalking();
+        }
+        appendToHistory(magnitude, nowMillis, magnitude > POCKET_SENSITIVITY);
+        analyzePatterns(nowMillis);
+    }
+
+    public boolean isInPocket() {
+        return inPocket;
+    }
+
+    public boolean isWalking() {
+        return walking;
+    }
+
+    public void reset() {
+        bufferStart = 0;
+        bufferCount = 0;
+        bufferSum = 0;
+        bufferSumSquares = 0;
+        peakCount = 0;
+        historyStart = 0;
+        historyCount = 0;
+        recentCount = 0;
+    }
+
+    private void appendToBuffer(float value) {
+        if (bufferCount == BUFFER_SIZE) {
+            float evicted = buffer[bufferStart];
+            bufferSum -= evicted;
+            bufferSumSquares -= (double) evicted * evicted;
+            bufferStart = (bufferStart + 1) % BUFFER_SIZE;
+            bufferCount--;
+            // The new oldest element lost its left neighbour and is no longer a candidate
+            if (peak[bufferStart]) {
+                peak[bufferStart] = false;
+                peakCount--;
+            }
+        }
+        int index = (bufferStart + bufferCount) % BUFFER_SIZE;
+        buffer[index] = value;
+        peak[index] = false;
+        bufferSum += value;
+        bufferSumSquares += (double) value * value;
+        bufferCount++;
+
+        // The previous newest element now has both neighbours
+        if (bufferCount >= 3) {
+            int mid = (index + BUFFER_SIZE - 1) % BUFFER_SIZE;
+            float prev = buffer[(index + BUFFER_SIZE - 2) % BUFFER_SIZE];
+            float curr = buffer[mid];
+            if (curr > prev && curr > value && curr > WALKING_PEAK_THRESHOLD) {
+                peak[mid] = true;
+                peakCount++;
+            }
+        }
+    }
+
+    private void detectPhonePosition() {
+        if (bufferCount <= 10) return;
+        double mean = bufferSum / bufferCount;
+        double variance = Math.max(0, bufferSumSquares / bufferCount - mean * mean);
+
+        // Pocket: lower movement, higher variance
+        if (mean < 0.5 && variance > 0.3) {
+            inPocket = true;
+            listener.onPhonePosition(true);
+        } else if (mean > 1.0 && variance < 0.2) {
+            inPocket = false;
+            listener.onPhonePosition(false);
+        }
+    }
+
+    private void detectWalking() {
+        if (bufferCount <= 20) return;
+        // Rhythmic up-down-up peaks relative to buffer length
+        float walkingScore = (float) peakCount / bufferCount;
+        if (walkingScore > 0.7f) {
+            walking = true;
+            normalPocketActivity = true; // Walking often involves pocket touches
+        } else {
+            walking = false;
+        }
+    }
+
+    private void appendToHistory(float value, long time, boolean significant) {
+        int index;
+        if (historyCount == HISTORY_SIZE) {
+            index = historyStart;
+            historyStart = (historyStart + 1) % HISTORY_SIZE;
+        } else {
+            index = (historyStart + historyCount) % HISTORY_SIZE;
+            historyCount++;
+        }
+        historyValue[index] = value;
+        historyTime[index] = time;
+        historySignificant[index] = significant;
+    }
+
+    private void analyzePatterns(long nowMillis) {
+        collectRecentSignificant(nowMillis);
+        if (recentCount < MIN_PATTERN_LENGTH) return;
+
+        if (config.contextAware) {
+            if (matchPattern(NORMAL_POCKET_TOUCH)) {
+                listener.onFalseAlarmPrevented(FalseAlarm.POCKET_TOUCH);
+                return;
+            }
+            if (walking && matchPattern(WALKING_PATTERN)) {
+                listener.onFalseAlarmPrevented(FalseAlarm.WALKING);
+                return;
+            }
+            if (isConsistentLightTouches()) {
+                listener.onFalseAlarmPrevented(FalseAlarm.LIGHT_TOUCHES);
+                return;
+            }
+            if (matchPattern(EMERGENCY_SOS_PATTERN)) {
+                float confidence = confidence();
+                if (confidence > 0.8f) {
+                    listener.onPatternMatched(Pattern.EMERGENCY_SOS, confidence);
+                }
+            }
+        }
+
+        if (matchPattern(COVERT_PATTERN)) {
+            float confidence = confidence();
+            if (confidence > 0.7f) {
+                listener.onPatternMatched(Pattern.COVERT_SOS, confidence);
+            }
+        }
+        if (matchPattern(ABDUCTION_PATTERN)) {
+            float confidence = confidence();
+            if (confidence > 0.8f) {
+                listener.onPatternMatched(Pattern.ABDUCTION, confidence);
+            }
+        }
+    }
+
+    private void collectRecentSignificant(long nowMillis) {
+        recentCount = 0;
+        for (int i = 0; i < historyCount; i++) {
+            int index = (historyStart + i) % HISTORY_SIZE;
+            if (historySignificant[index] && nowMillis - historyTime[index] < config.patternTimeoutMs) {
+                recent[recentCount++] = historyValue[index];
+            }
+        }
+    }
+
+    private boolean matchPattern(int[] pattern) {
+        if (recentCount < pattern.length) return false;
+        int matches = 0;
+        for (int i = 0; i < pattern.length; i++) {
+            float intensity = recent[i];
+            if (intensity >= pattern[i] * 0.5f && intensity <= pattern[i] * 1.5f) {
+                matches++;
+            }
+        }
+        return (float) matches / pattern.length > 0.7f;
+    }
+
+    private boolean isConsistentLightTouches() {
+        if (recentCount < 5) return false;
+        int lightTouchCount = 0;
+        float totalIntensity = 0;
+        for (int i = 0; i < recentCount; i++) {
+            totalIntensity += recent[i];
+            if (recent[i] < NORMAL_TOUCH_THRESHOLD) {
+                lightTouchCount++;
+            }
+        }
+        float avgIntensity = totalIntensity / recentCount;
+        float lightTouchRatio = (float) lightTouchCount / recentCount;
+        return lightTouchRatio > 0.7f && avgIntensity < 0.5f;
+    }
+
+    /**
+     * Mean intensity and consistency of the recent movements, penalised when the context
+     * looks like ordinary walking or pocket activity.
+     */
+    private float confidence() {
+        float sum = 0;
+        for (int i = 0; i < recentCount; i++) {
+            sum += recent[i];
+        }
+        float mean = sum / recentCount;
+        float variance = 0;
+        for (int i = 0; i < recentCount; i++) {
+            float d = recent[i] - mean;
+            variance += d * d;
+        }
+        variance /= recentCount;
+        float consistency = Math.max(0, 1.0f - variance);
+
+        float penalty = 0.0f;
+        if (config.contextAware && (normalPocketActivity || walking)) {
+            penalty = 0.2f;
+        }
+        return Math.max(0.0f, mean * 0.6f + consistency * 0.4f - penalty);
+    }
+}
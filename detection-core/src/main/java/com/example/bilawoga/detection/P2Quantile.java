@@ -0,0 +1,111 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Streaming estimate of one quantile with the P-square algorithm (Jain and Chlamtac,
+ * 1985): five markers adjusted with piecewise-parabolic interpolation. O(1) per update
+ * and five doubles of state however many samples are seen.
+ */
+public final class P2Quantile {
+    private final double p;
+    private final double[] heights = new double[5];
+    private final double[] positions = new double[5];
+    private final double[] desired = new double[5];
+    private final double[] increments = new double[5];
+    private long count = 0;
+
+    /**
+     * @param p quantile in (0, 1), e.g. 0.95
+     */
+    public P2Quantile(double p) {
+        if (p <= 0 || p >= 1) throw new IllegalArgumentException("p must be in (0, 1)");
+        this.p = p;
+        reset();
+    }
+
+    public void add(double x) {
+        if (count < 5) {
+            // Insertion sort into the first five heights
+            int i = (int) count;
+            while (i > 0 && heights[i - 1] > x) {
+                heights[i] = heights[i - 1];
+                i--;
+            }
+            heights[i] = x;
+            count++;
+            return;
+        }
+        count++;
+
+        int k;
+        if (x < heights[0]) {
+            heights[0] = x;
+            k = 0;
+        } else if (x >= heights[4]) {
+            heights[4] = Math.max(heights[4], x);
+            k = 3;
+        } else {
+            k = 0;
+            while (k < 3 && x >= heights[k + 1]) k++;
+        }
+        for (int i = k + 1; i < 5; i++) positions[i]++;
+        for (int i = 0; i < 5; i++) desired[i] += increments[i];
+
+        for (int i = 1; i <= 3; i++) {
+            double d = desired[i] - positions[i];
+            if ((d >= 1 && positions[i + 1] - positions[i] > 1)
+                    || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int s = d > 0 ? 1 : -1;
+                double h = parabolic(i, s);
+                if (heights[i - 1] < h && h < heights[i + 1]) {
+                    heights[i] = h;
+                } else {
+                    heights[i] = linear(i, s);
+                }
+                positions[i] += s;
+            }
+        }
+    }
+
+    /**
+     * @return the current estimate; NaN before the first sample
+     */
+    public double quantile() {
+        if (count == 0) return Double.NaN;
+        if (count < 5) {
+            // Nearest rank on the sorted prefix
+            int index = (int) Math.min(count - 1, Math.round(p * (count - 1)));
+            return heights[index];
+        }
+        return heights[2];
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public void reset() {
+        count = 0;
+        for (int i = 0; i < 5; i++) positions[i] = i + 1;
+        desired[0] = 1;
+        desired[1] = 1 + 2 * p;
+        desired[2] = 1 + 4 * p;
+        desired[3] = 3 + 2 * p;
+        desired[4] = 5;
+        increments[0] = 0;
+        increments[1] = p / 2;
+        increments[2] = p;
+        increments[3] = (1 + p) / 2;
+        increments[4] = 1;
+    }
+
+    private double parabolic(int i, int s) {
+        double n = positions[i], nPrev = positions[i - 1], nNext = positions[i + 1];
+        return heights[i] + s / (nNext - nPrev)
+                * ((n - nPrev + s) * (heights[i + 1] - heights[i]) / (nNext - n)
+                + (nNext - n - s) * (heights[i] - heights[i - 1]) / (n - nPrev));
+    }
+
+    private double linear(int i, int s) {
+        return heights[i] + s * (heights[i + s] - heights[i]) / (positions[i + s] - positions[i]);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.bilawoga.detection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Byte encoding of the value types a SharedPreferences can hold (String, Set of String,
+ * Integer, Long, Float, Boolean), as a type tag followed by the value.
+ */
+public final class PrefValues {
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte FLOAT = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte STRING_SET = 6;
+
+    private PrefValues() {
+    }
+
+    public static byte[] encode(Object value) {
+        if (value instanceof String) {
+            byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+            return ByteBuffer.allocate(1 + utf8.length).put(STRING).put(utf8).array();
+        } else if (value instanceof Integer) {
+            return ByteBuffer.allocate(5).put(INT).putInt((Integer) value).array();
+        } else if (value instanceof Long) {
+            return ByteBuffer.allocate(9).put(LONG).putLong((Long) value).array();
+        } else if (value instanceof Float) {
+            return ByteBuffer.allocate(5).put(FLOAT).putFloat((Float) value).array();
+        } else if (value instanceof Boolean) {
+            return new byte[]{BOOLEAN, (byte) ((Boolean) value ? 1 : 0)};
+        } else if (value instanceof Set) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(STRING_SET);
+                Set<?> set = (Set<?>) value;
+                out.writeInt(set.size());
+                for (Object item : set) {
+                    byte[] utf8 = String.valueOf(item).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(utf8.length);
+                    out.write(utf8);
+                }
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("Unsupported preference type: "
+                + (value == null ? "null" : value.getClass().getName()));
+    }
+
+    /** Decoded value; sets come back as a new mutable HashSet. */
+    public static Object decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        byte type = in.get();
+        switch (type) {
+            case STRING:
+                return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+            case INT:
+                return in.getInt();
+            case LONG:
+                return in.getLong();
+            case FLOAT:
+                return in.getFloat();
+            case BOOLEAN:
+                return in.get() != 0;
+            case STRING_SET: {
+                int n = in.getInt();
+                Set<String> set = new HashSet<>();
+                for (int i = 0; i < n; i++) {
+                    byte[] utf8 = new byte[in.getInt()];
+                    in.get(utf8);
+                    set.add(new String(utf8, StandardCharsets.UTF_8));
+                }
+                return set;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown preference type " + type);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.bilawoga.detection;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Authenticated encryption for single records. open() must fail when the ciphertext or
+ * the associated data was changed, so a store can tell a torn or tampered record from a
+ * good one.
+ */
+public interface RecordCipher {
+    byte[] seal(byte[] plaintext, byte[] associatedData) throws GeneralSecurityException;
+
+    byte[] open(byte[] sealed, byte[] associatedData) throws GeneralSecurityException;
+}
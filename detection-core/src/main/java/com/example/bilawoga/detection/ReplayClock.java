@@ -0,0 +1,22 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Clock driven by the replay engine: reports the wall time at which the sample
+ * currently being delivered was originally recorded.
+ */
+public final class ReplayClock implements Clock {
+    private volatile long nowMillis;
+
+    public ReplayClock(long startMillis) {
+        this.nowMillis = startMillis;
+    }
+
+    public void set(long millis) {
+        this.nowMillis = millis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return nowMillis;
+    }
+}
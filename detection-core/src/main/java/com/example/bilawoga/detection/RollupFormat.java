@@ -0,0 +1,33 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Binary layout of a minute rollup store (.bwrl). All multi-byte fields are
+ * little-endian.
+ *
+ * Header (8 bytes):
+ *   magic "BWRL" | version u8 | reserved u8[3]
+ *
+ * Blocks, appended until end of file:
+ *   rows i32 | minute i32[rows] | count i32[rows] | mean f32[rows] | max f32[rows] |
+ *   activity u8[rows]
+ *
+ * Columns are stored per block so a block is written in one append and a scan of one
+ * column touches contiguous memory. A block cut short by a crash is ignored on read.
+ * Minutes are non-decreasing across the file.
+ */
+public final class RollupFormat {
+    public static final int MAGIC = 0x4C525742; // "BWRL" read little-endian
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int BYTES_PER_ROW = 4 + 4 + 4 + 4 + 1;
+    /** Upper bound on rows per block, so a corrupt count cannot cause a huge read. */
+    public static final int MAX_BLOCK_ROWS = 4096;
+    public static final String FILE_EXTENSION = ".bwrl";
+
+    private RollupFormat() {
+    }
+
+    static int blockSize(int rows) {
+        return 4 + rows * BYTES_PER_ROW;
+    }
+}
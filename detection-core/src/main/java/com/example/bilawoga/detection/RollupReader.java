@@ -0,0 +1,94 @@
+package com.example.bilawoga.detection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential reader for a minute rollup store. The file is memory-mapped; a week of
+ * minutes is under 200 KB, so a full scan takes well under a millisecond once paged in.
+ *
+ * Not thread-safe.
+ */
+public final class RollupReader implements Closeable {
+    private static final ThreatScorer.Activity[] ACTIVITIES = ThreatScorer.Activity.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int blockStart;
+    private int blockRows = 0;
+    private int row = 0;
+    private int validLength = RollupFormat.HEADER_SIZE;
+
+    public RollupReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < RollupFormat.HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a rollup store: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != RollupFormat.MAGIC) {
+                throw new IOException("Not a rollup store: " + file);
+            }
+            int version = buffer.get(4) & 0xFF;
+            if (version != RollupFormat.VERSION) {
+                throw new IOException("Unsupported rollup store version " + version);
+            }
+            blockStart = RollupFormat.HEADER_SIZE;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return false at the end of the store; a truncated trailing block also ends it
+     */
+    public boolean next(MinuteRollup out) {
+        if (row == blockRows && !nextBlock()) {
+            return false;
+        }
+        int n = blockRows;
+        int base = blockStart + 4;
+        out.minute = buffer.getInt(base + 4 * row);
+        out.count = buffer.getInt(base + 4 * (n + row));
+        out.mean = buffer.getFloat(base + 4 * (2 * n + row));
+        out.max = buffer.getFloat(base + 4 * (3 * n + row));
+        int activity = buffer.get(base + 16 * n + row) & 0xFF;
+        out.activity = activity < ACTIVITIES.length ? ACTIVITIES[activity] : ThreatScorer.Activity.STILL;
+        row++;
+        return true;
+    }
+
+    /** Bytes up to the end of the last complete block read so far. */
+    public int validLength() {
+        return validLength;
+    }
+
+    private boolean nextBlock() {
+        int start = blockRows == 0 && row == 0 ? blockStart : blockStart + RollupFormat.blockSize(blockRows);
+        int limit = buffer.limit();
+        if (start + 4 > limit) return false;
+        int rows = buffer.getInt(start);
+        if (rows <= 0 || rows > RollupFormat.MAX_BLOCK_ROWS
+                || (long) start + RollupFormat.blockSize(rows) > limit) {
+            return false;
+        }
+        blockStart = start;
+        blockRows = rows;
+        row = 0;
+        validLength = start + RollupFormat.blockSize(rows);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
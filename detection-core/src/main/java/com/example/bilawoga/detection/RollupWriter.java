@@ -0,0 +1,155 @@
+package com.example.bilawoga.detection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends minute rollups to a store (see RollupFormat). Rows are buffered and written as
+ * one columnar block when blockRows are pending or on flush()/close(); anything still
+ * buffered at a crash is lost, everything flushed survives.
+ *
+ * Not thread-safe.
+ */
+public final class RollupWriter implements Closeable, MinuteRollup.Sink {
+    private final FileChannel channel;
+    private final int blockRows;
+    private final int[] minutes;
+    private final int[] counts;
+    private final float[] means;
+    private final float[] maxes;
+    private final byte[] activities;
+    private final ByteBuffer block;
+    private int pending = 0;
+    private int lastMinute = Integer.MIN_VALUE;
+
+    /**
+     * Open for appending, creating the file with a header if it is new or empty. A
+     * partial block at the end (from a crash) is cut off first.
+     */
+    public RollupWriter(File file, int blockRows) throws IOException {
+        if (blockRows <= 0 || blockRows > RollupFormat.MAX_BLOCK_ROWS) {
+            throw new IllegalArgumentException("blockRows out of range: " + blockRows);
+        }
+        this.blockRows = blockRows;
+        minutes = new int[blockRows];
+        counts = new int[blockRows];
+        means = new float[blockRows];
+        maxes = new float[blockRows];
+        activities = new byte[blockRows];
+        block = ByteBuffer.allocate(RollupFormat.blockSize(blockRows)).order(ByteOrder.LITTLE_ENDIAN);
+
+        channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(RollupFormat.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(RollupFormat.MAGIC).put((byte) RollupFormat.VERSION).put(new byte[3]).flip();
+                channel.write(header, 0);
+                channel.position(RollupFormat.HEADER_SIZE);
+            } else {
+                int validLength;
+                try (RollupReader reader = new RollupReader(file)) {
+                    MinuteRollup r = new MinuteRollup();
+                    while (reader.next(r)) {
+                        lastMinute = r.minute;
+                    }
+                    validLength = reader.validLength();
+                }
+                channel.truncate(validLength);
+                channel.position(validLength);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void onMinuteRollup(MinuteRollup rollup) {
+        try {
+            append(rollup);
+        } catch (IOException e) {
+            throw new IllegalStateException("Rollup write failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the minute is earlier than one already written
+     */
+    public void append(MinuteRollup rollup) throws IOException {
+        if (rollup.minute < lastMinute) {
+            throw new IllegalArgumentException("Rollups must be appended in time order");
+        }
+        lastMinute = rollup.minute;
+        minutes[pending] = rollup.minute;
+        counts[pending] = rollup.count;
+        means[pending] = rollup.mean;
+        maxes[pending] = rollup.max;
+        activities[pending] = (byte) rollup.activity.ordinal();
+        if (++pending == blockRows) {
+            flush();
+        }
+    }
+
+    /** Write buffered rows as one block. */
+    public void flush() throws IOException {
+        if (pending == 0) return;
+        block.clear();
+        block.putInt(pending);
+        for (int i = 0; i < pending; i++) block.putInt(minutes[i]);
+        for (int i = 0; i < pending; i++) block.putInt(counts[i]);
+        for (int i = 0; i < pending; i++) block.putFloat(means[i]);
+        for (int i = 0; i < pending; i++) block.putFloat(maxes[i]);
+        block.put(activities, 0, pending);
+        block.flip();
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+        pending = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Drop every row older than oldestMinute by rewriting the store into a temporary file
+     * and renaming it over the original. Do not call while a writer has the file open.
+     *
+     * @return rows kept
+     */
+    public static int compact(File file, int oldestMinute) throws IOException {
+        if (!file.exists()) return 0;
+        File tmp = new File(file.getPath() + ".tmp");
+        int kept = 0;
+        try (RollupReader reader = new RollupReader(file);
+             RollupWriter writer = new RollupWriter(truncate(tmp), RollupFormat.MAX_BLOCK_ROWS)) {
+            MinuteRollup r = new MinuteRollup();
+            while (reader.next(r)) {
+                if (r.minute >= oldestMinute) {
+                    writer.append(r);
+                    kept++;
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return kept;
+    }
+
+    private static File truncate(File file) throws IOException {
+        Files.deleteIfExists(file.toPath());
+        return file;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bilawoga.detection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives SensorSampleSinks from a recorded trace.
+ *
+ * Before each sample is delivered the ReplayClock is moved to the wall time the sample
+ * was recorded at, so detectors that were given the clock see the same timing they saw
+ * live. The speed factor paces delivery: 1 is real time, 10 is ten times faster, and
+ * AS_FAST_AS_POSSIBLE skips pacing entirely for throughput runs.
+ */
+public final class SensorReplayEngine {
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    public static final class Result {
+        public final long samples;
+        public final long traceNanos;
+        public final long elapsedNanos;
+
+        Result(long samples, long traceNanos, long elapsedNanos) {
+            this.samples = samples;
+            this.traceNanos = traceNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** How many times faster than real time the trace was replayed. */
+        public double speedup() {
+            return elapsedNanos == 0 ? Double.POSITIVE_INFINITY : (double) traceNanos / elapsedNanos;
+        }
+
+        public double samplesPerSecond() {
+            return elapsedNanos == 0 ? Double.POSITIVE_INFINITY : samples * 1e9 / elapsedNanos;
+        }
+    }
+
+    private SensorReplayEngine() {
+    }
+
+    public static Result replay(File trace, double speed, ReplayClock clock, SensorSampleSink... sinks) throws IOException {
+        try (SensorTraceReader reader = new SensorTraceReader(trace)) {
+            return replay(reader, speed, clock, sinks);
+        }
+    }
+
+    public static Result replay(SensorTraceReader reader, double speed, ReplayClock clock, SensorSampleSink... sinks) {
+        if (!(speed > 0)) throw new IllegalArgumentException("speed must be positive");
+        boolean paced = !Double.isInfinite(speed);
+        SensorSample sample = new SensorSample();
+        long count = 0;
+        long firstTimestamp = 0;
+        long lastTimestamp = 0;
+        long startNanos = System.nanoTime();
+
+        while (reader.next(sample)) {
+            if (count == 0) firstTimestamp = sample.timestampNanos;
+            lastTimestamp = sample.timestampNanos;
+
+            if (paced) {
+                long due = startNanos + (long) ((sample.timestampNanos - firstTimestamp) / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+            }
+            if (clock != null) {
+                clock.set(reader.toWallMillis(sample.timestampNanos));
+            }
+            for (SensorSampleSink sink : sinks) {
+                sink.onSensorSample(sample.sensorType, sample.timestampNanos, sample.x, sample.y, sample.z);
+            }
+            count++;
+        }
+        return new Result(count, lastTimestamp - firstTimestamp, System.nanoTime() - startNanos);
+    }
+}
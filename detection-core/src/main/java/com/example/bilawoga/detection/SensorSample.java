@@ -0,0 +1,12 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Mutable holder reused while reading a trace, so decoding does not allocate per sample.
+ */
+public final class SensorSample {
+    public int sensorType;
+    public long timestampNanos;
+    public float x;
+    public float y;
+    public float z;
+}
@@ -0,0 +1,84 @@
+package com.example.bilawoga.detection;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-capacity single-producer / single-consumer queue of sensor samples, so a sensor
+ * callback can hand samples to an analysis thread without locks or allocation.
+ *
+ * One thread calls onSensorSample, one other thread calls drainTo. When the ring is full
+ * new samples are dropped and counted rather than blocking the producer.
+ */
+public final class SensorSampleRing implements SensorSampleSink {
+    private final int mask;
+    private final int[] types;
+    private final long[] timestamps;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] zs;
+
+    // Next slot to write (producer) and to read (consumer)
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long dropped;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public SensorSampleRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        types = new int[size];
+        timestamps = new long[size];
+        xs = new float[size];
+        ys = new float[size];
+        zs = new float[size];
+    }
+
+    @Override
+    public void onSensorSample(int sensorType, long timestampNanos, float x, float y, float z) {
+        long h = head.get();
+        if (h - tail.get() > mask) {
+            dropped++; // single writer
+            return;
+        }
+        int i = (int) h & mask;
+        types[i] = sensorType;
+        timestamps[i] = timestampNanos;
+        xs[i] = x;
+        ys[i] = y;
+        zs[i] = z;
+        // Publishes the slot to the consumer
+        head.lazySet(h + 1);
+    }
+
+    /**
+     * Deliver every queued sample to the sink, oldest first.
+     *
+     * @return number of samples delivered
+     */
+    public int drainTo(SensorSampleSink sink) {
+        long t = tail.get();
+        long h = head.get();
+        for (long n = t; n < h; n++) {
+            int i = (int) n & mask;
+            sink.onSensorSample(types[i], timestamps[i], xs[i], ys[i], zs[i]);
+        }
+        // Frees the slots for the producer
+        tail.lazySet(h);
+        return (int) (h - t);
+    }
+
+    public int size() {
+        return (int) (head.get() - tail.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Samples rejected because the consumer fell behind. */
+    public long getDropped() {
+        return dropped;
+    }
+}
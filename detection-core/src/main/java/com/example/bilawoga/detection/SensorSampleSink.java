@@ -0,0 +1,14 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Receives raw three-axis sensor samples. Implemented by the motion detectors so the
+ * same code path can be fed by SensorManager on a device or by a recorded trace.
+ */
+public interface SensorSampleSink {
+
+    /**
+     * @param sensorType      one of SensorTypes
+     * @param timestampNanos  sensor event timestamp (SensorEvent.timestamp, elapsed realtime)
+     */
+    void onSensorSample(int sensorType, long timestampNanos, float x, float y, float z);
+}
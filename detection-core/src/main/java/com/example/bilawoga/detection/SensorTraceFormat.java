@@ -0,0 +1,46 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Binary layout of a sensor trace (.bwst). All multi-byte header fields are little-endian.
+ *
+ * Header (32 bytes):
+ *   magic "BWST" | version u8 | reserved u8[3] | scale i32 | startWallMillis i64 |
+ *   startTimestampNanos i64 | reserved u8[4]
+ *
+ * Records, until end of file:
+ *   sensorType u8 | dt varint | dx varint | dy varint | dz varint
+ *
+ * dt is the zigzag-encoded difference in microseconds from the previous record of any
+ * sensor. dx/dy/dz are zigzag-encoded differences of the fixed-point value (value * scale)
+ * from the previous record of the same sensor type. Consecutive samples of a smooth
+ * signal differ by little, so a typical record is 6-9 bytes instead of 24+.
+ */
+public final class SensorTraceFormat {
+    public static final int MAGIC = 0x54535742; // "BWST" read little-endian
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    /** Default fixed-point scale: 1/1000 of a unit (mm/s^2, mrad/s, nT). */
+    public static final int DEFAULT_SCALE = 1000;
+    /** Sensor types are stored in one byte and index per-type delta state. */
+    public static final int MAX_SENSOR_TYPE = 63;
+    public static final String FILE_EXTENSION = ".bwst";
+
+    private SensorTraceFormat() {
+    }
+
+    static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.bilawoga.detection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential decoder for a sensor trace. The file is memory-mapped, so decoding runs
+ * straight out of the page cache without read() copies; traces are limited to 2 GiB.
+ *
+ * Not thread-safe. Use one reader per replay.
+ */
+public final class SensorTraceReader implements Closeable {
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final float inverseScale;
+    private final long startWallMillis;
+    private final long startTimestampNanos;
+
+    private long lastMicros;
+    private final int[][] lastValues = new int[SensorTraceFormat.MAX_SENSOR_TYPE + 1][3];
+
+    public SensorTraceReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < SensorTraceFormat.HEADER_SIZE) {
+                throw new IOException("Not a sensor trace: " + file);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Sensor trace too large to map: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != SensorTraceFormat.MAGIC) {
+                throw new IOException("Not a sensor trace: " + file);
+            }
+            int version = buffer.get(4) & 0xFF;
+            if (version != SensorTraceFormat.VERSION) {
+                throw new IOException("Unsupported sensor trace version " + version);
+            }
+            int scale = buffer.getInt(8);
+            if (scale <= 0) {
+                throw new IOException("Corrupt sensor trace header: " + file);
+            }
+            inverseScale = 1.0f / scale;
+            startWallMillis = buffer.getLong(12);
+            startTimestampNanos = buffer.getLong(20);
+            buffer.position(SensorTraceFormat.HEADER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getStartWallMillis() {
+        return startWallMillis;
+    }
+
+    public long getStartTimestampNanos() {
+        return startTimestampNanos;
+    }
+
+    /**
+     * Decode the next record into sample.
+     *
+     * @return false at end of trace; a truncated trailing record also ends the trace
+     */
+    public boolean next(SensorSample sample) {
+        if (!buffer.hasRemaining()) return false;
+        int start = buffer.position();
+        try {
+            int type = buffer.get() & 0xFF;
+            if (type > SensorTraceFormat.MAX_SENSOR_TYPE) {
+                throw new IllegalStateException("Corrupt record at offset " + start);
+            }
+            long micros = lastMicros + SensorTraceFormat.unzigzag(readVarLong());
+            int[] last = lastValues[type];
+            int qx = last[0] + SensorTraceFormat.unzigzag(readVarInt());
+            int qy = last[1] + SensorTraceFormat.unzigzag(readVarInt());
+            int qz = last[2] + SensorTraceFormat.unzigzag(readVarInt());
+
+            lastMicros = micros;
+            last[0] = qx;
+            last[1] = qy;
+            last[2] = qz;
+
+            sample.sensorType = type;
+            sample.timestampNanos = startTimestampNanos + micros * 1000;
+            sample.x = qx * inverseScale;
+            sample.y = qy * inverseScale;
+            sample.z = qz * inverseScale;
+            return true;
+        } catch (java.nio.BufferUnderflowException e) {
+            // Recorder was killed mid-record; everything before it is still valid
+            buffer.position(buffer.limit());
+            return false;
+        }
+    }
+
+    /**
+     * Wall-clock time at which a sample with this timestamp was recorded.
+     */
+    public long toWallMillis(long timestampNanos) {
+        return startWallMillis + (timestampNanos - startTimestampNanos) / 1_000_000;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int readVarInt() {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0 && shift < 35);
+        return result;
+    }
+
+    private long readVarLong() {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0 && shift < 70);
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.bilawoga.detection;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Appends sensor samples to a delta-encoded trace (see SensorTraceFormat).
+ *
+ * Not thread-safe: feed it from the single thread that receives sensor events.
+ */
+public final class SensorTraceWriter implements Closeable, SensorSampleSink {
+    private final OutputStream out;
+    private final int scale;
+    private final long startTimestampNanos;
+    private final byte[] record = new byte[1 + 10 + 3 * 5];
+
+    private long lastMicros;
+    private final int[][] lastValues = new int[SensorTraceFormat.MAX_SENSOR_TYPE + 1][3];
+    private long samplesWritten = 0;
+
+    /**
+     * @param startWallMillis      wall-clock time matching startTimestampNanos, so replay
+     *                             can reconstruct what the detectors' clock read
+     * @param startTimestampNanos  sensor timestamp base, normally the first event's timestamp
+     */
+    public SensorTraceWriter(File file, long startWallMillis, long startTimestampNanos) throws IOException {
+        this(file, startWallMillis, startTimestampNanos, SensorTraceFormat.DEFAULT_SCALE);
+    }
+
+    public SensorTraceWriter(File file, long startWallMillis, long startTimestampNanos, int scale) throws IOException {
+        if (scale <= 0) throw new IllegalArgumentException("scale must be positive");
+        this.out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+        this.scale = scale;
+        this.startTimestampNanos = startTimestampNanos;
+        this.lastMicros = 0;
+
+        byte[] header = new byte[SensorTraceFormat.HEADER_SIZE];
+        putInt(header, 0, SensorTraceFormat.MAGIC);
+        header[4] = (byte) SensorTraceFormat.VERSION;
+        putInt(header, 8, scale);
+        putLong(header, 12, startWallMillis);
+        putLong(header, 20, startTimestampNanos);
+        out.write(header);
+    }
+
+    @Override
+    public void onSensorSample(int sensorType, long timestampNanos, float x, float y, float z) {
+        try {
+            append(sensorType, timestampNanos, x, y, z);
+        } catch (IOException e) {
+            throw new IllegalStateException("Trace write failed: " + e.getMessage(), e);
+        }
+    }
+
+    public void append(int sensorType, long timestampNanos, float x, float y, float z) throws IOException {
+        if (sensorType < 0 || sensorType > SensorTraceFormat.MAX_SENSOR_TYPE) {
+            throw new IllegalArgumentException("Unsupported sensor type " + sensorType);
+        }
+        long micros = (timestampNanos - startTimestampNanos) / 1000;
+        int[] last = lastValues[sensorType];
+        int qx = quantize(x);
+        int qy = quantize(y);
+        int qz = quantize(z);
+
+        int pos = 0;
+        record[pos++] = (byte) sensorType;
+        pos = putVarLong(record, pos, SensorTraceFormat.zigzag(micros - lastMicros));
+        pos = putVarInt(record, pos, SensorTraceFormat.zigzag(qx - last[0]));
+        pos = putVarInt(record, pos, SensorTraceFormat.zigzag(qy - last[1]));
+        pos = putVarInt(record, pos, SensorTraceFormat.zigzag(qz - last[2]));
+        out.write(record, 0, pos);
+
+        lastMicros = micros;
+        last[0] = qx;
+        last[1] = qy;
+        last[2] = qz;
+        samplesWritten++;
+    }
+
+    public long getSamplesWritten() {
+        return samplesWritten;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private int quantize(float v) {
+        float scaled = v * scale;
+        if (scaled >= Integer.MAX_VALUE) return Integer.MAX_VALUE;
+        if (scaled <= Integer.MIN_VALUE) return Integer.MIN_VALUE;
+        return Math.round(scaled);
+    }
+
+    private static int putVarInt(byte[] buf, int pos, int v) {
+        while ((v & ~0x7F) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+        return pos;
+    }
+
+    private static int putVarLong(byte[] buf, int pos, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+        return pos;
+    }
+
+    private static void putInt(byte[] buf, int pos, int v) {
+        for (int i = 0; i < 4; i++) {
+            buf[pos + i] = (byte) (v >>> (8 * i));
+        }
+    }
+
+    private static void putLong(byte[] buf, int pos, long v) {
+        for (int i = 0; i < 8; i++) {
+            buf[pos + i] = (byte) (v >>> (8 * i));
+        }
+    }
+}
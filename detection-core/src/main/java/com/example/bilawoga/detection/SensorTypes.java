@@ -0,0 +1,14 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Sensor type ids, numerically identical to android.hardware.Sensor.TYPE_* so
+ * Android adapters can pass event.sensor.getType() straight through.
+ */
+public final class SensorTypes {
+    public static final int ACCELEROMETER = 1;
+    public static final int MAGNETIC_FIELD = 2;
+    public static final int GYROSCOPE = 4;
+
+    private SensorTypes() {
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bilawoga.detection;
+
+/**
+ * The one shake detector used by every entry point (ShakeService, ServiceMine).
+ *
+ * Samples run through a ShakeFilter chain (by default gravity high-pass, jerk, windowed
+ * energy), then the engine fires when energy and jerk energy stay above the profile's
+ * squared thresholds for minDurationMs, followed by a cooldown. All timing uses sensor
+ * timestamps, so live and replayed streams behave the same.
+ *
+ * The per-sample path does not allocate and takes no square roots. Not thread-safe.
+ */
+public final class ShakeEngine {
+    /** A longer gap in the stream (listener paused, sensor batching) restarts the filters. */
+    private static final long MAX_GAP_NANOS = 500_000_000L;
+
+    private final ShakeProfile profile;
+    private final ShakeFilter[] chain;
+    private final MotionFrame frame = new MotionFrame();
+
+    private boolean started = false;
+    private long lastTimestampNanos;
+    private long aboveSinceNanos = -1;
+    private long cooldownUntilNanos = Long.MIN_VALUE;
+
+    public ShakeEngine(ShakeProfile profile) {
+        this(profile, ShakeFilters.defaultChain(profile));
+    }
+
+    public ShakeEngine(ShakeProfile profile, ShakeFilter... chain) {
+        this.profile = profile;
+        this.chain = chain.clone();
+    }
+
+    public ShakeProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @param timestampNanos sensor timestamp (SensorEvent.timestamp)
+     * @return true when this sample completes a shake
+     */
+    public boolean onAcceleration(long timestampNanos, float x, float y, float z) {
+        long gap = timestampNanos - lastTimestampNanos;
+        if (!started || gap > MAX_GAP_NANOS || gap < 0) {
+            resetFilters();
+            started = true;
+            frame.dt = 0;
+        } else {
+            frame.dt = gap * 1e-9f;
+        }
+        lastTimestampNanos = timestampNanos;
+        frame.timestampNanos = timestampNanos;
+        frame.x = x;
+        frame.y = y;
+        frame.z = z;
+
+        for (ShakeFilter filter : chain) {
+            if (!filter.process(frame)) {
+                return false;
+            }
+        }
+
+        if (frame.energy < profile.energyThresholdSq || frame.jerkEnergy < profile.jerkThresholdSq) {
+            aboveSinceNanos = -1;
+            return false;
+        }
+        if (aboveSinceNanos < 0) {
+            aboveSinceNanos = timestampNanos;
+        }
+        if (timestampNanos - aboveSinceNanos < profile.minDurationMs * 1_000_000L
+                || timestampNanos < cooldownUntilNanos) {
+            return false;
+        }
+        aboveSinceNanos = -1;
+        cooldownUntilNanos = timestampNanos + profile.cooldownMs * 1_000_000L;
+        return true;
+    }
+
+    /** The most recent sample after filtering, for diagnostics. Overwritten per sample. */
+    public MotionFrame lastFrame() {
+        return frame;
+    }
+
+    public void reset() {
+        started = false;
+        cooldownUntilNanos = Long.MIN_VALUE;
+        resetFilters();
+    }
+
+    private void resetFilters() {
+        aboveSinceNanos = -1;
+        for (ShakeFilter filter : chain) {
+            filter.reset();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.bilawoga.detection;
+
+/**
+ * One stage of the ShakeEngine filter chain. Stages run in order on the same
+ * MotionFrame and fill in the fields later stages and the engine read.
+ */
+public interface ShakeFilter {
+
+    /**
+     * @return false to drop the sample; later stages and the shake decision are skipped
+     */
+    boolean process(MotionFrame frame);
+
+    /** Forget all history, e.g. after a gap in the sensor stream. */
+    void reset();
+}
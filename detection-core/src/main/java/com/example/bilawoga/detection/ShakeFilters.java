@@ -0,0 +1,136 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Standard ShakeEngine stages: gravity removal, jerk, and windowed energy.
+ * None of them allocate after construction.
+ */
+public final class ShakeFilters {
+
+    private ShakeFilters() {
+    }
+
+    /** Gravity high-pass, then jerk, then windowed energy of both. */
+    public static ShakeFilter[] defaultChain(ShakeProfile profile) {
+        return new ShakeFilter[]{
+                new GravityHighPass(profile.gravityTimeConstantSec),
+                new Jerk(),
+                new WindowedEnergy(profile.windowSamples)
+        };
+    }
+
+    /**
+     * Removes gravity with a first-order high-pass: a low-pass estimate of gravity is
+     * tracked and subtracted. The filter coefficient follows the actual sample interval,
+     * so behaviour does not depend on the sensor rate.
+     */
+    public static final class GravityHighPass implements ShakeFilter {
+        private final float timeConstantSec;
+        private float gx, gy, gz;
+        private boolean seeded = false;
+
+        public GravityHighPass(float timeConstantSec) {
+            this.timeConstantSec = timeConstantSec;
+        }
+
+        @Override
+        public boolean process(MotionFrame f) {
+            if (!seeded) {
+                gx = f.x;
+                gy = f.y;
+                gz = f.z;
+                seeded = true;
+            } else {
+                float alpha = timeConstantSec / (timeConstantSec + f.dt);
+                gx = alpha * gx + (1 - alpha) * f.x;
+                gy = alpha * gy + (1 - alpha) * f.y;
+                gz = alpha * gz + (1 - alpha) * f.z;
+            }
+            f.linearX = f.x - gx;
+            f.linearY = f.y - gy;
+            f.linearZ = f.z - gz;
+            return true;
+        }
+
+        @Override
+        public void reset() {
+            seeded = false;
+        }
+    }
+
+    /** Rate of change of linear acceleration between consecutive samples. */
+    public static final class Jerk implements ShakeFilter {
+        private float lastX, lastY, lastZ;
+        private boolean primed = false;
+
+        @Override
+        public boolean process(MotionFrame f) {
+            if (primed && f.dt > 0) {
+                float inv = 1.0f / f.dt;
+                float jx = (f.linearX - lastX) * inv;
+                float jy = (f.linearY - lastY) * inv;
+                float jz = (f.linearZ - lastZ) * inv;
+                f.jerkSq = jx * jx + jy * jy + jz * jz;
+            } else {
+                f.jerkSq = 0;
+            }
+            lastX = f.linearX;
+            lastY = f.linearY;
+            lastZ = f.linearZ;
+            primed = true;
+            return true;
+        }
+
+        @Override
+        public void reset() {
+            primed = false;
+        }
+    }
+
+    /**
+     * Mean squared linear acceleration and jerk over the last N samples, kept as running
+     * sums over a ring buffer.
+     */
+    public static final class WindowedEnergy implements ShakeFilter {
+        private final float[] linearSq;
+        private final float[] jerkSq;
+        private int next = 0;
+        private int count = 0;
+        private double linearSum = 0;
+        private double jerkSum = 0;
+
+        public WindowedEnergy(int windowSamples) {
+            if (windowSamples <= 0) throw new IllegalArgumentException("windowSamples must be positive");
+            linearSq = new float[windowSamples];
+            jerkSq = new float[windowSamples];
+        }
+
+        @Override
+        public boolean process(MotionFrame f) {
+            float l = f.linearX * f.linearX + f.linearY * f.linearY + f.linearZ * f.linearZ;
+            if (count == linearSq.length) {
+                linearSum -= linearSq[next];
+                jerkSum -= jerkSq[next];
+            } else {
+                count++;
+            }
+            linearSq[next] = l;
+            jerkSq[next] = f.jerkSq;
+            linearSum += l;
+            jerkSum += f.jerkSq;
+            next = (next + 1) % linearSq.length;
+
+            f.energy = (float) (linearSum / count);
+            f.jerkEnergy = (float) (jerkSum / count);
+            // Only decide on a full window
+            return count == linearSq.length;
+        }
+
+        @Override
+        public void reset() {
+            next = 0;
+            count = 0;
+            linearSum = 0;
+            jerkSum = 0;
+        }
+    }
+}
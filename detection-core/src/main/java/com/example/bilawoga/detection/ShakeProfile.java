@@ -0,0 +1,54 @@
+package com.example.bilawoga.detection;
+
+import java.util.Locale;
+
+/**
+ * Sensitivity settings for ShakeEngine. A shake is sustained movement whose windowed
+ * RMS linear acceleration and RMS jerk both exceed the thresholds for minDurationMs;
+ * a knock or a drop is too short, walking and running are too smooth.
+ */
+public final class ShakeProfile {
+    public static final ShakeProfile HIGH = new ShakeProfile("high", 6.0f, 150.0f, 16, 450, 10000, 0.3f);
+    public static final ShakeProfile MEDIUM = new ShakeProfile("medium", 9.0f, 200.0f, 16, 500, 10000, 0.3f);
+    public static final ShakeProfile LOW = new ShakeProfile("low", 13.0f, 300.0f, 16, 800, 10000, 0.3f);
+
+    public final String name;
+    /** RMS linear acceleration threshold, m/s^2. */
+    public final float energyThreshold;
+    /** RMS jerk threshold, m/s^3. */
+    public final float jerkThreshold;
+    /** Samples in the energy window; 16 is about 320 ms at SENSOR_DELAY_GAME. */
+    public final int windowSamples;
+    /** Must exceed the window span, or a single spike held in the window counts as a shake. */
+    public final long minDurationMs;
+    public final long cooldownMs;
+    public final float gravityTimeConstantSec;
+
+    final float energyThresholdSq;
+    final float jerkThresholdSq;
+
+    public ShakeProfile(String name, float energyThreshold, float jerkThreshold, int windowSamples,
+                        long minDurationMs, long cooldownMs, float gravityTimeConstantSec) {
+        this.name = name;
+        this.energyThreshold = energyThreshold;
+        this.jerkThreshold = jerkThreshold;
+        this.windowSamples = windowSamples;
+        this.minDurationMs = minDurationMs;
+        this.cooldownMs = cooldownMs;
+        this.gravityTimeConstantSec = gravityTimeConstantSec;
+        this.energyThresholdSq = energyThreshold * energyThreshold;
+        this.jerkThresholdSq = jerkThreshold * jerkThreshold;
+    }
+
+    /**
+     * @return the named built-in profile, MEDIUM for null or unknown names
+     */
+    public static ShakeProfile forName(String name) {
+        if (name == null) return MEDIUM;
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "high": return HIGH;
+            case "low": return LOW;
+            default: return MEDIUM;
+        }
+    }
+}
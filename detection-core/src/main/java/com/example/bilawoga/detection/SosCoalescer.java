@@ -0,0 +1,220 @@
+package com.example.bilawoga.detection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Single-flight SOS sessions: every trigger path (shake, motion patterns, audio, voice,
+ * the SOS button) offers its trigger here instead of dispatching on its own.
+ *
+ * The first trigger opens a session. Triggers that arrive while a session is open never
+ * open a second one; they are recorded as evidence and may raise the session's urgency,
+ * e.g. from a cancellable countdown to immediate dispatch. A session is dispatched once
+ * (markDispatched is the guard) and then stays open for the window after that dispatch,
+ * soaking up the tail of the same incident. Later triggers do not extend the window, so a
+ * noisy detector cannot keep a session open, and silently merged, indefinitely.
+ *
+ * The SOS button is the exception to merging: a MANUAL trigger on a session that was
+ * already sent comes back as RESEND, and the caller sends again (markRedispatched). A
+ * send that fails is handed back with dispatchFailed so the next trigger can retry it.
+ *
+ * Thread-safe; all times come from the caller so replays and tests control the clock.
+ */
+public final class SosCoalescer {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 120_000;
+
+    public enum Source {
+        MANUAL, SHAKE, MOTION_PATTERN, AUDIO, VOICE, FUSION
+    }
+
+    /** Ordered: a later constant is more urgent. */
+    public enum Urgency {
+        /** The user gets a countdown and can cancel. */
+        CONFIRM,
+        /** Send without waiting. */
+        IMMEDIATE
+    }
+
+    public enum Outcome {
+        /** A new session: the caller starts location resolution and the countdown or dispatch. */
+        OPENED,
+        /** Joined the unsent session and made it immediate; dispatch it now. */
+        ESCALATED,
+        /** Joined the open session as evidence only. */
+        MERGED,
+        /** The user pressed SOS on a session that was already sent: send it again. */
+        RESEND
+    }
+
+    /** Immutable view of a session, safe to hand to other threads. */
+    public static final class Session {
+        public final long id;
+        public final long openedMillis;
+        public final Source openedBy;
+        public final Urgency urgency;
+        /** Incident description of the trigger that set the current urgency. */
+        public final String incident;
+        /** Triggers per source, including the opener. */
+        public final Map<Source, Integer> evidence;
+        /** -1 until dispatched. */
+        public final long dispatchedMillis;
+
+        Session(long id, long openedMillis, Source openedBy, Urgency urgency, String incident,
+                Map<Source, Integer> evidence, long dispatchedMillis) {
+            this.id = id;
+            this.openedMillis = openedMillis;
+            this.openedBy = openedBy;
+            this.urgency = urgency;
+            this.incident = incident;
+            this.evidence = Collections.unmodifiableMap(new EnumMap<>(evidence));
+            this.dispatchedMillis = dispatchedMillis;
+        }
+
+        public boolean isDispatched() {
+            return dispatchedMillis >= 0;
+        }
+
+        /** Sources other than the opener that joined, e.g. "audio, voice"; empty if none. */
+        public String corroboration() {
+            List<String> names = new ArrayList<>();
+            for (Source s : evidence.keySet()) {
+                if (s != openedBy) names.add(s.name().toLowerCase(Locale.ROOT).replace('_', ' '));
+            }
+            return String.join(", ", names);
+        }
+    }
+
+    private final long windowMillis;
+    private long nextId = 1;
+
+    // Current session state; id 0 means none
+    private long id;
+    private long openedMillis;
+    private Source openedBy;
+    private Urgency urgency;
+    private String incident;
+    private final EnumMap<Source, Integer> evidence = new EnumMap<>(Source.class);
+    private long dispatchedMillis = -1;
+
+    public SosCoalescer() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * @param windowMillis how long a session stays open after its dispatch (or, until it
+     *                     is dispatched, after it opened), absorbing follow-up triggers of
+     *                     the same incident
+     */
+    public SosCoalescer(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Offer a trigger. Exactly one caller per session sees OPENED. An IMMEDIATE trigger on
+     * a session that has not been sent yet is ESCALATED, a MANUAL one on a session that
+     * has is RESEND; everything else is MERGED.
+     */
+    public synchronized Outcome offer(Source source, Urgency urgency, String incident, long nowMillis) {
+        expire(nowMillis);
+        if (id == 0) {
+            id = nextId++;
+            openedMillis = nowMillis;
+            openedBy = source;
+            this.urgency = urgency;
+            this.incident = incident;
+            evidence.clear();
+            evidence.put(source, 1);
+            dispatchedMillis = -1;
+            return Outcome.OPENED;
+        }
+        evidence.merge(source, 1, Integer::sum);
+        if (urgency.compareTo(this.urgency) > 0) {
+            this.urgency = urgency;
+            this.incident = incident;
+        }
+        if (dispatchedMillis >= 0) {
+            return source == Source.MANUAL ? Outcome.RESEND : Outcome.MERGED;
+        }
+        // Also covers an immediate session whose send failed and was handed back
+        return urgency == Urgency.IMMEDIATE ? Outcome.ESCALATED : Outcome.MERGED;
+    }
+
+    /**
+     * Claim the dispatch of a session. Returns the session to send, or null if it is
+     * unknown, cancelled, expired or already dispatched.
+     */
+    public synchronized Session markDispatched(long sessionId, long nowMillis) {
+        expire(nowMillis);
+        if (id == 0 || id != sessionId || dispatchedMillis >= 0) {
+            return null;
+        }
+        dispatchedMillis = nowMillis;
+        return snapshot();
+    }
+
+    /**
+     * Claim a repeat send of a session that was already dispatched, after RESEND. The
+     * session's window restarts from {@code nowMillis}. Returns the session to send, or
+     * null if it is unknown, expired or was never dispatched.
+     */
+    public synchronized Session markRedispatched(long sessionId, long nowMillis) {
+        expire(nowMillis);
+        if (id == 0 || id != sessionId || dispatchedMillis < 0) {
+            return null;
+        }
+        dispatchedMillis = nowMillis;
+        return snapshot();
+    }
+
+    /**
+     * The send claimed at {@code dispatchedMillis} went nowhere; the session counts as
+     * unsent again so the next trigger, or a retry, can dispatch it. Does nothing if the
+     * session has since ended or been sent again.
+     */
+    public synchronized boolean dispatchFailed(long sessionId, long dispatchedMillis) {
+        if (id == 0 || id != sessionId || this.dispatchedMillis != dispatchedMillis) {
+            return false;
+        }
+        this.dispatchedMillis = -1;
+        return true;
+    }
+
+    /**
+     * The user called it off. Only an undispatched session can be cancelled; the next
+     * trigger opens a fresh one.
+     */
+    public synchronized boolean cancel(long sessionId) {
+        if (id == 0 || id != sessionId || dispatchedMillis >= 0) {
+            return false;
+        }
+        id = 0;
+        return true;
+    }
+
+    /** The open session, or null. */
+    public synchronized Session current(long nowMillis) {
+        expire(nowMillis);
+        return id == 0 ? null : snapshot();
+    }
+
+    public synchronized void reset() {
+        id = 0;
+    }
+
+    private void expire(long nowMillis) {
+        if (id == 0) return;
+        long anchor = dispatchedMillis >= 0 ? dispatchedMillis : openedMillis;
+        if (nowMillis - anchor >= windowMillis) {
+            id = 0;
+        }
+    }
+
+    private Session snapshot() {
+        return new Session(id, openedMillis, openedBy, urgency, incident, evidence, dispatchedMillis);
+    }
+}
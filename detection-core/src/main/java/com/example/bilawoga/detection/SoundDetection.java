@@ -0,0 +1,18 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Result of classifying one audio frame.
+ */
+public final class SoundDetection {
+    public static final SoundDetection NONE = new SoundDetection(false, "", 0.0f);
+
+    public final boolean isEmergency;
+    public final String type;
+    public final float confidence;
+
+    public SoundDetection(boolean isEmergency, String type, float confidence) {
+        this.isEmergency = isEmergency;
+        this.type = type;
+        this.confidence = confidence;
+    }
+}
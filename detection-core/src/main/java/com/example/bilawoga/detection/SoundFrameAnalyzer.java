@@ -0,0 +1,88 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Capture frame -> level -> spectrum -> classifier path used by BackgroundAudioMonitor.
+ * Kept free of Android types so the offline evaluator runs exactly the same code.
+ *
+ * Not thread-safe: working buffers are reused between frames. Use one instance per stream.
+ */
+public class SoundFrameAnalyzer {
+    public static final int SAMPLE_RATE = 44100;
+    /** Minimum time between two reported detections on one stream. */
+    public static final long TRIGGER_LOCKOUT_MS = 5000;
+
+    private final EmergencySoundDetector detector;
+    private short[] samples = new short[0];
+
+    // Measurements of the most recent frame, for diagnostics
+    private double lastDb;
+
+    public SoundFrameAnalyzer() {
+        this(new EmergencySoundDetector());
+    }
+
+    public SoundFrameAnalyzer(EmergencySoundDetector detector) {
+        this.detector = detector;
+    }
+
+    /**
+     * Analyze little-endian 16-bit PCM as delivered by AudioRecord.
+     */
+    public SoundDetection analyzePcm16(byte[] audioData, int readSize) {
+        int count = readSize / 2;
+        if (samples.length != count) {
+            samples = new short[count];
+        }
+        for (int i = 0; i < count; i++) {
+            samples[i] = (short) ((audioData[i * 2] & 0xFF) | (audioData[i * 2 + 1] << 8));
+        }
+        return analyze(samples);
+    }
+
+    public SoundDetection analyze(short[] frame) {
+        if (frame.length == 0) return SoundDetection.NONE;
+
+        // Calculate audio levels and frequency analysis
+        double rms = calculateRMS(frame);
+        lastDb = 20 * Math.log10(rms / 32767.0);
+
+        // Frequency analysis for crying/screaming detection
+        double[] frequencies = performFFT(frame);
+
+        return detector.detectEmergency(lastDb, frequencies);
+    }
+
+    public double getLastDb() {
+        return lastDb;
+    }
+
+    /**
+     * Calculate RMS (Root Mean Square) of audio samples
+     */
+    static double calculateRMS(short[] samples) {
+        double sum = 0;
+        for (short sample : samples) {
+            sum += sample * sample;
+        }
+        return Math.sqrt(sum / samples.length);
+    }
+
+    /**
+     * Perform FFT for frequency analysis
+     */
+    static double[] performFFT(short[] samples) {
+        // Simple frequency analysis - in a real implementation, you'd use a proper FFT library
+        // This is a simplified version for demonstration
+        double[] frequencies = new double[samples.length / 2];
+
+        for (int i = 0; i < frequencies.length; i++) {
+            double sum = 0;
+            for (int j = 0; j < samples.length; j++) {
+                sum += samples[j] * Math.cos(2 * Math.PI * i * j / samples.length);
+            }
+            frequencies[i] = Math.abs(sum);
+        }
+
+        return frequencies;
+    }
+}
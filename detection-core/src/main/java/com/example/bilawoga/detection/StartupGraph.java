@@ -0,0 +1,232 @@
+package com.example.bilawoga.detection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs named startup steps as a dependency graph: each step is submitted to its own
+ * executor as soon as the steps it depends on have finished, so independent steps run in
+ * parallel and nothing waits longer than its inputs require.
+ *
+ * Dependencies only order steps. A step that throws still counts as finished (the error
+ * goes to the listener) and its dependents still run; a step that needs another's result
+ * checks for it itself. Callers can attach work to any step with whenDone().
+ */
+public final class StartupGraph {
+
+    /** Told how each step went, from the thread that ran it. */
+    public interface Listener {
+        /**
+         * @param waitNanos time from the step becoming runnable to it starting, i.e. time
+         *                  spent queued behind other work on its executor
+         * @param runNanos  time the step itself took
+         * @param error     what the step threw, or null
+         */
+        void onStepFinished(String name, long waitNanos, long runNanos, Throwable error);
+
+        /** Every step has finished; elapsedNanos is measured from start(). */
+        default void onGraphFinished(long elapsedNanos) {
+        }
+    }
+
+    private static final class Step {
+        final String name;
+        final Executor executor;
+        final Runnable task;
+        final List<String> dependsOn;
+        final List<Step> dependents = new ArrayList<>();
+        final List<Runnable> callbacks = new ArrayList<>();
+        int pending;
+        boolean done;
+
+        Step(String name, Executor executor, Runnable task, List<String> dependsOn) {
+            this.name = name;
+            this.executor = executor;
+            this.task = task;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    private final Map<String, Step> steps;
+    private final Listener listener;
+    private final CountDownLatch finished;
+    private int unfinished;
+    private long startNanos;
+    private boolean started;
+
+    private StartupGraph(Map<String, Step> steps, Listener listener) {
+        this.steps = steps;
+        this.listener = listener;
+        this.finished = new CountDownLatch(steps.size());
+        this.unfinished = steps.size();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Submit every step without dependencies. Later calls do nothing. */
+    public void start() {
+        List<Step> ready = new ArrayList<>();
+        synchronized (this) {
+            if (started) return;
+            started = true;
+            startNanos = System.nanoTime();
+            for (Step step : steps.values()) {
+                step.pending = step.dependsOn.size();
+                if (step.pending == 0) ready.add(step);
+            }
+        }
+        for (Step step : ready) {
+            submit(step);
+        }
+    }
+
+    /**
+     * Run {@code callback} on {@code executor} once step {@code name} has finished, or right
+     * away if it already has.
+     *
+     * @throws IllegalArgumentException if there is no such step
+     */
+    public void whenDone(String name, Executor executor, Runnable callback) {
+        Step step = step(name);
+        synchronized (this) {
+            if (!step.done) {
+                step.callbacks.add(() -> executor.execute(callback));
+                return;
+            }
+        }
+        executor.execute(callback);
+    }
+
+    public synchronized boolean isDone(String name) {
+        return step(name).done;
+    }
+
+    /** Block until every step has finished; for tools and tests, never the main thread. */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    private Step step(String name) {
+        Step step = steps.get(name);
+        if (step == null) {
+            throw new IllegalArgumentException("No startup step " + name);
+        }
+        return step;
+    }
+
+    private void submit(Step step) {
+        long readyNanos = System.nanoTime();
+        step.executor.execute(() -> run(step, readyNanos));
+    }
+
+    private void run(Step step, long readyNanos) {
+        long begin = System.nanoTime();
+        Throwable error = null;
+        try {
+            step.task.run();
+        } catch (RuntimeException | Error e) {
+            error = e;
+        }
+        long end = System.nanoTime();
+        if (listener != null) {
+            listener.onStepFinished(step.name, begin - readyNanos, end - begin, error);
+        }
+
+        List<Step> ready = new ArrayList<>();
+        List<Runnable> callbacks;
+        boolean last;
+        synchronized (this) {
+            step.done = true;
+            last = --unfinished == 0;
+            callbacks = new ArrayList<>(step.callbacks);
+            step.callbacks.clear();
+            for (Step dependent : step.dependents) {
+                if (--dependent.pending == 0) ready.add(dependent);
+            }
+        }
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+        for (Step next : ready) {
+            submit(next);
+        }
+        finished.countDown();
+        if (last && listener != null) {
+            listener.onGraphFinished(System.nanoTime() - startNanos);
+        }
+    }
+
+    public static final class Builder {
+        private final Map<String, Step> steps = new LinkedHashMap<>();
+        private Listener listener;
+
+        private Builder() {
+        }
+
+        /**
+         * Add a step. Its dependencies may be added before or after it.
+         *
+         * @throws IllegalArgumentException if a step with this name was already added
+         */
+        public Builder step(String name, Executor executor, Runnable task, String... dependsOn) {
+            if (steps.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate startup step " + name);
+            }
+            steps.put(name, new Step(name, executor, task, Arrays.asList(dependsOn)));
+            return this;
+        }
+
+        public Builder listener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a dependency is missing or the steps form a cycle
+         */
+        public StartupGraph build() {
+            for (Step step : steps.values()) {
+                for (String dependency : step.dependsOn) {
+                    Step before = steps.get(dependency);
+                    if (before == null) {
+                        throw new IllegalArgumentException(step.name + " depends on unknown step " + dependency);
+                    }
+                    before.dependents.add(step);
+                }
+            }
+            checkAcyclic();
+            return new StartupGraph(steps, listener);
+        }
+
+        // Kahn's algorithm: if some step never reaches zero unfinished dependencies, there is a cycle
+        private void checkAcyclic() {
+            Map<Step, Integer> remaining = new LinkedHashMap<>();
+            Deque<Step> ready = new ArrayDeque<>();
+            for (Step step : steps.values()) {
+                remaining.put(step, step.dependsOn.size());
+                if (step.dependsOn.isEmpty()) ready.add(step);
+            }
+            int visited = 0;
+            while (!ready.isEmpty()) {
+                Step step = ready.poll();
+                visited++;
+                for (Step dependent : step.dependents) {
+                    if (remaining.merge(dependent, -1, Integer::sum) == 0) ready.add(dependent);
+                }
+            }
+            if (visited != steps.size()) {
+                throw new IllegalArgumentException("Startup steps form a dependency cycle");
+            }
+        }
+    }
+}
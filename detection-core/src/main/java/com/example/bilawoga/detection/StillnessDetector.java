@@ -0,0 +1,63 @@
+package com.example.bilawoga.detection;
+
+/**
+ * Decides whether the device is lying still, for parking high-rate motion monitoring.
+ *
+ * Each sample is compared with an anchor vector; moving more than the tolerance away
+ * from it (compared squared, no sqrt) re-anchors and restarts the still period. Gravity
+ * is part of the anchor, so tilting the phone counts as movement as well.
+ *
+ * Allocation-free. Not thread-safe.
+ */
+public final class StillnessDetector {
+    private final float toleranceSq;
+    private final long stillNanos;
+
+    private boolean anchored = false;
+    private float anchorX, anchorY, anchorZ;
+    private long stillSinceNanos;
+    private long lastTimestampNanos;
+
+    /**
+     * @param tolerance  largest deviation from the anchor still counted as still, m/s^2
+     * @param stillMillis how long the device must stay within tolerance to be still
+     */
+    public StillnessDetector(float tolerance, long stillMillis) {
+        this.toleranceSq = tolerance * tolerance;
+        this.stillNanos = stillMillis * 1_000_000L;
+    }
+
+    /**
+     * @return true when the device has been still for the configured period
+     */
+    public boolean onAcceleration(long timestampNanos, float x, float y, float z) {
+        lastTimestampNanos = timestampNanos;
+        if (moved(x, y, z)) {
+            anchorX = x;
+            anchorY = y;
+            anchorZ = z;
+            anchored = true;
+            stillSinceNanos = timestampNanos;
+            return false;
+        }
+        return isStill();
+    }
+
+    /**
+     * @return true when this sample is outside the tolerance of the current anchor (or no
+     *         anchor is set). Does not update state; use it to watch a parked stream.
+     */
+    public boolean moved(float x, float y, float z) {
+        if (!anchored) return true;
+        float dx = x - anchorX, dy = y - anchorY, dz = z - anchorZ;
+        return dx * dx + dy * dy + dz * dz > toleranceSq;
+    }
+
+    public boolean isStill() {
+        return anchored && lastTimestampNanos - stillSinceNanos >= stillNanos;
+    }
+
+    public void reset() {
+        anchored = false;
+    }
+}
@@ -0,0 +1,404 @@
+package com.example.bilawoga.detection;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Threat scoring behind PredictiveThreatDetector: learned movement statistics, rotation and
+ * magnetic anomaly indicators, time-of-day and location risk, combined into a periodic
+ * assessment.
+ *
+ * Movement is learned per activity (still, walking, vigorous, picked by the 30 s average
+ * intensity). Each activity keeps an EWMA mean/variance and P-square quantiles of the
+ * 1 s intensity over roughly LEARNING_PERIOD_DAYS, so memory is constant however long the
+ * app has been installed. The movement anomaly is where the current intensity falls in
+ * that learned distribution.
+ *
+ * Time risk comes from a learned hour-of-week activity histogram in the user's local
+ * time zone: each assessment made while the user is moving counts towards the current
+ * slot, and risk is how rarely the user is active in that slot.
+ *
+ * Per-minute rollups of the intensity go to a MinuteRollup.Sink for persisting, and
+ * warmStart() relearns the movement models from stored rollups at startup.
+ *
+ * Sensor updates are O(1) and allocation-free. Assessments reuse one Assessment instance,
+ * so read it (or copy() it) before the next call. Not thread-safe.
+ */
+public final class ThreatScorer {
+    public static final long ASSESSMENT_INTERVAL_MS = 5000;
+    public static final float ANOMALY_THRESHOLD = 0.8f;
+    public static final float THREAT_PREDICTION_THRESHOLD = 0.7f;
+    public static final int LEARNING_PERIOD_DAYS = 7;
+    private static final long LEARNING_PERIOD_MS = LEARNING_PERIOD_DAYS * 24L * 60 * 60 * 1000;
+    // About two minutes at SENSOR_DELAY_GAME before an activity's distribution is trusted
+    private static final long MIN_MOVEMENT_SAMPLES = 6000;
+    private static final float GRAVITY_EARTH = 9.80665f;
+    private static final long INTENSITY_TIME_CONSTANT_NANOS = 1_000_000_000L;
+    private static final long CONTEXT_TIME_CONSTANT_NANOS = 30_000_000_000L;
+    private static final float STILL_INTENSITY = 0.3f;
+    private static final float WALKING_INTENSITY = 3.0f;
+    // Assessments while moving, i.e. about seven hours of active use, before time risk is learned
+    private static final double MIN_TIME_HISTOGRAM_WEIGHT = 5000;
+    private static final float ROTATION_ANOMALY_SQ = 2.0f * 2.0f;
+    private static final float MAGNETIC_ANOMALY_SQ = 100.0f * 100.0f;
+
+    public static final int FACTOR_MOVEMENT = 1;
+    public static final int FACTOR_LOCATION = 1 << 1;
+    public static final int FACTOR_TIME = 1 << 2;
+    public static final int FACTOR_BEHAVIORAL = 1 << 3;
+
+    public enum Activity {
+        STILL, WALKING, VIGOROUS
+    }
+
+    public enum ThreatType {
+        NONE, LOCATION_THREAT, MOVEMENT_THREAT, TIME_THREAT, BEHAVIORAL_THREAT, GENERAL_THREAT
+    }
+
+    public static final class Assessment {
+        /** False until the current activity has enough samples to score against. */
+        public boolean movementAnalyzed;
+        public Activity activity = Activity.STILL;
+        /** Current 1 s movement intensity (|a| - g), m/s^2. */
+        public float movementIntensity;
+        /** Standard deviations from the learned mean for this activity. */
+        public float movementZScore;
+        /** 0 up to the learned p99, rising to 1 at p99 + (p99 - p50). */
+        public float movementAnomaly;
+        public float locationConsistency;
+        /** Local hour of day and day of week (Monday = 0). */
+        public int hour;
+        public int dayOfWeek;
+        public float timeRisk;
+        public float threatLevel;
+        /** FACTOR_* bits that contributed to threatLevel. */
+        public int factors;
+        public ThreatType threatType = ThreatType.NONE;
+
+        /** Detached copy, for handing to another thread while the scorer keeps running. */
+        public Assessment copy() {
+            Assessment c = new Assessment();
+            c.movementAnalyzed = movementAnalyzed;
+            c.activity = activity;
+            c.movementIntensity = movementIntensity;
+            c.movementZScore = movementZScore;
+            c.movementAnomaly = movementAnomaly;
+            c.locationConsistency = locationConsistency;
+            c.hour = hour;
+            c.dayOfWeek = dayOfWeek;
+            c.timeRisk = timeRisk;
+            c.threatLevel = threatLevel;
+            c.factors = factors;
+            c.threatType = threatType;
+            return c;
+        }
+    }
+
+    /**
+     * Learned intensity distribution for one activity. Quantiles come from two P-square
+     * epochs of LEARNING_PERIOD_DAYS each; the older one is dropped when the newer fills,
+     * so estimates cover the last one to two learning periods.
+     */
+    private static final class ActivityModel {
+        final EwmaStats stats = new EwmaStats(LEARNING_PERIOD_MS);
+        final P2Quantile[][] epochs = {
+                {new P2Quantile(0.5), new P2Quantile(0.99)},
+                {new P2Quantile(0.5), new P2Quantile(0.99)}
+        };
+        int current = 0;
+        long epochStartNanos = Long.MIN_VALUE;
+
+        void add(long timestampNanos, float intensity) {
+            rotateEpoch(timestampNanos);
+            stats.add(timestampNanos, intensity);
+            for (P2Quantile q : epochs[current]) q.add(intensity);
+        }
+
+        /**
+         * Learn from a stored minute. The mean carries the minute's weight in the EWMA; the
+         * quantiles see the mean and the peak, which puts the learned p99 near typical
+         * per-minute peaks: a conservative start that live samples then refine.
+         */
+        void addAggregate(long timestampNanos, float mean, float max, int count) {
+            rotateEpoch(timestampNanos);
+            stats.add(timestampNanos, mean, count);
+            for (P2Quantile q : epochs[current]) {
+                q.add(mean);
+                q.add(max);
+            }
+        }
+
+        private void rotateEpoch(long timestampNanos) {
+            if (epochStartNanos == Long.MIN_VALUE) {
+                epochStartNanos = timestampNanos;
+            } else if (timestampNanos - epochStartNanos >= LEARNING_PERIOD_MS * 1_000_000L) {
+                current ^= 1;
+                for (P2Quantile q : epochs[current]) q.reset();
+                epochStartNanos = timestampNanos;
+            }
+        }
+
+        /** The epoch with more samples: the previous one until the current catches up. */
+        P2Quantile[] quantiles() {
+            P2Quantile[] a = epochs[current], b = epochs[current ^ 1];
+            return a[0].count() >= b[0].count() ? a : b;
+        }
+
+        void reset() {
+            stats.reset();
+            for (P2Quantile[] epoch : epochs) {
+                for (P2Quantile q : epoch) q.reset();
+            }
+            epochStartNanos = Long.MIN_VALUE;
+        }
+    }
+
+    private final ActivityModel[] models = {new ActivityModel(), new ActivityModel(), new ActivityModel()};
+    // Short (feature) and long (activity context) averages of |a| - g
+    private float intensity;
+    private float context;
+    private long lastAccelerationNanos;
+    private boolean accelerationSeen = false;
+
+    private float unusualMovement = 0.0f;
+
+    // Accumulating minute; emitted to rollupSink when an assessment falls in a later minute
+    private MinuteRollup.Sink rollupSink;
+    private final MinuteRollup rollup = new MinuteRollup();
+    private int rollupMinute = Integer.MIN_VALUE;
+    private int rollupCount = 0;
+    private double rollupSum = 0;
+    private float rollupMax = 0;
+    private final int[] rollupActivity = new int[3];
+
+    // Not learned yet; placeholder until location history feeds the scorer
+    private static final float LOCATION_CONSISTENCY = 0.7f;
+
+    private final LocalTimeBuckets timeBuckets;
+    private final HourOfWeekHistogram activityHistogram =
+            new HourOfWeekHistogram(HourOfWeekHistogram.DEFAULT_HALF_LIFE_MS, MIN_TIME_HISTOGRAM_WEIGHT);
+
+    private final Map<String, Float> locationRisks = new LinkedHashMap<>();
+    private long lastAssessmentMillis = 0;
+    private final Assessment assessment = new Assessment();
+
+    public ThreatScorer() {
+        this(ZoneId.systemDefault());
+    }
+
+    public ThreatScorer(ZoneId zone) {
+        this.timeBuckets = new LocalTimeBuckets(zone);
+    }
+
+    /** The learned hour-of-week activity model, for persisting between runs. */
+    public HourOfWeekHistogram getActivityHistogram() {
+        return activityHistogram;
+    }
+
+    /** Receives one MinuteRollup per minute with movement, from assess(). */
+    public void setRollupSink(MinuteRollup.Sink sink) {
+        this.rollupSink = sink;
+    }
+
+    /**
+     * Relearn the movement models from stored rollups, oldest first.
+     *
+     * @param wallToSensorNanos add to wall-clock nanos to get the sensor timestamp base
+     *                          (elapsedRealtimeNanos - currentTimeMillis * 1e6 on Android)
+     * @return rollups read
+     */
+    public int warmStart(RollupReader reader, long wallToSensorNanos) {
+        MinuteRollup r = new MinuteRollup();
+        int rows = 0;
+        while (reader.next(r)) {
+            if (r.count > 0) {
+                long timestampNanos = (r.startMillis() + 60_000L) * 1_000_000L + wallToSensorNanos;
+                models[r.activity.ordinal()].addAggregate(timestampNanos, r.mean, r.max, r.count);
+            }
+            rows++;
+        }
+        return rows;
+    }
+
+    public void onAcceleration(long timestampNanos, float x, float y, float z) {
+        float deviation = Math.abs((float) Math.sqrt(x * x + y * y + z * z) - GRAVITY_EARTH);
+        if (!accelerationSeen) {
+            intensity = deviation;
+            context = deviation;
+            accelerationSeen = true;
+        } else {
+            long dt = Math.max(0, timestampNanos - lastAccelerationNanos);
+            intensity += smoothing(dt, INTENSITY_TIME_CONSTANT_NANOS) * (deviation - intensity);
+            context += smoothing(dt, CONTEXT_TIME_CONSTANT_NANOS) * (deviation - context);
+        }
+        lastAccelerationNanos = timestampNanos;
+        Activity activity = activity(context);
+        models[activity.ordinal()].add(timestampNanos, intensity);
+
+        rollupCount++;
+        rollupSum += intensity;
+        rollupMax = Math.max(rollupMax, intensity);
+        rollupActivity[activity.ordinal()]++;
+    }
+
+    private static float smoothing(long dtNanos, long timeConstantNanos) {
+        // First-order approximation of 1 - exp(-dt / tau); dt is far below tau at sensor rates
+        return Math.min(1.0f, dtNanos / (float) timeConstantNanos);
+    }
+
+    static Activity activity(float contextIntensity) {
+        if (contextIntensity < STILL_INTENSITY) return Activity.STILL;
+        if (contextIntensity < WALKING_INTENSITY) return Activity.WALKING;
+        return Activity.VIGOROUS;
+    }
+
+    public void onRotation(float x, float y, float z) {
+        if (x * x + y * y + z * z > ROTATION_ANOMALY_SQ) {
+            unusualMovement = Math.min(1.0f, unusualMovement + 0.1f);
+        }
+    }
+
+    public void onMagneticField(float x, float y, float z) {
+        // Strong field change: phone moved in an unusual way
+        if (x * x + y * y + z * z > MAGNETIC_ANOMALY_SQ) {
+            unusualMovement = Math.min(1.0f, unusualMovement + 0.05f);
+        }
+    }
+
+    public void recordLocationRisk(String locationType, float risk) {
+        locationRisks.put(locationType, risk);
+    }
+
+    public boolean isAssessmentDue(long nowMillis) {
+        return nowMillis - lastAssessmentMillis > ASSESSMENT_INTERVAL_MS;
+    }
+
+    /**
+     * Score the current threat level against the learned movement distribution. Learning
+     * happens per sample in onAcceleration, so calling this more often only costs time.
+     */
+    public Assessment assess(long nowMillis) {
+        lastAssessmentMillis = nowMillis;
+        Assessment a = assessment;
+        rollMinute(nowMillis);
+
+        // Movement, scored against what was learned for the current activity
+        a.activity = activity(context);
+        ActivityModel model = models[a.activity.ordinal()];
+        a.movementIntensity = intensity;
+        a.movementAnalyzed = model.stats.count() >= MIN_MOVEMENT_SAMPLES;
+        if (a.movementAnalyzed) {
+            P2Quantile[] q = model.quantiles();
+            double p50 = q[0].quantile(), p99 = q[1].quantile();
+            double spread = Math.max(p99 - p50, 1e-3);
+            a.movementZScore = (float) model.stats.zScore(intensity);
+            a.movementAnomaly = (float) Math.max(0, Math.min(1, (intensity - p99) / spread));
+        } else {
+            a.movementZScore = 0;
+            a.movementAnomaly = 0;
+        }
+
+        // Location and time
+        a.locationConsistency = LOCATION_CONSISTENCY;
+        int bucket = timeBuckets.bucket(nowMillis);
+        a.hour = bucket % 24;
+        a.dayOfWeek = bucket / 24;
+        a.timeRisk = activityHistogram.timeRisk(nowMillis, bucket);
+        if (a.activity != Activity.STILL) {
+            activityHistogram.add(nowMillis, bucket, 1.0f);
+        }
+
+        // Combine
+        float threatScore = 0.0f;
+        int factors = 0;
+        if (unusualMovement > 0.5f) {
+            threatScore += unusualMovement * 0.3f;
+            factors |= FACTOR_MOVEMENT;
+        }
+        float locationThreat = 0.0f;
+        for (float risk : locationRisks.values()) {
+            locationThreat = Math.max(locationThreat, risk);
+        }
+        if (locationThreat > 0.7f) {
+            threatScore += locationThreat * 0.4f;
+            factors |= FACTOR_LOCATION;
+        }
+        if (a.timeRisk > 0.6f) {
+            threatScore += a.timeRisk * 0.2f;
+            factors |= FACTOR_TIME;
+        }
+        float behavioralThreat = a.movementAnomaly;
+        if (behavioralThreat > 0.5f) {
+            threatScore += behavioralThreat * 0.3f;
+            factors |= FACTOR_BEHAVIORAL;
+        }
+
+        a.threatLevel = Math.min(1.0f, threatScore);
+        a.factors = factors;
+        a.threatType = threatType(factors);
+        return a;
+    }
+
+    public float locationRisk(String locationType, long nowMillis) {
+        float risk;
+        switch (locationType) {
+            case "safe":
+                risk = 0.1f;
+                break;
+            case "dangerous":
+                risk = 0.9f;
+                break;
+            case "unknown":
+                risk = 0.5f;
+                break;
+            default:
+                risk = 0.3f;
+        }
+        int currentHour = timeBuckets.localHour(nowMillis);
+        if (currentHour < 6 || currentHour > 22) {
+            risk += 0.2f; // Higher risk at night
+        }
+        return Math.min(1.0f, risk);
+    }
+
+    private void rollMinute(long nowMillis) {
+        int minute = (int) (nowMillis / 60_000L);
+        if (rollupMinute == Integer.MIN_VALUE) {
+            // Samples so far belong to the first minute seen
+            rollupMinute = minute;
+            return;
+        }
+        if (minute == rollupMinute) return;
+        if (rollupCount > 0 && rollupSink != null) {
+            Activity dominant = Activity.STILL;
+            for (Activity candidate : Activity.values()) {
+                if (rollupActivity[candidate.ordinal()] > rollupActivity[dominant.ordinal()]) dominant = candidate;
+            }
+            rollupSink.onMinuteRollup(rollup.set(rollupMinute, rollupCount,
+                    (float) (rollupSum / rollupCount), rollupMax, dominant));
+        }
+        rollupMinute = minute;
+        rollupCount = 0;
+        rollupSum = 0;
+        rollupMax = 0;
+        Arrays.fill(rollupActivity, 0);
+    }
+
+    public void reset() {
+        for (ActivityModel model : models) model.reset();
+        activityHistogram.reset();
+        accelerationSeen = false;
+        unusualMovement = 0.0f;
+        locationRisks.clear();
+    }
+
+    private static ThreatType threatType(int factors) {
+        if ((factors & FACTOR_LOCATION) != 0) return ThreatType.LOCATION_THREAT;
+        if ((factors & FACTOR_MOVEMENT) != 0) return ThreatType.MOVEMENT_THREAT;
+        if ((factors & FACTOR_TIME) != 0) return ThreatType.TIME_THREAT;
+        if ((factors & FACTOR_BEHAVIORAL) != 0) return ThreatType.BEHAVIORAL_THREAT;
+        return ThreatType.GENERAL_THREAT;
+    }
+}
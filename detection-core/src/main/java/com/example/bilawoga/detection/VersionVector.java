@@ -0,0 +1,123 @@
+package com.example.bilawoga.detection;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable version vector: one counter per device (node) that has changed the data.
+ * Comparing two vectors tells whether one copy already contains the other's changes,
+ * without looking at the data itself.
+ *
+ * Encoded as "node=counter" pairs joined by ';' in node order, so equal vectors encode
+ * to equal strings.
+ */
+public final class VersionVector {
+
+    public enum Order {
+        EQUAL,
+        /** This vector is older: the other one has seen all of its changes and more. */
+        BEFORE,
+        /** This vector is newer. */
+        AFTER,
+        /** Each side has changes the other has not seen. */
+        CONCURRENT
+    }
+
+    public static final VersionVector EMPTY = new VersionVector(new TreeMap<>());
+
+    private final TreeMap<String, Long> counters;
+
+    private VersionVector(TreeMap<String, Long> counters) {
+        this.counters = counters;
+    }
+
+    public long get(String node) {
+        Long c = counters.get(node);
+        return c != null ? c : 0;
+    }
+
+    public Map<String, Long> asMap() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    /** A copy with {@code node}'s counter advanced by one. */
+    public VersionVector increment(String node) {
+        TreeMap<String, Long> next = new TreeMap<>(counters);
+        next.put(node, get(node) + 1);
+        return new VersionVector(next);
+    }
+
+    /** The element-wise maximum: a vector that has seen both sides. */
+    public VersionVector merge(VersionVector other) {
+        TreeMap<String, Long> next = new TreeMap<>(counters);
+        for (Map.Entry<String, Long> e : other.counters.entrySet()) {
+            next.merge(e.getKey(), e.getValue(), Math::max);
+        }
+        return new VersionVector(next);
+    }
+
+    public Order compareTo(VersionVector other) {
+        boolean less = false;
+        boolean greater = false;
+        TreeMap<String, Long> nodes = new TreeMap<>(counters);
+        nodes.putAll(other.counters);
+        for (String node : nodes.keySet()) {
+            long a = get(node);
+            long b = other.get(node);
+            if (a < b) less = true;
+            if (a > b) greater = true;
+        }
+        if (less && greater) return Order.CONCURRENT;
+        if (less) return Order.BEFORE;
+        if (greater) return Order.AFTER;
+        return Order.EQUAL;
+    }
+
+    public String encode() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> e : counters.entrySet()) {
+            if (sb.length() > 0) sb.append(';');
+            sb.append(e.getKey()).append('=').append(e.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Inverse of encode(). Null or empty gives EMPTY.
+     *
+     * @throws IllegalArgumentException if the text is not an encoded vector
+     */
+    public static VersionVector decode(String encoded) {
+        TreeMap<String, Long> counters = new TreeMap<>();
+        if (encoded != null && !encoded.isEmpty()) {
+            for (String pair : encoded.split(";")) {
+                int eq = pair.lastIndexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("Bad version vector entry: " + pair);
+                }
+                long counter = Long.parseLong(pair.substring(eq + 1));
+                if (counter < 0) {
+                    throw new IllegalArgumentException("Negative counter in version vector");
+                }
+                counters.put(pair.substring(0, eq), counter);
+            }
+        }
+        return new VersionVector(counters);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof VersionVector && counters.equals(((VersionVector) o).counters);
+    }
+
+    @Override
+    public int hashCode() {
+        return counters.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "{" + encode() + "}";
+    }
+}
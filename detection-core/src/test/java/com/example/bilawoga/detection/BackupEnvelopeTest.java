@@ -0,0 +1,142 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+public class BackupEnvelopeTest {
+    private static final byte[] WRAPPED_KEY = {1, 2, 3, 4, 5};
+
+    private static AesGcmRecordCipher newCipher() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return new AesGcmRecordCipher(new SecretKeySpec(key, "AES"));
+    }
+
+    private static Map<String, String> fields() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("USERNAME", "Amani");
+        fields.put("ENUM_1", "+254700000001");
+        fields.put("EMPTY", "");
+        fields.put("UNICODE", "Nairobi \u00e9\u4e2d");
+        return fields;
+    }
+
+    @Test
+    public void sealOpenRoundTrip() throws Exception {
+        AesGcmRecordCipher cipher = newCipher();
+        VersionVector vector = VersionVector.decode("a=2;b=1");
+        byte[] blob = BackupEnvelope.seal(fields(), vector, WRAPPED_KEY, cipher);
+
+        BackupEnvelope.Header header = BackupEnvelope.readHeader(blob);
+        assertEquals(vector, header.versionVector);
+        assertArrayEquals(WRAPPED_KEY, header.wrappedKey);
+        assertEquals(new TreeMap<>(fields()), new TreeMap<>(BackupEnvelope.open(blob, header, cipher)));
+    }
+
+    @Test
+    public void nullValueOpensAsEmpty() throws Exception {
+        AesGcmRecordCipher cipher = newCipher();
+        Map<String, String> fields = new HashMap<>();
+        fields.put("k", null);
+        byte[] blob = BackupEnvelope.seal(fields, VersionVector.EMPTY, WRAPPED_KEY, cipher);
+        assertEquals("", BackupEnvelope.open(blob, BackupEnvelope.readHeader(blob), cipher).get("k"));
+    }
+
+    @Test
+    public void headerIsAuthenticated() throws Exception {
+        AesGcmRecordCipher cipher = newCipher();
+        byte[] blob = BackupEnvelope.seal(fields(), VersionVector.decode("a=1"), WRAPPED_KEY, cipher);
+        // Swap the version vector for another of the same length
+        byte[] altered = blob.clone();
+        int at = indexOf(altered, "a=1".getBytes("UTF-8"));
+        altered[at + 2] = '9';
+        BackupEnvelope.Header header = BackupEnvelope.readHeader(altered);
+        assertEquals(9, header.versionVector.get("a"));
+        expectRejected(altered, header, cipher);
+    }
+
+    @Test
+    public void alteredCiphertextIsRejected() throws Exception {
+        AesGcmRecordCipher cipher = newCipher();
+        byte[] blob = BackupEnvelope.seal(fields(), VersionVector.EMPTY, WRAPPED_KEY, cipher);
+        blob[blob.length - 1] ^= 1;
+        expectRejected(blob, BackupEnvelope.readHeader(blob), cipher);
+    }
+
+    @Test
+    public void wrongKeyIsRejected() throws Exception {
+        byte[] blob = BackupEnvelope.seal(fields(), VersionVector.EMPTY, WRAPPED_KEY, newCipher());
+        expectRejected(blob, BackupEnvelope.readHeader(blob), newCipher());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badMagicIsNotAnEnvelope() throws Exception {
+        byte[] blob = BackupEnvelope.seal(fields(), VersionVector.EMPTY, WRAPPED_KEY, newCipher());
+        blob[0] = 'X';
+        BackupEnvelope.readHeader(blob);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void newerVersionIsRefused() throws Exception {
+        byte[] blob = BackupEnvelope.seal(fields(), VersionVector.EMPTY, WRAPPED_KEY, newCipher());
+        blob[4] = (byte) (BackupEnvelope.VERSION + 1);
+        BackupEnvelope.readHeader(blob);
+    }
+
+    @Test
+    public void truncatedHeaderIsRefused() throws Exception {
+        byte[] blob = BackupEnvelope.seal(fields(), VersionVector.decode("a=1"), WRAPPED_KEY, newCipher());
+        for (int length = 0; length < 4 + 1 + 2 + 3 + 2 + WRAPPED_KEY.length; length++) {
+            byte[] truncated = new byte[length];
+            System.arraycopy(blob, 0, truncated, 0, length);
+            try {
+                BackupEnvelope.readHeader(truncated);
+                fail("Read a header from " + length + " bytes");
+            } catch (IllegalArgumentException expected) {
+                // Truncated or not an envelope
+            }
+        }
+    }
+
+    @Test
+    public void contentHashIgnoresOrderAndTracksChanges() {
+        Map<String, String> a = new HashMap<>(fields());
+        Map<String, String> b = new TreeMap<>(fields());
+        assertEquals(BackupEnvelope.contentHash(a), BackupEnvelope.contentHash(b));
+        b.put("USERNAME", "Baraka");
+        assertNotEquals(BackupEnvelope.contentHash(a), BackupEnvelope.contentHash(b));
+        assertEquals(64, BackupEnvelope.contentHash(a).length());
+    }
+
+    private static void expectRejected(byte[] blob, BackupEnvelope.Header header, RecordCipher cipher) {
+        try {
+            BackupEnvelope.open(blob, header, cipher);
+            fail("Opened an altered envelope");
+        } catch (GeneralSecurityException expected) {
+            // Authentication failed
+        }
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) continue outer;
+            }
+            return i;
+        }
+        throw new AssertionError("not found");
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ChunkUploadStateTest {
+
+    @Test
+    public void chunkCountRoundsUpAndCountsEmptyFileAsOne() {
+        assertEquals(1, ChunkUploadState.chunkCount(0, 10));
+        assertEquals(1, ChunkUploadState.chunkCount(10, 10));
+        assertEquals(2, ChunkUploadState.chunkCount(11, 10));
+    }
+
+    @Test
+    public void dispatchesInOrderSkippingInFlight() {
+        ChunkUploadState state = new ChunkUploadState(3);
+        assertEquals(0, state.nextDispatchable(0));
+        state.dispatched(0);
+        assertEquals(1, state.nextDispatchable(0));
+        state.dispatched(1);
+        state.dispatched(2);
+        assertEquals(-1, state.nextDispatchable(0));
+    }
+
+    @Test
+    public void failedChunkWaitsOutBackoffThenRetries() {
+        ChunkUploadState state = new ChunkUploadState(1);
+        state.dispatched(0);
+        assertEquals(1, state.failed(0, 1000, attempt -> 500L * attempt));
+        assertEquals(-1, state.nextDispatchable(1499));
+        assertEquals(1500, state.earliestRetryAfter(1000));
+        assertEquals(0, state.nextDispatchable(1500));
+
+        state.dispatched(0);
+        assertEquals(2, state.failed(0, 2000, attempt -> 500L * attempt));
+        assertEquals(3000, state.earliestRetryAfter(2000));
+    }
+
+    @Test
+    public void retryInFlightIsNotReportedAsPending() {
+        ChunkUploadState state = new ChunkUploadState(1);
+        state.dispatched(0);
+        state.failed(0, 0, attempt -> 100);
+        state.dispatched(0);
+        // While the retry runs there is nothing to wake up for
+        assertEquals(Long.MAX_VALUE, state.earliestRetryAfter(200));
+    }
+
+    @Test
+    public void dueRetryIsNotReportedAsPending() {
+        ChunkUploadState state = new ChunkUploadState(2);
+        state.dispatched(0);
+        state.failed(0, 0, attempt -> 100);
+        // Due but not dispatched (no free slot): a finishing chunk pumps again, no timer
+        assertEquals(Long.MAX_VALUE, state.earliestRetryAfter(100));
+        assertEquals(Long.MAX_VALUE, state.earliestRetryAfter(500));
+        assertEquals(100, state.earliestRetryAfter(50));
+    }
+
+    @Test
+    public void successClearsRetryAndAttempts() {
+        ChunkUploadState state = new ChunkUploadState(2);
+        state.dispatched(0);
+        state.failed(0, 0, attempt -> 100);
+        state.dispatched(0);
+        state.succeeded(0);
+        assertEquals(Long.MAX_VALUE, state.earliestRetryAfter(0));
+        assertEquals(1, state.doneCount());
+        assertEquals(1, state.nextDispatchable(0));
+        state.dispatched(1);
+        state.succeeded(1);
+        assertTrue(state.isComplete());
+        assertEquals(-1, state.nextDispatchable(0));
+    }
+
+    @Test
+    public void resumesFromDoneBits() {
+        ChunkUploadState state = new ChunkUploadState(5);
+        for (int i : new int[]{0, 2, 4}) {
+            state.dispatched(i);
+            state.succeeded(i);
+        }
+        ChunkUploadState resumed = new ChunkUploadState(5, state.doneBits());
+        assertEquals(3, resumed.doneCount());
+        assertEquals(1, resumed.nextDispatchable(0));
+        resumed.dispatched(1);
+        assertEquals(3, resumed.nextDispatchable(0));
+        assertArrayEquals(state.doneBits(), resumed.doneBits());
+    }
+
+    @Test
+    public void resumeIgnoresBitsBeyondChunkCount() {
+        ChunkUploadState resumed = new ChunkUploadState(2, new byte[]{(byte) 0xFF});
+        assertEquals(2, resumed.doneCount());
+        assertTrue(resumed.isComplete());
+    }
+
+    @Test
+    public void markStoredReconcilesWithBackend() {
+        ChunkUploadState state = new ChunkUploadState(4);
+        state.dispatched(0);
+        state.succeeded(0);
+        assertEquals(2, state.markStored(Arrays.asList(0, 1, 3, 7, -1)));
+        assertEquals(3, state.doneCount());
+        assertEquals(2, state.nextDispatchable(0));
+        assertFalse(state.isComplete());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyUpload() {
+        new ChunkUploadState(0);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ExpiryIndexTest {
+
+    @Test
+    public void getHonoursExpiry() {
+        ExpiryIndex<String> index = new ExpiryIndex<>();
+        index.put("t", "v", 100);
+        assertEquals("v", index.get("t", 99));
+        assertNull(index.get("t", 100));
+        assertNull(index.get("missing", 0));
+    }
+
+    @Test
+    public void removeExpiredReturnsOldestFirstAndOnlyExpired() {
+        ExpiryIndex<Integer> index = new ExpiryIndex<>();
+        index.put("c", 3, 300);
+        index.put("a", 1, 100);
+        index.put("b", 2, 200);
+        List<ExpiryIndex.Entry<Integer>> expired = index.removeExpired(200);
+        assertEquals(2, expired.size());
+        assertEquals("a", expired.get(0).token);
+        assertEquals("b", expired.get(1).token);
+        assertEquals(1, index.size());
+        assertEquals(300, index.nextExpiryMillis());
+        assertTrue(index.removeExpired(299).isEmpty());
+    }
+
+    @Test
+    public void replacedEntryExpiresOnItsNewTime() {
+        ExpiryIndex<String> index = new ExpiryIndex<>();
+        index.put("t", "old", 100);
+        assertEquals("old", index.put("t", "new", 500).value);
+        // The old heap node is stale and must not expire the new value
+        assertTrue(index.removeExpired(100).isEmpty());
+        assertEquals("new", index.get("t", 400));
+        assertEquals(500, index.nextExpiryMillis());
+        assertEquals("new", index.removeExpired(500).get(0).value);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void removedEntryNeverExpires() {
+        ExpiryIndex<String> index = new ExpiryIndex<>();
+        index.put("t", "v", 100);
+        assertEquals("v", index.remove("t").value);
+        assertNull(index.remove("t"));
+        assertTrue(index.removeExpired(1000).isEmpty());
+        assertEquals(Long.MAX_VALUE, index.nextExpiryMillis());
+    }
+
+    @Test
+    public void matchesNaiveModelUnderChurn() {
+        // Enough replacements and removals to force heap rebuilds
+        Random random = new Random(42);
+        ExpiryIndex<Integer> index = new ExpiryIndex<>();
+        Map<String, Long> model = new HashMap<>();
+        long now = 0;
+        for (int step = 0; step < 20000; step++) {
+            String token = "t" + random.nextInt(50);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                long expiry = now + 1 + random.nextInt(1000);
+                index.put(token, step, expiry);
+                model.put(token, expiry);
+            } else if (op < 8) {
+                index.remove(token);
+                model.remove(token);
+            } else {
+                now += random.nextInt(200);
+                List<String> expected = new ArrayList<>();
+                for (Map.Entry<String, Long> e : model.entrySet()) {
+                    if (e.getValue() <= now) expected.add(e.getKey());
+                }
+                List<String> actual = new ArrayList<>();
+                long last = Long.MIN_VALUE;
+                for (ExpiryIndex.Entry<Integer> e : index.removeExpired(now)) {
+                    assertTrue("oldest first", e.expiresAtMillis >= last);
+                    last = e.expiresAtMillis;
+                    actual.add(e.token);
+                }
+                expected.sort(null);
+                actual.sort(null);
+                assertEquals(expected, actual);
+                long cutoff = now;
+                model.values().removeIf(expiry -> expiry <= cutoff);
+            }
+            assertEquals(model.size(), index.size());
+            long nextExpected = Long.MAX_VALUE;
+            for (long expiry : model.values()) nextExpected = Math.min(nextExpected, expiry);
+            assertEquals(nextExpected, index.nextExpiryMillis());
+        }
+    }
+}
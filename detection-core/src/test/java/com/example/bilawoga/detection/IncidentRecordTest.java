@@ -0,0 +1,100 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class IncidentRecordTest {
+
+    @Test
+    public void fieldsRoundTrip() {
+        IncidentRecord dispatch = IncidentRecord.dispatch(7, 1000, "SHAKE", "Harassment", 2).withId(3);
+        IncidentRecord back = IncidentRecord.decode(3, 7, 1000, dispatch.type.code, dispatch.encodeFields());
+        assertEquals(IncidentRecord.Type.DISPATCH, back.type);
+        assertEquals("SHAKE", back.getSource());
+        assertEquals("Harassment", back.getIncident());
+        assertEquals(2, back.getContactCount());
+        assertEquals(dispatch.summary(), back.summary());
+
+        IncidentRecord location = IncidentRecord.location(7, 1001, -1.2921, 36.8219, 12.5f);
+        IncidentRecord loc = IncidentRecord.decode(0, 7, 1001, location.type.code, location.encodeFields());
+        assertTrue(loc.hasLocation());
+        assertEquals(-1.2921, loc.getLatitude(), 1e-9);
+        assertEquals(12.5f, loc.getAccuracyMeters(), 0);
+
+        IncidentRecord delivery = IncidentRecord.delivery(7, 1002, "***0001", IncidentRecord.DeliveryStatus.DELIVERED);
+        assertEquals(IncidentRecord.DeliveryStatus.DELIVERED, IncidentRecord.decode(0, 7, 1002,
+                delivery.type.code, delivery.encodeFields()).getDeliveryStatus());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownTypeIsRejected() {
+        IncidentRecord.decode(0, 0, 0, 99, IncidentRecord.cancel(0, 0).encodeFields());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedFieldsAreRejected() {
+        byte[] fields = IncidentRecord.event(0, 0, "name", "details").encodeFields();
+        byte[] truncated = new byte[fields.length - 1];
+        System.arraycopy(fields, 0, truncated, 0, truncated.length);
+        IncidentRecord.decode(0, 0, 0, IncidentRecord.Type.EVENT.code, truncated);
+    }
+
+    @Test
+    public void cursorRoundTrip() {
+        IncidentRecord record = IncidentRecord.cancel(1, 123456789L).withId(42);
+        IncidentRecord.Cursor cursor = IncidentRecord.Cursor.parse(record.cursor().encode());
+        assertEquals(123456789L, cursor.timeMillis);
+        assertEquals(42, cursor.id);
+    }
+
+    @Test
+    public void cursorOrdersByTimeThenId() {
+        IncidentRecord.Cursor cursor = IncidentRecord.cancel(0, 100).withId(5).cursor();
+        assertTrue(cursor.isBefore(IncidentRecord.cancel(0, 99).withId(9)));
+        assertTrue(cursor.isBefore(IncidentRecord.cancel(0, 100).withId(4)));
+        assertFalse(cursor.isBefore(IncidentRecord.cancel(0, 100).withId(5)));
+        assertFalse(cursor.isBefore(IncidentRecord.cancel(0, 100).withId(6)));
+        assertFalse(cursor.isBefore(IncidentRecord.cancel(0, 101).withId(1)));
+    }
+
+    @Test
+    public void pagingByCursorVisitsEveryRecordOnce() {
+        // Many records share a millisecond, as a burst of delivery reports does
+        List<IncidentRecord> log = new ArrayList<>();
+        for (int id = 1; id <= 57; id++) {
+            log.add(IncidentRecord.cancel(0, 1000 + id / 4).withId(id));
+        }
+        log.sort(Comparator.comparingLong((IncidentRecord r) -> r.timeMillis)
+                .thenComparingLong(r -> r.id).reversed());
+
+        List<IncidentRecord> seen = new ArrayList<>();
+        String next = null;
+        do {
+            IncidentRecord.Cursor after = next != null ? IncidentRecord.Cursor.parse(next) : null;
+            List<IncidentRecord> page = new ArrayList<>();
+            for (IncidentRecord r : log) {
+                if ((after == null || after.isBefore(r)) && page.size() < 10) page.add(r);
+            }
+            seen.addAll(page);
+            next = page.size() == 10 ? page.get(9).cursor().encode() : null;
+        } while (next != null);
+        assertEquals(log, seen);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cursorWithoutSeparatorIsRejected() {
+        IncidentRecord.Cursor.parse("12345");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cursorWithTextIsRejected() {
+        IncidentRecord.Cursor.parse("1:2 OR 1=1");
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class IntegrityVerdictTest {
+
+    @Test
+    public void encodeDecodeRoundTrip() {
+        IntegrityVerdict verdict = new IntegrityVerdict(1234, "boot-1", 5678, true, false);
+        IntegrityVerdict back = IntegrityVerdict.decode(verdict.encode());
+        assertEquals(1234, back.lastUpdateTime);
+        assertEquals("boot-1", back.bootId);
+        assertEquals(5678, back.verifiedAtMillis);
+        assertTrue(back.deviceTampered);
+        assertFalse(back.signatureOk);
+        assertFalse(back.isTrusted());
+    }
+
+    @Test
+    public void eachHalfHoldsOnItsOwnKey() {
+        IntegrityVerdict verdict = new IntegrityVerdict(1234, "boot-1", 0, false, true);
+        assertTrue(verdict.holdsFor(1234, "boot-1"));
+        assertFalse(verdict.holdsFor(1234, "boot-2"));
+        assertTrue(verdict.signatureVerdictHolds(1234));
+        assertFalse(verdict.holdsFor(9999, "boot-1"));
+        assertTrue(verdict.deviceVerdictHolds("boot-1"));
+    }
+
+    @Test
+    public void ageCountsClockGoingBackwards() {
+        IntegrityVerdict verdict = new IntegrityVerdict(0, "b", 1000, false, true);
+        assertFalse(verdict.isOlderThan(500, 1500));
+        assertTrue(verdict.isOlderThan(500, 1501));
+        assertTrue(verdict.isOlderThan(500, 999));
+    }
+
+    @Test
+    public void malformedOrOtherVersionDecodesToNull() {
+        assertNull(IntegrityVerdict.decode(null));
+        assertNull(IntegrityVerdict.decode(""));
+        assertNull(IntegrityVerdict.decode("2|1|b|1|0|1"));
+        assertNull(IntegrityVerdict.decode("1|1|b|1|0"));
+        assertNull(IntegrityVerdict.decode("1|x|b|1|0|1"));
+        assertNull(IntegrityVerdict.decode("1|1||1|0|1"));
+        assertNull(IntegrityVerdict.decode("1|1|b|1|2|1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bootIdMayNotContainSeparator() {
+        new IntegrityVerdict(0, "a|b", 0, false, true);
+    }
+}
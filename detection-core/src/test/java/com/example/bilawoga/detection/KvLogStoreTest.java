@@ -0,0 +1,378 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KvLogStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SecretKey key = newKey();
+
+    /** Seals with AES-GCM, or fails every seal once failSeals is set: a crash mid-write. */
+    private static final class FlakyCipher implements RecordCipher {
+        final RecordCipher delegate;
+        boolean failSeals;
+
+        FlakyCipher(SecretKey key) {
+            delegate = new AesGcmRecordCipher(key);
+        }
+
+        @Override
+        public byte[] seal(byte[] plaintext, byte[] associatedData) throws GeneralSecurityException {
+            if (failSeals) throw new GeneralSecurityException("injected");
+            return delegate.seal(plaintext, associatedData);
+        }
+
+        @Override
+        public byte[] open(byte[] sealed, byte[] associatedData) throws GeneralSecurityException {
+            return delegate.open(sealed, associatedData);
+        }
+    }
+
+    @Test
+    public void writesSurviveReopen() throws Exception {
+        File dir = folder.newFolder();
+        try (KvLogStore store = open(dir, key)) {
+            store.write(new KvLogStore.Batch().put("a", bytes("1")).put("b", bytes("2")), false);
+            store.write(new KvLogStore.Batch().remove("a").put("c", bytes("3")), true);
+        }
+        try (KvLogStore store = open(dir, key)) {
+            assertEquals(map("b", "2", "c", "3"), strings(store));
+            assertNull(store.get("a"));
+        }
+    }
+
+    @Test
+    public void clearDropsEarlierOpsInTheSameBatch() throws Exception {
+        File dir = folder.newFolder();
+        try (KvLogStore store = open(dir, key)) {
+            store.write(new KvLogStore.Batch().put("a", bytes("1")), false);
+            store.write(new KvLogStore.Batch().put("b", bytes("2")).clear().put("c", bytes("3")), false);
+            assertEquals(map("c", "3"), strings(store));
+        }
+        try (KvLogStore store = open(dir, key)) {
+            assertEquals(map("c", "3"), strings(store));
+        }
+    }
+
+    @Test
+    public void tornTailIsCutOffAndAppendingResumes() throws Exception {
+        File dir = folder.newFolder();
+        try (KvLogStore store = open(dir, key)) {
+            store.write(new KvLogStore.Batch().put("a", bytes("1")), false);
+            store.write(new KvLogStore.Batch().put("b", bytes("2")), false);
+        }
+        File segment = onlySegment(dir);
+        long intact = segment.length();
+        try (KvLogStore store = open(dir, key)) {
+            store.write(new KvLogStore.Batch().put("c", bytes("3")).put("a", bytes("x")), false);
+        }
+        // Crash part-way through the last record
+        truncate(segment, segment.length() - 7);
+
+        try (KvLogStore store = open(dir, key)) {
+            assertEquals(map("a", "1", "b", "2"), strings(store));
+            assertEquals(intact, segment.length());
+            store.write(new KvLogStore.Batch().put("d", bytes("4")), true);
+        }
+        try (KvLogStore store = open(dir, key)) {
+            assertEquals(map("a", "1", "b", "2", "d", "4"), strings(store));
+        }
+    }
+
+    @Test
+    public void tornLengthPrefixAndGarbageTailAreCutOff() throws Exception {
+        File dir = folder.newFolder();
+        try (KvLogStore store = open(dir, key)) {
+            store.write(new KvLogStore.Batch().put("a", bytes("1")), false);
+        }
+        File segment = onlySegment(dir);
+        long intact = segment.length();
+        for (byte[] tail : new byte[][]{{0, 0}, {0, 0, 0, 40, 1, 2, 3}, randomBytes(300)}) {
+            truncate(segment, intact);
+            try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+                file.seek(intact);
+                file.write(tail);
+            }
+            try (KvLogStore store = open(dir, key)) {
+                assertEquals(map("a", "1"), strings(store));
+            }
+            assertEquals(intact, segment.length());
+        }
+    }
+
+    @Test
+    public void tornBatchIsAllOrNothingAndRepeatingItIsHarmless() throws Exception {
+        // A migration copies every legacy entry and its done-flag in one batch
+        KvLogStore.Batch migration = new KvLogStore.Batch()
+                .put("USERNAME", bytes("Amani"))
+                .put("ENUM_1", bytes("+254700000001"))
+                .put("__migrated", bytes("true"));
+        File dir = folder.newFolder();
+        try (KvLogStore store = open(dir, key)) {
+            store.write(new KvLogStore.Batch().put("existing", bytes("kept")), false);
+        }
+        File segment = onlySegment(dir);
+        long before = segment.length();
+        try (KvLogStore store = open(dir, key)) {
+            store.write(migration, false);
+        }
+        for (long cut = before + 1; cut < segment.length(); cut += 9) {
+            File copy = folder.newFolder();
+            File torn = new File(copy, segment.getName());
+            Files.copy(segment.toPath(), torn.toPath());
+            truncate(torn, cut);
+            try (KvLogStore store = open(copy, key)) {
+                // Nothing of the batch, so the migration runs again from scratch
+                assertEquals(map("existing", "kept"), strings(store));
+            }
+        }
+
+        try (KvLogStore store = open(dir, key)) {
+            Map<String, String> once = strings(store);
+            store.write(migration, false);
+            assertEquals(once, strings(store));
+        }
+        try (KvLogStore store = open(dir, key)) {
+            assertEquals(map("existing", "kept", "USERNAME", "Amani", "ENUM_1", "+254700000001",
+                    "__migrated", "true"), strings(store));
+        }
+    }
+
+    @Test
+    public void compactionKeepsLiveSetAndShrinksLog() throws Exception {
+        File dir = folder.newFolder();
+        Map<String, String> expected;
+        long before;
+        try (KvLogStore store = new KvLogStore(dir, new AesGcmRecordCipher(key), 16 * 1024)) {
+            for (int i = 0; i < 3000; i++) {
+                store.write(new KvLogStore.Batch().put("counter" + (i % 10), bytes(Integer.toString(i))), false);
+            }
+            store.write(new KvLogStore.Batch().remove("counter0"), false);
+            assertTrue(store.needsCompaction());
+            expected = strings(store);
+            before = store.getDiskBytes();
+            assertTrue(store.compact());
+            assertTrue(store.getDiskBytes() < before / 4);
+            assertFalse(store.needsCompaction());
+            assertEquals(expected, strings(store));
+            store.write(new KvLogStore.Batch().put("after", bytes("compaction")), false);
+            expected.put("after", "compaction");
+        }
+        try (KvLogStore store = open(dir, key)) {
+            assertEquals(expected, strings(store));
+            assertEquals(dirBytes(dir), store.getDiskBytes());
+        }
+    }
+
+    @Test
+    public void compactionCrashBeforeRenameLosesNothing() throws Exception {
+        File dir = folder.newFolder();
+        FlakyCipher cipher = new FlakyCipher(key);
+        Map<String, String> expected;
+        try (KvLogStore store = new KvLogStore(dir, cipher)) {
+            for (int i = 0; i < 50; i++) {
+                store.write(new KvLogStore.Batch().put("k" + i, bytes("v" + i)), false);
+            }
+            expected = strings(store);
+            cipher.failSeals = true;
+            try {
+                store.compact();
+                fail("Compaction should have failed");
+            } catch (IOException expectedFailure) {
+                // The half-written snapshot is left behind as a temp file
+            }
+            assertTrue(tempFiles(dir) > 0);
+            cipher.failSeals = false;
+            // The store keeps working after the failed compaction
+            store.write(new KvLogStore.Batch().put("later", bytes("write")), false);
+            expected.put("later", "write");
+        }
+        try (KvLogStore store = open(dir, key)) {
+            assertEquals(expected, strings(store));
+            assertEquals(0, tempFiles(dir));
+        }
+    }
+
+    @Test
+    public void compactionCrashBeforeDeletingOldSegmentsLosesNothing() throws Exception {
+        File dir = folder.newFolder();
+        Map<String, String> expected;
+        Map<String, byte[]> oldSegments = new HashMap<>();
+        try (KvLogStore store = open(dir, key)) {
+            for (int i = 0; i < 50; i++) {
+                store.write(new KvLogStore.Batch().put("k" + (i % 7), bytes("v" + i)), false);
+            }
+            store.write(new KvLogStore.Batch().remove("k3"), false);
+            for (File f : segments(dir)) {
+                oldSegments.put(f.getName(), Files.readAllBytes(f.toPath()));
+            }
+            assertTrue(store.compact());
+            store.write(new KvLogStore.Batch().put("k1", bytes("after")).remove("k2"), false);
+            expected = strings(store);
+        }
+        // Put the segments back that compaction deleted, as if it died before deleting them
+        for (Map.Entry<String, byte[]> e : oldSegments.entrySet()) {
+            File f = new File(dir, e.getKey());
+            if (!f.exists()) Files.write(f.toPath(), e.getValue());
+        }
+        try (KvLogStore store = open(dir, key)) {
+            assertEquals(expected, strings(store));
+            assertNull(store.get("k3"));
+        }
+    }
+
+    @Test
+    public void recordsUnderAnotherKeyAreNeverRead() throws Exception {
+        File dir = folder.newFolder();
+        SecretKey rotated = newKey();
+        try (KvLogStore store = open(dir, key)) {
+            store.write(new KvLogStore.Batch().put("secret", bytes("old")), true);
+        }
+        // After a wipe the store reopens under a new data key
+        try (KvLogStore store = open(dir, rotated)) {
+            assertTrue(store.snapshot().isEmpty());
+            store.write(new KvLogStore.Batch().put("fresh", bytes("new")), true);
+        }
+        try (KvLogStore store = open(dir, rotated)) {
+            assertEquals(map("fresh", "new"), strings(store));
+        }
+        try (KvLogStore store = open(dir, key)) {
+            assertTrue(store.snapshot().isEmpty());
+        }
+    }
+
+    @Test
+    public void recordsAreBoundToTheirPosition() throws Exception {
+        File dir = folder.newFolder();
+        try (KvLogStore store = open(dir, key)) {
+            store.write(new KvLogStore.Batch().put("a", bytes("1")), false);
+            store.write(new KvLogStore.Batch().put("a", bytes("2")), false);
+        }
+        // Replay the first record again at the end of the log
+        File segment = onlySegment(dir);
+        byte[] data = Files.readAllBytes(segment.toPath());
+        int firstLength = 4 + ByteBuffer.wrap(data, KvLogFormat.HEADER_SIZE, 4).getInt();
+        byte[] replayed = Arrays.copyOf(data, data.length + firstLength);
+        System.arraycopy(data, KvLogFormat.HEADER_SIZE, replayed, data.length, firstLength);
+        Files.write(segment.toPath(), replayed);
+        try (KvLogStore store = open(dir, key)) {
+            assertEquals(map("a", "2"), strings(store));
+        }
+    }
+
+    @Test
+    public void writeAfterCloseFails() throws Exception {
+        KvLogStore store = open(folder.newFolder(), key);
+        store.close();
+        try {
+            store.write(new KvLogStore.Batch().put("a", bytes("1")), false);
+            fail("Wrote to a closed store");
+        } catch (IOException expected) {
+            // Closed by a wipe
+        }
+    }
+
+    @Test
+    public void prefValuesRoundTrip() {
+        Set<String> set = new HashSet<>(Arrays.asList("a", "", "\u00e9"));
+        for (Object value : new Object[]{"text", "", 42, -1L, 1.5f, true, false, set, new HashSet<String>()}) {
+            assertEquals(value, PrefValues.decode(PrefValues.encode(value)));
+        }
+        assertArrayEquals(PrefValues.encode(7), PrefValues.encode(Integer.valueOf(7)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void prefValuesRejectOtherTypes() {
+        PrefValues.encode(1.0);
+    }
+
+    private static KvLogStore open(File dir, SecretKey key) throws IOException {
+        return new KvLogStore(dir, new AesGcmRecordCipher(key));
+    }
+
+    private static SecretKey newKey() {
+        return new SecretKeySpec(randomBytes(32), "AES");
+    }
+
+    private static byte[] randomBytes(int n) {
+        byte[] bytes = new byte[n];
+        new SecureRandom().nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> map(String... keysAndValues) {
+        Map<String, String> map = new TreeMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    private static Map<String, String> strings(KvLogStore store) {
+        Map<String, String> map = new TreeMap<>();
+        for (Map.Entry<String, byte[]> e : store.snapshot().entrySet()) {
+            map.put(e.getKey(), new String(e.getValue(), StandardCharsets.UTF_8));
+        }
+        return map;
+    }
+
+    private static File[] segments(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(KvLogFormat.FILE_EXTENSION));
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static File onlySegment(File dir) {
+        File[] files = segments(dir);
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    private static int tempFiles(File dir) {
+        return dir.listFiles((d, name) -> name.endsWith(".tmp")).length;
+    }
+
+    private static long dirBytes(File dir) {
+        long total = 0;
+        for (File f : segments(dir)) total += f.length();
+        return total;
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MotionPatternDetectorTest {
+
+    private static final long STEP_MS = 20;
+
+    @Test
+    public void covertReplayMatchesListBasedDetector() {
+        assertEquivalent(MotionPatternDetector.Config.COVERT, false, 5000);
+    }
+
+    @Test
+    public void enhancedReplayMatchesListBasedDetector() {
+        assertEquivalent(MotionPatternDetector.Config.ENHANCED, true, 8000);
+    }
+
+    private static void assertEquivalent(MotionPatternDetector.Config config, boolean contextAware,
+                                         long timeoutMs) {
+        float[] trace = trace();
+        Recorder recorder = new Recorder();
+        MotionPatternDetector detector = new MotionPatternDetector(config, recorder);
+        ListBasedDetector reference = new ListBasedDetector(contextAware, timeoutMs);
+        boolean sawPocket = false;
+        boolean sawHand = false;
+
+        for (int i = 0; i < trace.length; i++) {
+            long now = 1_000_000L + i * STEP_MS;
+            recorder.sample = i;
+            reference.sample = i;
+            detector.onAcceleration(trace[i], now);
+            reference.onAcceleration(trace[i], now);
+            assertEquals("position at " + i, reference.inPocket, detector.isInPocket());
+            assertEquals("walking at " + i, reference.walking, detector.isWalking());
+            sawPocket |= detector.isInPocket();
+            sawHand |= i > 0 && !detector.isInPocket();
+        }
+
+        assertEquals(reference.events.size(), recorder.events.size());
+        for (int i = 0; i < reference.events.size(); i++) {
+            Event expected = reference.events.get(i);
+            Event actual = recorder.events.get(i);
+            assertEquals(expected.sample, actual.sample);
+            assertEquals(expected.kind, actual.kind);
+            assertEquals(expected.confidence, actual.confidence, 1e-4f);
+        }
+
+        // The trace must exercise every outcome, or equivalence proves little
+        assertTrue(sawPocket && sawHand);
+        assertTrue(recorder.count("COVERT_SOS") > 0);
+        assertTrue(recorder.count("ABDUCTION") > 0);
+        if (contextAware) {
+            assertTrue(recorder.count("EMERGENCY_SOS") > 0);
+            assertTrue(recorder.count("POCKET_TOUCH") > 0);
+        }
+    }
+
+    /**
+     * Quiet pocket stretches longer than either timeout, each followed by one tap sequence,
+     * then a steady in-hand stretch and random movement.
+     */
+    private static float[] trace() {
+        Random random = new Random(42);
+        float[][] taps = {
+                {1, 1, 1, 1, 1, 1, 1},
+                {1, 2, 1, 3, 1, 2, 1},
+                {2, 1, 2, 1, 2, 1, 2},
+                {2, 1, 3, 1, 2, 1, 3, 1, 2},
+                {0.8f, 2.6f, 1.4f, 0.7f, 3.1f, 1.9f, 1.2f, 2.2f}
+        };
+        List<Float> samples = new ArrayList<>();
+        for (float[] sequence : taps) {
+            for (int i = 0; i < 9000 / STEP_MS; i++) {
+                // Mostly still, with the odd bump below the significance threshold
+                samples.add(i % 7 == 0 ? 0.45f + random.nextFloat() * 0.1f : random.nextFloat() * 0.2f);
+            }
+            for (float tap : sequence) {
+                samples.add(tap + (random.nextFloat() - 0.5f) * 0.2f);
+                for (int j = 0; j < 10; j++) {
+                    samples.add(random.nextFloat() * 0.3f);
+                }
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            samples.add(1.2f + (random.nextFloat() - 0.5f) * 0.1f);
+        }
+        for (int i = 0; i < 3000; i++) {
+            samples.add(random.nextFloat() * 3.5f);
+        }
+        float[] trace = new float[samples.size()];
+        for (int i = 0; i < trace.length; i++) {
+            trace[i] = samples.get(i);
+        }
+        return trace;
+    }
+
+    private static final class Event {
+        final int sample;
+        final String kind;
+        final float confidence;
+
+        Event(int sample, String kind, float confidence) {
+            this.sample = sample;
+            this.kind = kind;
+            this.confidence = confidence;
+        }
+    }
+
+    private static final class Recorder implements MotionPatternDetector.PatternListener {
+        final List<Event> events = new ArrayList<>();
+        int sample;
+
+        @Override
+        public void onPhonePosition(boolean inPocket) {
+        }
+
+        @Override
+        public void onPatternMatched(MotionPatternDetector.Pattern pattern, float confidence) {
+            events.add(new Event(sample, pattern.name(), confidence));
+        }
+
+        @Override
+        public void onFalseAlarmPrevented(MotionPatternDetector.FalseAlarm reason) {
+            events.add(new Event(sample, reason.name(), 0));
+        }
+
+        int count(String kind) {
+            int n = 0;
+            for (Event e : events) {
+                if (e.kind.equals(kind)) n++;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * The list-based matcher CovertEmergencyDetector (contextAware false) and
+     * EnhancedEmergencyDetector (true) ran before MotionPatternDetector replaced them.
+     * The two are merged into one class and report into a list; the arithmetic is theirs.
+     */
+    private static final class ListBasedDetector {
+        private static final int[] EMERGENCY_SOS_PATTERN = {2, 1, 3, 1, 2, 1, 3, 1, 2};
+        private static final int[] COVERT_PATTERN = {1, 2, 1, 3, 1, 2, 1};
+        private static final int[] ABDUCTION_PATTERN = {2, 1, 2, 1, 2, 1, 2};
+        private static final int[] NORMAL_POCKET_TOUCH = {1, 1, 1, 1, 1};
+        private static final int[] WALKING_PATTERN = {1, 2, 1, 2, 1, 2, 1};
+        private static final float POCKET_SENSITIVITY = 0.6f;
+        private static final float NORMAL_TOUCH_THRESHOLD = 0.4f;
+
+        private static final class MovementData {
+            final float acceleration;
+            final long timestamp;
+            final boolean isSignificant;
+
+            MovementData(float acceleration, long timestamp, boolean isSignificant) {
+                this.acceleration = acceleration;
+                this.timestamp = timestamp;
+                this.isSignificant = isSignificant;
+            }
+        }
+
+        private final boolean contextAware;
+        private final long patternTimeout;
+        private final Queue<MovementData> movementHistory = new ArrayDeque<>();
+        private final List<Float> accelerationBuffer = new ArrayList<>();
+        final List<Event> events = new ArrayList<>();
+        int sample;
+        boolean inPocket = false;
+        boolean walking = false;
+        private boolean normalPocketActivity = false;
+
+        ListBasedDetector(boolean contextAware, long patternTimeout) {
+            this.contextAware = contextAware;
+            this.patternTimeout = patternTimeout;
+        }
+
+        void onAcceleration(float acceleration, long timestamp) {
+            accelerationBuffer.add(acceleration);
+            if (accelerationBuffer.size() > 50) {
+                accelerationBuffer.remove(0);
+            }
+            detectPhonePosition();
+            if (contextAware) {
+                detectWalkingPattern();
+            }
+            movementHistory.offer(new MovementData(acceleration, timestamp, acceleration > POCKET_SENSITIVITY));
+            while (movementHistory.size() > 100) {
+                movementHistory.poll();
+            }
+            analyzePatterns(timestamp);
+        }
+
+        private void detectPhonePosition() {
+            if (accelerationBuffer.size() > 10) {
+                float avgMovement = calculateAverageMovement();
+                float variance = calculateVariance();
+                if (avgMovement < 0.5f && variance > 0.3f) {
+                    inPocket = true;
+                } else if (avgMovement > 1.0f && variance < 0.2f) {
+                    inPocket = false;
+                }
+            }
+        }
+
+        private void detectWalkingPattern() {
+            if (accelerationBuffer.size() > 20) {
+                if (calculateWalkingScore() > 0.7f) {
+                    walking = true;
+                    normalPocketActivity = true;
+                } else {
+                    walking = false;
+                }
+            }
+        }
+
+        private float calculateWalkingScore() {
+            int rhythmicCount = 0;
+            for (int i = 1; i < accelerationBuffer.size() - 1; i++) {
+                float prev = accelerationBuffer.get(i - 1);
+                float curr = accelerationBuffer.get(i);
+                float next = accelerationBuffer.get(i + 1);
+                if (curr > prev && curr > next && curr > 0.8f) {
+                    rhythmicCount++;
+                }
+            }
+            return (float) rhythmicCount / accelerationBuffer.size();
+        }
+
+        private void analyzePatterns(long now) {
+            List<MovementData> recent = new ArrayList<>();
+            for (MovementData data : movementHistory) {
+                if (data.isSignificant && (now - data.timestamp) < patternTimeout) {
+                    recent.add(data);
+                }
+            }
+            if (recent.size() < 7) return;
+
+            if (contextAware) {
+                if (matchPattern(recent, NORMAL_POCKET_TOUCH)) {
+                    events.add(new Event(sample, "POCKET_TOUCH", 0));
+                    return;
+                }
+                if (matchPattern(recent, WALKING_PATTERN) && walking) {
+                    events.add(new Event(sample, "WALKING", 0));
+                    return;
+                }
+                if (isConsistentLightTouches(recent)) {
+                    events.add(new Event(sample, "LIGHT_TOUCHES", 0));
+                    return;
+                }
+                if (matchPattern(recent, EMERGENCY_SOS_PATTERN)) {
+                    float confidence = calculateConfidence(recent);
+                    if (confidence > 0.8f) {
+                        events.add(new Event(sample, "EMERGENCY_SOS", confidence));
+                    }
+                }
+            }
+            if (matchPattern(recent, COVERT_PATTERN)) {
+                float confidence = calculateConfidence(recent);
+                if (confidence > 0.7f) {
+                    events.add(new Event(sample, "COVERT_SOS", confidence));
+                }
+            }
+            if (matchPattern(recent, ABDUCTION_PATTERN)) {
+                float confidence = calculateConfidence(recent);
+                if (confidence > 0.8f) {
+                    events.add(new Event(sample, "ABDUCTION", confidence));
+                }
+            }
+        }
+
+        private boolean isConsistentLightTouches(List<MovementData> movements) {
+            if (movements.size() < 5) return false;
+            int lightTouchCount = 0;
+            float totalIntensity = 0;
+            for (MovementData data : movements) {
+                totalIntensity += data.acceleration;
+                if (data.acceleration < NORMAL_TOUCH_THRESHOLD) {
+                    lightTouchCount++;
+                }
+            }
+            float avgIntensity = totalIntensity / movements.size();
+            float lightTouchRatio = (float) lightTouchCount / movements.size();
+            return lightTouchRatio > 0.7f && avgIntensity < 0.5f;
+        }
+
+        private boolean matchPattern(List<MovementData> movements, int[] pattern) {
+            if (movements.size() < pattern.length) return false;
+            int matches = 0;
+            for (int i = 0; i < pattern.length && i < movements.size(); i++) {
+                float intensity = movements.get(i).acceleration;
+                if (intensity >= pattern[i] * 0.5f && intensity <= pattern[i] * 1.5f) {
+                    matches++;
+                }
+            }
+            return (float) matches / pattern.length > 0.7f;
+        }
+
+        private float calculateConfidence(List<MovementData> movements) {
+            float avgIntensity = 0;
+            for (MovementData data : movements) {
+                avgIntensity += data.acceleration;
+            }
+            avgIntensity /= movements.size();
+            float consistency = calculateConsistency(movements);
+            float penalty = 0.0f;
+            if (contextAware && (normalPocketActivity || walking)) {
+                penalty = 0.2f;
+            }
+            return Math.max(0.0f, (avgIntensity * 0.6f + consistency * 0.4f) - penalty);
+        }
+
+        private float calculateConsistency(List<MovementData> movements) {
+            if (movements.size() < 2) return 0.0f;
+            float mean = 0;
+            for (MovementData data : movements) {
+                mean += data.acceleration;
+            }
+            mean /= movements.size();
+            float variance = 0;
+            for (MovementData data : movements) {
+                variance += Math.pow(data.acceleration - mean, 2);
+            }
+            variance /= movements.size();
+            return Math.max(0, 1.0f - variance);
+        }
+
+        private float calculateAverageMovement() {
+            float sum = 0;
+            for (float value : accelerationBuffer) sum += value;
+            return sum / accelerationBuffer.size();
+        }
+
+        private float calculateVariance() {
+            float mean = calculateAverageMovement();
+            float variance = 0;
+            for (float value : accelerationBuffer) {
+                variance += Math.pow(value - mean, 2);
+            }
+            return variance / accelerationBuffer.size();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class P2QuantileTest {
+
+    @Test
+    public void nanBeforeFirstSample() {
+        assertTrue(Double.isNaN(new P2Quantile(0.5).quantile()));
+    }
+
+    @Test
+    public void exactOnFewSamples() {
+        P2Quantile median = new P2Quantile(0.5);
+        median.add(3);
+        median.add(1);
+        median.add(2);
+        assertEquals(2, median.quantile(), 0);
+        assertEquals(3, median.count());
+    }
+
+    @Test
+    public void tracksUniformQuantiles() {
+        for (double p : new double[]{0.05, 0.5, 0.95}) {
+            P2Quantile estimate = new P2Quantile(p);
+            Random random = new Random(7);
+            double[] samples = new double[50000];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = random.nextDouble() * 100;
+                estimate.add(samples[i]);
+            }
+            assertEquals("p=" + p, exact(samples, p), estimate.quantile(), 1.0);
+        }
+    }
+
+    @Test
+    public void tracksSkewedQuantile() {
+        P2Quantile estimate = new P2Quantile(0.95);
+        Random random = new Random(11);
+        double[] samples = new double[50000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = -Math.log(1 - random.nextDouble()); // exponential, mean 1
+            estimate.add(samples[i]);
+        }
+        double exact = exact(samples, 0.95);
+        assertEquals(exact, estimate.quantile(), exact * 0.05);
+    }
+
+    @Test
+    public void estimateStaysWithinObservedRange() {
+        P2Quantile estimate = new P2Quantile(0.99);
+        for (int i = 0; i < 1000; i++) {
+            estimate.add(i % 2 == 0 ? 10 : 20);
+            assertTrue(estimate.quantile() >= 10 && estimate.quantile() <= 20);
+        }
+    }
+
+    @Test
+    public void resetForgetsSamples() {
+        P2Quantile estimate = new P2Quantile(0.5);
+        for (int i = 0; i < 100; i++) estimate.add(1000);
+        estimate.reset();
+        assertEquals(0, estimate.count());
+        estimate.add(1);
+        assertEquals(1, estimate.quantile(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOutOfRangeP() {
+        new P2Quantile(1);
+    }
+
+    private static double exact(double[] samples, double p) {
+        double[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.round(p * (sorted.length - 1))];
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SensorTraceTest {
+
+    private static final long START_WALL = 1_700_000_000_000L;
+    private static final long START_NANOS = 123_456_789_000_000L;
+    private static final float QUANTUM = 1.0f / SensorTraceFormat.DEFAULT_SCALE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final class Recorded {
+        final int type;
+        final long timestampNanos;
+        final float x, y, z;
+
+        Recorded(int type, long timestampNanos, float x, float y, float z) {
+            this.type = type;
+            this.timestampNanos = timestampNanos;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+    private File write(List<Recorded> samples) throws IOException {
+        File file = folder.newFile("trace" + SensorTraceFormat.FILE_EXTENSION);
+        try (SensorTraceWriter writer = new SensorTraceWriter(file, START_WALL, START_NANOS)) {
+            for (Recorded r : samples) {
+                writer.append(r.type, r.timestampNanos, r.x, r.y, r.z);
+            }
+            assertEquals(samples.size(), writer.getSamplesWritten());
+        }
+        return file;
+    }
+
+    private static List<Recorded> mixedTrace() {
+        Random random = new Random(3);
+        List<Recorded> samples = new ArrayList<>();
+        long t = START_NANOS;
+        for (int i = 0; i < 2000; i++) {
+            // Every storable type, interleaved the way batched sensors arrive
+            int type = i % (SensorTraceFormat.MAX_SENSOR_TYPE + 1);
+            if (i % 500 == 499) {
+                t += 3L * 24 * 3600 * 1_000_000_000L; // recorder paused for days
+            } else if (i % 97 == 0) {
+                t -= 2_000_000L; // another sensor's batch lands slightly in the past
+            } else {
+                t += 5_000_000L;
+            }
+            samples.add(new Recorded(type, t, random.nextFloat() * 40 - 20,
+                    random.nextFloat() * 2000 - 1000, (float) Math.sin(i * 0.1) * 9.81f));
+        }
+        return samples;
+    }
+
+    private static void assertSample(Recorded expected, SensorSample actual) {
+        assertEquals(expected.type, actual.sensorType);
+        assertEquals(expected.timestampNanos, actual.timestampNanos);
+        assertEquals(expected.x, actual.x, QUANTUM);
+        assertEquals(expected.y, actual.y, QUANTUM);
+        assertEquals(expected.z, actual.z, QUANTUM);
+    }
+
+    @Test
+    public void roundTripsEverySensorTypeAcrossLargeGaps() throws IOException {
+        List<Recorded> samples = mixedTrace();
+        // One before the start timestamp too
+        samples.add(0, new Recorded(SensorTypes.GYROSCOPE, START_NANOS - 40_000_000L, 0.5f, -0.5f, 0));
+        File file = write(samples);
+
+        try (SensorTraceReader reader = new SensorTraceReader(file)) {
+            assertEquals(START_WALL, reader.getStartWallMillis());
+            assertEquals(START_NANOS, reader.getStartTimestampNanos());
+            SensorSample sample = new SensorSample();
+            for (Recorded expected : samples) {
+                assertTrue(reader.next(sample));
+                assertSample(expected, sample);
+            }
+            assertFalse(reader.next(sample));
+        }
+    }
+
+    @Test
+    public void clampsValuesOutsideFixedPointRange() throws IOException {
+        List<Recorded> samples = new ArrayList<>();
+        samples.add(new Recorded(SensorTypes.MAGNETIC_FIELD, START_NANOS, 1e9f, -1e9f, 0));
+        File file = write(samples);
+
+        try (SensorTraceReader reader = new SensorTraceReader(file)) {
+            SensorSample sample = new SensorSample();
+            assertTrue(reader.next(sample));
+            assertEquals(Integer.MAX_VALUE * QUANTUM, sample.x, 1);
+            assertEquals(Integer.MIN_VALUE * QUANTUM, sample.y, 1);
+        }
+    }
+
+    @Test
+    public void truncatedTailEndsTraceAfterLastWholeRecord() throws IOException {
+        List<Recorded> samples = mixedTrace().subList(0, 300);
+        File file = write(samples);
+        byte[] full = Files.readAllBytes(file.toPath());
+
+        // Find the length of all but the last record by writing one fewer
+        File shorter = folder.newFile("shorter" + SensorTraceFormat.FILE_EXTENSION);
+        try (SensorTraceWriter writer = new SensorTraceWriter(shorter, START_WALL, START_NANOS)) {
+            for (Recorded r : samples.subList(0, samples.size() - 1)) {
+                writer.append(r.type, r.timestampNanos, r.x, r.y, r.z);
+            }
+        }
+        long lastRecordStart = shorter.length();
+        assertTrue(full.length - lastRecordStart > 1);
+
+        // Every way the recorder can die inside the last record
+        for (int cut = (int) lastRecordStart + 1; cut < full.length; cut++) {
+            Files.write(file.toPath(), Arrays.copyOf(full, cut));
+            try (SensorTraceReader reader = new SensorTraceReader(file)) {
+                SensorSample sample = new SensorSample();
+                for (Recorded expected : samples.subList(0, samples.size() - 1)) {
+                    assertTrue(reader.next(sample));
+                    assertSample(expected, sample);
+                }
+                assertFalse("cut at " + cut, reader.next(sample));
+                assertFalse(reader.next(sample));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsFileWithoutHeader() throws IOException {
+        File file = folder.newFile("empty" + SensorTraceFormat.FILE_EXTENSION);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(SensorTraceFormat.HEADER_SIZE - 1);
+        }
+        try {
+            new SensorTraceReader(file).close();
+            fail();
+        } catch (IOException expected) {
+            // Not a trace
+        }
+    }
+
+    @Test
+    public void replayAdvancesClockWithRecordedTimestamps() throws IOException {
+        List<Recorded> samples = mixedTrace();
+        File file = write(samples);
+        ReplayClock clock = new ReplayClock(0);
+        List<long[]> seen = new ArrayList<>();
+        SensorSampleSink sink = (type, timestampNanos, x, y, z) ->
+                seen.add(new long[]{type, timestampNanos, clock.currentTimeMillis()});
+
+        SensorReplayEngine.Result result = SensorReplayEngine.replay(
+                file, SensorReplayEngine.AS_FAST_AS_POSSIBLE, clock, sink);
+
+        assertEquals(samples.size(), result.samples);
+        assertEquals(samples.size(), seen.size());
+        for (int i = 0; i < samples.size(); i++) {
+            Recorded expected = samples.get(i);
+            assertEquals(expected.type, seen.get(i)[0]);
+            assertEquals(expected.timestampNanos, seen.get(i)[1]);
+            // The sink sees the wall time the sample was recorded at, not replay time
+            assertEquals(START_WALL + (expected.timestampNanos - START_NANOS) / 1_000_000, seen.get(i)[2]);
+        }
+        Recorded last = samples.get(samples.size() - 1);
+        assertEquals(last.timestampNanos - samples.get(0).timestampNanos, result.traceNanos);
+        assertEquals(START_WALL + (last.timestampNanos - START_NANOS) / 1_000_000, clock.currentTimeMillis());
+    }
+}
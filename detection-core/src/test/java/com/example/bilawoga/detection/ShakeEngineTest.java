@@ -0,0 +1,131 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ShakeEngineTest {
+
+    private static final long STEP_NANOS = 20_000_000L; // SENSOR_DELAY_GAME, 50 Hz
+    private static final float GRAVITY = 9.81f;
+
+    /** Feeds a sideways sine on top of gravity; returns the timestamps of every firing. */
+    private static List<Long> sine(ShakeEngine engine, long startNanos, long durationMs,
+                                   float amplitude, float hz) {
+        List<Long> fired = new ArrayList<>();
+        for (long t = 0; t < durationMs * 1_000_000L; t += STEP_NANOS) {
+            float x = (float) (amplitude * Math.sin(2 * Math.PI * hz * t * 1e-9));
+            if (engine.onAcceleration(startNanos + t, x, 0, GRAVITY)) {
+                fired.add(startNanos + t);
+            }
+        }
+        return fired;
+    }
+
+    private static boolean rest(ShakeEngine engine, long startNanos, long durationMs) {
+        boolean fired = false;
+        for (long t = 0; t < durationMs * 1_000_000L; t += STEP_NANOS) {
+            fired |= engine.onAcceleration(startNanos + t, 0, 0, GRAVITY);
+        }
+        return fired;
+    }
+
+    @Test
+    public void sustainedShakeFires() {
+        ShakeEngine engine = new ShakeEngine(ShakeProfile.MEDIUM);
+        List<Long> fired = sine(engine, 0, 2000, 20, 5);
+        assertEquals(1, fired.size());
+        // Not before the energy window is full and the minimum duration has passed
+        assertTrue(fired.get(0) >= ShakeProfile.MEDIUM.minDurationMs * 1_000_000L);
+    }
+
+    @Test
+    public void walkingDoesNotFire() {
+        ShakeEngine engine = new ShakeEngine(ShakeProfile.HIGH);
+        // Step bounce: about 2 Hz and a few m/s^2, even on the most sensitive profile
+        assertTrue(sine(engine, 0, 60_000, 3, 2).isEmpty());
+    }
+
+    @Test
+    public void singleJoltDoesNotFire() {
+        ShakeEngine engine = new ShakeEngine(ShakeProfile.HIGH);
+        assertFalse(rest(engine, 0, 1000));
+        long t = 1000 * 1_000_000L;
+        boolean fired = false;
+        // A knock or a drop: three hard samples, then the phone lies still again
+        for (int i = 0; i < 3; i++, t += STEP_NANOS) {
+            fired |= engine.onAcceleration(t, 30, 0, GRAVITY);
+        }
+        fired |= rest(engine, t, 2000);
+        assertFalse(fired);
+    }
+
+    @Test
+    public void cooldownSeparatesFirings() {
+        ShakeProfile profile = ShakeProfile.MEDIUM;
+        ShakeEngine engine = new ShakeEngine(profile);
+        List<Long> fired = sine(engine, 0, 25_000, 20, 5);
+        assertEquals(3, fired.size());
+        for (int i = 1; i < fired.size(); i++) {
+            assertTrue(fired.get(i) - fired.get(i - 1) >= profile.cooldownMs * 1_000_000L);
+        }
+    }
+
+    @Test
+    public void cooldownSurvivesPauseInStream() {
+        ShakeProfile profile = ShakeProfile.MEDIUM;
+        ShakeEngine engine = new ShakeEngine(profile);
+        long first = sine(engine, 0, 2000, 20, 5).get(0);
+        // A gap restarts the filters but must not clear the cooldown
+        List<Long> again = sine(engine, 5_000_000_000L, 2000, 20, 5);
+        assertTrue(again.isEmpty());
+        assertTrue(5_000_000_000L + 2_000_000_000L - first < profile.cooldownMs * 1_000_000L);
+    }
+
+    @Test
+    public void resetClearsCooldown() {
+        ShakeEngine engine = new ShakeEngine(ShakeProfile.MEDIUM);
+        assertEquals(1, sine(engine, 0, 2000, 20, 5).size());
+        engine.reset();
+        assertEquals(1, sine(engine, 3_000_000_000L, 2000, 20, 5).size());
+    }
+
+    @Test
+    public void gravityHighPassRemovesStaticTilt() {
+        ShakeFilters.GravityHighPass filter = new ShakeFilters.GravityHighPass(0.3f);
+        MotionFrame frame = new MotionFrame();
+        frame.x = 3;
+        frame.y = 4;
+        frame.z = 8;
+        filter.process(frame);
+        frame.dt = 0.02f;
+        for (int i = 0; i < 200; i++) {
+            filter.process(frame);
+        }
+        assertEquals(0, frame.linearX, 1e-4);
+        assertEquals(0, frame.linearY, 1e-4);
+        assertEquals(0, frame.linearZ, 1e-4);
+    }
+
+    @Test
+    public void windowedEnergyDecidesOnlyOnFullWindow() {
+        ShakeFilters.WindowedEnergy filter = new ShakeFilters.WindowedEnergy(4);
+        MotionFrame frame = new MotionFrame();
+        for (int i = 0; i < 3; i++) {
+            frame.linearX = 2;
+            assertFalse(filter.process(frame));
+        }
+        frame.linearX = 2;
+        assertTrue(filter.process(frame));
+        assertEquals(4, frame.energy, 1e-6);
+        // The oldest sample leaves the window
+        frame.linearX = 0;
+        assertTrue(filter.process(frame));
+        assertEquals(3, frame.energy, 1e-6);
+    }
+}
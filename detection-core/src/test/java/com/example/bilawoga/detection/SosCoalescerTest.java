@@ -0,0 +1,172 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.example.bilawoga.detection.SosCoalescer.Outcome;
+import com.example.bilawoga.detection.SosCoalescer.Session;
+import com.example.bilawoga.detection.SosCoalescer.Source;
+import com.example.bilawoga.detection.SosCoalescer.Urgency;
+
+public class SosCoalescerTest {
+    private static final long WINDOW = 1000;
+
+    @Test
+    public void firstTriggerOpensLaterOnesMerge() {
+        SosCoalescer coalescer = new SosCoalescer(WINDOW);
+        assertSame(Outcome.OPENED, coalescer.offer(Source.SHAKE, Urgency.CONFIRM, "shake", 0));
+        assertSame(Outcome.MERGED, coalescer.offer(Source.VOICE, Urgency.CONFIRM, "voice", 10));
+        assertSame(Outcome.MERGED, coalescer.offer(Source.SHAKE, Urgency.CONFIRM, "shake", 20));
+
+        Session session = coalescer.current(30);
+        assertEquals(Source.SHAKE, session.openedBy);
+        assertEquals("shake", session.incident);
+        assertEquals(Integer.valueOf(2), session.evidence.get(Source.SHAKE));
+        assertEquals("voice", session.corroboration());
+        assertFalse(session.isDispatched());
+    }
+
+    @Test
+    public void unresolvedCountdownKeepsSessionUnsentForNextTrigger() {
+        // Opened with a countdown that was never shown, cancelled or sent
+        SosCoalescer coalescer = new SosCoalescer(WINDOW);
+        assertSame(Outcome.OPENED, coalescer.offer(Source.SHAKE, Urgency.CONFIRM, "shake", 0));
+        long id = coalescer.current(0).id;
+
+        // The second trigger merges into a session that is still unsent and waiting on a
+        // countdown, which is what tells the coordinator to show the countdown again
+        assertSame(Outcome.MERGED, coalescer.offer(Source.AUDIO, Urgency.CONFIRM, "scream", 30));
+        Session session = coalescer.current(30);
+        assertEquals(id, session.id);
+        assertFalse(session.isDispatched());
+        assertSame(Urgency.CONFIRM, session.urgency);
+        assertNotNull(coalescer.markDispatched(id, 40));
+
+        // Closing the abandoned countdown lets the next trigger open a fresh session
+        SosCoalescer abandoned = new SosCoalescer(WINDOW);
+        abandoned.offer(Source.SHAKE, Urgency.CONFIRM, null, 0);
+        assertTrue(abandoned.cancel(abandoned.current(0).id));
+        assertSame(Outcome.OPENED, abandoned.offer(Source.SHAKE, Urgency.CONFIRM, null, 10));
+    }
+
+    @Test
+    public void immediateTriggerEscalatesUnsentSession() {
+        SosCoalescer coalescer = new SosCoalescer(WINDOW);
+        coalescer.offer(Source.SHAKE, Urgency.CONFIRM, "shake", 0);
+        assertSame(Outcome.ESCALATED, coalescer.offer(Source.AUDIO, Urgency.IMMEDIATE, "scream", 10));
+        Session session = coalescer.current(10);
+        assertSame(Urgency.IMMEDIATE, session.urgency);
+        assertEquals("scream", session.incident);
+        assertEquals("audio", session.corroboration());
+    }
+
+    @Test
+    public void dispatchesOnce() {
+        SosCoalescer coalescer = new SosCoalescer(WINDOW);
+        coalescer.offer(Source.SHAKE, Urgency.CONFIRM, null, 0);
+        long id = coalescer.current(0).id;
+        Session sent = coalescer.markDispatched(id, 100);
+        assertNotNull(sent);
+        assertEquals(100, sent.dispatchedMillis);
+        assertNull(coalescer.markDispatched(id, 110));
+        assertNull(coalescer.markDispatched(id + 1, 110));
+        // An automatic trigger after the send is only evidence
+        assertSame(Outcome.MERGED, coalescer.offer(Source.AUDIO, Urgency.IMMEDIATE, "scream", 120));
+    }
+
+    @Test
+    public void manualPressAfterSendResends() {
+        SosCoalescer coalescer = new SosCoalescer(WINDOW);
+        coalescer.offer(Source.AUDIO, Urgency.IMMEDIATE, "scream", 0);
+        long id = coalescer.current(0).id;
+        coalescer.markDispatched(id, 0);
+
+        assertSame(Outcome.RESEND, coalescer.offer(Source.MANUAL, Urgency.IMMEDIATE, "help", 500));
+        Session again = coalescer.markRedispatched(id, 500);
+        assertNotNull(again);
+        assertEquals(500, again.dispatchedMillis);
+        // The window restarts from the repeat send
+        assertNotNull(coalescer.current(1499));
+        assertNull(coalescer.current(1500));
+    }
+
+    @Test
+    public void redispatchNeedsASentSession() {
+        SosCoalescer coalescer = new SosCoalescer(WINDOW);
+        coalescer.offer(Source.SHAKE, Urgency.CONFIRM, null, 0);
+        assertNull(coalescer.markRedispatched(coalescer.current(0).id, 10));
+    }
+
+    @Test
+    public void failedSendCanBeRetried() {
+        SosCoalescer coalescer = new SosCoalescer(WINDOW);
+        coalescer.offer(Source.MANUAL, Urgency.IMMEDIATE, null, 0);
+        long id = coalescer.current(0).id;
+        Session sent = coalescer.markDispatched(id, 0);
+        assertFalse(coalescer.dispatchFailed(id, sent.dispatchedMillis + 1));
+        assertTrue(coalescer.dispatchFailed(id, sent.dispatchedMillis));
+        assertFalse(coalescer.current(10).isDispatched());
+
+        assertSame(Outcome.ESCALATED, coalescer.offer(Source.MANUAL, Urgency.IMMEDIATE, null, 20));
+        assertNotNull(coalescer.markDispatched(id, 20));
+    }
+
+    @Test
+    public void failureReportForOlderSendIsIgnored() {
+        SosCoalescer coalescer = new SosCoalescer(WINDOW);
+        coalescer.offer(Source.MANUAL, Urgency.IMMEDIATE, null, 0);
+        long id = coalescer.current(0).id;
+        coalescer.markDispatched(id, 0);
+        coalescer.markRedispatched(id, 50);
+        assertFalse(coalescer.dispatchFailed(id, 0));
+        assertTrue(coalescer.current(60).isDispatched());
+    }
+
+    @Test
+    public void cancelOnlyBeforeDispatch() {
+        SosCoalescer coalescer = new SosCoalescer(WINDOW);
+        coalescer.offer(Source.SHAKE, Urgency.CONFIRM, null, 0);
+        long first = coalescer.current(0).id;
+        assertTrue(coalescer.cancel(first));
+        assertFalse(coalescer.cancel(first));
+        assertNull(coalescer.current(10));
+        assertNull(coalescer.markDispatched(first, 10));
+
+        assertSame(Outcome.OPENED, coalescer.offer(Source.SHAKE, Urgency.CONFIRM, null, 20));
+        long second = coalescer.current(20).id;
+        assertNotEquals(first, second);
+        coalescer.markDispatched(second, 30);
+        assertFalse(coalescer.cancel(second));
+    }
+
+    @Test
+    public void windowIsAnchoredOnDispatchNotLastTrigger() {
+        SosCoalescer coalescer = new SosCoalescer(WINDOW);
+        coalescer.offer(Source.SHAKE, Urgency.IMMEDIATE, null, 0);
+        long id = coalescer.current(0).id;
+        coalescer.markDispatched(id, 100);
+        // A steady stream of triggers does not keep the session open
+        for (long t = 200; t < 1100; t += 200) {
+            assertSame(Outcome.MERGED, coalescer.offer(Source.SHAKE, Urgency.CONFIRM, null, t));
+        }
+        assertSame(Outcome.OPENED, coalescer.offer(Source.SHAKE, Urgency.CONFIRM, null, 1100));
+        assertNotEquals(id, coalescer.current(1100).id);
+    }
+
+    @Test
+    public void unsentSessionExpiresAfterOpening() {
+        SosCoalescer coalescer = new SosCoalescer(WINDOW);
+        coalescer.offer(Source.SHAKE, Urgency.CONFIRM, null, 0);
+        long id = coalescer.current(0).id;
+        coalescer.offer(Source.VOICE, Urgency.CONFIRM, null, 900);
+        assertNull(coalescer.current(1000));
+        assertNull(coalescer.markDispatched(id, 1000));
+    }
+}
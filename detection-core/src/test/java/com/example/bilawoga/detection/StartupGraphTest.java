@@ -0,0 +1,101 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class StartupGraphTest {
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    public void runsStepsAfterTheirDependencies() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            StartupGraph graph = StartupGraph.builder()
+                    .step("d", pool, () -> order.add("d"), "b", "c")
+                    .step("a", pool, () -> order.add("a"))
+                    .step("b", pool, () -> order.add("b"), "a")
+                    .step("c", pool, () -> order.add("c"), "a")
+                    .build();
+            graph.start();
+            assertTrue(graph.await(5, TimeUnit.SECONDS));
+            assertEquals(4, order.size());
+            assertEquals("a", order.get(0));
+            assertEquals("d", order.get(3));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void failingStepStillReleasesDependents() throws Exception {
+        List<String> failed = new ArrayList<>();
+        AtomicInteger graphFinished = new AtomicInteger();
+        StartupGraph graph = StartupGraph.builder()
+                .step("a", DIRECT, () -> {
+                    throw new IllegalStateException("boom");
+                })
+                .step("b", DIRECT, () -> { }, "a")
+                .listener(new StartupGraph.Listener() {
+                    @Override
+                    public void onStepFinished(String name, long waitNanos, long runNanos, Throwable error) {
+                        if (error != null) failed.add(name);
+                    }
+
+                    @Override
+                    public void onGraphFinished(long elapsedNanos) {
+                        graphFinished.incrementAndGet();
+                    }
+                })
+                .build();
+        graph.start();
+        graph.start();
+        assertTrue(graph.isDone("b"));
+        assertEquals(Collections.singletonList("a"), failed);
+        assertEquals(1, graphFinished.get());
+    }
+
+    @Test
+    public void whenDoneRunsOnceBeforeOrAfterFinish() {
+        AtomicInteger calls = new AtomicInteger();
+        StartupGraph graph = StartupGraph.builder().step("a", DIRECT, () -> { }).build();
+        graph.whenDone("a", DIRECT, calls::incrementAndGet);
+        assertFalse(graph.isDone("a"));
+        assertEquals(0, calls.get());
+        graph.start();
+        assertEquals(1, calls.get());
+        graph.whenDone("a", DIRECT, calls::incrementAndGet);
+        assertEquals(2, calls.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCycle() {
+        StartupGraph.builder()
+                .step("a", DIRECT, () -> { }, "c")
+                .step("b", DIRECT, () -> { }, "a")
+                .step("c", DIRECT, () -> { }, "b")
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownDependency() {
+        StartupGraph.builder().step("a", DIRECT, () -> { }, "missing").build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicateStep() {
+        StartupGraph.builder().step("a", DIRECT, () -> { }).step("a", DIRECT, () -> { });
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bilawoga.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class VersionVectorTest {
+
+    @Test
+    public void encodeDecodeRoundTrip() {
+        VersionVector v = VersionVector.EMPTY.increment("b").increment("a").increment("b");
+        assertEquals("a=1;b=2", v.encode());
+        assertEquals(v, VersionVector.decode(v.encode()));
+        assertEquals(2, VersionVector.decode("a=1;b=2").get("b"));
+        assertEquals(0, v.get("c"));
+    }
+
+    @Test
+    public void emptyAndNullDecodeToEmpty() {
+        assertEquals(VersionVector.EMPTY, VersionVector.decode(null));
+        assertEquals(VersionVector.EMPTY, VersionVector.decode(""));
+        assertEquals("", VersionVector.EMPTY.encode());
+    }
+
+    @Test
+    public void nodeNamesMayContainEquals() {
+        VersionVector v = VersionVector.EMPTY.increment("node=x");
+        assertEquals(v, VersionVector.decode(v.encode()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEntryWithoutCounter() {
+        VersionVector.decode("a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeCounter() {
+        VersionVector.decode("a=-1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonNumericCounter() {
+        VersionVector.decode("a=x");
+    }
+
+    @Test
+    public void compareOrders() {
+        VersionVector a = VersionVector.EMPTY.increment("a");
+        VersionVector ab = a.increment("b");
+        VersionVector ac = a.increment("c");
+        assertSame(VersionVector.Order.EQUAL, a.compareTo(VersionVector.decode("a=1")));
+        assertSame(VersionVector.Order.BEFORE, a.compareTo(ab));
+        assertSame(VersionVector.Order.AFTER, ab.compareTo(a));
+        assertSame(VersionVector.Order.CONCURRENT, ab.compareTo(ac));
+        assertSame(VersionVector.Order.BEFORE, VersionVector.EMPTY.compareTo(a));
+    }
+
+    @Test
+    public void mergeHasSeenBothSides() {
+        VersionVector ab = VersionVector.decode("a=3;b=1");
+        VersionVector ac = VersionVector.decode("a=1;c=2");
+        VersionVector merged = ab.merge(ac);
+        assertEquals(VersionVector.decode("a=3;b=1;c=2"), merged);
+        assertSame(VersionVector.Order.AFTER, merged.compareTo(ab));
+        assertSame(VersionVector.Order.AFTER, merged.compareTo(ac));
+        assertEquals(merged, ac.merge(ab));
+    }
+
+    @Test
+    public void incrementDoesNotChangeOriginal() {
+        VersionVector a = VersionVector.EMPTY.increment("a");
+        a.increment("a");
+        assertEquals(1, a.get("a"));
+    }
+}
@@ -0,0 +1,69 @@
+// Macrobenchmarks and Baseline Profile generation for :app, run against the benchmark
+// build type (release code and R8, debug-signed, emulator allowed). Everything runs on
+// an AOSP emulator image with no network or Play services:
+//
+//   ./gradlew :macrobenchmark:pixel6Api34BenchmarkAndroidTest     managed emulator
+//   ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest       emulator already running
+//
+// Add -Pandroid.testInstrumentationRunnerArguments.class=<test class> to run one class.
+// Results and the generated profile land under build/outputs/.
+import com.android.build.api.dsl.ManagedVirtualDevice
+
+plugins {
+    alias(libs.plugins.android.test)
+}
+
+android {
+    namespace = "com.example.bilawoga.macrobenchmark"
+    compileSdk = 34
+
+    defaultConfig {
+        minSdk = 26
+        targetSdk = 34
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // Emulator timings are for comparing builds on the same image, not absolute numbers
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "EMULATOR"
+    }
+
+    buildTypes {
+        create("benchmark") {
+            isDebuggable = true
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+        }
+    }
+
+    targetProjectPath = ":app"
+    experimentalProperties["android.experimental.self-instrumenting"] = true
+
+    testOptions {
+        managedDevices {
+            devices {
+                // API 34 AOSP image: no Play services, root available for profile collection
+                create<ManagedVirtualDevice>("pixel6Api34") {
+                    device = "Pixel 6"
+                    apiLevel = 34
+                    systemImageSource = "aosp"
+                }
+            }
+        }
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_17
+        targetCompatibility = JavaVersion.VERSION_17
+    }
+}
+
+dependencies {
+    implementation(libs.ext.junit)
+    implementation(libs.uiautomator)
+    implementation(libs.benchmark.macro.junit4)
+}
+
+// Only the benchmark variant has an app to measure
+androidComponents {
+    beforeVariants(selector().all()) {
+        it.enable = it.buildType == "benchmark"
+    }
+}
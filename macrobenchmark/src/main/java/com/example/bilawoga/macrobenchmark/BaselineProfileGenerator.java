@@ -0,0 +1,55 @@
+package com.example.bilawoga.macrobenchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * Collects the Baseline Profile for the app's critical paths: cold start into MainActivity
+ * and a shake SOS into the countdown. Needs an API 33+ emulator, or a rooted one.
+ *
+ * To update the shipped profile, run this class and copy the generated
+ * BaselineProfileGenerator_generate-baseline-prof.txt from build/outputs/ over
+ * app/src/main/baseline-prof.txt. Regenerate when startup or the SOS path changes shape;
+ * StartupBenchmark and ShakeToCountdownBenchmark show whether it still pays off.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+    private static final int MAX_ITERATIONS = 15;
+    private static final int STABLE_ITERATIONS = 3;
+
+    @Rule
+    public final BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Before
+    public void setUp() {
+        Journeys.prepareApp();
+    }
+
+    @Test
+    public void generate() {
+        rule.collect(
+                Journeys.PACKAGE,
+                MAX_ITERATIONS,
+                STABLE_ITERATIONS,
+                null,
+                true,
+                false,
+                // Only the app's own classes; libraries ship their own profiles
+                line -> line.contains("Lcom/example/bilawoga/"),
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    Journeys.awaitSosReady(scope);
+                    Journeys.shakeToCountdown(scope);
+                    Journeys.cancelCountdown(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
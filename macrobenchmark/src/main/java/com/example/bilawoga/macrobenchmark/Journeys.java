@@ -0,0 +1,85 @@
+package com.example.bilawoga.macrobenchmark;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.BySelector;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The user journeys shared by the benchmarks and the Baseline Profile generator.
+ *
+ * The app is driven through BenchmarkHooksReceiver, which only the benchmark build type
+ * has: SEED stands in for onboarding, SHAKE for ShakeService's detector firing.
+ */
+final class Journeys {
+    static final String PACKAGE = "com.example.bilawoga";
+    private static final String HOOKS = PACKAGE + "/.BenchmarkHooksReceiver";
+    private static final String ACTION_SEED = PACKAGE + ".benchmark.SEED";
+    private static final String ACTION_SHAKE = PACKAGE + ".benchmark.SHAKE";
+    private static final long TIMEOUT_MS = 10_000;
+    private static final String[] PERMISSIONS = {
+            "android.permission.SEND_SMS",
+            "android.permission.RECEIVE_SMS",
+            "android.permission.ACCESS_FINE_LOCATION",
+            "android.permission.ACCESS_COARSE_LOCATION",
+            "android.permission.RECORD_AUDIO",
+            "android.permission.POST_NOTIFICATIONS"
+    };
+
+    private Journeys() {
+    }
+
+    /**
+     * Grant what MainActivity would ask for and seed an onboarded test profile, so every
+     * launch goes straight to MainActivity with no dialogs in the way. TEST_MODE keeps
+     * SMS on the emulator.
+     */
+    static void prepareApp() {
+        UiDevice device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+        for (String permission : PERMISSIONS) {
+            // Fails harmlessly for permissions the API level does not have
+            shell(device, "pm grant " + PACKAGE + " " + permission);
+        }
+        // am broadcast returns once the receiver has finished writing
+        shell(device, "am broadcast -n " + HOOKS + " -a " + ACTION_SEED);
+    }
+
+    /** Wait for MainActivity's SOS button to be enabled, i.e. AppStartup's ready step. */
+    static void awaitSosReady(MacrobenchmarkScope scope) {
+        BySelector send = By.res(PACKAGE, "send").enabled(true);
+        if (!scope.getDevice().wait(Until.hasObject(send), TIMEOUT_MS)) {
+            throw new AssertionError("SOS button not enabled within " + TIMEOUT_MS + " ms");
+        }
+    }
+
+    /** Trigger a shake SOS and wait for the countdown to show. */
+    static void shakeToCountdown(MacrobenchmarkScope scope) {
+        shell(scope.getDevice(), "am broadcast -n " + HOOKS + " -a " + ACTION_SHAKE);
+        if (!scope.getDevice().wait(Until.hasObject(By.res(PACKAGE, "timerText")), TIMEOUT_MS)) {
+            throw new AssertionError("Countdown not shown within " + TIMEOUT_MS + " ms");
+        }
+    }
+
+    /** Cancel the countdown, which also closes the SOS session for the next iteration. */
+    static void cancelCountdown(MacrobenchmarkScope scope) {
+        UiObject2 cancel = scope.getDevice().findObject(By.res(PACKAGE, "cancelBtn"));
+        if (cancel != null) {
+            cancel.click();
+        }
+        scope.getDevice().wait(Until.gone(By.res(PACKAGE, "timerText")), TIMEOUT_MS);
+    }
+
+    private static void shell(UiDevice device, String command) {
+        try {
+            device.executeShellCommand(command);
+        } catch (IOException e) {
+            throw new UncheckedIOException(command, e);
+        }
+    }
+}
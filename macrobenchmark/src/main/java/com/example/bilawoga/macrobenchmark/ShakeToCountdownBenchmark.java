@@ -0,0 +1,66 @@
+package com.example.bilawoga.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * From a shake SOS to CountdownActivity's first frame, with the app already running as it
+ * is when ShakeService fires. Measured by the SOSCoordinator.TRACE_COUNTDOWN section, so
+ * UI Automator's polling is not part of the number.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ShakeToCountdownBenchmark {
+    private static final int ITERATIONS = 10;
+    /** SOSCoordinator.TRACE_COUNTDOWN */
+    private static final String SECTION = "SosTriggerToCountdown";
+
+    @Rule
+    public final MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Before
+    public void setUp() {
+        Journeys.prepareApp();
+    }
+
+    @Test
+    public void shakeToCountdownNoCompilation() {
+        shakeToCountdown(new CompilationMode.None());
+    }
+
+    @Test
+    public void shakeToCountdownBaselineProfile() {
+        shakeToCountdown(new CompilationMode.Partial(BaselineProfileMode.Require, 0));
+    }
+
+    private void shakeToCountdown(CompilationMode compilationMode) {
+        rule.measureRepeated(
+                Journeys.PACKAGE,
+                Collections.singletonList(new TraceSectionMetric(SECTION)),
+                compilationMode,
+                // The setup block launches the app itself; the process stays up between iterations
+                null,
+                ITERATIONS,
+                scope -> {
+                    scope.startActivityAndWait();
+                    Journeys.awaitSosReady(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.shakeToCountdown(scope);
+                    Journeys.cancelCountdown(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -23,3 +23,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Bila woga"
 include(":app")
+include(":detection-core")
+include(":macrobenchmark")